@@ -3,18 +3,26 @@ package com.horstmann.violet.framework.file;
 
 import com.horstmann.violet.framework.dialog.DialogFactory;
 import com.horstmann.violet.framework.file.chooser.IFileChooserService;
+import com.horstmann.violet.framework.file.export.AlpReportDatabase;
+import com.horstmann.violet.framework.file.export.AlpStreamWriter;
 import com.horstmann.violet.framework.file.export.FileExportService;
+import com.horstmann.violet.framework.file.export.ThumbnailCache;
 import com.horstmann.violet.framework.file.naming.ExtensionFilter;
 import com.horstmann.violet.framework.file.naming.FileNamingService;
+import com.horstmann.violet.framework.file.persistence.AutoSavedGraph;
+import com.horstmann.violet.framework.file.persistence.EditJournal;
 import com.horstmann.violet.framework.file.persistence.IFilePersistenceService;
 import com.horstmann.violet.framework.file.persistence.IFileReader;
 import com.horstmann.violet.framework.file.persistence.IFileWriter;
+import com.horstmann.violet.framework.file.persistence.JFileWriter;
+import com.horstmann.violet.framework.file.persistence.XStreamBasedPersistenceService;
 import com.horstmann.violet.framework.injection.bean.ManiocFramework.BeanInjector;
 import com.horstmann.violet.framework.injection.bean.ManiocFramework.InjectedBean;
 import com.horstmann.violet.framework.injection.resources.ResourceBundleInjector;
 import com.horstmann.violet.framework.injection.resources.annotation.ResourceBundleBean;
 import com.horstmann.violet.framework.printer.PrintEngine;
 import com.horstmann.violet.framework.util.UniqueIDGenerator;
+import com.horstmann.violet.product.diagram.abstracts.AbstractGraph;
 import com.horstmann.violet.product.diagram.abstracts.IGraph;
 import com.horstmann.violet.product.diagram.abstracts.edge.IEdge;
 import com.horstmann.violet.product.diagram.abstracts.node.INode;
@@ -24,13 +32,15 @@ import com.itextpdf.io.image.ImageDataFactory;
 import com.itextpdf.text.pdf.PdfPTable;
 import com.itextpdf.text.pdf.draw.LineSeparator;
 import org.apache.commons.codec.binary.Base64;
-import org.w3c.dom.Document;
-import org.w3c.dom.Node;
-import org.xml.sax.InputSource;
-import org.xml.sax.SAXException;
 
-import java.awt.image.BufferedImage;
 import java.io.*;
+import java.math.BigDecimal;
+import java.math.RoundingMode;
+import java.nio.channels.FileChannel;
+import java.nio.file.AtomicMoveNotSupportedException;
+import java.nio.file.Files;
+import java.nio.file.StandardCopyOption;
+import java.nio.file.StandardOpenOption;
 
 import com.itextpdf.text.*;
 import com.itextpdf.text.DocumentException;
@@ -39,32 +49,30 @@ import com.itextpdf.text.pdf.PdfWriter;
 
 import javax.imageio.ImageIO;
 import javax.swing.*;
-import javax.xml.parsers.DocumentBuilder;
-import javax.xml.parsers.DocumentBuilderFactory;
-import javax.xml.parsers.ParserConfigurationException;
-import javax.xml.transform.OutputKeys;
-import javax.xml.transform.Transformer;
-import javax.xml.transform.TransformerException;
-import javax.xml.transform.TransformerFactory;
-import javax.xml.transform.dom.DOMSource;
-import javax.xml.transform.stream.StreamResult;
 import java.sql.*;
 import java.text.DecimalFormat;
+import java.text.DecimalFormatSymbols;
 import java.text.MessageFormat;
 import java.text.SimpleDateFormat;
 import java.time.LocalDateTime;
 import java.time.format.DateTimeFormatter;
 import java.util.ArrayList;
 import java.util.List;
+import java.util.Locale;
 import java.util.Random;
+import java.util.concurrent.ExecutionException;
+import java.util.concurrent.ExecutorService;
+import java.util.concurrent.Executors;
+import java.util.concurrent.Future;
+import java.util.concurrent.TimeUnit;
 
 import static com.itextpdf.text.pdf.PdfName.FONT;
 import static java.lang.Math.round;
 
 public class GraphFile implements IGraphFile {
-    private static Connection con;
-    private static Statement stmt;
-    private static ResultSet rs;
+    /** Number of report queries run at the same time, each on its own connection */
+    private static final int REPORT_CONNECTIONS = 4;
+
     /**
      * Creates a new graph file with a new graph instance
      *
@@ -104,11 +112,57 @@ public class GraphFile implements IGraphFile {
         }
     }
 
+    /**
+     * Constructs a graph file from a graph recovered after a crash. Its autosaved files are replaced by a new journal.
+     *
+     * @param autoSavedGraph
+     */
+    public GraphFile(AutoSavedGraph autoSavedGraph) throws IOException {
+        ResourceBundleInjector.getInjector().inject(this);
+        BeanInjector.getInjector().inject(this);
+        this.graph = autoSavedGraph.replay();
+        this.currentFilename = autoSavedGraph.getFilename();
+        this.currentDirectory = autoSavedGraph.getDirectory();
+        getEditJournal().checkpoint();
+        getSaveExecutor().execute(autoSavedGraph::delete);
+    }
+
+    /**
+     * @return graphs left in the autosave directory by sessions which ended before they were saved or closed
+     */
+    public static List<AutoSavedGraph> getAutoSavedGraphs() {
+        return AutoSavedGraph.find(new File(autoSaveDirectory));
+    }
+
     @Override
     public IGraph getGraph() {
         return this.graph;
     }
 
+    @Override
+    public EditJournal getEditJournal() {
+        if (this.editJournal == null) {
+            this.autoSaveFilename = "autosave-" + UniqueIDGenerator.getNewId();
+            this.editJournal = new EditJournal(this, new File(autoSaveDirectory), this.autoSaveFilename, getSaveExecutor());
+        }
+        return this.editJournal;
+    }
+
+    @Override
+    public void discardAutoSave() {
+        if (this.editJournal == null) {
+            return;
+        }
+        final EditJournal journal = this.editJournal;
+        journal.close();
+        getSaveExecutor().execute(() -> {
+            // After a failed save, the journal is the only copy of the edits
+            if (!this.isLastSaveFailed) {
+                journal.deleteFiles();
+            }
+        });
+    }
+
     @Override
     public String getFilename() {
         return this.currentFilename;
@@ -122,6 +176,11 @@ public class GraphFile implements IGraphFile {
     @Override
     public void setSaveRequired() {
         this.isSaveRequired = true;
+        // The preview embedded in saved files is drawn again once edits settle
+        if (this.graph instanceof AbstractGraph) {
+            ((AbstractGraph) this.graph).incrementRevision();
+        }
+        ThumbnailCache.scheduleUpdate(this.graph);
         fireGraphModified();
     }
 
@@ -150,12 +209,9 @@ public class GraphFile implements IGraphFile {
         }
         try {
             IFileWriter fileSaver = getFileSaver(false);
-            OutputStream outputStream = fileSaver.getOutputStream();
-            this.filePersistenceService.write(this.graph, outputStream);
-            this.isSaveRequired = false;
-            fireGraphSaved();
             this.currentFilename = fileSaver.getFileDefinition().getFilename();
             this.currentDirectory = fileSaver.getFileDefinition().getDirectory();
+            saveInBackground(fileSaver);
         } catch (Exception e) {
             throw new RuntimeException(e);
         }
@@ -169,18 +225,123 @@ public class GraphFile implements IGraphFile {
                 // This appends when the action is cancelled
                 return;
             }
-            OutputStream outputStream = fileSaver.getOutputStream();
-            this.filePersistenceService.write(this.graph, outputStream);
-            this.isSaveRequired = false;
             this.currentFilename = fileSaver.getFileDefinition().getFilename();
             this.currentDirectory = fileSaver.getFileDefinition().getDirectory();
-            fireGraphSaved();
+            saveInBackground(fileSaver);
         } catch (IOException e1) {
             String message = MessageFormat.format(fileExportErrorMessage, e1.getMessage());
             JOptionPane.showMessageDialog(null, message, fileExportError, JOptionPane.ERROR_MESSAGE);
         }
     }
 
+    /**
+     * Saves the graph as it is now without blocking its edition. A copy of the graph is taken on the calling thread, then
+     * written by a background thread. Local files are replaced by a complete new file, so that a failed save leaves them
+     * unchanged. Listeners are told on the event dispatch thread when the file is saved.
+     */
+    private void saveInBackground(final IFileWriter fileSaver) throws IOException {
+        final IGraph graphCopy = copyGraph(this.graph);
+        final byte[] preview = ThumbnailCache.getCachedPng(this.graph);
+        final int revision = this.graph instanceof AbstractGraph ? ((AbstractGraph) this.graph).getRevision() : 0;
+        this.isSaveRequired = false;
+        getSaveExecutor().execute(() -> {
+            try {
+                if (preview != null) {
+                    ThumbnailCache.putPng(graphCopy, preview);
+                }
+                if (fileSaver instanceof JFileWriter) {
+                    replaceFile(((JFileWriter) fileSaver).getFile(), graphCopy);
+                } else {
+                    this.filePersistenceService.write(graphCopy, fileSaver.getOutputStream());
+                }
+                // The preview was drawn from the copy, the edited graph is only drawn by the event dispatch thread
+                if (preview == null) {
+                    ThumbnailCache.putPng(this.graph, ThumbnailCache.getCachedPng(graphCopy), revision);
+                }
+                SwingUtilities.invokeLater(() -> {
+                    fireGraphSaved();
+                    // Edited while being saved
+                    if (this.isSaveRequired) {
+                        fireGraphModified();
+                    } else if (this.editJournal != null) {
+                        this.editJournal.reset(graphCopy);
+                    }
+                });
+                this.isLastSaveFailed = false;
+            } catch (Exception e) {
+                e.printStackTrace();
+                this.isLastSaveFailed = true;
+                SwingUtilities.invokeLater(() -> {
+                    setSaveRequired();
+                    String message = MessageFormat.format(fileExportErrorMessage, e.getMessage());
+                    JOptionPane.showMessageDialog(null, message, fileExportError, JOptionPane.ERROR_MESSAGE);
+                });
+            }
+        });
+    }
+
+    /**
+     * @return an independent copy of the graph, cloned rather than serialized for the graphs of diagram plugins
+     */
+    private static IGraph copyGraph(IGraph graph) throws IOException {
+        if (graph instanceof AbstractGraph) {
+            return ((AbstractGraph) graph).copy();
+        }
+        ByteArrayOutputStream out = new ByteArrayOutputStream();
+        XStreamBasedPersistenceService persistenceService = new XStreamBasedPersistenceService();
+        persistenceService.write(graph, out);
+        return persistenceService.read(new ByteArrayInputStream(out.toByteArray()));
+    }
+
+    /**
+     * Writes the graph to a temporary file of the same directory, flushed to disk, which then replaces the file
+     */
+    private void replaceFile(File file, IGraph graph) throws IOException {
+        File temporaryFile = File.createTempFile("." + file.getName() + ".", ".tmp", file.getAbsoluteFile().getParentFile());
+        try {
+            OutputStream out = new BufferedOutputStream(new FileOutputStream(temporaryFile));
+            try {
+                this.filePersistenceService.write(graph, out);
+            } finally {
+                out.close();
+            }
+            try (FileChannel channel = FileChannel.open(temporaryFile.toPath(), StandardOpenOption.WRITE)) {
+                channel.force(true);
+            }
+            try {
+                Files.move(temporaryFile.toPath(), file.toPath(), StandardCopyOption.ATOMIC_MOVE, StandardCopyOption.REPLACE_EXISTING);
+            } catch (AtomicMoveNotSupportedException e) {
+                Files.move(temporaryFile.toPath(), file.toPath(), StandardCopyOption.REPLACE_EXISTING);
+            }
+        } finally {
+            Files.deleteIfExists(temporaryFile.toPath());
+        }
+    }
+
+    /**
+     * @return the thread writing saved files, one after the other. Saves still running when the application exits are
+     *         completed first.
+     */
+    private static synchronized ExecutorService getSaveExecutor() {
+        if (saveExecutor == null) {
+            final ExecutorService executor = Executors.newSingleThreadExecutor(r -> {
+                Thread thread = new Thread(r, "File saver");
+                thread.setDaemon(true);
+                return thread;
+            });
+            Runtime.getRuntime().addShutdownHook(new Thread(() -> {
+                executor.shutdown();
+                try {
+                    executor.awaitTermination(1, TimeUnit.MINUTES);
+                } catch (InterruptedException e) {
+                    Thread.currentThread().interrupt();
+                }
+            }));
+            saveExecutor = executor;
+        }
+        return saveExecutor;
+    }
+
     /**
      * Returns a IFileSaver instance. Then, this object allows to save graph content. If the graph has never been saved, the
      * FileChooserService<br/>
@@ -271,7 +432,14 @@ public class GraphFile implements IGraphFile {
         try {
 
             try {
-                ImageIO.write(FileExportService.getImage(this.graph), format, out);
+                if ("png".equalsIgnoreCase(format)) {
+                    // Written band by band, wide diagrams would not fit in memory as a single image
+                    BufferedOutputStream bufferedOut = new BufferedOutputStream(out);
+                    FileExportService.exportToPng(this.graph, bufferedOut);
+                    bufferedOut.flush();
+                } else {
+                    ImageIO.write(FileExportService.getImage(this.graph), format, out);
+                }
             } finally {
                 out.close();
             }
@@ -329,422 +497,297 @@ public class GraphFile implements IGraphFile {
         }
 
         String jdbcURL = "jdbc:hsqldb:hsql://localhost:9001/model"+graph.getId();
-        String query;
 
         com.itextpdf.text.Document document = new com.itextpdf.text.Document();
 
-        PdfWriter.getInstance(document, new FileOutputStream("\\MODELS\\"+graph.getTimeStamp()+"\\report_"+
+        PdfWriter writer = PdfWriter.getInstance(document, new FileOutputStream("\\MODELS\\"+graph.getTimeStamp()+"\\report_"+
                 LocalDateTime.now().format(DateTimeFormatter.ofPattern("dd_MM_yyyy_HH_mm_ss"))+".pdf"));
 
-        document.open();
-
-        document.add(new Paragraph("Simulation Experiment report", FontFactory.getFont(FontFactory.COURIER, 20)));
-
-        document.add( Chunk.NEWLINE );
-
-        // ОСНОВНАЯ ИНФА
-        document.add(new Paragraph("Model - Model"+graph.getId()));
-
-        document.add(new Paragraph("Creation date - "+graph.getTimeStamp()));
-
-        String simTime = null;
-
-        query = "SELECT * FROM STATISTICS_LOG " +
-                "WHERE NAME = 'SimulationTime'";
-
-        try {
-            con = DriverManager.getConnection(jdbcURL);
-            stmt = con.createStatement();
-            rs = stmt.executeQuery(query);
-
-            while (rs.next()) {
-                simTime = String.format("%.3f",rs.getDouble("MAXIMUM"));
-            }
-
-        } catch (SQLException sqlEx) {
-            sqlEx.printStackTrace();
-        } finally {
-            try { con.close(); } catch(SQLException se) { /*can't do anything */ }
-            try { stmt.close(); } catch(SQLException se) { /*can't do anything */ }
-            try { rs.close(); } catch(SQLException se) { /*can't do anything */ }
-        }
-
-        document.add(new Paragraph("Simulation time - from 0 to "+simTime+" seconds"));
-
-        document.add( Chunk.NEWLINE );
-        BufferedImage bufferedImage = FileExportService.getImage(this.graph);
-        ByteArrayOutputStream baos = new ByteArrayOutputStream();
-        ImageIO.write(bufferedImage, "png", baos);
-        Image iTextImage = Image.getInstance(baos.toByteArray());
-        float scaleRatio = calculateScaleRatio(document, iTextImage);
-        if (scaleRatio < 1F) {
-            iTextImage.scalePercent(scaleRatio * 100F);
-        }
-        document.add(iTextImage);
-        document.add( Chunk.NEWLINE );
-///
-        document.add( Chunk.NEWLINE );
-        document.add(new Paragraph("Parameters:"));
-        document.add( Chunk.NEWLINE );
-        PdfPTable table = new PdfPTable(new float[] { 4, 4});
-        table.getDefaultCell().setHorizontalAlignment(Element.ALIGN_CENTER);
-        table.addCell("Parameter");
-        table.addCell("Value");
-        table.setHeaderRows(1);
-        PdfPCell[] cells = table.getRow(0).getCells();
-        for (PdfPCell cell : cells) {
-            cell.setBackgroundColor(BaseColor.GREEN);
-        }
-
-        for (INode node : graph.getAllNodes()) {
-            switch (node.getClass().getSimpleName()) {
-                case ("StateNode"):
-                    table.addCell("Tserv_"+node.getId());
-
-                    table.addCell(node.getTob());
-                    break;
-                case ("CircularInitialStateNode"):
-                    table.addCell("Lambda_"+node.getId());
-
-                    table.addCell(node.getLambda());
-                    break;
-                default:
-                    break;
-            }
-        }
-        document.add(table);
-
-///
-        document.add( Chunk.NEWLINE );
-        document.add(new Paragraph("Histogram of the average transaction time in the system:"));
-        document.add( Chunk.NEWLINE );
-        table = new PdfPTable(new float[] { 2, 2, 2, 2});
-        table.getDefaultCell().setHorizontalAlignment(Element.ALIGN_CENTER);
-        table.addCell("Start");
-        table.addCell("End");
-        table.addCell("PDF");
-        table.addCell("CDF");
-        table.setHeaderRows(1);
-        cells = table.getRow(0).getCells();
-        for (PdfPCell cell : cells) {
-            cell.setBackgroundColor(BaseColor.GREEN);
-        }
-
-        query = "SELECT * FROM HISTOGRAMS_LOG";
+        final char separator = DecimalFormatSymbols.getInstance(Locale.getDefault(Locale.Category.FORMAT)).getDecimalSeparator();
 
+        // All queries are started at once, tables are added to the document in order as they are filled
+        AlpReportDatabase database = new AlpReportDatabase(jdbcURL, REPORT_CONNECTIONS);
         try {
-            con = DriverManager.getConnection(jdbcURL);
-            stmt = con.createStatement();
-            rs = stmt.executeQuery(query);
-
-            while (rs.next()) {
+            Future<String> simTime = database.submit(
+                    "SELECT MAXIMUM FROM STATISTICS_LOG WHERE NAME = 'SimulationTime'", rs -> {
+                        String time = null;
+                        while (rs.next()) {
+                            time = formatDecimal(rs.getDouble(1), separator);
+                        }
+                        return time;
+                    });
 
-                table.addCell(String.format("%.3f",rs.getDouble("START")));
+            final PdfPTable histogramTable = createReportTable(new float[] { 2, 2, 2, 2 }, "Start", "End", "PDF", "CDF");
+            Future<?> histogram = database.submit("SELECT \"START\", \"END\", PDF, CDF FROM HISTOGRAMS_LOG", rs -> {
+                while (rs.next()) {
+                    histogramTable.addCell(formatDecimal(rs.getDouble(1), separator));
+                    histogramTable.addCell(formatDecimal(rs.getDouble(2), separator));
+                    histogramTable.addCell(formatDecimal(rs.getDouble(3), separator));
+                    histogramTable.addCell(formatDecimal(rs.getDouble(4), separator));
+                }
+                return null;
+            });
+
+            final PdfPTable distributionTable = createReportTable(new float[] { 2, 2, 2, 2, 2 },
+                    "Mean", "Deviation", "Min", "Max", "N");
+            Future<?> distribution = database.submit(
+                    "SELECT MEAN, DEVIATION, MINIMUM, MAXIMUM, NUMBER FROM STATISTICS_LOG WHERE NAME = 'distribution'", rs -> {
+                        while (rs.next()) {
+                            distributionTable.addCell(formatDecimal(rs.getDouble(1), separator));
+                            distributionTable.addCell(formatDecimal(rs.getDouble(2), separator));
+                            distributionTable.addCell(formatDecimal(rs.getDouble(3), separator));
+                            distributionTable.addCell(formatDecimal(rs.getDouble(4), separator));
+                            distributionTable.addCell(String.valueOf(rs.getInt(5)));
+                        }
+                        return null;
+                    });
 
-                table.addCell(String.format("%.3f",rs.getDouble("END")));
+            final PdfPTable timeInStateTable = createReportTable(new float[] { 2, 2, 2, 2, 2, 2, 2, 2 }, "Block type", "Block",
+                    "Activity type", "Mean sec", "Total sec", "Min sec", "Max sec", "N agents");
+            Future<?> timeInState = database.submit("SELECT BLOCK_TYPE, BLOCK, ACTIVITY_TYPE, MEAN_SECONDS, TOTAL_SECONDS, "
+                    + "MIN_SECONDS, MAX_SECONDS, N_AGENTS FROM FLOWCHART_STATS_TIME_IN_STATE_LOG", rs -> {
+                        while (rs.next()) {
+                            timeInStateTable.addCell(rs.getString(1));
+                            timeInStateTable.addCell(rs.getString(2));
+                            timeInStateTable.addCell(rs.getString(3));
+                            timeInStateTable.addCell(formatDecimal(rs.getDouble(4), separator));
+                            timeInStateTable.addCell(formatDecimal(rs.getDouble(5), separator));
+                            timeInStateTable.addCell(formatDecimal(rs.getDouble(6), separator));
+                            timeInStateTable.addCell(formatDecimal(rs.getDouble(7), separator));
+                            timeInStateTable.addCell(String.valueOf(rs.getInt(8)));
+                        }
+                        return null;
+                    });
 
-                table.addCell(String.format("%.3f",rs.getDouble("PDF")));
+            final PdfPTable poolTaskTable = createReportTable(new float[] { 4, 3, 3, 2, 3 },
+                    "Resource pool", "Mean sec", "Total sec", "N tasks", "output");
+            Future<?> poolTask = database.submit(
+                    "SELECT RESOURCE_POOL, MEAN_SECONDS, TOTAL_SECONDS, N_TASKS FROM RESOURCE_POOL_TASK_STATS_LOG", rs -> {
+                        while (rs.next()) {
+                            double meanSeconds = rs.getDouble(2);
+                            poolTaskTable.addCell(rs.getString(1));
+                            poolTaskTable.addCell(formatDecimal(meanSeconds, separator));
+                            poolTaskTable.addCell(formatDecimal(rs.getDouble(3), separator));
+                            poolTaskTable.addCell(String.valueOf(rs.getInt(4)));
+                            poolTaskTable.addCell(formatDecimal(1 / meanSeconds, separator));
+                        }
+                        return null;
+                    });
 
-                table.addCell(String.format("%.3f",rs.getDouble("CDF")));            }
+            final PdfPTable poolUtilizationTable = createReportTable(new float[] { 4, 2, 2 },
+                    "Resource pool", "Utilization", "Size");
+            Future<?> poolUtilization = database.submit(
+                    "SELECT RESOURCE_POOL, UTILIZATION, SIZE FROM RESOURCE_POOL_UTILIZATION_LOG", rs -> {
+                        while (rs.next()) {
+                            poolUtilizationTable.addCell(rs.getString(1));
+                            poolUtilizationTable.addCell(formatDecimal(rs.getDouble(2), separator));
+                            poolUtilizationTable.addCell(String.valueOf(rs.getInt(3)));
+                        }
+                        return null;
+                    });
 
-        } catch (SQLException sqlEx) {
-            sqlEx.printStackTrace();
-        } finally {
-            try { con.close(); } catch(SQLException se) { /*can't do anything */ }
-            try { stmt.close(); } catch(SQLException se) { /*can't do anything */ }
-            try { rs.close(); } catch(SQLException se) { /*can't do anything */ }
-        }
-        document.add(table);
+            final PdfPTable unitTaskTable = createReportTable(new float[] { 4, 4, 3, 3, 3 },
+                    "Resource pool", "Unit", "Mean sec", "Total sec", "N");
+            Future<?> unitTask = database.submit(
+                    "SELECT RESOURCE_POOL, UNIT, MEAN_SECONDS, TOTAL_SECONDS, N_TASKS FROM RESOURCE_UNIT_TASK_STATS_LOG", rs -> {
+                        while (rs.next()) {
+                            unitTaskTable.addCell(rs.getString(1));
+                            unitTaskTable.addCell(rs.getString(2));
+                            unitTaskTable.addCell(formatDecimal(rs.getDouble(3), separator));
+                            unitTaskTable.addCell(formatDecimal(rs.getDouble(4), separator));
+                            unitTaskTable.addCell(String.valueOf(rs.getInt(5)));
+                        }
+                        return null;
+                    });
 
+            final PdfPTable unitUtilizationTable = createReportTable(new float[] { 3, 3, 3 },
+                    "Resource pool", "Unit", "Utilization");
+            Future<?> unitUtilization = database.submit(
+                    "SELECT RESOURCE_POOL, UNIT, UTILIZATION FROM RESOURCE_UNIT_UTILIZATION_LOG", rs -> {
+                        while (rs.next()) {
+                            unitUtilizationTable.addCell(rs.getString(1));
+                            unitUtilizationTable.addCell(rs.getString(2));
+                            unitUtilizationTable.addCell(formatDecimal(rs.getDouble(3), separator));
+                        }
+                        return null;
+                    });
 
-        document.add( Chunk.NEWLINE );
-        // ИМЯ ТАБЛИЦЫ
-        document.add(new Paragraph("The time characteristics of transactions in the system:"));
-        document.add( Chunk.NEWLINE );
-        table = new PdfPTable(new float[] {2, 2, 2, 2, 2});
-        table.getDefaultCell().setHorizontalAlignment(Element.ALIGN_CENTER);
-        // ОПРЕДЕЛЕНИЕ ИМЕН СТОЛБЦОВ
-        table.addCell("Mean");
-        table.addCell("Deviation");
-        table.addCell("Min");
-        table.addCell("Max");
-        table.addCell("N");
-        table.setHeaderRows(1);
-        cells = table.getRow(0).getCells();
-        // ЗАДАНИЕ ЦВЕТА ЗАГОЛОВКОВ
-        for (PdfPCell cell : cells) {
-            cell.setBackgroundColor(BaseColor.GREEN);
-        }
-        // ЗАПРОС В БАЗУ ДАННЫХ ИЗ ТАБЛИЦЫ STATISTICS_LOG
-        query = "SELECT * FROM STATISTICS_LOG WHERE NAME = 'distribution'";
+            final PdfPTable queueSizeTable = createReportTable(new float[] { 3, 3 }, "Service", "Size");
+            Future<?> queueSize = database.submit(
+                    "SELECT NAME, MEAN FROM STATISTICS_LOG WHERE NAME LIKE 'queueSize%'", rs -> {
+                        while (rs.next()) {
+                            queueSizeTable.addCell(rs.getString(1));
+                            queueSizeTable.addCell(formatDecimal(rs.getDouble(2), separator));
+                        }
+                        return null;
+                    });
 
-        try {
-            con = DriverManager.getConnection(jdbcURL);
-            stmt = con.createStatement();
-            rs = stmt.executeQuery(query);
-        // ДОБАВЛЕНИЕ ЗНАЧЕНИЙ В ТАБЛИЦУ
-            while (rs.next()) {
-                table.addCell(String.format("%.3f",rs.getDouble("MEAN")));
-                table.addCell(String.format("%.3f",rs.getDouble("DEVIATION")));
-                table.addCell(String.format("%.3f",rs.getDouble("MINIMUM")));
-                table.addCell(String.format("%.3f",rs.getDouble("MAXIMUM")));
-                table.addCell(String.valueOf(rs.getInt("NUMBER")));
-            }
+            document.open();
 
-        } catch (SQLException sqlEx) {
-            sqlEx.printStackTrace();
-        } finally {
-            try { con.close(); } catch(SQLException se) { /*can't do anything */ }
-            try { stmt.close(); } catch(SQLException se) { /*can't do anything */ }
-            try { rs.close(); } catch(SQLException se) { /*can't do anything */ }
-        }
-        // ДОБАВЛЕНИЕ ТАБЛИЦЫ В ДОКУМЕНТ
-        document.add(table);
-
-        // ЖУРНАЛ 2
-        document.add( Chunk.NEWLINE );
-        document.add(new Paragraph("The aggregated statistics on time that transactions spent in blocks:"));
-        document.add( Chunk.NEWLINE );
-        table = new PdfPTable(new float[] { 2, 2, 2, 2, 2, 2, 2, 2 });
-        table.getDefaultCell().setHorizontalAlignment(Element.ALIGN_CENTER);
-        table.addCell("Block type");
-        table.addCell("Block");
-        table.addCell("Activity type");
-        table.addCell("Mean sec");
-        table.addCell("Total sec");
-        table.addCell("Min sec");
-        table.addCell("Max sec");
-        table.addCell("N agents");
-        table.setHeaderRows(1);
-        cells = table.getRow(0).getCells();
-        for (PdfPCell cell : cells) {
-            cell.setBackgroundColor(BaseColor.GREEN);
-        }
+            document.add(new Paragraph("Simulation Experiment report", FontFactory.getFont(FontFactory.COURIER, 20)));
 
-        query = "SELECT * FROM FLOWCHART_STATS_TIME_IN_STATE_LOG";
+            document.add( Chunk.NEWLINE );
 
-        try {
-            con = DriverManager.getConnection(jdbcURL);
-            stmt = con.createStatement();
-            rs = stmt.executeQuery(query);
+            // ОСНОВНАЯ ИНФА
+            document.add(new Paragraph("Model - Model"+graph.getId()));
 
-            while (rs.next()) {
-                table.addCell(rs.getString("BLOCK_TYPE"));
-                table.addCell(rs.getString("BLOCK"));
-                table.addCell(rs.getString("ACTIVITY_TYPE"));
+            document.add(new Paragraph("Creation date - "+graph.getTimeStamp()));
 
-                table.addCell(String.format("%.3f",rs.getDouble("MEAN_SECONDS")));
-                table.addCell(String.format("%.3f",rs.getDouble("TOTAL_SECONDS")));
-                table.addCell(String.format("%.3f",rs.getDouble("MIN_SECONDS")));
-                table.addCell(String.format("%.3f",rs.getDouble("MAX_SECONDS")));
+            document.add(new Paragraph("Simulation time - from 0 to "+getReportResult(simTime)+" seconds"));
 
-                table.addCell(String.valueOf(rs.getInt("N_AGENTS")));
+            document.add( Chunk.NEWLINE );
+            // Drawn as vectors, the diagram stays sharp when the report is zoomed
+            Image iTextImage = Image.getInstance(FileExportService.exportToPdfTemplate(this.graph, writer.getDirectContent()));
+            float scaleRatio = calculateScaleRatio(document, iTextImage);
+            if (scaleRatio < 1F) {
+                iTextImage.scalePercent(scaleRatio * 100F);
             }
+            document.add(iTextImage);
+            document.add( Chunk.NEWLINE );
+///
+            document.add( Chunk.NEWLINE );
+            document.add(new Paragraph("Parameters:"));
+            document.add( Chunk.NEWLINE );
+            PdfPTable table = createReportTable(new float[] { 4, 4 }, "Parameter", "Value");
 
-        } catch (SQLException sqlEx) {
-            sqlEx.printStackTrace();
-        } finally {
-            try { con.close(); } catch(SQLException se) { /*can't do anything */ }
-            try { stmt.close(); } catch(SQLException se) { /*can't do anything */ }
-            try { rs.close(); } catch(SQLException se) { /*can't do anything */ }
-        }
-        document.add(table);
-
-        // ЖУРНАЛ 3
-        document.add( Chunk.NEWLINE );
-        document.add(new Paragraph("Resource pool task stats:"));
-        document.add( Chunk.NEWLINE );
-        table = new PdfPTable(new float[] { 4, 3, 3, 2, 3});
-        table.getDefaultCell().setHorizontalAlignment(Element.ALIGN_CENTER);
-        table.addCell("Resource pool");
-        table.addCell("Mean sec");
-        table.addCell("Total sec");
-        table.addCell("N tasks");
-        table.addCell("output");
-        table.setHeaderRows(1);
-        cells = table.getRow(0).getCells();
-        for (PdfPCell cell : cells) {
-            cell.setBackgroundColor(BaseColor.GREEN);
-        }
-
-        query = "SELECT * FROM RESOURCE_POOL_TASK_STATS_LOG";
-
-        try {
-            con = DriverManager.getConnection(jdbcURL);
-            stmt = con.createStatement();
-            rs = stmt.executeQuery(query);
-
-            while (rs.next()) {
-                table.addCell(rs.getString("RESOURCE_POOL"));
+            for (INode node : graph.getAllNodes()) {
+                switch (node.getClass().getSimpleName()) {
+                    case ("StateNode"):
+                        table.addCell("Tserv_"+node.getId());
 
-                table.addCell(String.format("%.3f",rs.getDouble("MEAN_SECONDS")));
-                table.addCell(String.format("%.3f",rs.getDouble("TOTAL_SECONDS")));
+                        table.addCell(node.getTob());
+                        break;
+                    case ("CircularInitialStateNode"):
+                        table.addCell("Lambda_"+node.getId());
 
-                table.addCell(String.valueOf(rs.getInt("N_TASKS")));
-                table.addCell(String.format("%.3f",(1 / rs.getDouble("MEAN_SECONDS"))));
+                        table.addCell(node.getLambda());
+                        break;
+                    default:
+                        break;
+                }
             }
+            document.add(table);
 
-        } catch (SQLException sqlEx) {
-            sqlEx.printStackTrace();
+///
+            document.add( Chunk.NEWLINE );
+            document.add(new Paragraph("Histogram of the average transaction time in the system:"));
+            document.add( Chunk.NEWLINE );
+            getReportResult(histogram);
+            document.add(histogramTable);
+
+
+            document.add( Chunk.NEWLINE );
+            // ИМЯ ТАБЛИЦЫ
+            document.add(new Paragraph("The time characteristics of transactions in the system:"));
+            document.add( Chunk.NEWLINE );
+            getReportResult(distribution);
+            document.add(distributionTable);
+
+            // ЖУРНАЛ 2
+            document.add( Chunk.NEWLINE );
+            document.add(new Paragraph("The aggregated statistics on time that transactions spent in blocks:"));
+            document.add( Chunk.NEWLINE );
+            getReportResult(timeInState);
+            document.add(timeInStateTable);
+
+            // ЖУРНАЛ 3
+            document.add( Chunk.NEWLINE );
+            document.add(new Paragraph("Resource pool task stats:"));
+            document.add( Chunk.NEWLINE );
+            getReportResult(poolTask);
+            document.add(poolTaskTable);
+
+            // ЖУРНАЛ 4
+            document.add( Chunk.NEWLINE );
+            document.add(new Paragraph("Resource pool utilization:"));
+            document.add( Chunk.NEWLINE );
+            getReportResult(poolUtilization);
+            document.add(poolUtilizationTable);
+
+            // ЖУРНАЛ 5
+            document.add( Chunk.NEWLINE );
+            document.add(new Paragraph("Resource unit task stats:"));
+            document.add( Chunk.NEWLINE );
+            getReportResult(unitTask);
+            document.add(unitTaskTable);
+
+            // ЖУРНАЛ 6
+            document.add( Chunk.NEWLINE );
+            document.add(new Paragraph("Resource unit utilization:"));
+            document.add( Chunk.NEWLINE );
+            getReportResult(unitUtilization);
+            document.add(unitUtilizationTable);
+
+            document.add( Chunk.NEWLINE );
+            document.add(new Paragraph("Average queue size of the service node:"));
+            document.add( Chunk.NEWLINE );
+            getReportResult(queueSize);
+            document.add(queueSizeTable);
+
+            document.close();
         } finally {
-            try { con.close(); } catch(SQLException se) { /*can't do anything */ }
-            try { stmt.close(); } catch(SQLException se) { /*can't do anything */ }
-            try { rs.close(); } catch(SQLException se) { /*can't do anything */ }
+            database.close();
         }
-        document.add(table);
+    }
 
-        // ЖУРНАЛ 4
-        document.add( Chunk.NEWLINE );
-        document.add(new Paragraph("Resource pool utilization:"));
-        document.add( Chunk.NEWLINE );
-        table = new PdfPTable(new float[] { 4, 2, 2});
+    /**
+     * Creates a report table with a green header row
+     *
+     * @param relativeWidths widths of the columns
+     * @param headers        titles of the columns
+     */
+    private static PdfPTable createReportTable(float[] relativeWidths, String... headers) {
+        PdfPTable table = new PdfPTable(relativeWidths);
         table.getDefaultCell().setHorizontalAlignment(Element.ALIGN_CENTER);
-        table.addCell("Resource pool");
-        table.addCell("Utilization");
-        table.addCell("Size");
-        table.setHeaderRows(1);
-        cells = table.getRow(0).getCells();
-        for (PdfPCell cell : cells) {
-            cell.setBackgroundColor(BaseColor.GREEN);
-        }
-
-        query = "SELECT * FROM RESOURCE_POOL_UTILIZATION_LOG";
-
-        try {
-            con = DriverManager.getConnection(jdbcURL);
-            stmt = con.createStatement();
-            rs = stmt.executeQuery(query);
-
-            while (rs.next()) {
-                table.addCell(rs.getString("RESOURCE_POOL"));
-                table.addCell(String.format("%.3f",rs.getDouble("UTILIZATION")));
-                table.addCell(String.valueOf(rs.getInt("SIZE")));
-            }
-
-        } catch (SQLException sqlEx) {
-            sqlEx.printStackTrace();
-        } finally {
-            try { con.close(); } catch(SQLException se) { /*can't do anything */ }
-            try { stmt.close(); } catch(SQLException se) { /*can't do anything */ }
-            try { rs.close(); } catch(SQLException se) { /*can't do anything */ }
+        for (String header : headers) {
+            table.addCell(header);
         }
-        document.add(table);
-
-        // ЖУРНАЛ 5
-        document.add( Chunk.NEWLINE );
-        document.add(new Paragraph("Resource unit task stats:"));
-        document.add( Chunk.NEWLINE );
-        table = new PdfPTable(new float[] { 4, 4, 3, 3, 3});
-        table.getDefaultCell().setHorizontalAlignment(Element.ALIGN_CENTER);
-        table.addCell("Resource pool");
-        table.addCell("Unit");
-        table.addCell("Mean sec");
-        table.addCell("Total sec");
-        table.addCell("N");
         table.setHeaderRows(1);
-        cells = table.getRow(0).getCells();
-        for (PdfPCell cell : cells) {
+        for (PdfPCell cell : table.getRow(0).getCells()) {
             cell.setBackgroundColor(BaseColor.GREEN);
         }
+        return table;
+    }
 
-        query = "SELECT * FROM RESOURCE_UNIT_TASK_STATS_LOG";
-
+    /**
+     * Waits for a report query. A failed query is only printed, and the report goes on with what could be read.
+     *
+     * @return the result of the query, null if it failed
+     */
+    private static <T> T getReportResult(Future<T> query) {
         try {
-            con = DriverManager.getConnection(jdbcURL);
-            stmt = con.createStatement();
-            rs = stmt.executeQuery(query);
-
-            while (rs.next()) {
-                table.addCell(rs.getString("RESOURCE_POOL"));
-                table.addCell(rs.getString("UNIT"));
-                table.addCell(String.format("%.3f",rs.getDouble("MEAN_SECONDS")));
-                table.addCell(String.format("%.3f",rs.getDouble("TOTAL_SECONDS")));
-                table.addCell(String.valueOf(rs.getInt("N_TASKS")));
-            }
-
-        } catch (SQLException sqlEx) {
-            sqlEx.printStackTrace();
-        } finally {
-            try { con.close(); } catch(SQLException se) { /*can't do anything */ }
-            try { stmt.close(); } catch(SQLException se) { /*can't do anything */ }
-            try { rs.close(); } catch(SQLException se) { /*can't do anything */ }
-        }
-        document.add(table);
-
-        // ЖУРНАЛ 6
-        document.add( Chunk.NEWLINE );
-        document.add(new Paragraph("Resource unit utilization:"));
-        document.add( Chunk.NEWLINE );
-        table = new PdfPTable(new float[] { 3, 3, 3});
-        table.getDefaultCell().setHorizontalAlignment(Element.ALIGN_CENTER);
-        table.addCell("Resource pool");
-        table.addCell("Unit");
-        table.addCell("Utilization");
-        table.setHeaderRows(1);
-        cells = table.getRow(0).getCells();
-        for (PdfPCell cell : cells) {
-            cell.setBackgroundColor(BaseColor.GREEN);
+            return query.get();
+        } catch (ExecutionException e) {
+            e.getCause().printStackTrace();
+        } catch (InterruptedException e) {
+            Thread.currentThread().interrupt();
         }
+        return null;
+    }
 
-        query = "SELECT * FROM RESOURCE_UNIT_UTILIZATION_LOG";
-
-        try {
-            con = DriverManager.getConnection(jdbcURL);
-            stmt = con.createStatement();
-            rs = stmt.executeQuery(query);
-
-            while (rs.next()) {
-                table.addCell(rs.getString("RESOURCE_POOL"));
-                table.addCell(rs.getString("UNIT"));
-                table.addCell(String.format("%.3f",rs.getDouble("UTILIZATION")));          }
-
-        } catch (SQLException sqlEx) {
-            sqlEx.printStackTrace();
-        } finally {
-            try { con.close(); } catch(SQLException se) { /*can't do anything */ }
-            try { stmt.close(); } catch(SQLException se) { /*can't do anything */ }
-            try { rs.close(); } catch(SQLException se) { /*can't do anything */ }
+    /**
+     * Formats a report value with three decimals exactly as String.format("%.3f") does, at a fraction of its cost
+     *
+     * @param decimalSeparator decimal separator of the default locale
+     */
+    private static String formatDecimal(double value, char decimalSeparator) {
+        if (Double.isNaN(value) || Double.isInfinite(value)) {
+            return String.format("%.3f", value);
         }
-        document.add(table);
-
-        document.add( Chunk.NEWLINE );
-        document.add(new Paragraph("Average queue size of the service node:"));
-        document.add( Chunk.NEWLINE );
-        table = new PdfPTable(new float[] { 3, 3});
-        table.getDefaultCell().setHorizontalAlignment(Element.ALIGN_CENTER);
-        table.addCell("Service");
-        table.addCell("Size");
-        table.setHeaderRows(1);
-        cells = table.getRow(0).getCells();
-        for (PdfPCell cell : cells) {
-            cell.setBackgroundColor(BaseColor.GREEN);
+        // Like Formatter, rounds the shortest decimal representation of the value rather than its exact binary value
+        BigDecimal rounded = BigDecimal.valueOf(value).setScale(3, RoundingMode.HALF_UP);
+        String text = rounded.toPlainString();
+        if (decimalSeparator != '.') {
+            text = text.replace('.', decimalSeparator);
         }
-
-        query = "SELECT * FROM STATISTICS_LOG WHERE NAME LIKE 'queueSize%'";
-
-        try {
-            con = DriverManager.getConnection(jdbcURL);
-            stmt = con.createStatement();
-            rs = stmt.executeQuery(query);
-
-            while (rs.next()) {
-                table.addCell(rs.getString("NAME"));
-                table.addCell(String.format("%.3f",rs.getDouble("MEAN")));           }
-
-        } catch (SQLException sqlEx) {
-            sqlEx.printStackTrace();
-        } finally {
-            try { con.close(); } catch(SQLException se) { /*can't do anything */ }
-            try { stmt.close(); } catch(SQLException se) { /*can't do anything */ }
-            try { rs.close(); } catch(SQLException se) { /*can't do anything */ }
+        if (rounded.signum() == 0 && Math.copySign(1.0, value) < 0) {
+            text = "-" + text;
         }
-        document.add(table);
-
-        document.close();
+        return text;
     }
 
     @Override
-    public void exportToAlp() throws ParserConfigurationException, IOException, SAXException, TransformerException {
+    public void exportToAlp() throws IOException {
         
         String modelId = UniqueIDGenerator.getNewId();
         String mainId = UniqueIDGenerator.getNewId();
@@ -1059,56 +1102,60 @@ public class GraphFile implements IGraphFile {
                 "</Model>\n" +
                 "</AnyLogicWorkspace>";
         
-        DocumentBuilderFactory factory = DocumentBuilderFactory.newInstance();
-        DocumentBuilder builder = factory.newDocumentBuilder();
-        Document doc = builder.parse(new InputSource(new StringReader(initialString)));
-
-        if (graph.getAllNodes() == null){return;} else {
+        if (graph.getAllNodes() == null) {
+            return;
+        }
 
-            for (INode node : graph.getAllNodes()) {
-                switch (node.getClass().getSimpleName()) {
-                    case ("StateNode"):
-                        appendAlpWork(node, doc, builder);
-                        break;
-                    case ("CircularInitialStateNode"):
-                        appendAlpStart(node, doc, builder);
-                        break;
-                    case ("CircularFinalStateNode"):
-                        appendAlpEnd(node, doc, builder);
-                        break;
-                    case ("ProbabilityNode"):
-                        appendProbabilityBlock(node, doc, builder);
-                        break;
-                    case ("SplitNode"):
-                        appendSplitBlock(node, doc, builder);
-                        break;
-                    case ("CombineNode"):
-                        appendCombineBlock(node, doc, builder);
-                        break;
-                    default:
-                        break;
+        graph.setTimeStamp(new SimpleDateFormat("dd_MM_yyyy hh_mm_ss").format(new java.util.Date()));
+        new File("\\MODELS\\"+graph.getTimeStamp()).mkdirs();
+        File file = new File("\\MODELS\\"+graph.getTimeStamp()+"\\Model" + modelId + ".alp");
+        try (AlpStreamWriter out = new AlpStreamWriter(new BufferedOutputStream(new FileOutputStream(file), 1 << 16))) {
+            out.write(initialString, new AlpStreamWriter.ContainerFiller() {
+                @Override
+                public void fill(String container) throws IOException {
+                    appendBlocks(out, modelId);
                 }
-            }
-
-            for (INode node : graph.getAllNodes()) {
-                node.setFlag(false);
-            }
+            });
+        }
+    }
 
-            for (IEdge edge : graph.getAllEdges()) {
-                connectBlocks(edge, doc, builder, modelId);
+    /**
+     * Writes the fragments of the blocks and connectors which belong to the container being written. Each fragment is only
+     * built for its own container.
+     */
+    private void appendBlocks(AlpStreamWriter out, String modelId) throws IOException {
+        for (INode node : graph.getAllNodes()) {
+            switch (node.getClass().getSimpleName()) {
+                case ("StateNode"):
+                    appendAlpWork(node, out);
+                    break;
+                case ("CircularInitialStateNode"):
+                    appendAlpStart(node, out);
+                    break;
+                case ("CircularFinalStateNode"):
+                    appendAlpEnd(node, out);
+                    break;
+                case ("ProbabilityNode"):
+                    appendProbabilityBlock(node, out);
+                    break;
+                case ("SplitNode"):
+                    appendSplitBlock(node, out);
+                    break;
+                case ("CombineNode"):
+                    appendCombineBlock(node, out);
+                    break;
+                default:
+                    break;
             }
-
         }
 
-        TransformerFactory transformerFactory = TransformerFactory.newInstance();
-        Transformer transformer = transformerFactory.newTransformer();
-        transformer.setOutputProperty(OutputKeys.INDENT, "yes");
-        DOMSource source = new DOMSource(doc);
+        for (INode node : graph.getAllNodes()) {
+            node.setFlag(false);
+        }
 
-        graph.setTimeStamp(new SimpleDateFormat("dd_MM_yyyy hh_mm_ss").format(new java.util.Date()));
-        new File("\\MODELS\\"+graph.getTimeStamp()).mkdirs();
-        StreamResult file = new StreamResult(new File("\\MODELS\\"+graph.getTimeStamp()+"\\Model" + modelId + ".alp"));
-        transformer.transform(source, file);
+        for (IEdge edge : graph.getAllEdges()) {
+            connectBlocks(edge, out, modelId);
+        }
     }
 
     private IGraph graph;
@@ -1123,10 +1170,18 @@ public class GraphFile implements IGraphFile {
      * Needed to identify the physical file used to save the graph
      */
     private String currentDirectory;
-    private final String autoSaveDirectory = System.getProperty("user.home") + File.separator + "VioletUML" + File.separator;
+    private static final String autoSaveDirectory = System.getProperty("user.home") + File.separator + "VioletUML" + File.separator;
+
+    /** Records edits for autosave, created with the editor of the graph */
+    private EditJournal editJournal;
 
     private boolean isSaveRequired = false;
 
+    private volatile boolean isLastSaveFailed = false;
+
+    /** Writes saved files in the background, created on first save */
+    private static ExecutorService saveExecutor;
+
     @ResourceBundleBean(key = "dialog.export_to_clipboard.icon")
     private ImageIcon clipBoardDialogIcon;
 
@@ -1164,7 +1219,10 @@ public class GraphFile implements IGraphFile {
 
     /*----------------------------------------------------------------------------------------------*/
 
-    public void connectBlocks(IEdge edge, Document d, DocumentBuilder b, String mid) throws IOException, SAXException {
+    public void connectBlocks(IEdge edge, AlpStreamWriter out, String mid) throws IOException {
+        if (!out.isFilling("Connectors")) {
+            return;
+        }
         String startTargetItemName = null;
         String startSourceClassName = null;
         String startSourceItemName = null;
@@ -1311,10 +1369,13 @@ public class GraphFile implements IGraphFile {
                 "\t\t\t\t\t</Points>\n" +
                 "\t\t\t\t</Connector>";
 
-        appendXmlFragment(b, d.getElementsByTagName("Connectors").item(0), s);
+        out.append("Connectors", s);
     }
 
-    public void appendCombineBlock(INode node, Document d, DocumentBuilder b) throws IOException, SAXException {
+    public void appendCombineBlock(INode node, AlpStreamWriter out) throws IOException {
+        if (!out.isFilling("EmbeddedObjects")) {
+            return;
+        }
         String s = "\t\t\t\t<EmbeddedObject>\n" +
                 "\t\t\t\t\t<Id>"+node.getId()+"</Id>\n" +
                 "\t\t\t\t\t<Name><![CDATA[combine_"+node.getId()+"]]></Name>\n" +
@@ -1441,9 +1502,12 @@ public class GraphFile implements IGraphFile {
                 "\t\t\t\t\t</QuantityColumn>\n" +
                 "\t\t\t\t</EmbeddedObject>";
 
-        appendXmlFragment(b, d.getElementsByTagName("EmbeddedObjects").item(0), s);
+        out.append("EmbeddedObjects", s);
     }
-    public void appendSplitBlock(INode node, Document d, DocumentBuilder b)throws IOException, SAXException {
+    public void appendSplitBlock(INode node, AlpStreamWriter out)throws IOException {
+        if (!out.isFilling("EmbeddedObjects")) {
+            return;
+        }
         String s = "\t\t\t\t<EmbeddedObject>\n" +
                 "\t\t\t\t\t<Id>"+node.getId()+"</Id>\n" +
                 "\t\t\t\t\t<Name><![CDATA[split_"+node.getId()+"]]></Name>\n" +
@@ -1584,10 +1648,13 @@ public class GraphFile implements IGraphFile {
                 "\t\t\t\t\t</QuantityColumn>\n" +
                 "\t\t\t\t</EmbeddedObject>";
 
-        appendXmlFragment(b, d.getElementsByTagName("EmbeddedObjects").item(0), s);
+        out.append("EmbeddedObjects", s);
     }
 
-    public void appendProbabilityBlock(INode node, Document d, DocumentBuilder b)throws IOException, SAXException {
+    public void appendProbabilityBlock(INode node, AlpStreamWriter out)throws IOException {
+        if (!out.isFilling("EmbeddedObjects")) {
+            return;
+        }
         String s = "\t\t\t\t<EmbeddedObject>\n" +
                 "\t\t\t\t\t<Id>selectOutput_"+node.getId()+"</Id>\n" +
                 "\t\t\t\t\t<Name><![CDATA[selectOutput_"+node.getId()+"]]></Name>\n" +
@@ -1673,1053 +1740,1061 @@ public class GraphFile implements IGraphFile {
                 "\t\t\t\t\t</QuantityColumn>\n" +
                 "\t\t\t\t</EmbeddedObject>";
 
-        appendXmlFragment(b, d.getElementsByTagName("EmbeddedObjects").item(0), s);
+        out.append("EmbeddedObjects", s);
     }
 
-    public void appendAlpWork(INode node, Document d, DocumentBuilder b) throws IOException, SAXException {
-        int count = d.getElementsByTagName("Statistics").getLength();
+    public void appendAlpWork(INode node, AlpStreamWriter out) throws IOException {
+        int count = out.reserveStatistics();
 
         // ДОБАВЛЕНИЕ ЭЛЕМЕНТА RESOURCE POOL (НАБОР КАНАЛОВ ДЛЯ УЗЛА ОБСЛУЖИВАНИЯ)
-        String s = "\t\t\t\t<EmbeddedObject>\n" +
-                // ГЕНЕРИРУЕМ УНИКАЛЬНЫЙ ИДЕНТИФИКАТОР ЭЛЕМЕНТА
-                "\t\t\t\t\t<Id>"+UniqueIDGenerator.getNewId()+"</Id>\n" +
-                //  ОПРЕДЕЛЕЯЕМ ИМЯ БЛОКА
-                "\t\t\t\t\t<Name><![CDATA[resourcePool_"+node.getId()+"]]></Name>\n" +
-                // РАСПОЛОЖЕНИЕ НА ГРАФЕ В СТОЛБЦЕ
-                "\t\t\t\t\t<X>-50</X><Y>"+(count * 45 )+"</Y>\n" +
-                "\t\t\t\t\t<Label><X>-30</X><Y>-20</Y></Label>\n" +
-                "\t\t\t\t\t<PublicFlag>false</PublicFlag>\n" +
-                "\t\t\t\t\t<PresentationFlag>true</PresentationFlag>\n" +
-                "\t\t\t\t\t<ShowLabel>true</ShowLabel>\n" +
-                "\t\t\t\t\t<ActiveObjectClass>\n" +
-                "\t\t\t\t\t\t<PackageName><![CDATA[com.anylogic.libraries.processmodeling]]></PackageName>\n" +
-                "\t\t\t\t\t\t<ClassName><![CDATA[ResourcePool]]></ClassName>\n" +
-                "\t\t\t\t\t</ActiveObjectClass>\n" +
-                "\t\t\t\t\t<GenericParameterSubstitute>\n" +
-                "\t\t\t\t\t\t<GenericParameterSubstituteReference>\n" +
-                "\t\t\t\t\t\t\t<PackageName><![CDATA[com.anylogic.libraries.processmodeling]]></PackageName>\n" +
-                "\t\t\t\t\t\t\t<ClassName><![CDATA[ResourcePool]]></ClassName>\n" +
-                "\t\t\t\t\t\t\t<ItemName><![CDATA[1412336243135]]></ItemName>\n" +
-                "\t\t\t\t\t\t</GenericParameterSubstituteReference>\n" +
-                "\t\t\t\t\t</GenericParameterSubstitute>\n" +
-                "\t\t\t\t\t<Parameters>\n" +
-                "\t\t\t\t\t\t<Parameter>\n" +
-                "\t\t\t\t\t\t\t<Name><![CDATA[type]]></Name>\n" +
-                "\t\t\t\t\t\t\t<Value Class=\"CodeValue\">\n" +
-                "\t\t\t\t\t\t\t\t<Code><![CDATA[self.RESOURCE_STATIC]]></Code>\n" +
-                "\t\t\t\t\t\t\t</Value>\n" +
-                "\t\t\t\t\t\t</Parameter>\n" +
-                "\t\t\t\t\t\t<Parameter>\n" +
-                "\t\t\t\t\t\t\t<Name><![CDATA[capacityDefinitionType]]></Name>\n" +
-                "\t\t\t\t\t\t</Parameter>\n" +
-                "\t\t\t\t\t\t<Parameter>\n" +
-                "\t\t\t\t\t\t\t<Name><![CDATA[capacity]]></Name>\n" +
-                "\t\t\t\t\t\t\t<Value Class=\"CodeValue\">\n" +
-                // ОПРЕДЕЛЕНИЕ ЧИСЛА КАНАЛОВ ОБСЛУЖИВАНИЯ
-                "\t\t\t\t\t\t\t\t<Code><![CDATA["+node.getWorkers()+"]]></Code>\n" +
-                "\t\t\t\t\t\t\t</Value>\n" +
-                "\t\t\t\t\t\t</Parameter>\n" +
-                "\t\t\t\t\t\t<Parameter>\n" +
-                "\t\t\t\t\t\t\t<Name><![CDATA[capacityBasedOnAttractors]]></Name>\n" +
-                "\t\t\t\t\t\t</Parameter>\n" +
-                "\t\t\t\t\t\t<Parameter>\n" +
-                "\t\t\t\t\t\t\t<Name><![CDATA[capacitySchedule]]></Name>\n" +
-                "\t\t\t\t\t\t</Parameter>\n" +
-                "\t\t\t\t\t\t<Parameter>\n" +
-                "\t\t\t\t\t\t\t<Name><![CDATA[capacityScheduleOnOff]]></Name>\n" +
-                "\t\t\t\t\t\t</Parameter>\n" +
-                "\t\t\t\t\t\t<Parameter>\n" +
-                "\t\t\t\t\t\t\t<Name><![CDATA[capacityOnValue]]></Name>\n" +
-                "\t\t\t\t\t\t</Parameter>\n" +
-                "\t\t\t\t\t\t<Parameter>\n" +
-                "\t\t\t\t\t\t\t<Name><![CDATA[shiftGroupSchedules]]></Name>\n" +
-                "\t\t\t\t\t\t</Parameter>\n" +
-                "\t\t\t\t\t\t<Parameter>\n" +
-                "\t\t\t\t\t\t\t<Name><![CDATA[shiftGroupSizes]]></Name>\n" +
-                "\t\t\t\t\t\t</Parameter>\n" +
-                "\t\t\t\t\t\t<Parameter>\n" +
-                "\t\t\t\t\t\t\t<Name><![CDATA[shiftGroupsPlan]]></Name>\n" +
-                "\t\t\t\t\t\t</Parameter>\n" +
-                "\t\t\t\t\t\t<Parameter>\n" +
-                "\t\t\t\t\t\t\t<Name><![CDATA[destroyExcessUnits]]></Name>\n" +
-                "\t\t\t\t\t\t</Parameter>\n" +
-                "\t\t\t\t\t\t<Parameter>\n" +
-                "\t\t\t\t\t\t\t<Name><![CDATA[newUnit]]></Name>\n" +
-                "\t\t\t\t\t\t</Parameter>\n" +
-                "\t\t\t\t\t\t<Parameter>\n" +
-                "\t\t\t\t\t\t\t<Name><![CDATA[speed]]></Name>\n" +
-                "\t\t\t\t\t\t</Parameter>\n" +
-                "\t\t\t\t\t\t<Parameter>\n" +
-                "\t\t\t\t\t\t\t<Name><![CDATA[homeLocationType]]></Name>\n" +
-                "\t\t\t\t\t\t</Parameter>\n" +
-                "\t\t\t\t\t\t<Parameter>\n" +
-                "\t\t\t\t\t\t\t<Name><![CDATA[homeNode]]></Name>\n" +
-                "\t\t\t\t\t\t</Parameter>\n" +
-                "\t\t\t\t\t\t<Parameter>\n" +
-                "\t\t\t\t\t\t\t<Name><![CDATA[homeNodes]]></Name>\n" +
-                "\t\t\t\t\t\t</Parameter>\n" +
-                "\t\t\t\t\t\t<Parameter>\n" +
-                "\t\t\t\t\t\t\t<Name><![CDATA[showDefaultAnimationStatic]]></Name>\n" +
-                "\t\t\t\t\t\t</Parameter>\n" +
-                "\t\t\t\t\t\t<Parameter>\n" +
-                "\t\t\t\t\t\t\t<Name><![CDATA[downtimeSource]]></Name>\n" +
-                "\t\t\t\t\t\t</Parameter>\n" +
-                "\t\t\t\t\t\t<Parameter>\n" +
-                "\t\t\t\t\t\t\t<Name><![CDATA[maintenanceProfile]]></Name>\n" +
-                "\t\t\t\t\t\t</Parameter>\n" +
-                "\t\t\t\t\t\t<Parameter>\n" +
-                "\t\t\t\t\t\t\t<Name><![CDATA[downtimeList]]></Name>\n" +
-                "\t\t\t\t\t\t</Parameter>\n" +
-                "\t\t\t\t\t\t<Parameter>\n" +
-                "\t\t\t\t\t\t\t<Name><![CDATA[enableMaintenance]]></Name>\n" +
-                "\t\t\t\t\t\t</Parameter>\n" +
-                "\t\t\t\t\t\t<Parameter>\n" +
-                "\t\t\t\t\t\t\t<Name><![CDATA[initialTimeToMaintenance]]></Name>\n" +
-                "\t\t\t\t\t\t</Parameter>\n" +
-                "\t\t\t\t\t\t<Parameter>\n" +
-                "\t\t\t\t\t\t\t<Name><![CDATA[timeBetweenMaintenances]]></Name>\n" +
-                "\t\t\t\t\t\t</Parameter>\n" +
-                "\t\t\t\t\t\t<Parameter>\n" +
-                "\t\t\t\t\t\t\t<Name><![CDATA[maintenanceTaskPriority]]></Name>\n" +
-                "\t\t\t\t\t\t</Parameter>\n" +
-                "\t\t\t\t\t\t<Parameter>\n" +
-                "\t\t\t\t\t\t\t<Name><![CDATA[maintenanceTaskMayPreemptOtherTasks]]></Name>\n" +
-                "\t\t\t\t\t\t</Parameter>\n" +
-                "\t\t\t\t\t\t<Parameter>\n" +
-                "\t\t\t\t\t\t\t<Name><![CDATA[maintenanceType]]></Name>\n" +
-                "\t\t\t\t\t\t</Parameter>\n" +
-                "\t\t\t\t\t\t<Parameter>\n" +
-                "\t\t\t\t\t\t\t<Name><![CDATA[maintenanceTime]]></Name>\n" +
-                "\t\t\t\t\t\t</Parameter>\n" +
-                "\t\t\t\t\t\t<Parameter>\n" +
-                "\t\t\t\t\t\t\t<Name><![CDATA[maintenanceTaskStart]]></Name>\n" +
-                "\t\t\t\t\t\t</Parameter>\n" +
-                "\t\t\t\t\t\t<Parameter>\n" +
-                "\t\t\t\t\t\t\t<Name><![CDATA[maintenanceUsageState]]></Name>\n" +
-                "\t\t\t\t\t\t</Parameter>\n" +
-                "\t\t\t\t\t\t<Parameter>\n" +
-                "\t\t\t\t\t\t\t<Name><![CDATA[enableFailuresRepairs]]></Name>\n" +
-                "\t\t\t\t\t\t</Parameter>\n" +
-                "\t\t\t\t\t\t<Parameter>\n" +
-                "\t\t\t\t\t\t\t<Name><![CDATA[initialTimeToFailure]]></Name>\n" +
-                "\t\t\t\t\t\t</Parameter>\n" +
-                "\t\t\t\t\t\t<Parameter>\n" +
-                "\t\t\t\t\t\t\t<Name><![CDATA[timeBetweenFailures]]></Name>\n" +
-                "\t\t\t\t\t\t</Parameter>\n" +
-                "\t\t\t\t\t\t<Parameter>\n" +
-                "\t\t\t\t\t\t\t<Name><![CDATA[countBusyOnlyTimeToFailure]]></Name>\n" +
-                "\t\t\t\t\t\t</Parameter>\n" +
-                "\t\t\t\t\t\t<Parameter>\n" +
-                "\t\t\t\t\t\t\t<Name><![CDATA[repairType]]></Name>\n" +
-                "\t\t\t\t\t\t</Parameter>\n" +
-                "\t\t\t\t\t\t<Parameter>\n" +
-                "\t\t\t\t\t\t\t<Name><![CDATA[repairTime]]></Name>\n" +
-                "\t\t\t\t\t\t</Parameter>\n" +
-                "\t\t\t\t\t\t<Parameter>\n" +
-                "\t\t\t\t\t\t\t<Name><![CDATA[repairTaskStart]]></Name>\n" +
-                "\t\t\t\t\t\t</Parameter>\n" +
-                "\t\t\t\t\t\t<Parameter>\n" +
-                "\t\t\t\t\t\t\t<Name><![CDATA[repairUsageState]]></Name>\n" +
-                "\t\t\t\t\t\t</Parameter>\n" +
-                "\t\t\t\t\t\t<Parameter>\n" +
-                "\t\t\t\t\t\t\t<Name><![CDATA[enableBreaks]]></Name>\n" +
-                "\t\t\t\t\t\t</Parameter>\n" +
-                "\t\t\t\t\t\t<Parameter>\n" +
-                "\t\t\t\t\t\t\t<Name><![CDATA[breaksSchedule]]></Name>\n" +
-                "\t\t\t\t\t\t</Parameter>\n" +
-                "\t\t\t\t\t\t<Parameter>\n" +
-                "\t\t\t\t\t\t\t<Name><![CDATA[breakTaskPriority]]></Name>\n" +
-                "\t\t\t\t\t\t</Parameter>\n" +
-                "\t\t\t\t\t\t<Parameter>\n" +
-                "\t\t\t\t\t\t\t<Name><![CDATA[breakTaskMayPreemptOtherTasks]]></Name>\n" +
-                "\t\t\t\t\t\t</Parameter>\n" +
-                "\t\t\t\t\t\t<Parameter>\n" +
-                "\t\t\t\t\t\t\t<Name><![CDATA[breakTaskPreemptionPolicy]]></Name>\n" +
-                "\t\t\t\t\t\t</Parameter>\n" +
-                "\t\t\t\t\t\t<Parameter>\n" +
-                "\t\t\t\t\t\t\t<Name><![CDATA[breakUsageState]]></Name>\n" +
-                "\t\t\t\t\t\t</Parameter>\n" +
-                "\t\t\t\t\t\t<Parameter>\n" +
-                "\t\t\t\t\t\t\t<Name><![CDATA[enableCustomTasks]]></Name>\n" +
-                "\t\t\t\t\t\t</Parameter>\n" +
-                "\t\t\t\t\t\t<Parameter>\n" +
-                "\t\t\t\t\t\t\t<Name><![CDATA[customTasks]]></Name>\n" +
-                "\t\t\t\t\t\t</Parameter>\n" +
-                "\t\t\t\t\t\t<Parameter>\n" +
-                "\t\t\t\t\t\t\t<Name><![CDATA[endOfShiftTaskPriority]]></Name>\n" +
-                "\t\t\t\t\t\t</Parameter>\n" +
-                "\t\t\t\t\t\t<Parameter>\n" +
-                "\t\t\t\t\t\t\t<Name><![CDATA[endOfShiftTaskMayPreemptOtherTasks]]></Name>\n" +
-                "\t\t\t\t\t\t</Parameter>\n" +
-                "\t\t\t\t\t\t<Parameter>\n" +
-                "\t\t\t\t\t\t\t<Name><![CDATA[endOfShiftTaskPreemptionPolicy]]></Name>\n" +
-                "\t\t\t\t\t\t</Parameter>\n" +
-                "\t\t\t\t\t\t<Parameter>\n" +
-                "\t\t\t\t\t\t\t<Name><![CDATA[customizeRequestChoice]]></Name>\n" +
-                "\t\t\t\t\t\t</Parameter>\n" +
-                "\t\t\t\t\t\t<Parameter>\n" +
-                "\t\t\t\t\t\t\t<Name><![CDATA[requestChoiceCondition]]></Name>\n" +
-                "\t\t\t\t\t\t</Parameter>\n" +
-                "\t\t\t\t\t\t<Parameter>\n" +
-                "\t\t\t\t\t\t\t<Name><![CDATA[addToCustomPopulation]]></Name>\n" +
-                "\t\t\t\t\t\t</Parameter>\n" +
-                "\t\t\t\t\t\t<Parameter>\n" +
-                "\t\t\t\t\t\t\t<Name><![CDATA[population]]></Name>\n" +
-                "\t\t\t\t\t\t</Parameter>\n" +
-                "\t\t\t\t\t\t<Parameter>\n" +
-                "\t\t\t\t\t\t\t<Name><![CDATA[forceStatisticsCollection]]></Name>\n" +
-                "\t\t\t\t\t\t</Parameter>\n" +
-                "\t\t\t\t\t\t<Parameter>\n" +
-                "\t\t\t\t\t\t\t<Name><![CDATA[onNewUnit]]></Name>\n" +
-                "\t\t\t\t\t\t</Parameter>\n" +
-                "\t\t\t\t\t\t<Parameter>\n" +
-                "\t\t\t\t\t\t\t<Name><![CDATA[onDestroyUnit]]></Name>\n" +
-                "\t\t\t\t\t\t</Parameter>\n" +
-                "\t\t\t\t\t\t<Parameter>\n" +
-                "\t\t\t\t\t\t\t<Name><![CDATA[onSeize]]></Name>\n" +
-                "\t\t\t\t\t\t</Parameter>\n" +
-                "\t\t\t\t\t\t<Parameter>\n" +
-                "\t\t\t\t\t\t\t<Name><![CDATA[onRelease]]></Name>\n" +
-                "\t\t\t\t\t\t</Parameter>\n" +
-                "\t\t\t\t\t\t<Parameter>\n" +
-                "\t\t\t\t\t\t\t<Name><![CDATA[onWrapUp]]></Name>\n" +
-                "\t\t\t\t\t\t</Parameter>\n" +
-                "\t\t\t\t\t\t<Parameter>\n" +
-                "\t\t\t\t\t\t\t<Name><![CDATA[onUnitStateChange]]></Name>\n" +
-                "\t\t\t\t\t\t</Parameter>\n" +
-                "\t\t\t\t\t\t<Parameter>\n" +
-                "\t\t\t\t\t\t\t<Name><![CDATA[onMaintenanceStart]]></Name>\n" +
-                "\t\t\t\t\t\t</Parameter>\n" +
-                "\t\t\t\t\t\t<Parameter>\n" +
-                "\t\t\t\t\t\t\t<Name><![CDATA[onMaintenanceEnd]]></Name>\n" +
-                "\t\t\t\t\t\t</Parameter>\n" +
-                "\t\t\t\t\t\t<Parameter>\n" +
-                "\t\t\t\t\t\t\t<Name><![CDATA[onFailure]]></Name>\n" +
-                "\t\t\t\t\t\t</Parameter>\n" +
-                "\t\t\t\t\t\t<Parameter>\n" +
-                "\t\t\t\t\t\t\t<Name><![CDATA[onRepair]]></Name>\n" +
-                "\t\t\t\t\t\t</Parameter>\n" +
-                "\t\t\t\t\t\t<Parameter>\n" +
-                "\t\t\t\t\t\t\t<Name><![CDATA[onBreakStart]]></Name>\n" +
-                "\t\t\t\t\t\t</Parameter>\n" +
-                "\t\t\t\t\t\t<Parameter>\n" +
-                "\t\t\t\t\t\t\t<Name><![CDATA[onBreakEnd]]></Name>\n" +
-                "\t\t\t\t\t\t</Parameter>\n" +
-                "\t\t\t\t\t\t<Parameter>\n" +
-                "\t\t\t\t\t\t\t<Name><![CDATA[onBreakTerminated]]></Name>\n" +
-                "\t\t\t\t\t\t</Parameter>\n" +
-                "\t\t\t\t\t</Parameters>\n" +
-                "\t\t\t\t\t<ReplicationFlag>false</ReplicationFlag>\n" +
-                "\t\t\t\t\t<Replication Class=\"CodeValue\">\n" +
-                "\t\t\t\t\t\t<Code><![CDATA[100]]></Code>\n" +
-                "\t\t\t\t\t</Replication>\n" +
-                "\t\t\t\t\t<CollectionType>ARRAY_LIST_BASED</CollectionType>\n" +
-                "\t\t\t\t\t<InitialLocationType>AT_ANIMATION_POSITION</InitialLocationType>\n" +
-                "\t\t\t\t\t<XCode Class=\"CodeValue\">\n" +
-                "\t\t\t\t\t\t<Code><![CDATA[0]]></Code>\n" +
-                "\t\t\t\t\t</XCode>\n" +
-                "\t\t\t\t\t<YCode Class=\"CodeValue\">\n" +
-                "\t\t\t\t\t\t<Code><![CDATA[0]]></Code>\n" +
-                "\t\t\t\t\t</YCode>\n" +
-                "\t\t\t\t\t<ZCode Class=\"CodeValue\">\n" +
-                "\t\t\t\t\t\t<Code><![CDATA[0]]></Code>\n" +
-                "\t\t\t\t\t</ZCode>\n" +
-                "\t\t\t\t\t<ColumnCode Class=\"CodeValue\">\n" +
-                "\t\t\t\t\t\t<Code><![CDATA[0]]></Code>\n" +
-                "\t\t\t\t\t</ColumnCode>\n" +
-                "\t\t\t\t\t<RowCode Class=\"CodeValue\">\n" +
-                "\t\t\t\t\t\t<Code><![CDATA[0]]></Code>\n" +
-                "\t\t\t\t\t</RowCode>\n" +
-                "\t\t\t\t\t<LatitudeCode Class=\"CodeValue\">\n" +
-                "\t\t\t\t\t\t<Code><![CDATA[0]]></Code>\n" +
-                "\t\t\t\t\t</LatitudeCode>\n" +
-                "\t\t\t\t\t<LongitudeCode Class=\"CodeValue\">\n" +
-                "\t\t\t\t\t\t<Code><![CDATA[0]]></Code>\n" +
-                "\t\t\t\t\t</LongitudeCode>\n" +
-                "\t\t\t\t\t<LocationNameCode Class=\"CodeValue\">\n" +
-                "\t\t\t\t\t\t<Code><![CDATA[\"\"]]></Code>\n" +
-                "\t\t\t\t\t</LocationNameCode>\n" +
-                "\t\t\t\t\t<InitializationType>SPECIFIED_NUMBER</InitializationType>\n" +
-                "\t\t\t\t\t<InitializationDatabaseTableQuery>\n" +
-                "\t\t\t\t\t\t<TableReference>\n" +
-                "\t\t\t\t\t\t</TableReference>\n" +
-                "\t\t\t\t\t</InitializationDatabaseTableQuery>\n" +
-                "\t\t\t\t\t<InitializationDatabaseType>ONE_AGENT_PER_DATABASE_RECORD</InitializationDatabaseType>\n" +
-                "\t\t\t\t\t<QuantityColumn>\n" +
-                "\t\t\t\t\t</QuantityColumn>\n" +
-                "\t\t\t\t</EmbeddedObject>";
-        // ДОБАВЛЕНИЕ ФРАГМЕНТА КОДА ВЫШЕ В XML ДОКУМЕНТ
-        appendXmlFragment(b, d.getElementsByTagName("EmbeddedObjects").item(0), s);
+        if (out.isFilling("EmbeddedObjects")) {
+            String s = "\t\t\t\t<EmbeddedObject>\n" +
+                    // ГЕНЕРИРУЕМ УНИКАЛЬНЫЙ ИДЕНТИФИКАТОР ЭЛЕМЕНТА
+                    "\t\t\t\t\t<Id>"+UniqueIDGenerator.getNewId()+"</Id>\n" +
+                    //  ОПРЕДЕЛЕЯЕМ ИМЯ БЛОКА
+                    "\t\t\t\t\t<Name><![CDATA[resourcePool_"+node.getId()+"]]></Name>\n" +
+                    // РАСПОЛОЖЕНИЕ НА ГРАФЕ В СТОЛБЦЕ
+                    "\t\t\t\t\t<X>-50</X><Y>"+(count * 45 )+"</Y>\n" +
+                    "\t\t\t\t\t<Label><X>-30</X><Y>-20</Y></Label>\n" +
+                    "\t\t\t\t\t<PublicFlag>false</PublicFlag>\n" +
+                    "\t\t\t\t\t<PresentationFlag>true</PresentationFlag>\n" +
+                    "\t\t\t\t\t<ShowLabel>true</ShowLabel>\n" +
+                    "\t\t\t\t\t<ActiveObjectClass>\n" +
+                    "\t\t\t\t\t\t<PackageName><![CDATA[com.anylogic.libraries.processmodeling]]></PackageName>\n" +
+                    "\t\t\t\t\t\t<ClassName><![CDATA[ResourcePool]]></ClassName>\n" +
+                    "\t\t\t\t\t</ActiveObjectClass>\n" +
+                    "\t\t\t\t\t<GenericParameterSubstitute>\n" +
+                    "\t\t\t\t\t\t<GenericParameterSubstituteReference>\n" +
+                    "\t\t\t\t\t\t\t<PackageName><![CDATA[com.anylogic.libraries.processmodeling]]></PackageName>\n" +
+                    "\t\t\t\t\t\t\t<ClassName><![CDATA[ResourcePool]]></ClassName>\n" +
+                    "\t\t\t\t\t\t\t<ItemName><![CDATA[1412336243135]]></ItemName>\n" +
+                    "\t\t\t\t\t\t</GenericParameterSubstituteReference>\n" +
+                    "\t\t\t\t\t</GenericParameterSubstitute>\n" +
+                    "\t\t\t\t\t<Parameters>\n" +
+                    "\t\t\t\t\t\t<Parameter>\n" +
+                    "\t\t\t\t\t\t\t<Name><![CDATA[type]]></Name>\n" +
+                    "\t\t\t\t\t\t\t<Value Class=\"CodeValue\">\n" +
+                    "\t\t\t\t\t\t\t\t<Code><![CDATA[self.RESOURCE_STATIC]]></Code>\n" +
+                    "\t\t\t\t\t\t\t</Value>\n" +
+                    "\t\t\t\t\t\t</Parameter>\n" +
+                    "\t\t\t\t\t\t<Parameter>\n" +
+                    "\t\t\t\t\t\t\t<Name><![CDATA[capacityDefinitionType]]></Name>\n" +
+                    "\t\t\t\t\t\t</Parameter>\n" +
+                    "\t\t\t\t\t\t<Parameter>\n" +
+                    "\t\t\t\t\t\t\t<Name><![CDATA[capacity]]></Name>\n" +
+                    "\t\t\t\t\t\t\t<Value Class=\"CodeValue\">\n" +
+                    // ОПРЕДЕЛЕНИЕ ЧИСЛА КАНАЛОВ ОБСЛУЖИВАНИЯ
+                    "\t\t\t\t\t\t\t\t<Code><![CDATA["+node.getWorkers()+"]]></Code>\n" +
+                    "\t\t\t\t\t\t\t</Value>\n" +
+                    "\t\t\t\t\t\t</Parameter>\n" +
+                    "\t\t\t\t\t\t<Parameter>\n" +
+                    "\t\t\t\t\t\t\t<Name><![CDATA[capacityBasedOnAttractors]]></Name>\n" +
+                    "\t\t\t\t\t\t</Parameter>\n" +
+                    "\t\t\t\t\t\t<Parameter>\n" +
+                    "\t\t\t\t\t\t\t<Name><![CDATA[capacitySchedule]]></Name>\n" +
+                    "\t\t\t\t\t\t</Parameter>\n" +
+                    "\t\t\t\t\t\t<Parameter>\n" +
+                    "\t\t\t\t\t\t\t<Name><![CDATA[capacityScheduleOnOff]]></Name>\n" +
+                    "\t\t\t\t\t\t</Parameter>\n" +
+                    "\t\t\t\t\t\t<Parameter>\n" +
+                    "\t\t\t\t\t\t\t<Name><![CDATA[capacityOnValue]]></Name>\n" +
+                    "\t\t\t\t\t\t</Parameter>\n" +
+                    "\t\t\t\t\t\t<Parameter>\n" +
+                    "\t\t\t\t\t\t\t<Name><![CDATA[shiftGroupSchedules]]></Name>\n" +
+                    "\t\t\t\t\t\t</Parameter>\n" +
+                    "\t\t\t\t\t\t<Parameter>\n" +
+                    "\t\t\t\t\t\t\t<Name><![CDATA[shiftGroupSizes]]></Name>\n" +
+                    "\t\t\t\t\t\t</Parameter>\n" +
+                    "\t\t\t\t\t\t<Parameter>\n" +
+                    "\t\t\t\t\t\t\t<Name><![CDATA[shiftGroupsPlan]]></Name>\n" +
+                    "\t\t\t\t\t\t</Parameter>\n" +
+                    "\t\t\t\t\t\t<Parameter>\n" +
+                    "\t\t\t\t\t\t\t<Name><![CDATA[destroyExcessUnits]]></Name>\n" +
+                    "\t\t\t\t\t\t</Parameter>\n" +
+                    "\t\t\t\t\t\t<Parameter>\n" +
+                    "\t\t\t\t\t\t\t<Name><![CDATA[newUnit]]></Name>\n" +
+                    "\t\t\t\t\t\t</Parameter>\n" +
+                    "\t\t\t\t\t\t<Parameter>\n" +
+                    "\t\t\t\t\t\t\t<Name><![CDATA[speed]]></Name>\n" +
+                    "\t\t\t\t\t\t</Parameter>\n" +
+                    "\t\t\t\t\t\t<Parameter>\n" +
+                    "\t\t\t\t\t\t\t<Name><![CDATA[homeLocationType]]></Name>\n" +
+                    "\t\t\t\t\t\t</Parameter>\n" +
+                    "\t\t\t\t\t\t<Parameter>\n" +
+                    "\t\t\t\t\t\t\t<Name><![CDATA[homeNode]]></Name>\n" +
+                    "\t\t\t\t\t\t</Parameter>\n" +
+                    "\t\t\t\t\t\t<Parameter>\n" +
+                    "\t\t\t\t\t\t\t<Name><![CDATA[homeNodes]]></Name>\n" +
+                    "\t\t\t\t\t\t</Parameter>\n" +
+                    "\t\t\t\t\t\t<Parameter>\n" +
+                    "\t\t\t\t\t\t\t<Name><![CDATA[showDefaultAnimationStatic]]></Name>\n" +
+                    "\t\t\t\t\t\t</Parameter>\n" +
+                    "\t\t\t\t\t\t<Parameter>\n" +
+                    "\t\t\t\t\t\t\t<Name><![CDATA[downtimeSource]]></Name>\n" +
+                    "\t\t\t\t\t\t</Parameter>\n" +
+                    "\t\t\t\t\t\t<Parameter>\n" +
+                    "\t\t\t\t\t\t\t<Name><![CDATA[maintenanceProfile]]></Name>\n" +
+                    "\t\t\t\t\t\t</Parameter>\n" +
+                    "\t\t\t\t\t\t<Parameter>\n" +
+                    "\t\t\t\t\t\t\t<Name><![CDATA[downtimeList]]></Name>\n" +
+                    "\t\t\t\t\t\t</Parameter>\n" +
+                    "\t\t\t\t\t\t<Parameter>\n" +
+                    "\t\t\t\t\t\t\t<Name><![CDATA[enableMaintenance]]></Name>\n" +
+                    "\t\t\t\t\t\t</Parameter>\n" +
+                    "\t\t\t\t\t\t<Parameter>\n" +
+                    "\t\t\t\t\t\t\t<Name><![CDATA[initialTimeToMaintenance]]></Name>\n" +
+                    "\t\t\t\t\t\t</Parameter>\n" +
+                    "\t\t\t\t\t\t<Parameter>\n" +
+                    "\t\t\t\t\t\t\t<Name><![CDATA[timeBetweenMaintenances]]></Name>\n" +
+                    "\t\t\t\t\t\t</Parameter>\n" +
+                    "\t\t\t\t\t\t<Parameter>\n" +
+                    "\t\t\t\t\t\t\t<Name><![CDATA[maintenanceTaskPriority]]></Name>\n" +
+                    "\t\t\t\t\t\t</Parameter>\n" +
+                    "\t\t\t\t\t\t<Parameter>\n" +
+                    "\t\t\t\t\t\t\t<Name><![CDATA[maintenanceTaskMayPreemptOtherTasks]]></Name>\n" +
+                    "\t\t\t\t\t\t</Parameter>\n" +
+                    "\t\t\t\t\t\t<Parameter>\n" +
+                    "\t\t\t\t\t\t\t<Name><![CDATA[maintenanceType]]></Name>\n" +
+                    "\t\t\t\t\t\t</Parameter>\n" +
+                    "\t\t\t\t\t\t<Parameter>\n" +
+                    "\t\t\t\t\t\t\t<Name><![CDATA[maintenanceTime]]></Name>\n" +
+                    "\t\t\t\t\t\t</Parameter>\n" +
+                    "\t\t\t\t\t\t<Parameter>\n" +
+                    "\t\t\t\t\t\t\t<Name><![CDATA[maintenanceTaskStart]]></Name>\n" +
+                    "\t\t\t\t\t\t</Parameter>\n" +
+                    "\t\t\t\t\t\t<Parameter>\n" +
+                    "\t\t\t\t\t\t\t<Name><![CDATA[maintenanceUsageState]]></Name>\n" +
+                    "\t\t\t\t\t\t</Parameter>\n" +
+                    "\t\t\t\t\t\t<Parameter>\n" +
+                    "\t\t\t\t\t\t\t<Name><![CDATA[enableFailuresRepairs]]></Name>\n" +
+                    "\t\t\t\t\t\t</Parameter>\n" +
+                    "\t\t\t\t\t\t<Parameter>\n" +
+                    "\t\t\t\t\t\t\t<Name><![CDATA[initialTimeToFailure]]></Name>\n" +
+                    "\t\t\t\t\t\t</Parameter>\n" +
+                    "\t\t\t\t\t\t<Parameter>\n" +
+                    "\t\t\t\t\t\t\t<Name><![CDATA[timeBetweenFailures]]></Name>\n" +
+                    "\t\t\t\t\t\t</Parameter>\n" +
+                    "\t\t\t\t\t\t<Parameter>\n" +
+                    "\t\t\t\t\t\t\t<Name><![CDATA[countBusyOnlyTimeToFailure]]></Name>\n" +
+                    "\t\t\t\t\t\t</Parameter>\n" +
+                    "\t\t\t\t\t\t<Parameter>\n" +
+                    "\t\t\t\t\t\t\t<Name><![CDATA[repairType]]></Name>\n" +
+                    "\t\t\t\t\t\t</Parameter>\n" +
+                    "\t\t\t\t\t\t<Parameter>\n" +
+                    "\t\t\t\t\t\t\t<Name><![CDATA[repairTime]]></Name>\n" +
+                    "\t\t\t\t\t\t</Parameter>\n" +
+                    "\t\t\t\t\t\t<Parameter>\n" +
+                    "\t\t\t\t\t\t\t<Name><![CDATA[repairTaskStart]]></Name>\n" +
+                    "\t\t\t\t\t\t</Parameter>\n" +
+                    "\t\t\t\t\t\t<Parameter>\n" +
+                    "\t\t\t\t\t\t\t<Name><![CDATA[repairUsageState]]></Name>\n" +
+                    "\t\t\t\t\t\t</Parameter>\n" +
+                    "\t\t\t\t\t\t<Parameter>\n" +
+                    "\t\t\t\t\t\t\t<Name><![CDATA[enableBreaks]]></Name>\n" +
+                    "\t\t\t\t\t\t</Parameter>\n" +
+                    "\t\t\t\t\t\t<Parameter>\n" +
+                    "\t\t\t\t\t\t\t<Name><![CDATA[breaksSchedule]]></Name>\n" +
+                    "\t\t\t\t\t\t</Parameter>\n" +
+                    "\t\t\t\t\t\t<Parameter>\n" +
+                    "\t\t\t\t\t\t\t<Name><![CDATA[breakTaskPriority]]></Name>\n" +
+                    "\t\t\t\t\t\t</Parameter>\n" +
+                    "\t\t\t\t\t\t<Parameter>\n" +
+                    "\t\t\t\t\t\t\t<Name><![CDATA[breakTaskMayPreemptOtherTasks]]></Name>\n" +
+                    "\t\t\t\t\t\t</Parameter>\n" +
+                    "\t\t\t\t\t\t<Parameter>\n" +
+                    "\t\t\t\t\t\t\t<Name><![CDATA[breakTaskPreemptionPolicy]]></Name>\n" +
+                    "\t\t\t\t\t\t</Parameter>\n" +
+                    "\t\t\t\t\t\t<Parameter>\n" +
+                    "\t\t\t\t\t\t\t<Name><![CDATA[breakUsageState]]></Name>\n" +
+                    "\t\t\t\t\t\t</Parameter>\n" +
+                    "\t\t\t\t\t\t<Parameter>\n" +
+                    "\t\t\t\t\t\t\t<Name><![CDATA[enableCustomTasks]]></Name>\n" +
+                    "\t\t\t\t\t\t</Parameter>\n" +
+                    "\t\t\t\t\t\t<Parameter>\n" +
+                    "\t\t\t\t\t\t\t<Name><![CDATA[customTasks]]></Name>\n" +
+                    "\t\t\t\t\t\t</Parameter>\n" +
+                    "\t\t\t\t\t\t<Parameter>\n" +
+                    "\t\t\t\t\t\t\t<Name><![CDATA[endOfShiftTaskPriority]]></Name>\n" +
+                    "\t\t\t\t\t\t</Parameter>\n" +
+                    "\t\t\t\t\t\t<Parameter>\n" +
+                    "\t\t\t\t\t\t\t<Name><![CDATA[endOfShiftTaskMayPreemptOtherTasks]]></Name>\n" +
+                    "\t\t\t\t\t\t</Parameter>\n" +
+                    "\t\t\t\t\t\t<Parameter>\n" +
+                    "\t\t\t\t\t\t\t<Name><![CDATA[endOfShiftTaskPreemptionPolicy]]></Name>\n" +
+                    "\t\t\t\t\t\t</Parameter>\n" +
+                    "\t\t\t\t\t\t<Parameter>\n" +
+                    "\t\t\t\t\t\t\t<Name><![CDATA[customizeRequestChoice]]></Name>\n" +
+                    "\t\t\t\t\t\t</Parameter>\n" +
+                    "\t\t\t\t\t\t<Parameter>\n" +
+                    "\t\t\t\t\t\t\t<Name><![CDATA[requestChoiceCondition]]></Name>\n" +
+                    "\t\t\t\t\t\t</Parameter>\n" +
+                    "\t\t\t\t\t\t<Parameter>\n" +
+                    "\t\t\t\t\t\t\t<Name><![CDATA[addToCustomPopulation]]></Name>\n" +
+                    "\t\t\t\t\t\t</Parameter>\n" +
+                    "\t\t\t\t\t\t<Parameter>\n" +
+                    "\t\t\t\t\t\t\t<Name><![CDATA[population]]></Name>\n" +
+                    "\t\t\t\t\t\t</Parameter>\n" +
+                    "\t\t\t\t\t\t<Parameter>\n" +
+                    "\t\t\t\t\t\t\t<Name><![CDATA[forceStatisticsCollection]]></Name>\n" +
+                    "\t\t\t\t\t\t</Parameter>\n" +
+                    "\t\t\t\t\t\t<Parameter>\n" +
+                    "\t\t\t\t\t\t\t<Name><![CDATA[onNewUnit]]></Name>\n" +
+                    "\t\t\t\t\t\t</Parameter>\n" +
+                    "\t\t\t\t\t\t<Parameter>\n" +
+                    "\t\t\t\t\t\t\t<Name><![CDATA[onDestroyUnit]]></Name>\n" +
+                    "\t\t\t\t\t\t</Parameter>\n" +
+                    "\t\t\t\t\t\t<Parameter>\n" +
+                    "\t\t\t\t\t\t\t<Name><![CDATA[onSeize]]></Name>\n" +
+                    "\t\t\t\t\t\t</Parameter>\n" +
+                    "\t\t\t\t\t\t<Parameter>\n" +
+                    "\t\t\t\t\t\t\t<Name><![CDATA[onRelease]]></Name>\n" +
+                    "\t\t\t\t\t\t</Parameter>\n" +
+                    "\t\t\t\t\t\t<Parameter>\n" +
+                    "\t\t\t\t\t\t\t<Name><![CDATA[onWrapUp]]></Name>\n" +
+                    "\t\t\t\t\t\t</Parameter>\n" +
+                    "\t\t\t\t\t\t<Parameter>\n" +
+                    "\t\t\t\t\t\t\t<Name><![CDATA[onUnitStateChange]]></Name>\n" +
+                    "\t\t\t\t\t\t</Parameter>\n" +
+                    "\t\t\t\t\t\t<Parameter>\n" +
+                    "\t\t\t\t\t\t\t<Name><![CDATA[onMaintenanceStart]]></Name>\n" +
+                    "\t\t\t\t\t\t</Parameter>\n" +
+                    "\t\t\t\t\t\t<Parameter>\n" +
+                    "\t\t\t\t\t\t\t<Name><![CDATA[onMaintenanceEnd]]></Name>\n" +
+                    "\t\t\t\t\t\t</Parameter>\n" +
+                    "\t\t\t\t\t\t<Parameter>\n" +
+                    "\t\t\t\t\t\t\t<Name><![CDATA[onFailure]]></Name>\n" +
+                    "\t\t\t\t\t\t</Parameter>\n" +
+                    "\t\t\t\t\t\t<Parameter>\n" +
+                    "\t\t\t\t\t\t\t<Name><![CDATA[onRepair]]></Name>\n" +
+                    "\t\t\t\t\t\t</Parameter>\n" +
+                    "\t\t\t\t\t\t<Parameter>\n" +
+                    "\t\t\t\t\t\t\t<Name><![CDATA[onBreakStart]]></Name>\n" +
+                    "\t\t\t\t\t\t</Parameter>\n" +
+                    "\t\t\t\t\t\t<Parameter>\n" +
+                    "\t\t\t\t\t\t\t<Name><![CDATA[onBreakEnd]]></Name>\n" +
+                    "\t\t\t\t\t\t</Parameter>\n" +
+                    "\t\t\t\t\t\t<Parameter>\n" +
+                    "\t\t\t\t\t\t\t<Name><![CDATA[onBreakTerminated]]></Name>\n" +
+                    "\t\t\t\t\t\t</Parameter>\n" +
+                    "\t\t\t\t\t</Parameters>\n" +
+                    "\t\t\t\t\t<ReplicationFlag>false</ReplicationFlag>\n" +
+                    "\t\t\t\t\t<Replication Class=\"CodeValue\">\n" +
+                    "\t\t\t\t\t\t<Code><![CDATA[100]]></Code>\n" +
+                    "\t\t\t\t\t</Replication>\n" +
+                    "\t\t\t\t\t<CollectionType>ARRAY_LIST_BASED</CollectionType>\n" +
+                    "\t\t\t\t\t<InitialLocationType>AT_ANIMATION_POSITION</InitialLocationType>\n" +
+                    "\t\t\t\t\t<XCode Class=\"CodeValue\">\n" +
+                    "\t\t\t\t\t\t<Code><![CDATA[0]]></Code>\n" +
+                    "\t\t\t\t\t</XCode>\n" +
+                    "\t\t\t\t\t<YCode Class=\"CodeValue\">\n" +
+                    "\t\t\t\t\t\t<Code><![CDATA[0]]></Code>\n" +
+                    "\t\t\t\t\t</YCode>\n" +
+                    "\t\t\t\t\t<ZCode Class=\"CodeValue\">\n" +
+                    "\t\t\t\t\t\t<Code><![CDATA[0]]></Code>\n" +
+                    "\t\t\t\t\t</ZCode>\n" +
+                    "\t\t\t\t\t<ColumnCode Class=\"CodeValue\">\n" +
+                    "\t\t\t\t\t\t<Code><![CDATA[0]]></Code>\n" +
+                    "\t\t\t\t\t</ColumnCode>\n" +
+                    "\t\t\t\t\t<RowCode Class=\"CodeValue\">\n" +
+                    "\t\t\t\t\t\t<Code><![CDATA[0]]></Code>\n" +
+                    "\t\t\t\t\t</RowCode>\n" +
+                    "\t\t\t\t\t<LatitudeCode Class=\"CodeValue\">\n" +
+                    "\t\t\t\t\t\t<Code><![CDATA[0]]></Code>\n" +
+                    "\t\t\t\t\t</LatitudeCode>\n" +
+                    "\t\t\t\t\t<LongitudeCode Class=\"CodeValue\">\n" +
+                    "\t\t\t\t\t\t<Code><![CDATA[0]]></Code>\n" +
+                    "\t\t\t\t\t</LongitudeCode>\n" +
+                    "\t\t\t\t\t<LocationNameCode Class=\"CodeValue\">\n" +
+                    "\t\t\t\t\t\t<Code><![CDATA[\"\"]]></Code>\n" +
+                    "\t\t\t\t\t</LocationNameCode>\n" +
+                    "\t\t\t\t\t<InitializationType>SPECIFIED_NUMBER</InitializationType>\n" +
+                    "\t\t\t\t\t<InitializationDatabaseTableQuery>\n" +
+                    "\t\t\t\t\t\t<TableReference>\n" +
+                    "\t\t\t\t\t\t</TableReference>\n" +
+                    "\t\t\t\t\t</InitializationDatabaseTableQuery>\n" +
+                    "\t\t\t\t\t<InitializationDatabaseType>ONE_AGENT_PER_DATABASE_RECORD</InitializationDatabaseType>\n" +
+                    "\t\t\t\t\t<QuantityColumn>\n" +
+                    "\t\t\t\t\t</QuantityColumn>\n" +
+                    "\t\t\t\t</EmbeddedObject>";
+            // ДОБАВЛЕНИЕ ФРАГМЕНТА КОДА ВЫШЕ В XML ДОКУМЕНТ
+            out.append("EmbeddedObjects", s);
+        }
 
         // ДОБАВЛЕНИЕ ЭЛЕМЕНТА СТАТИСТИКИ ДЛЯ СБОРА ИНФОРМАЦИИ О РАЗМЕРЕ ОЧЕРЕДИ ДАННОГО УЗЛА
-        s = "    \t\t\t<Statistics>\n" +
-                "\t\t\t\t\t<Id>"+UniqueIDGenerator.getNewId()+"</Id>\n" +
-                "\t\t\t\t\t<Name><![CDATA[queueSize_"+node.getId()+"]]></Name>\n" +
-                "\t\t\t\t\t<X>-300</X><Y>"+ ((count * 20 ) + 30) +"</Y>\n" +
-                "\t\t\t\t\t<Label><X>15</X><Y>0</Y></Label>\n" +
-                "\t\t\t\t\t<PublicFlag>false</PublicFlag>\n" +
-                "\t\t\t\t\t<PresentationFlag>true</PresentationFlag>\n" +
-                "\t\t\t\t\t<ShowLabel>true</ShowLabel>\n" +
-                // НЕ ОБНОВЛЯЕТ ЗНАЧЕНИЯ АВТОМАТИЧЕСКИ
-                "\t\t\t\t\t<AutoUpdate>false</AutoUpdate>\n" +
-                "\t\t\t\t\t<OccurrenceAtTime>true</OccurrenceAtTime>\n" +
-                "\t\t\t\t\t<OccurrenceDate>1716451200000</OccurrenceDate>\n" +
-                "\t\t\t\t\t<OccurrenceTime Class=\"CodeUnitValue\">\n" +
-                "\t\t\t\t\t\t<Code><![CDATA[0]]></Code>\n" +
-                "\t\t\t\t\t\t<Unit Class=\"TimeUnits\"><![CDATA[SECOND]]></Unit>\n" +
-                "\t\t\t\t\t</OccurrenceTime>\n" +
-                "\t\t\t\t\t<RecurrenceCode Class=\"CodeUnitValue\">\n" +
-                "\t\t\t\t\t\t<Code><![CDATA[1]]></Code>\n" +
-                "\t\t\t\t\t\t<Unit Class=\"TimeUnits\"><![CDATA[SECOND]]></Unit>\n" +
-                "\t\t\t\t\t</RecurrenceCode>\n" +
-                "\t\t\t\t\t<Discrete>true</Discrete>\n" +
-                // ДОБАВЛЯЕМ ТЕКУЩЕЕ ЗНАЧЕНИЕ РАЗМЕРА ОЧЕРЕДИ, ВОЗВРАЩАЕМОЕ ФУНКЦИЕЙ УЗЛОМ ОБСЛУЖИВАНИЯ
-                "\t\t\t\t\t<ValueCode><![CDATA[service_"+node.getId()+".queueSize()]]></ValueCode>\n" +
-                "\t\t\t\t</Statistics>";
-
-        appendXmlFragment(b, d.getElementsByTagName("AnalysisData").item(0), s);
+        if (out.isFilling("AnalysisData")) {
+            String s = "    \t\t\t<Statistics>\n" +
+                    "\t\t\t\t\t<Id>"+UniqueIDGenerator.getNewId()+"</Id>\n" +
+                    "\t\t\t\t\t<Name><![CDATA[queueSize_"+node.getId()+"]]></Name>\n" +
+                    "\t\t\t\t\t<X>-300</X><Y>"+ ((count * 20 ) + 30) +"</Y>\n" +
+                    "\t\t\t\t\t<Label><X>15</X><Y>0</Y></Label>\n" +
+                    "\t\t\t\t\t<PublicFlag>false</PublicFlag>\n" +
+                    "\t\t\t\t\t<PresentationFlag>true</PresentationFlag>\n" +
+                    "\t\t\t\t\t<ShowLabel>true</ShowLabel>\n" +
+                    // НЕ ОБНОВЛЯЕТ ЗНАЧЕНИЯ АВТОМАТИЧЕСКИ
+                    "\t\t\t\t\t<AutoUpdate>false</AutoUpdate>\n" +
+                    "\t\t\t\t\t<OccurrenceAtTime>true</OccurrenceAtTime>\n" +
+                    "\t\t\t\t\t<OccurrenceDate>1716451200000</OccurrenceDate>\n" +
+                    "\t\t\t\t\t<OccurrenceTime Class=\"CodeUnitValue\">\n" +
+                    "\t\t\t\t\t\t<Code><![CDATA[0]]></Code>\n" +
+                    "\t\t\t\t\t\t<Unit Class=\"TimeUnits\"><![CDATA[SECOND]]></Unit>\n" +
+                    "\t\t\t\t\t</OccurrenceTime>\n" +
+                    "\t\t\t\t\t<RecurrenceCode Class=\"CodeUnitValue\">\n" +
+                    "\t\t\t\t\t\t<Code><![CDATA[1]]></Code>\n" +
+                    "\t\t\t\t\t\t<Unit Class=\"TimeUnits\"><![CDATA[SECOND]]></Unit>\n" +
+                    "\t\t\t\t\t</RecurrenceCode>\n" +
+                    "\t\t\t\t\t<Discrete>true</Discrete>\n" +
+                    // ДОБАВЛЯЕМ ТЕКУЩЕЕ ЗНАЧЕНИЕ РАЗМЕРА ОЧЕРЕДИ, ВОЗВРАЩАЕМОЕ ФУНКЦИЕЙ УЗЛОМ ОБСЛУЖИВАНИЯ
+                    "\t\t\t\t\t<ValueCode><![CDATA[service_"+node.getId()+".queueSize()]]></ValueCode>\n" +
+                    "\t\t\t\t</Statistics>";
+
+            out.append("AnalysisData", s);
+        }
 
         // ДОБАВЛЕНИЕ ОБЪЕКТА SERVICE (УЗЕЛ ОБСЛУЖИВАНИЯ)
-        s = "\t\t\t\t<EmbeddedObject>\n" +
-                "\t\t\t\t\t<Id>"+node.getId()+"</Id>\n" +
-                "\t\t\t\t\t<Name><![CDATA[service_"+node.getId()+"]]></Name>\n" +
-                // РАЗМЕЩЕНИЕ НА ГРАФЕ СО СМЕЩЕНИЕМ
-                "\t\t\t\t\t<X>"+node.getLocation().getX()+40+"</X><Y>"+node.getLocation().getY()+"</Y>\n" +
-                "\t\t\t\t\t<Label><X>-10</X><Y>-15</Y></Label>\n" +
-                "\t\t\t\t\t<PublicFlag>false</PublicFlag>\n" +
-                "\t\t\t\t\t<PresentationFlag>true</PresentationFlag>\n" +
-                "\t\t\t\t\t<ShowLabel>true</ShowLabel>\n" +
-                "\t\t\t\t\t<ActiveObjectClass>\n" +
-                "\t\t\t\t\t\t<PackageName><![CDATA[com.anylogic.libraries.processmodeling]]></PackageName>\n" +
-                "\t\t\t\t\t\t<ClassName><![CDATA[Service]]></ClassName>\n" +
-                "\t\t\t\t\t</ActiveObjectClass>\n" +
-                "\t\t\t\t\t<GenericParameterSubstitute>\n" +
-                "\t\t\t\t\t\t<GenericParameterSubstituteReference>\n" +
-                "\t\t\t\t\t\t\t<PackageName><![CDATA[com.anylogic.libraries.processmodeling]]></PackageName>\n" +
-                "\t\t\t\t\t\t\t<ClassName><![CDATA[Service]]></ClassName>\n" +
-                "\t\t\t\t\t\t\t<ItemName><![CDATA[1412336243141]]></ItemName>\n" +
-                "\t\t\t\t\t\t</GenericParameterSubstituteReference>\n" +
-                "\t\t\t\t\t</GenericParameterSubstitute>\n" +
-                "\t\t\t\t\t<Parameters>\n" +
-                "\t\t\t\t\t\t<Parameter>\n" +
-                "\t\t\t\t\t\t\t<Name><![CDATA[seizeFromOnePool]]></Name>\n" +
-                "\t\t\t\t\t\t\t<Value Class=\"CodeValue\">\n" +
-                "\t\t\t\t\t\t\t\t<Code><![CDATA[true]]></Code>\n" +
-                "\t\t\t\t\t\t\t</Value>\n" +
-                "\t\t\t\t\t\t</Parameter>\n" +
-                "\t\t\t\t\t\t<Parameter>\n" +
-                "\t\t\t\t\t\t\t<Name><![CDATA[resourceSets]]></Name>\n" +
-                "\t\t\t\t\t\t\t<Value Class=\"CodeValue\">\n" +
-                "\t\t\t\t\t\t\t\t<Code><![CDATA[{ \n" +
-                "  { resourcePool }\n" +
-                "}]]></Code>\n" +
-                "\t\t\t\t\t\t\t</Value>\n" +
-                "\t\t\t\t\t\t</Parameter>\n" +
-                "\t\t\t\t\t\t<Parameter>\n" +
-                "\t\t\t\t\t\t\t<Name><![CDATA[resourcePool]]></Name>\n" +
-                "\t\t\t\t\t\t\t<Value Class=\"CodeValue\">\n" +
-                //
-                "\t\t\t\t\t\t\t\t<Code><![CDATA[resourcePool_"+node.getId()+"]]></Code>\n" +
-                "\t\t\t\t\t\t\t</Value>\n" +
-                "\t\t\t\t\t\t</Parameter>\n" +
-                "\t\t\t\t\t\t<Parameter>\n" +
-                "\t\t\t\t\t\t\t<Name><![CDATA[resourceQuantity]]></Name>\n" +
-                "\t\t\t\t\t\t</Parameter>\n" +
-                "\t\t\t\t\t\t<Parameter>\n" +
-                "\t\t\t\t\t\t\t<Name><![CDATA[seizePolicy]]></Name>\n" +
-                "\t\t\t\t\t\t</Parameter>\n" +
-                "\t\t\t\t\t\t<Parameter>\n" +
-                "\t\t\t\t\t\t\t<Name><![CDATA[queueCapacity]]></Name>\n" +
-                "\t\t\t\t\t\t\t<Value Class=\"CodeValue\">\n" +
-                //
-                "\t\t\t\t\t\t\t\t<Code><![CDATA["+node.getQueue()+"]]></Code>\n" +
-                "\t\t\t\t\t\t\t</Value>\n" +
-                "\t\t\t\t\t\t</Parameter>\n" +
-                "\t\t\t\t\t\t<Parameter>\n" +
-                "\t\t\t\t\t\t\t<Name><![CDATA[maximumCapacity]]></Name>\n" +
-                "\t\t\t\t\t\t</Parameter>\n" +
-                "\t\t\t\t\t\t<Parameter>\n" +
-                "\t\t\t\t\t\t\t<Name><![CDATA[delayTime]]></Name>\n" +
-                "\t\t\t\t\t\t\t<Value Class=\"CodeUnitValue\">\n" +
-                //
-                "\t\t\t\t\t\t\t\t<Code><![CDATA["+node.getTob()+"]]></Code>\n" +
-                "\t\t\t\t\t\t\t\t<Unit Class=\"TimeUnits\"><![CDATA[SECOND]]></Unit>\n" +
-                "\t\t\t\t\t\t\t</Value>\n" +
-                "\t\t\t\t\t\t</Parameter>\n" +
-                "\t\t\t\t\t\t<Parameter>\n" +
-                "\t\t\t\t\t\t\t<Name><![CDATA[sendResources]]></Name>\n" +
-                "\t\t\t\t\t\t</Parameter>\n" +
-                "\t\t\t\t\t\t<Parameter>\n" +
-                "\t\t\t\t\t\t\t<Name><![CDATA[destinationType]]></Name>\n" +
-                "\t\t\t\t\t\t</Parameter>\n" +
-                "\t\t\t\t\t\t<Parameter>\n" +
-                "\t\t\t\t\t\t\t<Name><![CDATA[destinationNode]]></Name>\n" +
-                "\t\t\t\t\t\t</Parameter>\n" +
-                "\t\t\t\t\t\t<Parameter>\n" +
-                "\t\t\t\t\t\t\t<Name><![CDATA[destinationAttractor]]></Name>\n" +
-                "\t\t\t\t\t\t</Parameter>\n" +
-                "\t\t\t\t\t\t<Parameter>\n" +
-                "\t\t\t\t\t\t\t<Name><![CDATA[movingGoHome]]></Name>\n" +
-                "\t\t\t\t\t\t</Parameter>\n" +
-                "\t\t\t\t\t\t<Parameter>\n" +
-                "\t\t\t\t\t\t\t<Name><![CDATA[entityLocationQueue]]></Name>\n" +
-                "\t\t\t\t\t\t</Parameter>\n" +
-                "\t\t\t\t\t\t<Parameter>\n" +
-                "\t\t\t\t\t\t\t<Name><![CDATA[entityLocationDelay]]></Name>\n" +
-                "\t\t\t\t\t\t</Parameter>\n" +
-                "\t\t\t\t\t\t<Parameter>\n" +
-                "\t\t\t\t\t\t\t<Name><![CDATA[priority]]></Name>\n" +
-                "\t\t\t\t\t\t</Parameter>\n" +
-                "\t\t\t\t\t\t<Parameter>\n" +
-                "\t\t\t\t\t\t\t<Name><![CDATA[taskMayPreemptOtherTasks]]></Name>\n" +
-                "\t\t\t\t\t\t</Parameter>\n" +
-                "\t\t\t\t\t\t<Parameter>\n" +
-                "\t\t\t\t\t\t\t<Name><![CDATA[taskPreemptionPolicy]]></Name>\n" +
-                "\t\t\t\t\t\t</Parameter>\n" +
-                "\t\t\t\t\t\t<Parameter>\n" +
-                "\t\t\t\t\t\t\t<Name><![CDATA[terminatedTasksEnter]]></Name>\n" +
-                "\t\t\t\t\t\t</Parameter>\n" +
-                "\t\t\t\t\t\t<Parameter>\n" +
-                "\t\t\t\t\t\t\t<Name><![CDATA[suspendResumeEntities]]></Name>\n" +
-                "\t\t\t\t\t\t</Parameter>\n" +
-                "\t\t\t\t\t\t<Parameter>\n" +
-                "\t\t\t\t\t\t\t<Name><![CDATA[wrapUpTaskPolicyType]]></Name>\n" +
-                "\t\t\t\t\t\t</Parameter>\n" +
-                "\t\t\t\t\t\t<Parameter>\n" +
-                "\t\t\t\t\t\t\t<Name><![CDATA[wrapUpTaskPriority]]></Name>\n" +
-                "\t\t\t\t\t\t</Parameter>\n" +
-                "\t\t\t\t\t\t<Parameter>\n" +
-                "\t\t\t\t\t\t\t<Name><![CDATA[wrapUpTaskPreemptionPolicy]]></Name>\n" +
-                "\t\t\t\t\t\t</Parameter>\n" +
-                "\t\t\t\t\t\t<Parameter>\n" +
-                "\t\t\t\t\t\t\t<Name><![CDATA[customizeResourceChoice]]></Name>\n" +
-                "\t\t\t\t\t\t</Parameter>\n" +
-                "\t\t\t\t\t\t<Parameter>\n" +
-                "\t\t\t\t\t\t\t<Name><![CDATA[resourceChoiceCondition]]></Name>\n" +
-                "\t\t\t\t\t\t</Parameter>\n" +
-                "\t\t\t\t\t\t<Parameter>\n" +
-                "\t\t\t\t\t\t\t<Name><![CDATA[resourceSelectionMode]]></Name>\n" +
-                "\t\t\t\t\t\t</Parameter>\n" +
-                "\t\t\t\t\t\t<Parameter>\n" +
-                "\t\t\t\t\t\t\t<Name><![CDATA[resourceRating]]></Name>\n" +
-                "\t\t\t\t\t\t</Parameter>\n" +
-                "\t\t\t\t\t\t<Parameter>\n" +
-                "\t\t\t\t\t\t\t<Name><![CDATA[resourceComparison]]></Name>\n" +
-                "\t\t\t\t\t\t</Parameter>\n" +
-                "\t\t\t\t\t\t<Parameter>\n" +
-                "\t\t\t\t\t\t\t<Name><![CDATA[enableTimeout]]></Name>\n" +
-                "\t\t\t\t\t\t</Parameter>\n" +
-                "\t\t\t\t\t\t<Parameter>\n" +
-                "\t\t\t\t\t\t\t<Name><![CDATA[timeout]]></Name>\n" +
-                "\t\t\t\t\t\t</Parameter>\n" +
-                "\t\t\t\t\t\t<Parameter>\n" +
-                "\t\t\t\t\t\t\t<Name><![CDATA[enablePreemption]]></Name>\n" +
-                "\t\t\t\t\t\t</Parameter>\n" +
-                "\t\t\t\t\t\t<Parameter>\n" +
-                "\t\t\t\t\t\t\t<Name><![CDATA[restoreEntityLocationOnExit]]></Name>\n" +
-                "\t\t\t\t\t\t</Parameter>\n" +
-                "\t\t\t\t\t\t<Parameter>\n" +
-                "\t\t\t\t\t\t\t<Name><![CDATA[forceStatisticsCollection]]></Name>\n" +
-                "\t\t\t\t\t\t</Parameter>\n" +
-                "\t\t\t\t\t\t<Parameter>\n" +
-                "\t\t\t\t\t\t\t<Name><![CDATA[wrapUpUsageState]]></Name>\n" +
-                "\t\t\t\t\t\t</Parameter>\n" +
-                "\t\t\t\t\t\t<Parameter>\n" +
-                "\t\t\t\t\t\t\t<Name><![CDATA[onEnter]]></Name>\n" +
-                "\t\t\t\t\t\t</Parameter>\n" +
-                "\t\t\t\t\t\t<Parameter>\n" +
-                "\t\t\t\t\t\t\t<Name><![CDATA[onExitTimeout]]></Name>\n" +
-                "\t\t\t\t\t\t</Parameter>\n" +
-                "\t\t\t\t\t\t<Parameter>\n" +
-                "\t\t\t\t\t\t\t<Name><![CDATA[onExitPreempted]]></Name>\n" +
-                "\t\t\t\t\t\t</Parameter>\n" +
-                "\t\t\t\t\t\t<Parameter>\n" +
-                "\t\t\t\t\t\t\t<Name><![CDATA[onSeizeUnit]]></Name>\n" +
-                "\t\t\t\t\t\t</Parameter>\n" +
-                "\t\t\t\t\t\t<Parameter>\n" +
-                "\t\t\t\t\t\t\t<Name><![CDATA[onEnterDelay]]></Name>\n" +
-                "\t\t\t\t\t\t</Parameter>\n" +
-                "\t\t\t\t\t\t<Parameter>\n" +
-                "\t\t\t\t\t\t\t<Name><![CDATA[onAtExit]]></Name>\n" +
-                "\t\t\t\t\t\t</Parameter>\n" +
-                "<Parameter>\n" +
-                "\t\t\t\t\t\t\t<Name><![CDATA[onExit]]></Name>\n" +
-                "\t\t\t\t\t\t\t<Value Class=\"CodeValue\">\n" +
-                // ПРИ КАЖДОМ ВЫХОДЕ ЗАЯВКИ ИЗ УЗЛА ДОБАВЛЯЕМ В СТАТИСТИКУ ТЕКУЩИЙ РАЗМЕР ОЧЕРЕДИ
-                "\t\t\t\t\t\t\t\t<Code><![CDATA[queueSize_"+node.getId()+".update()]]></Code>\n" +
-                "\t\t\t\t\t\t\t</Value>\n" +
-                "\t\t\t\t\t\t</Parameter>" +
-                "\t\t\t\t\t\t<Parameter>\n" +
-                "\t\t\t\t\t\t\t<Name><![CDATA[onTaskTerminated]]></Name>\n" +
-                "\t\t\t\t\t\t</Parameter>\n" +
-                "\t\t\t\t\t\t<Parameter>\n" +
-                "\t\t\t\t\t\t\t<Name><![CDATA[onTaskSuspended]]></Name>\n" +
-                "\t\t\t\t\t\t</Parameter>\n" +
-                "\t\t\t\t\t\t<Parameter>\n" +
-                "\t\t\t\t\t\t\t<Name><![CDATA[onTaskResumed]]></Name>\n" +
-                "\t\t\t\t\t\t</Parameter>\n" +
-                "\t\t\t\t\t\t<Parameter>\n" +
-                "\t\t\t\t\t\t\t<Name><![CDATA[onRemove]]></Name>\n" +
-                "\t\t\t\t\t\t</Parameter>\n" +
-                "\t\t\t\t\t</Parameters>\n" +
-                "\t\t\t\t\t<ReplicationFlag>false</ReplicationFlag>\n" +
-                "\t\t\t\t\t<Replication Class=\"CodeValue\">\n" +
-                "\t\t\t\t\t\t<Code><![CDATA[100]]></Code>\n" +
-                "\t\t\t\t\t</Replication>\n" +
-                "\t\t\t\t\t<CollectionType>ARRAY_LIST_BASED</CollectionType>\n" +
-                "\t\t\t\t\t<InitialLocationType>AT_ANIMATION_POSITION</InitialLocationType>\n" +
-                "\t\t\t\t\t<XCode Class=\"CodeValue\">\n" +
-                "\t\t\t\t\t\t<Code><![CDATA[0]]></Code>\n" +
-                "\t\t\t\t\t</XCode>\n" +
-                "\t\t\t\t\t<YCode Class=\"CodeValue\">\n" +
-                "\t\t\t\t\t\t<Code><![CDATA[0]]></Code>\n" +
-                "\t\t\t\t\t</YCode>\n" +
-                "\t\t\t\t\t<ZCode Class=\"CodeValue\">\n" +
-                "\t\t\t\t\t\t<Code><![CDATA[0]]></Code>\n" +
-                "\t\t\t\t\t</ZCode>\n" +
-                "\t\t\t\t\t<ColumnCode Class=\"CodeValue\">\n" +
-                "\t\t\t\t\t\t<Code><![CDATA[0]]></Code>\n" +
-                "\t\t\t\t\t</ColumnCode>\n" +
-                "\t\t\t\t\t<RowCode Class=\"CodeValue\">\n" +
-                "\t\t\t\t\t\t<Code><![CDATA[0]]></Code>\n" +
-                "\t\t\t\t\t</RowCode>\n" +
-                "\t\t\t\t\t<LatitudeCode Class=\"CodeValue\">\n" +
-                "\t\t\t\t\t\t<Code><![CDATA[0]]></Code>\n" +
-                "\t\t\t\t\t</LatitudeCode>\n" +
-                "\t\t\t\t\t<LongitudeCode Class=\"CodeValue\">\n" +
-                "\t\t\t\t\t\t<Code><![CDATA[0]]></Code>\n" +
-                "\t\t\t\t\t</LongitudeCode>\n" +
-                "\t\t\t\t\t<LocationNameCode Class=\"CodeValue\">\n" +
-                "\t\t\t\t\t\t<Code><![CDATA[\"\"]]></Code>\n" +
-                "\t\t\t\t\t</LocationNameCode>\n" +
-                "\t\t\t\t\t<InitializationType>SPECIFIED_NUMBER</InitializationType>\n" +
-                "\t\t\t\t\t<InitializationDatabaseTableQuery>\n" +
-                "\t\t\t\t\t\t<TableReference>\n" +
-                "\t\t\t\t\t\t</TableReference>\n" +
-                "\t\t\t\t\t</InitializationDatabaseTableQuery>\n" +
-                "\t\t\t\t\t<InitializationDatabaseType>ONE_AGENT_PER_DATABASE_RECORD</InitializationDatabaseType>\n" +
-                "\t\t\t\t\t<QuantityColumn>\n" +
-                "\t\t\t\t\t</QuantityColumn>\n" +
-                "\t\t\t\t</EmbeddedObject>";
-
-        appendXmlFragment(b, d.getElementsByTagName("EmbeddedObjects").item(0), s);
-    }
-
-    public void appendAlpStart(INode node, Document d, DocumentBuilder b) throws IOException, SAXException {
-
-        String s = "<EmbeddedObject>\n" +
-                "\t\t\t\t\t<Id>" + node.getId() + "</Id>\n" +
-                "\t\t\t\t\t<Name><![CDATA[source_" + node.getId() + "]]></Name>\n" +
-                "\t\t\t\t\t<X>" + node.getLocation().getX() + 40 + "</X><Y>" + (node.getLocation().getY() - 50) + "</Y>\n" +
-                "\t\t\t\t\t<Label><X>-5</X><Y>-25</Y></Label>\n" +
-                "\t\t\t\t\t<PublicFlag>false</PublicFlag>\n" +
-                "\t\t\t\t\t<PresentationFlag>true</PresentationFlag>\n" +
-                "\t\t\t\t\t<ShowLabel>false</ShowLabel>\n" +
-                "\t\t\t\t\t<ActiveObjectClass>\n" +
-                "\t\t\t\t\t\t<PackageName><![CDATA[com.anylogic.libraries.processmodeling]]></PackageName>\n" +
-                "\t\t\t\t\t\t<ClassName><![CDATA[Source]]></ClassName>\n" +
-                "\t\t\t\t\t</ActiveObjectClass>\n" +
-                "\t\t\t\t\t<GenericParameterSubstitute>\n" +
-                "\t\t\t\t\t\t<GenericParameterSubstituteReference>\n" +
-                "\t\t\t\t\t\t\t<PackageName><![CDATA[com.anylogic.libraries.processmodeling]]></PackageName>\n" +
-                "\t\t\t\t\t\t\t<ClassName><![CDATA[Source]]></ClassName>\n" +
-                "\t\t\t\t\t\t\t<ItemName><![CDATA[1412336242928]]></ItemName>\n" +
-                "\t\t\t\t\t\t</GenericParameterSubstituteReference>\n" +
-                "\t\t\t\t\t</GenericParameterSubstitute>\n" +
-                "\t\t\t\t\t<Parameters>\n" +
-                "\t\t\t\t\t\t<Parameter>\n" +
-                "\t\t\t\t\t\t\t<Name><![CDATA[arrivalType]]></Name>\n" +
-                "\t\t\t\t\t\t</Parameter>\n" +
-                "\t\t\t\t\t\t<Parameter>\n" +
-                "\t\t\t\t\t\t\t<Name><![CDATA[rate]]></Name>\n" +
-                "\t\t\t\t\t\t\t<Value Class=\"CodeUnitValue\">\n" +
-                "\t\t\t\t\t\t\t\t<Code><![CDATA[" + node.getLambda() + "]]></Code>\n" +
-                "\t\t\t\t\t\t\t\t<Unit Class=\"RateUnits\"><![CDATA[PER_SECOND]]></Unit>\n" +
-                "\t\t\t\t\t\t\t</Value>\n" +
-                "\t\t\t\t\t\t</Parameter>\n" +
-                "\t\t\t\t\t\t<Parameter>\n" +
-                "\t\t\t\t\t\t\t<Name><![CDATA[interarrivalTime]]></Name>\n" +
-                "\t\t\t\t\t\t</Parameter>\n" +
-                "\t\t\t\t\t\t<Parameter>\n" +
-                "\t\t\t\t\t\t\t<Name><![CDATA[firstArrivalMode]]></Name>\n" +
-                "\t\t\t\t\t\t</Parameter>\n" +
-                "\t\t\t\t\t\t<Parameter>\n" +
-                "\t\t\t\t\t\t\t<Name><![CDATA[firstArrivalTime]]></Name>\n" +
-                "\t\t\t\t\t\t</Parameter>\n" +
-                "\t\t\t\t\t\t<Parameter>\n" +
-                "\t\t\t\t\t\t\t<Name><![CDATA[rateSchedule]]></Name>\n" +
-                "\t\t\t\t\t\t</Parameter>\n" +
-                "\t\t\t\t\t\t<Parameter>\n" +
-                "\t\t\t\t\t\t\t<Name><![CDATA[modifyRate]]></Name>\n" +
-                "\t\t\t\t\t\t</Parameter>\n" +
-                "\t\t\t\t\t\t<Parameter>\n" +
-                "\t\t\t\t\t\t\t<Name><![CDATA[rateExpression]]></Name>\n" +
-                "\t\t\t\t\t\t</Parameter>\n" +
-                "\t\t\t\t\t\t<Parameter>\n" +
-                "\t\t\t\t\t\t\t<Name><![CDATA[arrivalSchedule]]></Name>\n" +
-                "\t\t\t\t\t\t</Parameter>\n" +
-                "\t\t\t\t\t\t<Parameter>\n" +
-                "\t\t\t\t\t\t\t<Name><![CDATA[setAgentParametersFromDB]]></Name>\n" +
-                "\t\t\t\t\t\t</Parameter>\n" +
-                "\t\t\t\t\t\t<Parameter>\n" +
-                "\t\t\t\t\t\t\t<Name><![CDATA[databaseTable]]></Name>\n" +
-                "\t\t\t\t\t\t</Parameter>\n" +
-                "\t\t\t\t\t\t<Parameter>\n" +
-                "\t\t\t\t\t\t\t<Name><![CDATA[arrivalDate]]></Name>\n" +
-                "\t\t\t\t\t\t</Parameter>\n" +
-                "\t\t\t\t\t\t<Parameter>\n" +
-                "\t\t\t\t\t\t\t<Name><![CDATA[multipleEntitiesPerArrival]]></Name>\n" +
-                "\t\t\t\t\t\t</Parameter>\n" +
-                "\t\t\t\t\t\t<Parameter>\n" +
-                "\t\t\t\t\t\t\t<Name><![CDATA[entitiesPerArrival]]></Name>\n" +
-                "\t\t\t\t\t\t</Parameter>\n";
-
-        if (Integer.parseInt(node.getLimit()) == 0) {
-            s += "\t\t\t\t\t\t<Parameter>\n" +
-                    "\t\t\t\t\t\t\t<Name><![CDATA[limitArrivals]]></Name>\n" +
+        if (out.isFilling("EmbeddedObjects")) {
+            String s = "\t\t\t\t<EmbeddedObject>\n" +
+                    "\t\t\t\t\t<Id>"+node.getId()+"</Id>\n" +
+                    "\t\t\t\t\t<Name><![CDATA[service_"+node.getId()+"]]></Name>\n" +
+                    // РАЗМЕЩЕНИЕ НА ГРАФЕ СО СМЕЩЕНИЕМ
+                    "\t\t\t\t\t<X>"+node.getLocation().getX()+40+"</X><Y>"+node.getLocation().getY()+"</Y>\n" +
+                    "\t\t\t\t\t<Label><X>-10</X><Y>-15</Y></Label>\n" +
+                    "\t\t\t\t\t<PublicFlag>false</PublicFlag>\n" +
+                    "\t\t\t\t\t<PresentationFlag>true</PresentationFlag>\n" +
+                    "\t\t\t\t\t<ShowLabel>true</ShowLabel>\n" +
+                    "\t\t\t\t\t<ActiveObjectClass>\n" +
+                    "\t\t\t\t\t\t<PackageName><![CDATA[com.anylogic.libraries.processmodeling]]></PackageName>\n" +
+                    "\t\t\t\t\t\t<ClassName><![CDATA[Service]]></ClassName>\n" +
+                    "\t\t\t\t\t</ActiveObjectClass>\n" +
+                    "\t\t\t\t\t<GenericParameterSubstitute>\n" +
+                    "\t\t\t\t\t\t<GenericParameterSubstituteReference>\n" +
+                    "\t\t\t\t\t\t\t<PackageName><![CDATA[com.anylogic.libraries.processmodeling]]></PackageName>\n" +
+                    "\t\t\t\t\t\t\t<ClassName><![CDATA[Service]]></ClassName>\n" +
+                    "\t\t\t\t\t\t\t<ItemName><![CDATA[1412336243141]]></ItemName>\n" +
+                    "\t\t\t\t\t\t</GenericParameterSubstituteReference>\n" +
+                    "\t\t\t\t\t</GenericParameterSubstitute>\n" +
+                    "\t\t\t\t\t<Parameters>\n" +
+                    "\t\t\t\t\t\t<Parameter>\n" +
+                    "\t\t\t\t\t\t\t<Name><![CDATA[seizeFromOnePool]]></Name>\n" +
+                    "\t\t\t\t\t\t\t<Value Class=\"CodeValue\">\n" +
+                    "\t\t\t\t\t\t\t\t<Code><![CDATA[true]]></Code>\n" +
+                    "\t\t\t\t\t\t\t</Value>\n" +
+                    "\t\t\t\t\t\t</Parameter>\n" +
+                    "\t\t\t\t\t\t<Parameter>\n" +
+                    "\t\t\t\t\t\t\t<Name><![CDATA[resourceSets]]></Name>\n" +
+                    "\t\t\t\t\t\t\t<Value Class=\"CodeValue\">\n" +
+                    "\t\t\t\t\t\t\t\t<Code><![CDATA[{ \n" +
+                    "  { resourcePool }\n" +
+                    "}]]></Code>\n" +
+                    "\t\t\t\t\t\t\t</Value>\n" +
+                    "\t\t\t\t\t\t</Parameter>\n" +
+                    "\t\t\t\t\t\t<Parameter>\n" +
+                    "\t\t\t\t\t\t\t<Name><![CDATA[resourcePool]]></Name>\n" +
+                    "\t\t\t\t\t\t\t<Value Class=\"CodeValue\">\n" +
+                    //
+                    "\t\t\t\t\t\t\t\t<Code><![CDATA[resourcePool_"+node.getId()+"]]></Code>\n" +
+                    "\t\t\t\t\t\t\t</Value>\n" +
+                    "\t\t\t\t\t\t</Parameter>\n" +
+                    "\t\t\t\t\t\t<Parameter>\n" +
+                    "\t\t\t\t\t\t\t<Name><![CDATA[resourceQuantity]]></Name>\n" +
+                    "\t\t\t\t\t\t</Parameter>\n" +
+                    "\t\t\t\t\t\t<Parameter>\n" +
+                    "\t\t\t\t\t\t\t<Name><![CDATA[seizePolicy]]></Name>\n" +
+                    "\t\t\t\t\t\t</Parameter>\n" +
+                    "\t\t\t\t\t\t<Parameter>\n" +
+                    "\t\t\t\t\t\t\t<Name><![CDATA[queueCapacity]]></Name>\n" +
+                    "\t\t\t\t\t\t\t<Value Class=\"CodeValue\">\n" +
+                    //
+                    "\t\t\t\t\t\t\t\t<Code><![CDATA["+node.getQueue()+"]]></Code>\n" +
+                    "\t\t\t\t\t\t\t</Value>\n" +
+                    "\t\t\t\t\t\t</Parameter>\n" +
+                    "\t\t\t\t\t\t<Parameter>\n" +
+                    "\t\t\t\t\t\t\t<Name><![CDATA[maximumCapacity]]></Name>\n" +
+                    "\t\t\t\t\t\t</Parameter>\n" +
+                    "\t\t\t\t\t\t<Parameter>\n" +
+                    "\t\t\t\t\t\t\t<Name><![CDATA[delayTime]]></Name>\n" +
+                    "\t\t\t\t\t\t\t<Value Class=\"CodeUnitValue\">\n" +
+                    //
+                    "\t\t\t\t\t\t\t\t<Code><![CDATA["+node.getTob()+"]]></Code>\n" +
+                    "\t\t\t\t\t\t\t\t<Unit Class=\"TimeUnits\"><![CDATA[SECOND]]></Unit>\n" +
+                    "\t\t\t\t\t\t\t</Value>\n" +
+                    "\t\t\t\t\t\t</Parameter>\n" +
+                    "\t\t\t\t\t\t<Parameter>\n" +
+                    "\t\t\t\t\t\t\t<Name><![CDATA[sendResources]]></Name>\n" +
+                    "\t\t\t\t\t\t</Parameter>\n" +
+                    "\t\t\t\t\t\t<Parameter>\n" +
+                    "\t\t\t\t\t\t\t<Name><![CDATA[destinationType]]></Name>\n" +
+                    "\t\t\t\t\t\t</Parameter>\n" +
+                    "\t\t\t\t\t\t<Parameter>\n" +
+                    "\t\t\t\t\t\t\t<Name><![CDATA[destinationNode]]></Name>\n" +
+                    "\t\t\t\t\t\t</Parameter>\n" +
+                    "\t\t\t\t\t\t<Parameter>\n" +
+                    "\t\t\t\t\t\t\t<Name><![CDATA[destinationAttractor]]></Name>\n" +
+                    "\t\t\t\t\t\t</Parameter>\n" +
+                    "\t\t\t\t\t\t<Parameter>\n" +
+                    "\t\t\t\t\t\t\t<Name><![CDATA[movingGoHome]]></Name>\n" +
+                    "\t\t\t\t\t\t</Parameter>\n" +
+                    "\t\t\t\t\t\t<Parameter>\n" +
+                    "\t\t\t\t\t\t\t<Name><![CDATA[entityLocationQueue]]></Name>\n" +
                     "\t\t\t\t\t\t</Parameter>\n" +
                     "\t\t\t\t\t\t<Parameter>\n" +
-                    "\t\t\t\t\t\t\t<Name><![CDATA[maxArrivals]]></Name>\n" +
-                    "\t\t\t\t\t\t</Parameter>\n";
-        } else {
-            s += "\t\t\t\t\t\t<Parameter>\n" +
-                    "\t\t\t\t\t\t\t<Name><![CDATA[limitArrivals]]></Name>\n" +
-                    "\t\t\t\t\t\t\t<Value Class=\"CodeValue\">\n" +
-                    "\t\t\t\t\t\t\t\t<Code><![CDATA[true]]></Code>\n" +
-                    "\t\t\t\t\t\t\t</Value>\n" +
+                    "\t\t\t\t\t\t\t<Name><![CDATA[entityLocationDelay]]></Name>\n" +
+                    "\t\t\t\t\t\t</Parameter>\n" +
+                    "\t\t\t\t\t\t<Parameter>\n" +
+                    "\t\t\t\t\t\t\t<Name><![CDATA[priority]]></Name>\n" +
+                    "\t\t\t\t\t\t</Parameter>\n" +
+                    "\t\t\t\t\t\t<Parameter>\n" +
+                    "\t\t\t\t\t\t\t<Name><![CDATA[taskMayPreemptOtherTasks]]></Name>\n" +
+                    "\t\t\t\t\t\t</Parameter>\n" +
+                    "\t\t\t\t\t\t<Parameter>\n" +
+                    "\t\t\t\t\t\t\t<Name><![CDATA[taskPreemptionPolicy]]></Name>\n" +
+                    "\t\t\t\t\t\t</Parameter>\n" +
+                    "\t\t\t\t\t\t<Parameter>\n" +
+                    "\t\t\t\t\t\t\t<Name><![CDATA[terminatedTasksEnter]]></Name>\n" +
+                    "\t\t\t\t\t\t</Parameter>\n" +
+                    "\t\t\t\t\t\t<Parameter>\n" +
+                    "\t\t\t\t\t\t\t<Name><![CDATA[suspendResumeEntities]]></Name>\n" +
+                    "\t\t\t\t\t\t</Parameter>\n" +
+                    "\t\t\t\t\t\t<Parameter>\n" +
+                    "\t\t\t\t\t\t\t<Name><![CDATA[wrapUpTaskPolicyType]]></Name>\n" +
+                    "\t\t\t\t\t\t</Parameter>\n" +
+                    "\t\t\t\t\t\t<Parameter>\n" +
+                    "\t\t\t\t\t\t\t<Name><![CDATA[wrapUpTaskPriority]]></Name>\n" +
+                    "\t\t\t\t\t\t</Parameter>\n" +
+                    "\t\t\t\t\t\t<Parameter>\n" +
+                    "\t\t\t\t\t\t\t<Name><![CDATA[wrapUpTaskPreemptionPolicy]]></Name>\n" +
+                    "\t\t\t\t\t\t</Parameter>\n" +
+                    "\t\t\t\t\t\t<Parameter>\n" +
+                    "\t\t\t\t\t\t\t<Name><![CDATA[customizeResourceChoice]]></Name>\n" +
+                    "\t\t\t\t\t\t</Parameter>\n" +
+                    "\t\t\t\t\t\t<Parameter>\n" +
+                    "\t\t\t\t\t\t\t<Name><![CDATA[resourceChoiceCondition]]></Name>\n" +
+                    "\t\t\t\t\t\t</Parameter>\n" +
+                    "\t\t\t\t\t\t<Parameter>\n" +
+                    "\t\t\t\t\t\t\t<Name><![CDATA[resourceSelectionMode]]></Name>\n" +
+                    "\t\t\t\t\t\t</Parameter>\n" +
+                    "\t\t\t\t\t\t<Parameter>\n" +
+                    "\t\t\t\t\t\t\t<Name><![CDATA[resourceRating]]></Name>\n" +
+                    "\t\t\t\t\t\t</Parameter>\n" +
+                    "\t\t\t\t\t\t<Parameter>\n" +
+                    "\t\t\t\t\t\t\t<Name><![CDATA[resourceComparison]]></Name>\n" +
                     "\t\t\t\t\t\t</Parameter>\n" +
                     "\t\t\t\t\t\t<Parameter>\n" +
-                    "\t\t\t\t\t\t\t<Name><![CDATA[maxArrivals]]></Name>\n" +
+                    "\t\t\t\t\t\t\t<Name><![CDATA[enableTimeout]]></Name>\n" +
+                    "\t\t\t\t\t\t</Parameter>\n" +
+                    "\t\t\t\t\t\t<Parameter>\n" +
+                    "\t\t\t\t\t\t\t<Name><![CDATA[timeout]]></Name>\n" +
+                    "\t\t\t\t\t\t</Parameter>\n" +
+                    "\t\t\t\t\t\t<Parameter>\n" +
+                    "\t\t\t\t\t\t\t<Name><![CDATA[enablePreemption]]></Name>\n" +
+                    "\t\t\t\t\t\t</Parameter>\n" +
+                    "\t\t\t\t\t\t<Parameter>\n" +
+                    "\t\t\t\t\t\t\t<Name><![CDATA[restoreEntityLocationOnExit]]></Name>\n" +
+                    "\t\t\t\t\t\t</Parameter>\n" +
+                    "\t\t\t\t\t\t<Parameter>\n" +
+                    "\t\t\t\t\t\t\t<Name><![CDATA[forceStatisticsCollection]]></Name>\n" +
+                    "\t\t\t\t\t\t</Parameter>\n" +
+                    "\t\t\t\t\t\t<Parameter>\n" +
+                    "\t\t\t\t\t\t\t<Name><![CDATA[wrapUpUsageState]]></Name>\n" +
+                    "\t\t\t\t\t\t</Parameter>\n" +
+                    "\t\t\t\t\t\t<Parameter>\n" +
+                    "\t\t\t\t\t\t\t<Name><![CDATA[onEnter]]></Name>\n" +
+                    "\t\t\t\t\t\t</Parameter>\n" +
+                    "\t\t\t\t\t\t<Parameter>\n" +
+                    "\t\t\t\t\t\t\t<Name><![CDATA[onExitTimeout]]></Name>\n" +
+                    "\t\t\t\t\t\t</Parameter>\n" +
+                    "\t\t\t\t\t\t<Parameter>\n" +
+                    "\t\t\t\t\t\t\t<Name><![CDATA[onExitPreempted]]></Name>\n" +
+                    "\t\t\t\t\t\t</Parameter>\n" +
+                    "\t\t\t\t\t\t<Parameter>\n" +
+                    "\t\t\t\t\t\t\t<Name><![CDATA[onSeizeUnit]]></Name>\n" +
+                    "\t\t\t\t\t\t</Parameter>\n" +
+                    "\t\t\t\t\t\t<Parameter>\n" +
+                    "\t\t\t\t\t\t\t<Name><![CDATA[onEnterDelay]]></Name>\n" +
+                    "\t\t\t\t\t\t</Parameter>\n" +
+                    "\t\t\t\t\t\t<Parameter>\n" +
+                    "\t\t\t\t\t\t\t<Name><![CDATA[onAtExit]]></Name>\n" +
+                    "\t\t\t\t\t\t</Parameter>\n" +
+                    "<Parameter>\n" +
+                    "\t\t\t\t\t\t\t<Name><![CDATA[onExit]]></Name>\n" +
                     "\t\t\t\t\t\t\t<Value Class=\"CodeValue\">\n" +
-                    "\t\t\t\t\t\t\t\t<Code><![CDATA[" + node.getLimit() + "]]></Code>\n" +
+                    // ПРИ КАЖДОМ ВЫХОДЕ ЗАЯВКИ ИЗ УЗЛА ДОБАВЛЯЕМ В СТАТИСТИКУ ТЕКУЩИЙ РАЗМЕР ОЧЕРЕДИ
+                    "\t\t\t\t\t\t\t\t<Code><![CDATA[queueSize_"+node.getId()+".update()]]></Code>\n" +
                     "\t\t\t\t\t\t\t</Value>\n" +
-                    "\t\t\t\t\t\t</Parameter>";
+                    "\t\t\t\t\t\t</Parameter>" +
+                    "\t\t\t\t\t\t<Parameter>\n" +
+                    "\t\t\t\t\t\t\t<Name><![CDATA[onTaskTerminated]]></Name>\n" +
+                    "\t\t\t\t\t\t</Parameter>\n" +
+                    "\t\t\t\t\t\t<Parameter>\n" +
+                    "\t\t\t\t\t\t\t<Name><![CDATA[onTaskSuspended]]></Name>\n" +
+                    "\t\t\t\t\t\t</Parameter>\n" +
+                    "\t\t\t\t\t\t<Parameter>\n" +
+                    "\t\t\t\t\t\t\t<Name><![CDATA[onTaskResumed]]></Name>\n" +
+                    "\t\t\t\t\t\t</Parameter>\n" +
+                    "\t\t\t\t\t\t<Parameter>\n" +
+                    "\t\t\t\t\t\t\t<Name><![CDATA[onRemove]]></Name>\n" +
+                    "\t\t\t\t\t\t</Parameter>\n" +
+                    "\t\t\t\t\t</Parameters>\n" +
+                    "\t\t\t\t\t<ReplicationFlag>false</ReplicationFlag>\n" +
+                    "\t\t\t\t\t<Replication Class=\"CodeValue\">\n" +
+                    "\t\t\t\t\t\t<Code><![CDATA[100]]></Code>\n" +
+                    "\t\t\t\t\t</Replication>\n" +
+                    "\t\t\t\t\t<CollectionType>ARRAY_LIST_BASED</CollectionType>\n" +
+                    "\t\t\t\t\t<InitialLocationType>AT_ANIMATION_POSITION</InitialLocationType>\n" +
+                    "\t\t\t\t\t<XCode Class=\"CodeValue\">\n" +
+                    "\t\t\t\t\t\t<Code><![CDATA[0]]></Code>\n" +
+                    "\t\t\t\t\t</XCode>\n" +
+                    "\t\t\t\t\t<YCode Class=\"CodeValue\">\n" +
+                    "\t\t\t\t\t\t<Code><![CDATA[0]]></Code>\n" +
+                    "\t\t\t\t\t</YCode>\n" +
+                    "\t\t\t\t\t<ZCode Class=\"CodeValue\">\n" +
+                    "\t\t\t\t\t\t<Code><![CDATA[0]]></Code>\n" +
+                    "\t\t\t\t\t</ZCode>\n" +
+                    "\t\t\t\t\t<ColumnCode Class=\"CodeValue\">\n" +
+                    "\t\t\t\t\t\t<Code><![CDATA[0]]></Code>\n" +
+                    "\t\t\t\t\t</ColumnCode>\n" +
+                    "\t\t\t\t\t<RowCode Class=\"CodeValue\">\n" +
+                    "\t\t\t\t\t\t<Code><![CDATA[0]]></Code>\n" +
+                    "\t\t\t\t\t</RowCode>\n" +
+                    "\t\t\t\t\t<LatitudeCode Class=\"CodeValue\">\n" +
+                    "\t\t\t\t\t\t<Code><![CDATA[0]]></Code>\n" +
+                    "\t\t\t\t\t</LatitudeCode>\n" +
+                    "\t\t\t\t\t<LongitudeCode Class=\"CodeValue\">\n" +
+                    "\t\t\t\t\t\t<Code><![CDATA[0]]></Code>\n" +
+                    "\t\t\t\t\t</LongitudeCode>\n" +
+                    "\t\t\t\t\t<LocationNameCode Class=\"CodeValue\">\n" +
+                    "\t\t\t\t\t\t<Code><![CDATA[\"\"]]></Code>\n" +
+                    "\t\t\t\t\t</LocationNameCode>\n" +
+                    "\t\t\t\t\t<InitializationType>SPECIFIED_NUMBER</InitializationType>\n" +
+                    "\t\t\t\t\t<InitializationDatabaseTableQuery>\n" +
+                    "\t\t\t\t\t\t<TableReference>\n" +
+                    "\t\t\t\t\t\t</TableReference>\n" +
+                    "\t\t\t\t\t</InitializationDatabaseTableQuery>\n" +
+                    "\t\t\t\t\t<InitializationDatabaseType>ONE_AGENT_PER_DATABASE_RECORD</InitializationDatabaseType>\n" +
+                    "\t\t\t\t\t<QuantityColumn>\n" +
+                    "\t\t\t\t\t</QuantityColumn>\n" +
+                    "\t\t\t\t</EmbeddedObject>";
+
+            out.append("EmbeddedObjects", s);
         }
+    }
 
-        s += "\t\t\t\t\t\t<Parameter>\n" +
-                "\t\t\t\t\t\t\t<Name><![CDATA[locationType]]></Name>\n" +
-                "\t\t\t\t\t\t</Parameter>\n" +
-                "\t\t\t\t\t\t<Parameter>\n" +
-                "\t\t\t\t\t\t\t<Name><![CDATA[locationX]]></Name>\n" +
-                "\t\t\t\t\t\t</Parameter>\n" +
-                "\t\t\t\t\t\t<Parameter>\n" +
-                "\t\t\t\t\t\t\t<Name><![CDATA[locationY]]></Name>\n" +
-                "\t\t\t\t\t\t</Parameter>\n" +
-                "\t\t\t\t\t\t<Parameter>\n" +
-                "\t\t\t\t\t\t\t<Name><![CDATA[locationZ]]></Name>\n" +
-                "\t\t\t\t\t\t</Parameter>\n" +
-                "\t\t\t\t\t\t<Parameter>\n" +
-                "\t\t\t\t\t\t\t<Name><![CDATA[locationLatitude]]></Name>\n" +
-                "\t\t\t\t\t\t</Parameter>\n" +
-                "\t\t\t\t\t\t<Parameter>\n" +
-                "\t\t\t\t\t\t\t<Name><![CDATA[locationLongitude]]></Name>\n" +
-                "\t\t\t\t\t\t</Parameter>\n" +
-                "\t\t\t\t\t\t<Parameter>\n" +
-                "\t\t\t\t\t\t\t<Name><![CDATA[locationGeoPlaceName]]></Name>\n" +
-                "\t\t\t\t\t\t</Parameter>\n" +
-                "\t\t\t\t\t\t<Parameter>\n" +
-                "\t\t\t\t\t\t\t<Name><![CDATA[locationXYZInNetwork]]></Name>\n" +
-                "\t\t\t\t\t\t</Parameter>\n" +
-                "\t\t\t\t\t\t<Parameter>\n" +
-                "\t\t\t\t\t\t\t<Name><![CDATA[locationNetwork]]></Name>\n" +
-                "\t\t\t\t\t\t</Parameter>\n" +
-                "\t\t\t\t\t\t<Parameter>\n" +
-                "\t\t\t\t\t\t\t<Name><![CDATA[locationLevel]]></Name>\n" +
-                "\t\t\t\t\t\t</Parameter>\n" +
-                "\t\t\t\t\t\t<Parameter>\n" +
-                "\t\t\t\t\t\t\t<Name><![CDATA[locationNode]]></Name>\n" +
-                "\t\t\t\t\t\t</Parameter>\n" +
-                "\t\t\t\t\t\t<Parameter>\n" +
-                "\t\t\t\t\t\t\t<Name><![CDATA[locationAttractor]]></Name>\n" +
-                "\t\t\t\t\t\t</Parameter>\n" +
-                "\t\t\t\t\t\t<Parameter>\n" +
-                "\t\t\t\t\t\t\t<Name><![CDATA[speed]]></Name>\n" +
-                "\t\t\t\t\t\t</Parameter>\n" +
-                "\t\t\t\t\t\t<Parameter>\n" +
-                "\t\t\t\t\t\t\t<Name><![CDATA[newEntity]]></Name>\n" +
-                "\t\t\t\t\t\t</Parameter>\n" +
-                "\t\t\t\t\t\t<Parameter>\n" +
-                "\t\t\t\t\t\t\t<Name><![CDATA[changeDimensions]]></Name>\n" +
-                "\t\t\t\t\t\t</Parameter>\n" +
-                "\t\t\t\t\t\t<Parameter>\n" +
-                "\t\t\t\t\t\t\t<Name><![CDATA[length]]></Name>\n" +
-                "\t\t\t\t\t\t</Parameter>\n" +
-                "\t\t\t\t\t\t<Parameter>\n" +
-                "\t\t\t\t\t\t\t<Name><![CDATA[width]]></Name>\n" +
-                "\t\t\t\t\t\t</Parameter>\n" +
-                "\t\t\t\t\t\t<Parameter>\n" +
-                "\t\t\t\t\t\t\t<Name><![CDATA[height]]></Name>\n" +
-                "\t\t\t\t\t\t</Parameter>\n" +
-                "\t\t\t\t\t\t<Parameter>\n" +
-                "\t\t\t\t\t\t\t<Name><![CDATA[enableCustomStartTime]]></Name>\n" +
-                "\t\t\t\t\t\t</Parameter>\n" +
-                "\t\t\t\t\t\t<Parameter>\n" +
-                "\t\t\t\t\t\t\t<Name><![CDATA[startTime]]></Name>\n" +
-                "\t\t\t\t\t\t</Parameter>\n" +
-                "\t\t\t\t\t\t<Parameter>\n" +
-                "\t\t\t\t\t\t\t<Name><![CDATA[addToCustomPopulation]]></Name>\n" +
-                "\t\t\t\t\t\t</Parameter>\n" +
-                "\t\t\t\t\t\t<Parameter>\n" +
-                "\t\t\t\t\t\t\t<Name><![CDATA[population]]></Name>\n" +
-                "\t\t\t\t\t\t</Parameter>\n" +
-                "\t\t\t\t\t\t<Parameter>\n" +
-                "\t\t\t\t\t\t\t<Name><![CDATA[pushProtocol]]></Name>\n" +
-                "\t\t\t\t\t\t</Parameter>\n" +
-                "\t\t\t\t\t\t<Parameter>\n" +
-                "\t\t\t\t\t\t\t<Name><![CDATA[discardHangingEntities]]></Name>\n" +
-                "\t\t\t\t\t\t</Parameter>\n" +
-                "\t\t\t\t\t\t<Parameter>\n" +
-                "\t\t\t\t\t\t\t<Name><![CDATA[onBeforeArrival]]></Name>\n" +
-                "\t\t\t\t\t\t</Parameter>\n" +
-                "\t\t\t\t\t\t<Parameter>\n" +
-                "\t\t\t\t\t\t\t<Name><![CDATA[onAtExit]]></Name>\n" +
-                "\t\t\t\t\t\t</Parameter>\n" +
-                "\t\t\t\t\t\t<Parameter>\n" +
-                "\t\t\t\t\t\t\t<Name><![CDATA[onExit]]></Name>\n" +
-                "\t\t\t\t\t\t</Parameter>\n" +
-                "\t\t\t\t\t\t<Parameter>\n" +
-                "\t\t\t\t\t\t\t<Name><![CDATA[onDiscard]]></Name>\n" +
-                "\t\t\t\t\t\t</Parameter>\n" +
-                "\t\t\t\t\t</Parameters>\n" +
-                "\t\t\t\t\t<ReplicationFlag>false</ReplicationFlag>\n" +
-                "\t\t\t\t\t<Replication Class=\"CodeValue\">\n" +
-                "\t\t\t\t\t\t<Code><![CDATA[100]]></Code>\n" +
-                "\t\t\t\t\t</Replication>\n" +
-                "\t\t\t\t\t<CollectionType>ARRAY_LIST_BASED</CollectionType>\n" +
-                "\t\t\t\t\t<InitialLocationType>AT_ANIMATION_POSITION</InitialLocationType>\n" +
-                "\t\t\t\t\t<XCode Class=\"CodeValue\">\n" +
-                "\t\t\t\t\t\t<Code><![CDATA[0]]></Code>\n" +
-                "\t\t\t\t\t</XCode>\n" +
-                "\t\t\t\t\t<YCode Class=\"CodeValue\">\n" +
-                "\t\t\t\t\t\t<Code><![CDATA[0]]></Code>\n" +
-                "\t\t\t\t\t</YCode>\n" +
-                "\t\t\t\t\t<ZCode Class=\"CodeValue\">\n" +
-                "\t\t\t\t\t\t<Code><![CDATA[0]]></Code>\n" +
-                "\t\t\t\t\t</ZCode>\n" +
-                "\t\t\t\t\t<ColumnCode Class=\"CodeValue\">\n" +
-                "\t\t\t\t\t\t<Code><![CDATA[0]]></Code>\n" +
-                "\t\t\t\t\t</ColumnCode>\n" +
-                "\t\t\t\t\t<RowCode Class=\"CodeValue\">\n" +
-                "\t\t\t\t\t\t<Code><![CDATA[0]]></Code>\n" +
-                "\t\t\t\t\t</RowCode>\n" +
-                "\t\t\t\t\t<LatitudeCode Class=\"CodeValue\">\n" +
-                "\t\t\t\t\t\t<Code><![CDATA[0]]></Code>\n" +
-                "\t\t\t\t\t</LatitudeCode>\n" +
-                "\t\t\t\t\t<LongitudeCode Class=\"CodeValue\">\n" +
-                "\t\t\t\t\t\t<Code><![CDATA[0]]></Code>\n" +
-                "\t\t\t\t\t</LongitudeCode>\n" +
-                "\t\t\t\t\t<LocationNameCode Class=\"CodeValue\">\n" +
-                "\t\t\t\t\t\t<Code><![CDATA[\"\"]]></Code>\n" +
-                "\t\t\t\t\t</LocationNameCode>\n" +
-                "\t\t\t\t\t<InitializationType>SPECIFIED_NUMBER</InitializationType>\n" +
-                "\t\t\t\t\t<InitializationDatabaseTableQuery>\n" +
-                "\t\t\t\t\t\t<TableReference>\n" +
-                "\t\t\t\t\t\t</TableReference>\n" +
-                "\t\t\t\t\t</InitializationDatabaseTableQuery>\n" +
-                "\t\t\t\t\t<InitializationDatabaseType>ONE_AGENT_PER_DATABASE_RECORD</InitializationDatabaseType>\n" +
-                "\t\t\t\t\t<QuantityColumn>\n" +
-                "\t\t\t\t\t</QuantityColumn>\n" +
-                "\t\t\t\t</EmbeddedObject>";
-
-        appendXmlFragment(b, d.getElementsByTagName("EmbeddedObjects").item(0), s);
-
-        s = "\t\t\t\t<EmbeddedObject>\n" +
-                "\t\t\t\t\t<Id>" + UniqueIDGenerator.getNewId() + "</Id>\n" +
-                "\t\t\t\t\t<Name><![CDATA[timeMeasureStart]]></Name>\n" +
-                "\t\t\t\t\t<X>" + node.getLocation().getX() + 40 + "</X><Y>" + (node.getLocation().getY()) + "</Y>\n" +
-                "\t\t\t\t\t<Label><X>-60</X><Y>-20</Y></Label>\n" +
-                "\t\t\t\t\t<PublicFlag>false</PublicFlag>\n" +
-                "\t\t\t\t\t<PresentationFlag>true</PresentationFlag>\n" +
-                "\t\t\t\t\t<ShowLabel>false</ShowLabel>\n" +
-                "\t\t\t\t\t<ActiveObjectClass>\n" +
-                "\t\t\t\t\t\t<PackageName><![CDATA[com.anylogic.libraries.processmodeling]]></PackageName>\n" +
-                "\t\t\t\t\t\t<ClassName><![CDATA[TimeMeasureStart]]></ClassName>\n" +
-                "\t\t\t\t\t</ActiveObjectClass>\n" +
-                "\t\t\t\t\t<GenericParameterSubstitute>\n" +
-                "\t\t\t\t\t\t<GenericParameterSubstituteReference>\n" +
-                "\t\t\t\t\t\t\t<PackageName><![CDATA[com.anylogic.libraries.processmodeling]]></PackageName>\n" +
-                "\t\t\t\t\t\t\t<ClassName><![CDATA[TimeMeasureStart]]></ClassName>\n" +
-                "\t\t\t\t\t\t\t<ItemName><![CDATA[1412336243204]]></ItemName>\n" +
-                "\t\t\t\t\t\t</GenericParameterSubstituteReference>\n" +
-                "\t\t\t\t\t</GenericParameterSubstitute>\n" +
-                "\t\t\t\t\t<Parameters>\n" +
-                "\t\t\t\t\t\t<Parameter>\n" +
-                "\t\t\t\t\t\t\t<Name><![CDATA[onEnter]]></Name>\n" +
-                "\t\t\t\t\t\t</Parameter>\n" +
-                "\t\t\t\t\t</Parameters>\n" +
-                "\t\t\t\t\t<ReplicationFlag>false</ReplicationFlag>\n" +
-                "\t\t\t\t\t<Replication Class=\"CodeValue\">\n" +
-                "\t\t\t\t\t\t<Code><![CDATA[100]]></Code>\n" +
-                "\t\t\t\t\t</Replication>\n" +
-                "\t\t\t\t\t<CollectionType>ARRAY_LIST_BASED</CollectionType>\n" +
-                "\t\t\t\t\t<InitialLocationType>AT_ANIMATION_POSITION</InitialLocationType>\n" +
-                "\t\t\t\t\t<XCode Class=\"CodeValue\">\n" +
-                "\t\t\t\t\t\t<Code><![CDATA[0]]></Code>\n" +
-                "\t\t\t\t\t</XCode>\n" +
-                "\t\t\t\t\t<YCode Class=\"CodeValue\">\n" +
-                "\t\t\t\t\t\t<Code><![CDATA[0]]></Code>\n" +
-                "\t\t\t\t\t</YCode>\n" +
-                "\t\t\t\t\t<ZCode Class=\"CodeValue\">\n" +
-                "\t\t\t\t\t\t<Code><![CDATA[0]]></Code>\n" +
-                "\t\t\t\t\t</ZCode>\n" +
-                "\t\t\t\t\t<ColumnCode Class=\"CodeValue\">\n" +
-                "\t\t\t\t\t\t<Code><![CDATA[0]]></Code>\n" +
-                "\t\t\t\t\t</ColumnCode>\n" +
-                "\t\t\t\t\t<RowCode Class=\"CodeValue\">\n" +
-                "\t\t\t\t\t\t<Code><![CDATA[0]]></Code>\n" +
-                "\t\t\t\t\t</RowCode>\n" +
-                "\t\t\t\t\t<LatitudeCode Class=\"CodeValue\">\n" +
-                "\t\t\t\t\t\t<Code><![CDATA[0]]></Code>\n" +
-                "\t\t\t\t\t</LatitudeCode>\n" +
-                "\t\t\t\t\t<LongitudeCode Class=\"CodeValue\">\n" +
-                "\t\t\t\t\t\t<Code><![CDATA[0]]></Code>\n" +
-                "\t\t\t\t\t</LongitudeCode>\n" +
-                "\t\t\t\t\t<LocationNameCode Class=\"CodeValue\">\n" +
-                "\t\t\t\t\t\t<Code><![CDATA[\"\"]]></Code>\n" +
-                "\t\t\t\t\t</LocationNameCode>\n" +
-                "\t\t\t\t\t<InitializationType>SPECIFIED_NUMBER</InitializationType>\n" +
-                "\t\t\t\t\t<InitializationDatabaseTableQuery>\n" +
-                "\t\t\t\t\t\t<TableReference>\n" +
-                "\t\t\t\t\t\t</TableReference>\n" +
-                "\t\t\t\t\t</InitializationDatabaseTableQuery>\n" +
-                "\t\t\t\t\t<InitializationDatabaseType>ONE_AGENT_PER_DATABASE_RECORD</InitializationDatabaseType>\n" +
-                "\t\t\t\t\t<QuantityColumn>\n" +
-                "\t\t\t\t\t</QuantityColumn>\n" +
-                "\t\t\t\t</EmbeddedObject>";
+    public void appendAlpStart(INode node, AlpStreamWriter out) throws IOException {
+
+        if (out.isFilling("EmbeddedObjects")) {
+            String s = "<EmbeddedObject>\n" +
+                    "\t\t\t\t\t<Id>" + node.getId() + "</Id>\n" +
+                    "\t\t\t\t\t<Name><![CDATA[source_" + node.getId() + "]]></Name>\n" +
+                    "\t\t\t\t\t<X>" + node.getLocation().getX() + 40 + "</X><Y>" + (node.getLocation().getY() - 50) + "</Y>\n" +
+                    "\t\t\t\t\t<Label><X>-5</X><Y>-25</Y></Label>\n" +
+                    "\t\t\t\t\t<PublicFlag>false</PublicFlag>\n" +
+                    "\t\t\t\t\t<PresentationFlag>true</PresentationFlag>\n" +
+                    "\t\t\t\t\t<ShowLabel>false</ShowLabel>\n" +
+                    "\t\t\t\t\t<ActiveObjectClass>\n" +
+                    "\t\t\t\t\t\t<PackageName><![CDATA[com.anylogic.libraries.processmodeling]]></PackageName>\n" +
+                    "\t\t\t\t\t\t<ClassName><![CDATA[Source]]></ClassName>\n" +
+                    "\t\t\t\t\t</ActiveObjectClass>\n" +
+                    "\t\t\t\t\t<GenericParameterSubstitute>\n" +
+                    "\t\t\t\t\t\t<GenericParameterSubstituteReference>\n" +
+                    "\t\t\t\t\t\t\t<PackageName><![CDATA[com.anylogic.libraries.processmodeling]]></PackageName>\n" +
+                    "\t\t\t\t\t\t\t<ClassName><![CDATA[Source]]></ClassName>\n" +
+                    "\t\t\t\t\t\t\t<ItemName><![CDATA[1412336242928]]></ItemName>\n" +
+                    "\t\t\t\t\t\t</GenericParameterSubstituteReference>\n" +
+                    "\t\t\t\t\t</GenericParameterSubstitute>\n" +
+                    "\t\t\t\t\t<Parameters>\n" +
+                    "\t\t\t\t\t\t<Parameter>\n" +
+                    "\t\t\t\t\t\t\t<Name><![CDATA[arrivalType]]></Name>\n" +
+                    "\t\t\t\t\t\t</Parameter>\n" +
+                    "\t\t\t\t\t\t<Parameter>\n" +
+                    "\t\t\t\t\t\t\t<Name><![CDATA[rate]]></Name>\n" +
+                    "\t\t\t\t\t\t\t<Value Class=\"CodeUnitValue\">\n" +
+                    "\t\t\t\t\t\t\t\t<Code><![CDATA[" + node.getLambda() + "]]></Code>\n" +
+                    "\t\t\t\t\t\t\t\t<Unit Class=\"RateUnits\"><![CDATA[PER_SECOND]]></Unit>\n" +
+                    "\t\t\t\t\t\t\t</Value>\n" +
+                    "\t\t\t\t\t\t</Parameter>\n" +
+                    "\t\t\t\t\t\t<Parameter>\n" +
+                    "\t\t\t\t\t\t\t<Name><![CDATA[interarrivalTime]]></Name>\n" +
+                    "\t\t\t\t\t\t</Parameter>\n" +
+                    "\t\t\t\t\t\t<Parameter>\n" +
+                    "\t\t\t\t\t\t\t<Name><![CDATA[firstArrivalMode]]></Name>\n" +
+                    "\t\t\t\t\t\t</Parameter>\n" +
+                    "\t\t\t\t\t\t<Parameter>\n" +
+                    "\t\t\t\t\t\t\t<Name><![CDATA[firstArrivalTime]]></Name>\n" +
+                    "\t\t\t\t\t\t</Parameter>\n" +
+                    "\t\t\t\t\t\t<Parameter>\n" +
+                    "\t\t\t\t\t\t\t<Name><![CDATA[rateSchedule]]></Name>\n" +
+                    "\t\t\t\t\t\t</Parameter>\n" +
+                    "\t\t\t\t\t\t<Parameter>\n" +
+                    "\t\t\t\t\t\t\t<Name><![CDATA[modifyRate]]></Name>\n" +
+                    "\t\t\t\t\t\t</Parameter>\n" +
+                    "\t\t\t\t\t\t<Parameter>\n" +
+                    "\t\t\t\t\t\t\t<Name><![CDATA[rateExpression]]></Name>\n" +
+                    "\t\t\t\t\t\t</Parameter>\n" +
+                    "\t\t\t\t\t\t<Parameter>\n" +
+                    "\t\t\t\t\t\t\t<Name><![CDATA[arrivalSchedule]]></Name>\n" +
+                    "\t\t\t\t\t\t</Parameter>\n" +
+                    "\t\t\t\t\t\t<Parameter>\n" +
+                    "\t\t\t\t\t\t\t<Name><![CDATA[setAgentParametersFromDB]]></Name>\n" +
+                    "\t\t\t\t\t\t</Parameter>\n" +
+                    "\t\t\t\t\t\t<Parameter>\n" +
+                    "\t\t\t\t\t\t\t<Name><![CDATA[databaseTable]]></Name>\n" +
+                    "\t\t\t\t\t\t</Parameter>\n" +
+                    "\t\t\t\t\t\t<Parameter>\n" +
+                    "\t\t\t\t\t\t\t<Name><![CDATA[arrivalDate]]></Name>\n" +
+                    "\t\t\t\t\t\t</Parameter>\n" +
+                    "\t\t\t\t\t\t<Parameter>\n" +
+                    "\t\t\t\t\t\t\t<Name><![CDATA[multipleEntitiesPerArrival]]></Name>\n" +
+                    "\t\t\t\t\t\t</Parameter>\n" +
+                    "\t\t\t\t\t\t<Parameter>\n" +
+                    "\t\t\t\t\t\t\t<Name><![CDATA[entitiesPerArrival]]></Name>\n" +
+                    "\t\t\t\t\t\t</Parameter>\n";
 
-        appendXmlFragment(b, d.getElementsByTagName("EmbeddedObjects").item(0), s);
+            if (Integer.parseInt(node.getLimit()) == 0) {
+                s += "\t\t\t\t\t\t<Parameter>\n" +
+                        "\t\t\t\t\t\t\t<Name><![CDATA[limitArrivals]]></Name>\n" +
+                        "\t\t\t\t\t\t</Parameter>\n" +
+                        "\t\t\t\t\t\t<Parameter>\n" +
+                        "\t\t\t\t\t\t\t<Name><![CDATA[maxArrivals]]></Name>\n" +
+                        "\t\t\t\t\t\t</Parameter>\n";
+            } else {
+                s += "\t\t\t\t\t\t<Parameter>\n" +
+                        "\t\t\t\t\t\t\t<Name><![CDATA[limitArrivals]]></Name>\n" +
+                        "\t\t\t\t\t\t\t<Value Class=\"CodeValue\">\n" +
+                        "\t\t\t\t\t\t\t\t<Code><![CDATA[true]]></Code>\n" +
+                        "\t\t\t\t\t\t\t</Value>\n" +
+                        "\t\t\t\t\t\t</Parameter>\n" +
+                        "\t\t\t\t\t\t<Parameter>\n" +
+                        "\t\t\t\t\t\t\t<Name><![CDATA[maxArrivals]]></Name>\n" +
+                        "\t\t\t\t\t\t\t<Value Class=\"CodeValue\">\n" +
+                        "\t\t\t\t\t\t\t\t<Code><![CDATA[" + node.getLimit() + "]]></Code>\n" +
+                        "\t\t\t\t\t\t\t</Value>\n" +
+                        "\t\t\t\t\t\t</Parameter>";
+            }
 
-        s = "<Connector>\n" +
-                "\t\t\t\t\t<Id>"+UniqueIDGenerator.getNewId()+"</Id>\n" +
-                "\t\t\t\t\t<Name><![CDATA[connectorSTART]]></Name>\n" +
-                "\t\t\t\t\t<X>0</X><Y>0</Y>\n" +
-                "\t\t\t\t\t<Label><X>10</X><Y>0</Y></Label>\n" +
-                "\t\t\t\t\t<PublicFlag>false</PublicFlag>\n" +
-                "\t\t\t\t\t<PresentationFlag>true</PresentationFlag>\n" +
-                "\t\t\t\t\t<ShowLabel>false</ShowLabel>\n" +
-                "\t\t\t\t\t<SourceEmbeddedObjectReference>\n" +
-                "\t\t\t\t\t\t<PackageName><![CDATA[model"+graph.getId()+"]]></PackageName>\n" +
-                "\t\t\t\t\t\t<ClassName><![CDATA[Main]]></ClassName>\n" +
-                "\t\t\t\t\t\t<ItemName><![CDATA[timeMeasureStart]]></ItemName>\n" +
-                "\t\t\t\t\t</SourceEmbeddedObjectReference>\n" +
-                "\t\t\t\t\t<SourceConnectableItemReference>\n" +
-                "\t\t\t\t\t\t<PackageName><![CDATA[com.anylogic.libraries.processmodeling]]></PackageName>\n" +
-                "\t\t\t\t\t\t<ClassName><![CDATA[TimeMeasureStart]]></ClassName>\n" +
-                "\t\t\t\t\t\t<ItemName><![CDATA[in]]></ItemName>\n" +
-                "\t\t\t\t\t</SourceConnectableItemReference>\n" +
-                "\t\t\t\t\t<TargetEmbeddedObjectReference>\n" +
-                "\t\t\t\t\t\t<PackageName><![CDATA[model"+graph.getId()+"]]></PackageName>\n" +
-                "\t\t\t\t\t\t<ClassName><![CDATA[Main]]></ClassName>\n" +
-                "\t\t\t\t\t\t<ItemName><![CDATA[source_"+node.getId()+"]]></ItemName>\n" +
-                "\t\t\t\t\t</TargetEmbeddedObjectReference>\n" +
-                "\t\t\t\t\t<TargetConnectableItemReference>\n" +
-                "\t\t\t\t\t\t<PackageName><![CDATA[com.anylogic.libraries.processmodeling]]></PackageName>\n" +
-                "\t\t\t\t\t\t<ClassName><![CDATA[Source]]></ClassName>\n" +
-                "\t\t\t\t\t\t<ItemName><![CDATA[out]]></ItemName>\n" +
-                "\t\t\t\t\t</TargetConnectableItemReference>\n" +
-                "\t\t\t\t\t<Points>\n" +
-                "\t\t\t\t\t\t<Point><X>"+(node.getLocation().getX()+40-12)+"</X><Y>"+node.getLocation().getY()+5+"</Y></Point>\n" +
-                "\t\t\t\t\t\t<Point><X>"+(node.getLocation().getX()+40-10)+"</X><Y>"+(node.getLocation().getY()-50)+"</Y></Point>\n" +
-                "\t\t\t\t\t</Points>\n" +
-                "\t\t\t\t</Connector>";
+            s += "\t\t\t\t\t\t<Parameter>\n" +
+                    "\t\t\t\t\t\t\t<Name><![CDATA[locationType]]></Name>\n" +
+                    "\t\t\t\t\t\t</Parameter>\n" +
+                    "\t\t\t\t\t\t<Parameter>\n" +
+                    "\t\t\t\t\t\t\t<Name><![CDATA[locationX]]></Name>\n" +
+                    "\t\t\t\t\t\t</Parameter>\n" +
+                    "\t\t\t\t\t\t<Parameter>\n" +
+                    "\t\t\t\t\t\t\t<Name><![CDATA[locationY]]></Name>\n" +
+                    "\t\t\t\t\t\t</Parameter>\n" +
+                    "\t\t\t\t\t\t<Parameter>\n" +
+                    "\t\t\t\t\t\t\t<Name><![CDATA[locationZ]]></Name>\n" +
+                    "\t\t\t\t\t\t</Parameter>\n" +
+                    "\t\t\t\t\t\t<Parameter>\n" +
+                    "\t\t\t\t\t\t\t<Name><![CDATA[locationLatitude]]></Name>\n" +
+                    "\t\t\t\t\t\t</Parameter>\n" +
+                    "\t\t\t\t\t\t<Parameter>\n" +
+                    "\t\t\t\t\t\t\t<Name><![CDATA[locationLongitude]]></Name>\n" +
+                    "\t\t\t\t\t\t</Parameter>\n" +
+                    "\t\t\t\t\t\t<Parameter>\n" +
+                    "\t\t\t\t\t\t\t<Name><![CDATA[locationGeoPlaceName]]></Name>\n" +
+                    "\t\t\t\t\t\t</Parameter>\n" +
+                    "\t\t\t\t\t\t<Parameter>\n" +
+                    "\t\t\t\t\t\t\t<Name><![CDATA[locationXYZInNetwork]]></Name>\n" +
+                    "\t\t\t\t\t\t</Parameter>\n" +
+                    "\t\t\t\t\t\t<Parameter>\n" +
+                    "\t\t\t\t\t\t\t<Name><![CDATA[locationNetwork]]></Name>\n" +
+                    "\t\t\t\t\t\t</Parameter>\n" +
+                    "\t\t\t\t\t\t<Parameter>\n" +
+                    "\t\t\t\t\t\t\t<Name><![CDATA[locationLevel]]></Name>\n" +
+                    "\t\t\t\t\t\t</Parameter>\n" +
+                    "\t\t\t\t\t\t<Parameter>\n" +
+                    "\t\t\t\t\t\t\t<Name><![CDATA[locationNode]]></Name>\n" +
+                    "\t\t\t\t\t\t</Parameter>\n" +
+                    "\t\t\t\t\t\t<Parameter>\n" +
+                    "\t\t\t\t\t\t\t<Name><![CDATA[locationAttractor]]></Name>\n" +
+                    "\t\t\t\t\t\t</Parameter>\n" +
+                    "\t\t\t\t\t\t<Parameter>\n" +
+                    "\t\t\t\t\t\t\t<Name><![CDATA[speed]]></Name>\n" +
+                    "\t\t\t\t\t\t</Parameter>\n" +
+                    "\t\t\t\t\t\t<Parameter>\n" +
+                    "\t\t\t\t\t\t\t<Name><![CDATA[newEntity]]></Name>\n" +
+                    "\t\t\t\t\t\t</Parameter>\n" +
+                    "\t\t\t\t\t\t<Parameter>\n" +
+                    "\t\t\t\t\t\t\t<Name><![CDATA[changeDimensions]]></Name>\n" +
+                    "\t\t\t\t\t\t</Parameter>\n" +
+                    "\t\t\t\t\t\t<Parameter>\n" +
+                    "\t\t\t\t\t\t\t<Name><![CDATA[length]]></Name>\n" +
+                    "\t\t\t\t\t\t</Parameter>\n" +
+                    "\t\t\t\t\t\t<Parameter>\n" +
+                    "\t\t\t\t\t\t\t<Name><![CDATA[width]]></Name>\n" +
+                    "\t\t\t\t\t\t</Parameter>\n" +
+                    "\t\t\t\t\t\t<Parameter>\n" +
+                    "\t\t\t\t\t\t\t<Name><![CDATA[height]]></Name>\n" +
+                    "\t\t\t\t\t\t</Parameter>\n" +
+                    "\t\t\t\t\t\t<Parameter>\n" +
+                    "\t\t\t\t\t\t\t<Name><![CDATA[enableCustomStartTime]]></Name>\n" +
+                    "\t\t\t\t\t\t</Parameter>\n" +
+                    "\t\t\t\t\t\t<Parameter>\n" +
+                    "\t\t\t\t\t\t\t<Name><![CDATA[startTime]]></Name>\n" +
+                    "\t\t\t\t\t\t</Parameter>\n" +
+                    "\t\t\t\t\t\t<Parameter>\n" +
+                    "\t\t\t\t\t\t\t<Name><![CDATA[addToCustomPopulation]]></Name>\n" +
+                    "\t\t\t\t\t\t</Parameter>\n" +
+                    "\t\t\t\t\t\t<Parameter>\n" +
+                    "\t\t\t\t\t\t\t<Name><![CDATA[population]]></Name>\n" +
+                    "\t\t\t\t\t\t</Parameter>\n" +
+                    "\t\t\t\t\t\t<Parameter>\n" +
+                    "\t\t\t\t\t\t\t<Name><![CDATA[pushProtocol]]></Name>\n" +
+                    "\t\t\t\t\t\t</Parameter>\n" +
+                    "\t\t\t\t\t\t<Parameter>\n" +
+                    "\t\t\t\t\t\t\t<Name><![CDATA[discardHangingEntities]]></Name>\n" +
+                    "\t\t\t\t\t\t</Parameter>\n" +
+                    "\t\t\t\t\t\t<Parameter>\n" +
+                    "\t\t\t\t\t\t\t<Name><![CDATA[onBeforeArrival]]></Name>\n" +
+                    "\t\t\t\t\t\t</Parameter>\n" +
+                    "\t\t\t\t\t\t<Parameter>\n" +
+                    "\t\t\t\t\t\t\t<Name><![CDATA[onAtExit]]></Name>\n" +
+                    "\t\t\t\t\t\t</Parameter>\n" +
+                    "\t\t\t\t\t\t<Parameter>\n" +
+                    "\t\t\t\t\t\t\t<Name><![CDATA[onExit]]></Name>\n" +
+                    "\t\t\t\t\t\t</Parameter>\n" +
+                    "\t\t\t\t\t\t<Parameter>\n" +
+                    "\t\t\t\t\t\t\t<Name><![CDATA[onDiscard]]></Name>\n" +
+                    "\t\t\t\t\t\t</Parameter>\n" +
+                    "\t\t\t\t\t</Parameters>\n" +
+                    "\t\t\t\t\t<ReplicationFlag>false</ReplicationFlag>\n" +
+                    "\t\t\t\t\t<Replication Class=\"CodeValue\">\n" +
+                    "\t\t\t\t\t\t<Code><![CDATA[100]]></Code>\n" +
+                    "\t\t\t\t\t</Replication>\n" +
+                    "\t\t\t\t\t<CollectionType>ARRAY_LIST_BASED</CollectionType>\n" +
+                    "\t\t\t\t\t<InitialLocationType>AT_ANIMATION_POSITION</InitialLocationType>\n" +
+                    "\t\t\t\t\t<XCode Class=\"CodeValue\">\n" +
+                    "\t\t\t\t\t\t<Code><![CDATA[0]]></Code>\n" +
+                    "\t\t\t\t\t</XCode>\n" +
+                    "\t\t\t\t\t<YCode Class=\"CodeValue\">\n" +
+                    "\t\t\t\t\t\t<Code><![CDATA[0]]></Code>\n" +
+                    "\t\t\t\t\t</YCode>\n" +
+                    "\t\t\t\t\t<ZCode Class=\"CodeValue\">\n" +
+                    "\t\t\t\t\t\t<Code><![CDATA[0]]></Code>\n" +
+                    "\t\t\t\t\t</ZCode>\n" +
+                    "\t\t\t\t\t<ColumnCode Class=\"CodeValue\">\n" +
+                    "\t\t\t\t\t\t<Code><![CDATA[0]]></Code>\n" +
+                    "\t\t\t\t\t</ColumnCode>\n" +
+                    "\t\t\t\t\t<RowCode Class=\"CodeValue\">\n" +
+                    "\t\t\t\t\t\t<Code><![CDATA[0]]></Code>\n" +
+                    "\t\t\t\t\t</RowCode>\n" +
+                    "\t\t\t\t\t<LatitudeCode Class=\"CodeValue\">\n" +
+                    "\t\t\t\t\t\t<Code><![CDATA[0]]></Code>\n" +
+                    "\t\t\t\t\t</LatitudeCode>\n" +
+                    "\t\t\t\t\t<LongitudeCode Class=\"CodeValue\">\n" +
+                    "\t\t\t\t\t\t<Code><![CDATA[0]]></Code>\n" +
+                    "\t\t\t\t\t</LongitudeCode>\n" +
+                    "\t\t\t\t\t<LocationNameCode Class=\"CodeValue\">\n" +
+                    "\t\t\t\t\t\t<Code><![CDATA[\"\"]]></Code>\n" +
+                    "\t\t\t\t\t</LocationNameCode>\n" +
+                    "\t\t\t\t\t<InitializationType>SPECIFIED_NUMBER</InitializationType>\n" +
+                    "\t\t\t\t\t<InitializationDatabaseTableQuery>\n" +
+                    "\t\t\t\t\t\t<TableReference>\n" +
+                    "\t\t\t\t\t\t</TableReference>\n" +
+                    "\t\t\t\t\t</InitializationDatabaseTableQuery>\n" +
+                    "\t\t\t\t\t<InitializationDatabaseType>ONE_AGENT_PER_DATABASE_RECORD</InitializationDatabaseType>\n" +
+                    "\t\t\t\t\t<QuantityColumn>\n" +
+                    "\t\t\t\t\t</QuantityColumn>\n" +
+                    "\t\t\t\t</EmbeddedObject>";
+
+            out.append("EmbeddedObjects", s);
+        }
+
+        if (out.isFilling("EmbeddedObjects")) {
+            String s = "\t\t\t\t<EmbeddedObject>\n" +
+                    "\t\t\t\t\t<Id>" + UniqueIDGenerator.getNewId() + "</Id>\n" +
+                    "\t\t\t\t\t<Name><![CDATA[timeMeasureStart]]></Name>\n" +
+                    "\t\t\t\t\t<X>" + node.getLocation().getX() + 40 + "</X><Y>" + (node.getLocation().getY()) + "</Y>\n" +
+                    "\t\t\t\t\t<Label><X>-60</X><Y>-20</Y></Label>\n" +
+                    "\t\t\t\t\t<PublicFlag>false</PublicFlag>\n" +
+                    "\t\t\t\t\t<PresentationFlag>true</PresentationFlag>\n" +
+                    "\t\t\t\t\t<ShowLabel>false</ShowLabel>\n" +
+                    "\t\t\t\t\t<ActiveObjectClass>\n" +
+                    "\t\t\t\t\t\t<PackageName><![CDATA[com.anylogic.libraries.processmodeling]]></PackageName>\n" +
+                    "\t\t\t\t\t\t<ClassName><![CDATA[TimeMeasureStart]]></ClassName>\n" +
+                    "\t\t\t\t\t</ActiveObjectClass>\n" +
+                    "\t\t\t\t\t<GenericParameterSubstitute>\n" +
+                    "\t\t\t\t\t\t<GenericParameterSubstituteReference>\n" +
+                    "\t\t\t\t\t\t\t<PackageName><![CDATA[com.anylogic.libraries.processmodeling]]></PackageName>\n" +
+                    "\t\t\t\t\t\t\t<ClassName><![CDATA[TimeMeasureStart]]></ClassName>\n" +
+                    "\t\t\t\t\t\t\t<ItemName><![CDATA[1412336243204]]></ItemName>\n" +
+                    "\t\t\t\t\t\t</GenericParameterSubstituteReference>\n" +
+                    "\t\t\t\t\t</GenericParameterSubstitute>\n" +
+                    "\t\t\t\t\t<Parameters>\n" +
+                    "\t\t\t\t\t\t<Parameter>\n" +
+                    "\t\t\t\t\t\t\t<Name><![CDATA[onEnter]]></Name>\n" +
+                    "\t\t\t\t\t\t</Parameter>\n" +
+                    "\t\t\t\t\t</Parameters>\n" +
+                    "\t\t\t\t\t<ReplicationFlag>false</ReplicationFlag>\n" +
+                    "\t\t\t\t\t<Replication Class=\"CodeValue\">\n" +
+                    "\t\t\t\t\t\t<Code><![CDATA[100]]></Code>\n" +
+                    "\t\t\t\t\t</Replication>\n" +
+                    "\t\t\t\t\t<CollectionType>ARRAY_LIST_BASED</CollectionType>\n" +
+                    "\t\t\t\t\t<InitialLocationType>AT_ANIMATION_POSITION</InitialLocationType>\n" +
+                    "\t\t\t\t\t<XCode Class=\"CodeValue\">\n" +
+                    "\t\t\t\t\t\t<Code><![CDATA[0]]></Code>\n" +
+                    "\t\t\t\t\t</XCode>\n" +
+                    "\t\t\t\t\t<YCode Class=\"CodeValue\">\n" +
+                    "\t\t\t\t\t\t<Code><![CDATA[0]]></Code>\n" +
+                    "\t\t\t\t\t</YCode>\n" +
+                    "\t\t\t\t\t<ZCode Class=\"CodeValue\">\n" +
+                    "\t\t\t\t\t\t<Code><![CDATA[0]]></Code>\n" +
+                    "\t\t\t\t\t</ZCode>\n" +
+                    "\t\t\t\t\t<ColumnCode Class=\"CodeValue\">\n" +
+                    "\t\t\t\t\t\t<Code><![CDATA[0]]></Code>\n" +
+                    "\t\t\t\t\t</ColumnCode>\n" +
+                    "\t\t\t\t\t<RowCode Class=\"CodeValue\">\n" +
+                    "\t\t\t\t\t\t<Code><![CDATA[0]]></Code>\n" +
+                    "\t\t\t\t\t</RowCode>\n" +
+                    "\t\t\t\t\t<LatitudeCode Class=\"CodeValue\">\n" +
+                    "\t\t\t\t\t\t<Code><![CDATA[0]]></Code>\n" +
+                    "\t\t\t\t\t</LatitudeCode>\n" +
+                    "\t\t\t\t\t<LongitudeCode Class=\"CodeValue\">\n" +
+                    "\t\t\t\t\t\t<Code><![CDATA[0]]></Code>\n" +
+                    "\t\t\t\t\t</LongitudeCode>\n" +
+                    "\t\t\t\t\t<LocationNameCode Class=\"CodeValue\">\n" +
+                    "\t\t\t\t\t\t<Code><![CDATA[\"\"]]></Code>\n" +
+                    "\t\t\t\t\t</LocationNameCode>\n" +
+                    "\t\t\t\t\t<InitializationType>SPECIFIED_NUMBER</InitializationType>\n" +
+                    "\t\t\t\t\t<InitializationDatabaseTableQuery>\n" +
+                    "\t\t\t\t\t\t<TableReference>\n" +
+                    "\t\t\t\t\t\t</TableReference>\n" +
+                    "\t\t\t\t\t</InitializationDatabaseTableQuery>\n" +
+                    "\t\t\t\t\t<InitializationDatabaseType>ONE_AGENT_PER_DATABASE_RECORD</InitializationDatabaseType>\n" +
+                    "\t\t\t\t\t<QuantityColumn>\n" +
+                    "\t\t\t\t\t</QuantityColumn>\n" +
+                    "\t\t\t\t</EmbeddedObject>";
+
+            out.append("EmbeddedObjects", s);
+        }
 
-        appendXmlFragment(b, d.getElementsByTagName("Connectors").item(0), s);
+        if (out.isFilling("Connectors")) {
+            String s = "<Connector>\n" +
+                    "\t\t\t\t\t<Id>"+UniqueIDGenerator.getNewId()+"</Id>\n" +
+                    "\t\t\t\t\t<Name><![CDATA[connectorSTART]]></Name>\n" +
+                    "\t\t\t\t\t<X>0</X><Y>0</Y>\n" +
+                    "\t\t\t\t\t<Label><X>10</X><Y>0</Y></Label>\n" +
+                    "\t\t\t\t\t<PublicFlag>false</PublicFlag>\n" +
+                    "\t\t\t\t\t<PresentationFlag>true</PresentationFlag>\n" +
+                    "\t\t\t\t\t<ShowLabel>false</ShowLabel>\n" +
+                    "\t\t\t\t\t<SourceEmbeddedObjectReference>\n" +
+                    "\t\t\t\t\t\t<PackageName><![CDATA[model"+graph.getId()+"]]></PackageName>\n" +
+                    "\t\t\t\t\t\t<ClassName><![CDATA[Main]]></ClassName>\n" +
+                    "\t\t\t\t\t\t<ItemName><![CDATA[timeMeasureStart]]></ItemName>\n" +
+                    "\t\t\t\t\t</SourceEmbeddedObjectReference>\n" +
+                    "\t\t\t\t\t<SourceConnectableItemReference>\n" +
+                    "\t\t\t\t\t\t<PackageName><![CDATA[com.anylogic.libraries.processmodeling]]></PackageName>\n" +
+                    "\t\t\t\t\t\t<ClassName><![CDATA[TimeMeasureStart]]></ClassName>\n" +
+                    "\t\t\t\t\t\t<ItemName><![CDATA[in]]></ItemName>\n" +
+                    "\t\t\t\t\t</SourceConnectableItemReference>\n" +
+                    "\t\t\t\t\t<TargetEmbeddedObjectReference>\n" +
+                    "\t\t\t\t\t\t<PackageName><![CDATA[model"+graph.getId()+"]]></PackageName>\n" +
+                    "\t\t\t\t\t\t<ClassName><![CDATA[Main]]></ClassName>\n" +
+                    "\t\t\t\t\t\t<ItemName><![CDATA[source_"+node.getId()+"]]></ItemName>\n" +
+                    "\t\t\t\t\t</TargetEmbeddedObjectReference>\n" +
+                    "\t\t\t\t\t<TargetConnectableItemReference>\n" +
+                    "\t\t\t\t\t\t<PackageName><![CDATA[com.anylogic.libraries.processmodeling]]></PackageName>\n" +
+                    "\t\t\t\t\t\t<ClassName><![CDATA[Source]]></ClassName>\n" +
+                    "\t\t\t\t\t\t<ItemName><![CDATA[out]]></ItemName>\n" +
+                    "\t\t\t\t\t</TargetConnectableItemReference>\n" +
+                    "\t\t\t\t\t<Points>\n" +
+                    "\t\t\t\t\t\t<Point><X>"+(node.getLocation().getX()+40-12)+"</X><Y>"+node.getLocation().getY()+5+"</Y></Point>\n" +
+                    "\t\t\t\t\t\t<Point><X>"+(node.getLocation().getX()+40-10)+"</X><Y>"+(node.getLocation().getY()-50)+"</Y></Point>\n" +
+                    "\t\t\t\t\t</Points>\n" +
+                    "\t\t\t\t</Connector>";
+
+            out.append("Connectors", s);
+        }
 
     }
 
-    public void appendAlpEnd(INode node, Document d, DocumentBuilder b) throws IOException, SAXException {
+    public void appendAlpEnd(INode node, AlpStreamWriter out) throws IOException {
         /*  ВСТАВЛЯЕМ ОБЪЕКТ*/
-        String s = "\t\t\t\t<EmbeddedObject>\n" +
-                "\t\t\t\t\t<Id>" + node.getId() +"</Id>\n" +
-                "\t\t\t\t\t<Name><![CDATA[sink_"+node.getId()+"]]></Name>\n" +
-                "\t\t\t\t\t<X>" + (node.getLocation().getX()+40) + "</X><Y>" + (node.getLocation().getY()+50) + "</Y>\n" +
-                "\t\t\t\t\t<Label><X>-10</X><Y>-20</Y></Label>\n" +
-                "\t\t\t\t\t<PublicFlag>false</PublicFlag>\n" +
-                "\t\t\t\t\t<PresentationFlag>true</PresentationFlag>\n" +
-                "\t\t\t\t\t<ShowLabel>false</ShowLabel>\n" +
-                "\t\t\t\t\t<ActiveObjectClass>\n" +
-                "\t\t\t\t\t\t<PackageName><![CDATA[com.anylogic.libraries.processmodeling]]></PackageName>\n" +
-                "\t\t\t\t\t\t<ClassName><![CDATA[Sink]]></ClassName>\n" +
-                "\t\t\t\t\t</ActiveObjectClass>\n" +
-                "\t\t\t\t\t<GenericParameterSubstitute>\n" +
-                "\t\t\t\t\t\t<GenericParameterSubstituteReference>\n" +
-                "\t\t\t\t\t\t\t<PackageName><![CDATA[com.anylogic.libraries.processmodeling]]></PackageName>\n" +
-                "\t\t\t\t\t\t\t<ClassName><![CDATA[Sink]]></ClassName>\n" +
-                "\t\t\t\t\t\t\t<ItemName><![CDATA[1412336242929]]></ItemName>\n" +
-                "\t\t\t\t\t\t</GenericParameterSubstituteReference>\n" +
-                "\t\t\t\t\t</GenericParameterSubstitute>\n" +
-                "<Parameters>\n" +
-                "\t\t\t\t\t\t<Parameter>\n" +
-                "\t\t\t\t\t\t\t<Name><![CDATA[onEnter]]></Name>\n" +
-                "\t\t\t\t\t\t\t<Value Class=\"CodeValue\">\n" +
-                "\t\t\t\t\t\t\t\t<Code><![CDATA[SimulationTime.update()]]></Code>\n" +
-                "\t\t\t\t\t\t\t</Value>\n" +
-                "\t\t\t\t\t\t</Parameter>\n" +
-                "\t\t\t\t\t\t<Parameter>\n" +
-                "\t\t\t\t\t\t\t<Name><![CDATA[destroyEntity]]></Name>\n" +
-                "\t\t\t\t\t\t</Parameter>\n" +
-                "\t\t\t\t\t</Parameters>" +
-                "\t\t\t\t\t<ReplicationFlag>false</ReplicationFlag>\n" +
-                "\t\t\t\t\t<Replication Class=\"CodeValue\">\n" +
-                "\t\t\t\t\t\t<Code><![CDATA[100]]></Code>\n" +
-                "\t\t\t\t\t</Replication>\n" +
-                "\t\t\t\t\t<CollectionType>ARRAY_LIST_BASED</CollectionType>\n" +
-                "\t\t\t\t\t<InitialLocationType>AT_ANIMATION_POSITION</InitialLocationType>\n" +
-                "\t\t\t\t\t<XCode Class=\"CodeValue\">\n" +
-                "\t\t\t\t\t\t<Code><![CDATA[0]]></Code>\n" +
-                "\t\t\t\t\t</XCode>\n" +
-                "\t\t\t\t\t<YCode Class=\"CodeValue\">\n" +
-                "\t\t\t\t\t\t<Code><![CDATA[0]]></Code>\n" +
-                "\t\t\t\t\t</YCode>\n" +
-                "\t\t\t\t\t<ZCode Class=\"CodeValue\">\n" +
-                "\t\t\t\t\t\t<Code><![CDATA[0]]></Code>\n" +
-                "\t\t\t\t\t</ZCode>\n" +
-                "\t\t\t\t\t<ColumnCode Class=\"CodeValue\">\n" +
-                "\t\t\t\t\t\t<Code><![CDATA[0]]></Code>\n" +
-                "\t\t\t\t\t</ColumnCode>\n" +
-                "\t\t\t\t\t<RowCode Class=\"CodeValue\">\n" +
-                "\t\t\t\t\t\t<Code><![CDATA[0]]></Code>\n" +
-                "\t\t\t\t\t</RowCode>\n" +
-                "\t\t\t\t\t<LatitudeCode Class=\"CodeValue\">\n" +
-                "\t\t\t\t\t\t<Code><![CDATA[0]]></Code>\n" +
-                "\t\t\t\t\t</LatitudeCode>\n" +
-                "\t\t\t\t\t<LongitudeCode Class=\"CodeValue\">\n" +
-                "\t\t\t\t\t\t<Code><![CDATA[0]]></Code>\n" +
-                "\t\t\t\t\t</LongitudeCode>\n" +
-                "\t\t\t\t\t<LocationNameCode Class=\"CodeValue\">\n" +
-                "\t\t\t\t\t\t<Code><![CDATA[\"\"]]></Code>\n" +
-                "\t\t\t\t\t</LocationNameCode>\n" +
-                "\t\t\t\t\t<InitializationType>SPECIFIED_NUMBER</InitializationType>\n" +
-                "\t\t\t\t\t<InitializationDatabaseTableQuery>\n" +
-                "\t\t\t\t\t\t<TableReference>\n" +
-                "\t\t\t\t\t\t</TableReference>\n" +
-                "\t\t\t\t\t</InitializationDatabaseTableQuery>\n" +
-                "\t\t\t\t\t<InitializationDatabaseType>ONE_AGENT_PER_DATABASE_RECORD</InitializationDatabaseType>\n" +
-                "\t\t\t\t\t<QuantityColumn>\n" +
-                "\t\t\t\t\t</QuantityColumn>\n" +
-                "\t\t\t\t</EmbeddedObject>";
-
-        appendXmlFragment(b, d.getElementsByTagName("EmbeddedObjects").item(0), s);
-
-        s = "<EmbeddedObject>\n" +
-                "\t\t\t\t\t<Id>"+UniqueIDGenerator.getNewId()+"</Id>\n" +
-                "\t\t\t\t\t<Name><![CDATA[timeMeasureEnd]]></Name>\n" +
-                "\t\t\t\t\t<X>"+(node.getLocation().getX()+40)+"</X><Y>"+(node.getLocation().getY())+"</Y>\n" +
-                "\t\t\t\t\t<Label><X>-45</X><Y>-20</Y></Label>\n" +
-                "\t\t\t\t\t<PublicFlag>false</PublicFlag>\n" +
-                "\t\t\t\t\t<PresentationFlag>true</PresentationFlag>\n" +
-                "\t\t\t\t\t<ShowLabel>false</ShowLabel>\n" +
-                "\t\t\t\t\t<ActiveObjectClass>\n" +
-                "\t\t\t\t\t\t<PackageName><![CDATA[com.anylogic.libraries.processmodeling]]></PackageName>\n" +
-                "\t\t\t\t\t\t<ClassName><![CDATA[TimeMeasureEnd]]></ClassName>\n" +
-                "\t\t\t\t\t</ActiveObjectClass>\n" +
-                "\t\t\t\t\t<GenericParameterSubstitute>\n" +
-                "\t\t\t\t\t\t<GenericParameterSubstituteReference>\n" +
-                "\t\t\t\t\t\t\t<PackageName><![CDATA[com.anylogic.libraries.processmodeling]]></PackageName>\n" +
-                "\t\t\t\t\t\t\t<ClassName><![CDATA[TimeMeasureEnd]]></ClassName>\n" +
-                "\t\t\t\t\t\t\t<ItemName><![CDATA[1412336243203]]></ItemName>\n" +
-                "\t\t\t\t\t\t</GenericParameterSubstituteReference>\n" +
-                "\t\t\t\t\t</GenericParameterSubstitute>\n" +
-                "\t\t\t\t\t<Parameters>\n" +
-                "\t\t\t\t\t\t<Parameter>\n" +
-                "\t\t\t\t\t\t\t<Name><![CDATA[startObjects]]></Name>\n" +
-                "\t\t\t\t\t\t\t<Value Class=\"CodeValue\">\n" +
-                "\t\t\t\t\t\t\t\t<Code><![CDATA[{ timeMeasureStart }]]></Code>\n" +
-                "\t\t\t\t\t\t\t</Value>\n" +
-                "\t\t\t\t\t\t</Parameter>\n" +
-                "\t\t\t\t\t\t<Parameter>\n" +
-                "\t\t\t\t\t\t\t<Name><![CDATA[datasetCapacity]]></Name>\n" +
-                "\t\t\t\t\t\t</Parameter>\n" +
-                "\t\t\t\t\t\t<Parameter>\n" +
-                "\t\t\t\t\t\t\t<Name><![CDATA[onEnter]]></Name>\n" +
-                "\t\t\t\t\t\t</Parameter>\n" +
-                "\t\t\t\t\t</Parameters>\n" +
-                "\t\t\t\t\t<ReplicationFlag>false</ReplicationFlag>\n" +
-                "\t\t\t\t\t<Replication Class=\"CodeValue\">\n" +
-                "\t\t\t\t\t\t<Code><![CDATA[100]]></Code>\n" +
-                "\t\t\t\t\t</Replication>\n" +
-                "\t\t\t\t\t<CollectionType>ARRAY_LIST_BASED</CollectionType>\n" +
-                "\t\t\t\t\t<InitialLocationType>AT_ANIMATION_POSITION</InitialLocationType>\n" +
-                "\t\t\t\t\t<XCode Class=\"CodeValue\">\n" +
-                "\t\t\t\t\t\t<Code><![CDATA[0]]></Code>\n" +
-                "\t\t\t\t\t</XCode>\n" +
-                "\t\t\t\t\t<YCode Class=\"CodeValue\">\n" +
-                "\t\t\t\t\t\t<Code><![CDATA[0]]></Code>\n" +
-                "\t\t\t\t\t</YCode>\n" +
-                "\t\t\t\t\t<ZCode Class=\"CodeValue\">\n" +
-                "\t\t\t\t\t\t<Code><![CDATA[0]]></Code>\n" +
-                "\t\t\t\t\t</ZCode>\n" +
-                "\t\t\t\t\t<ColumnCode Class=\"CodeValue\">\n" +
-                "\t\t\t\t\t\t<Code><![CDATA[0]]></Code>\n" +
-                "\t\t\t\t\t</ColumnCode>\n" +
-                "\t\t\t\t\t<RowCode Class=\"CodeValue\">\n" +
-                "\t\t\t\t\t\t<Code><![CDATA[0]]></Code>\n" +
-                "\t\t\t\t\t</RowCode>\n" +
-                "\t\t\t\t\t<LatitudeCode Class=\"CodeValue\">\n" +
-                "\t\t\t\t\t\t<Code><![CDATA[0]]></Code>\n" +
-                "\t\t\t\t\t</LatitudeCode>\n" +
-                "\t\t\t\t\t<LongitudeCode Class=\"CodeValue\">\n" +
-                "\t\t\t\t\t\t<Code><![CDATA[0]]></Code>\n" +
-                "\t\t\t\t\t</LongitudeCode>\n" +
-                "\t\t\t\t\t<LocationNameCode Class=\"CodeValue\">\n" +
-                "\t\t\t\t\t\t<Code><![CDATA[\"\"]]></Code>\n" +
-                "\t\t\t\t\t</LocationNameCode>\n" +
-                "\t\t\t\t\t<InitializationType>SPECIFIED_NUMBER</InitializationType>\n" +
-                "\t\t\t\t\t<InitializationDatabaseTableQuery>\n" +
-                "\t\t\t\t\t\t<TableReference>\n" +
-                "\t\t\t\t\t\t</TableReference>\n" +
-                "\t\t\t\t\t</InitializationDatabaseTableQuery>\n" +
-                "\t\t\t\t\t<InitializationDatabaseType>ONE_AGENT_PER_DATABASE_RECORD</InitializationDatabaseType>\n" +
-                "\t\t\t\t\t<QuantityColumn>\n" +
-                "\t\t\t\t\t</QuantityColumn>\n" +
-                "\t\t\t\t</EmbeddedObject>\n";
+        if (out.isFilling("EmbeddedObjects")) {
+            String s = "\t\t\t\t<EmbeddedObject>\n" +
+                    "\t\t\t\t\t<Id>" + node.getId() +"</Id>\n" +
+                    "\t\t\t\t\t<Name><![CDATA[sink_"+node.getId()+"]]></Name>\n" +
+                    "\t\t\t\t\t<X>" + (node.getLocation().getX()+40) + "</X><Y>" + (node.getLocation().getY()+50) + "</Y>\n" +
+                    "\t\t\t\t\t<Label><X>-10</X><Y>-20</Y></Label>\n" +
+                    "\t\t\t\t\t<PublicFlag>false</PublicFlag>\n" +
+                    "\t\t\t\t\t<PresentationFlag>true</PresentationFlag>\n" +
+                    "\t\t\t\t\t<ShowLabel>false</ShowLabel>\n" +
+                    "\t\t\t\t\t<ActiveObjectClass>\n" +
+                    "\t\t\t\t\t\t<PackageName><![CDATA[com.anylogic.libraries.processmodeling]]></PackageName>\n" +
+                    "\t\t\t\t\t\t<ClassName><![CDATA[Sink]]></ClassName>\n" +
+                    "\t\t\t\t\t</ActiveObjectClass>\n" +
+                    "\t\t\t\t\t<GenericParameterSubstitute>\n" +
+                    "\t\t\t\t\t\t<GenericParameterSubstituteReference>\n" +
+                    "\t\t\t\t\t\t\t<PackageName><![CDATA[com.anylogic.libraries.processmodeling]]></PackageName>\n" +
+                    "\t\t\t\t\t\t\t<ClassName><![CDATA[Sink]]></ClassName>\n" +
+                    "\t\t\t\t\t\t\t<ItemName><![CDATA[1412336242929]]></ItemName>\n" +
+                    "\t\t\t\t\t\t</GenericParameterSubstituteReference>\n" +
+                    "\t\t\t\t\t</GenericParameterSubstitute>\n" +
+                    "<Parameters>\n" +
+                    "\t\t\t\t\t\t<Parameter>\n" +
+                    "\t\t\t\t\t\t\t<Name><![CDATA[onEnter]]></Name>\n" +
+                    "\t\t\t\t\t\t\t<Value Class=\"CodeValue\">\n" +
+                    "\t\t\t\t\t\t\t\t<Code><![CDATA[SimulationTime.update()]]></Code>\n" +
+                    "\t\t\t\t\t\t\t</Value>\n" +
+                    "\t\t\t\t\t\t</Parameter>\n" +
+                    "\t\t\t\t\t\t<Parameter>\n" +
+                    "\t\t\t\t\t\t\t<Name><![CDATA[destroyEntity]]></Name>\n" +
+                    "\t\t\t\t\t\t</Parameter>\n" +
+                    "\t\t\t\t\t</Parameters>" +
+                    "\t\t\t\t\t<ReplicationFlag>false</ReplicationFlag>\n" +
+                    "\t\t\t\t\t<Replication Class=\"CodeValue\">\n" +
+                    "\t\t\t\t\t\t<Code><![CDATA[100]]></Code>\n" +
+                    "\t\t\t\t\t</Replication>\n" +
+                    "\t\t\t\t\t<CollectionType>ARRAY_LIST_BASED</CollectionType>\n" +
+                    "\t\t\t\t\t<InitialLocationType>AT_ANIMATION_POSITION</InitialLocationType>\n" +
+                    "\t\t\t\t\t<XCode Class=\"CodeValue\">\n" +
+                    "\t\t\t\t\t\t<Code><![CDATA[0]]></Code>\n" +
+                    "\t\t\t\t\t</XCode>\n" +
+                    "\t\t\t\t\t<YCode Class=\"CodeValue\">\n" +
+                    "\t\t\t\t\t\t<Code><![CDATA[0]]></Code>\n" +
+                    "\t\t\t\t\t</YCode>\n" +
+                    "\t\t\t\t\t<ZCode Class=\"CodeValue\">\n" +
+                    "\t\t\t\t\t\t<Code><![CDATA[0]]></Code>\n" +
+                    "\t\t\t\t\t</ZCode>\n" +
+                    "\t\t\t\t\t<ColumnCode Class=\"CodeValue\">\n" +
+                    "\t\t\t\t\t\t<Code><![CDATA[0]]></Code>\n" +
+                    "\t\t\t\t\t</ColumnCode>\n" +
+                    "\t\t\t\t\t<RowCode Class=\"CodeValue\">\n" +
+                    "\t\t\t\t\t\t<Code><![CDATA[0]]></Code>\n" +
+                    "\t\t\t\t\t</RowCode>\n" +
+                    "\t\t\t\t\t<LatitudeCode Class=\"CodeValue\">\n" +
+                    "\t\t\t\t\t\t<Code><![CDATA[0]]></Code>\n" +
+                    "\t\t\t\t\t</LatitudeCode>\n" +
+                    "\t\t\t\t\t<LongitudeCode Class=\"CodeValue\">\n" +
+                    "\t\t\t\t\t\t<Code><![CDATA[0]]></Code>\n" +
+                    "\t\t\t\t\t</LongitudeCode>\n" +
+                    "\t\t\t\t\t<LocationNameCode Class=\"CodeValue\">\n" +
+                    "\t\t\t\t\t\t<Code><![CDATA[\"\"]]></Code>\n" +
+                    "\t\t\t\t\t</LocationNameCode>\n" +
+                    "\t\t\t\t\t<InitializationType>SPECIFIED_NUMBER</InitializationType>\n" +
+                    "\t\t\t\t\t<InitializationDatabaseTableQuery>\n" +
+                    "\t\t\t\t\t\t<TableReference>\n" +
+                    "\t\t\t\t\t\t</TableReference>\n" +
+                    "\t\t\t\t\t</InitializationDatabaseTableQuery>\n" +
+                    "\t\t\t\t\t<InitializationDatabaseType>ONE_AGENT_PER_DATABASE_RECORD</InitializationDatabaseType>\n" +
+                    "\t\t\t\t\t<QuantityColumn>\n" +
+                    "\t\t\t\t\t</QuantityColumn>\n" +
+                    "\t\t\t\t</EmbeddedObject>";
+
+            out.append("EmbeddedObjects", s);
+        }
 
-        appendXmlFragment(b, d.getElementsByTagName("EmbeddedObjects").item(0), s);
+        if (out.isFilling("EmbeddedObjects")) {
+            String s = "<EmbeddedObject>\n" +
+                    "\t\t\t\t\t<Id>"+UniqueIDGenerator.getNewId()+"</Id>\n" +
+                    "\t\t\t\t\t<Name><![CDATA[timeMeasureEnd]]></Name>\n" +
+                    "\t\t\t\t\t<X>"+(node.getLocation().getX()+40)+"</X><Y>"+(node.getLocation().getY())+"</Y>\n" +
+                    "\t\t\t\t\t<Label><X>-45</X><Y>-20</Y></Label>\n" +
+                    "\t\t\t\t\t<PublicFlag>false</PublicFlag>\n" +
+                    "\t\t\t\t\t<PresentationFlag>true</PresentationFlag>\n" +
+                    "\t\t\t\t\t<ShowLabel>false</ShowLabel>\n" +
+                    "\t\t\t\t\t<ActiveObjectClass>\n" +
+                    "\t\t\t\t\t\t<PackageName><![CDATA[com.anylogic.libraries.processmodeling]]></PackageName>\n" +
+                    "\t\t\t\t\t\t<ClassName><![CDATA[TimeMeasureEnd]]></ClassName>\n" +
+                    "\t\t\t\t\t</ActiveObjectClass>\n" +
+                    "\t\t\t\t\t<GenericParameterSubstitute>\n" +
+                    "\t\t\t\t\t\t<GenericParameterSubstituteReference>\n" +
+                    "\t\t\t\t\t\t\t<PackageName><![CDATA[com.anylogic.libraries.processmodeling]]></PackageName>\n" +
+                    "\t\t\t\t\t\t\t<ClassName><![CDATA[TimeMeasureEnd]]></ClassName>\n" +
+                    "\t\t\t\t\t\t\t<ItemName><![CDATA[1412336243203]]></ItemName>\n" +
+                    "\t\t\t\t\t\t</GenericParameterSubstituteReference>\n" +
+                    "\t\t\t\t\t</GenericParameterSubstitute>\n" +
+                    "\t\t\t\t\t<Parameters>\n" +
+                    "\t\t\t\t\t\t<Parameter>\n" +
+                    "\t\t\t\t\t\t\t<Name><![CDATA[startObjects]]></Name>\n" +
+                    "\t\t\t\t\t\t\t<Value Class=\"CodeValue\">\n" +
+                    "\t\t\t\t\t\t\t\t<Code><![CDATA[{ timeMeasureStart }]]></Code>\n" +
+                    "\t\t\t\t\t\t\t</Value>\n" +
+                    "\t\t\t\t\t\t</Parameter>\n" +
+                    "\t\t\t\t\t\t<Parameter>\n" +
+                    "\t\t\t\t\t\t\t<Name><![CDATA[datasetCapacity]]></Name>\n" +
+                    "\t\t\t\t\t\t</Parameter>\n" +
+                    "\t\t\t\t\t\t<Parameter>\n" +
+                    "\t\t\t\t\t\t\t<Name><![CDATA[onEnter]]></Name>\n" +
+                    "\t\t\t\t\t\t</Parameter>\n" +
+                    "\t\t\t\t\t</Parameters>\n" +
+                    "\t\t\t\t\t<ReplicationFlag>false</ReplicationFlag>\n" +
+                    "\t\t\t\t\t<Replication Class=\"CodeValue\">\n" +
+                    "\t\t\t\t\t\t<Code><![CDATA[100]]></Code>\n" +
+                    "\t\t\t\t\t</Replication>\n" +
+                    "\t\t\t\t\t<CollectionType>ARRAY_LIST_BASED</CollectionType>\n" +
+                    "\t\t\t\t\t<InitialLocationType>AT_ANIMATION_POSITION</InitialLocationType>\n" +
+                    "\t\t\t\t\t<XCode Class=\"CodeValue\">\n" +
+                    "\t\t\t\t\t\t<Code><![CDATA[0]]></Code>\n" +
+                    "\t\t\t\t\t</XCode>\n" +
+                    "\t\t\t\t\t<YCode Class=\"CodeValue\">\n" +
+                    "\t\t\t\t\t\t<Code><![CDATA[0]]></Code>\n" +
+                    "\t\t\t\t\t</YCode>\n" +
+                    "\t\t\t\t\t<ZCode Class=\"CodeValue\">\n" +
+                    "\t\t\t\t\t\t<Code><![CDATA[0]]></Code>\n" +
+                    "\t\t\t\t\t</ZCode>\n" +
+                    "\t\t\t\t\t<ColumnCode Class=\"CodeValue\">\n" +
+                    "\t\t\t\t\t\t<Code><![CDATA[0]]></Code>\n" +
+                    "\t\t\t\t\t</ColumnCode>\n" +
+                    "\t\t\t\t\t<RowCode Class=\"CodeValue\">\n" +
+                    "\t\t\t\t\t\t<Code><![CDATA[0]]></Code>\n" +
+                    "\t\t\t\t\t</RowCode>\n" +
+                    "\t\t\t\t\t<LatitudeCode Class=\"CodeValue\">\n" +
+                    "\t\t\t\t\t\t<Code><![CDATA[0]]></Code>\n" +
+                    "\t\t\t\t\t</LatitudeCode>\n" +
+                    "\t\t\t\t\t<LongitudeCode Class=\"CodeValue\">\n" +
+                    "\t\t\t\t\t\t<Code><![CDATA[0]]></Code>\n" +
+                    "\t\t\t\t\t</LongitudeCode>\n" +
+                    "\t\t\t\t\t<LocationNameCode Class=\"CodeValue\">\n" +
+                    "\t\t\t\t\t\t<Code><![CDATA[\"\"]]></Code>\n" +
+                    "\t\t\t\t\t</LocationNameCode>\n" +
+                    "\t\t\t\t\t<InitializationType>SPECIFIED_NUMBER</InitializationType>\n" +
+                    "\t\t\t\t\t<InitializationDatabaseTableQuery>\n" +
+                    "\t\t\t\t\t\t<TableReference>\n" +
+                    "\t\t\t\t\t\t</TableReference>\n" +
+                    "\t\t\t\t\t</InitializationDatabaseTableQuery>\n" +
+                    "\t\t\t\t\t<InitializationDatabaseType>ONE_AGENT_PER_DATABASE_RECORD</InitializationDatabaseType>\n" +
+                    "\t\t\t\t\t<QuantityColumn>\n" +
+                    "\t\t\t\t\t</QuantityColumn>\n" +
+                    "\t\t\t\t</EmbeddedObject>\n";
+
+            out.append("EmbeddedObjects", s);
+        }
 
-        s = "<Connector>\n" +
-                "\t\t\t\t\t<Id>"+UniqueIDGenerator.getNewId()+"</Id>\n" +
-                "\t\t\t\t\t<Name><![CDATA[connectorEND]]></Name>\n" +
-                "\t\t\t\t\t<X>810</X><Y>220</Y>\n" +
-                "\t\t\t\t\t<Label><X>10</X><Y>0</Y></Label>\n" +
-                "\t\t\t\t\t<PublicFlag>false</PublicFlag>\n" +
-                "\t\t\t\t\t<PresentationFlag>true</PresentationFlag>\n" +
-                "\t\t\t\t\t<ShowLabel>false</ShowLabel>\n" +
-                "\t\t\t\t\t<SourceEmbeddedObjectReference>\n" +
-                "\t\t\t\t\t\t<PackageName><![CDATA[model"+graph.getId()+"]]></PackageName>\n" +
-                "\t\t\t\t\t\t<ClassName><![CDATA[Main]]></ClassName>\n" +
-                "\t\t\t\t\t\t<ItemName><![CDATA[timeMeasureEnd]]></ItemName>\n" +
-                "\t\t\t\t\t</SourceEmbeddedObjectReference>\n" +
-                "\t\t\t\t\t<SourceConnectableItemReference>\n" +
-                "\t\t\t\t\t\t<PackageName><![CDATA[com.anylogic.libraries.processmodeling]]></PackageName>\n" +
-                "\t\t\t\t\t\t<ClassName><![CDATA[TimeMeasureEnd]]></ClassName>\n" +
-                "\t\t\t\t\t\t<ItemName><![CDATA[out]]></ItemName>\n" +
-                "\t\t\t\t\t</SourceConnectableItemReference>\n" +
-                "\t\t\t\t\t<TargetEmbeddedObjectReference>\n" +
-                "\t\t\t\t\t\t<PackageName><![CDATA[model"+graph.getId()+"]]></PackageName>\n" +
-                "\t\t\t\t\t\t<ClassName><![CDATA[Main]]></ClassName>\n" +
-                "\t\t\t\t\t\t<ItemName><![CDATA[sink_"+node.getId()+"]]></ItemName>\n" +
-                "\t\t\t\t\t</TargetEmbeddedObjectReference>\n" +
-                "\t\t\t\t\t<TargetConnectableItemReference>\n" +
-                "\t\t\t\t\t\t<PackageName><![CDATA[com.anylogic.libraries.processmodeling]]></PackageName>\n" +
-                "\t\t\t\t\t\t<ClassName><![CDATA[Sink]]></ClassName>\n" +
-                "\t\t\t\t\t\t<ItemName><![CDATA[in]]></ItemName>\n" +
-                "\t\t\t\t\t</TargetConnectableItemReference>\n" +
-                "\t\t\t\t\t<Points>\n" +
-                "\t\t\t\t\t\t<Point><X>"+(node.getLocation().getX()+40+10)+"</X><Y>"+node.getLocation().getY()+5+"</Y></Point>\n" +
-                "\t\t\t\t\t\t<Point><X>"+(node.getLocation().getX()+40-20)+"</X><Y>"+(node.getLocation().getY()-50)+"</Y></Point>\n" +
-                "\t\t\t\t\t</Points>\n" +
-                "\t\t\t\t</Connector>";
-        appendXmlFragment(b, d.getElementsByTagName("Connectors").item(0), s);
-    }
-    public static void appendXmlFragment(
-            DocumentBuilder docBuilder, Node parent,
-            String fragment) throws IOException, SAXException {
-        Document doc = parent.getOwnerDocument();
-        Node fragmentNode = docBuilder.parse(
-                        new InputSource(new StringReader(fragment)))
-                .getDocumentElement();
-        fragmentNode = doc.importNode(fragmentNode, true);
-        parent.appendChild(fragmentNode);
+        if (out.isFilling("Connectors")) {
+            String s = "<Connector>\n" +
+                    "\t\t\t\t\t<Id>"+UniqueIDGenerator.getNewId()+"</Id>\n" +
+                    "\t\t\t\t\t<Name><![CDATA[connectorEND]]></Name>\n" +
+                    "\t\t\t\t\t<X>810</X><Y>220</Y>\n" +
+                    "\t\t\t\t\t<Label><X>10</X><Y>0</Y></Label>\n" +
+                    "\t\t\t\t\t<PublicFlag>false</PublicFlag>\n" +
+                    "\t\t\t\t\t<PresentationFlag>true</PresentationFlag>\n" +
+                    "\t\t\t\t\t<ShowLabel>false</ShowLabel>\n" +
+                    "\t\t\t\t\t<SourceEmbeddedObjectReference>\n" +
+                    "\t\t\t\t\t\t<PackageName><![CDATA[model"+graph.getId()+"]]></PackageName>\n" +
+                    "\t\t\t\t\t\t<ClassName><![CDATA[Main]]></ClassName>\n" +
+                    "\t\t\t\t\t\t<ItemName><![CDATA[timeMeasureEnd]]></ItemName>\n" +
+                    "\t\t\t\t\t</SourceEmbeddedObjectReference>\n" +
+                    "\t\t\t\t\t<SourceConnectableItemReference>\n" +
+                    "\t\t\t\t\t\t<PackageName><![CDATA[com.anylogic.libraries.processmodeling]]></PackageName>\n" +
+                    "\t\t\t\t\t\t<ClassName><![CDATA[TimeMeasureEnd]]></ClassName>\n" +
+                    "\t\t\t\t\t\t<ItemName><![CDATA[out]]></ItemName>\n" +
+                    "\t\t\t\t\t</SourceConnectableItemReference>\n" +
+                    "\t\t\t\t\t<TargetEmbeddedObjectReference>\n" +
+                    "\t\t\t\t\t\t<PackageName><![CDATA[model"+graph.getId()+"]]></PackageName>\n" +
+                    "\t\t\t\t\t\t<ClassName><![CDATA[Main]]></ClassName>\n" +
+                    "\t\t\t\t\t\t<ItemName><![CDATA[sink_"+node.getId()+"]]></ItemName>\n" +
+                    "\t\t\t\t\t</TargetEmbeddedObjectReference>\n" +
+                    "\t\t\t\t\t<TargetConnectableItemReference>\n" +
+                    "\t\t\t\t\t\t<PackageName><![CDATA[com.anylogic.libraries.processmodeling]]></PackageName>\n" +
+                    "\t\t\t\t\t\t<ClassName><![CDATA[Sink]]></ClassName>\n" +
+                    "\t\t\t\t\t\t<ItemName><![CDATA[in]]></ItemName>\n" +
+                    "\t\t\t\t\t</TargetConnectableItemReference>\n" +
+                    "\t\t\t\t\t<Points>\n" +
+                    "\t\t\t\t\t\t<Point><X>"+(node.getLocation().getX()+40+10)+"</X><Y>"+node.getLocation().getY()+5+"</Y></Point>\n" +
+                    "\t\t\t\t\t\t<Point><X>"+(node.getLocation().getX()+40-20)+"</X><Y>"+(node.getLocation().getY()-50)+"</Y></Point>\n" +
+                    "\t\t\t\t\t</Points>\n" +
+                    "\t\t\t\t</Connector>";
+            out.append("Connectors", s);
+        }
     }
     /*А ЗДЕСЬ БУДЕТ ФУНКЦИЯ ОПРЕДЕЛЕНИЯ КОННЕКТОВ*/
 }
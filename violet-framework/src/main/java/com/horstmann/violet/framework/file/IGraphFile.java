@@ -5,6 +5,7 @@ import java.io.IOException;
 import java.io.OutputStream;
 import java.sql.SQLException;
 
+import com.horstmann.violet.framework.file.persistence.EditJournal;
 import com.horstmann.violet.product.diagram.abstracts.IGraph;
 import com.itextpdf.text.DocumentException;
 import org.xml.sax.SAXException;
@@ -22,6 +23,17 @@ public interface IGraphFile extends IFile
     public abstract IGraph getGraph();
     
     
+    /**
+     * @return the journal where edits are recorded until the graph is saved, to recover them after a crash
+     */
+    public abstract EditJournal getEditJournal();
+
+    /**
+     * Deletes the edits autosaved since the graph was last saved, once pending saves are written. Called when the file is
+     * closed.
+     */
+    public abstract void discardAutoSave();
+
     /**
      * Must be triggered to allow file saving
      */
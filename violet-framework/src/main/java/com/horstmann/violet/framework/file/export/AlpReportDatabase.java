@@ -0,0 +1,164 @@
+/*
+ Violet - A program for editing UML diagrams.
+
+ Copyright (C) 2007 Cay S. Horstmann (http://horstmann.com)
+ Alexandre de Pellegrin (http://alexdp.free.fr);
+
+ This program is free software; you can redistribute it and/or modify
+ it under the terms of the GNU General Public License as published by
+ the Free Software Foundation; either version 2 of the License, or
+ (at your option) any later version.
+
+ This program is distributed in the hope that it will be useful,
+ but WITHOUT ANY WARRANTY; without even the implied warranty of
+ MERCHANTABILITY or FITNESS FOR A PARTICULAR PURPOSE.  See the
+ GNU General Public License for more details.
+
+ You should have received a copy of the GNU General Public License
+ along with this program; if not, write to the Free Software
+ Foundation, Inc., 59 Temple Place, Suite 330, Boston, MA  02111-1307  USA
+ */
+
+package com.horstmann.violet.framework.file.export;
+
+import java.io.Closeable;
+import java.sql.Connection;
+import java.sql.DriverManager;
+import java.sql.PreparedStatement;
+import java.sql.ResultSet;
+import java.sql.SQLException;
+import java.util.ArrayList;
+import java.util.List;
+import java.util.concurrent.Callable;
+import java.util.concurrent.ExecutorService;
+import java.util.concurrent.Executors;
+import java.util.concurrent.Future;
+import java.util.concurrent.TimeUnit;
+
+/**
+ * Reads the result logs of a simulated model for its report.<br/>
+ * <br/>
+ * Queries are run concurrently by a few worker threads, each one opening a single connection to the model database the first
+ * time it runs a query and keeping it until {@link #close()}. Readers get the rows as they come from the database, so that they
+ * can fill the report without holding the result sets in memory. Nothing is shared between instances, several reports can be
+ * generated at the same time.
+ */
+public class AlpReportDatabase implements Closeable
+{
+    /**
+     * Reads the result of a query
+     */
+    public interface ResultReader<T>
+    {
+        /**
+         * Called on a worker thread
+         * 
+         * @param rs the result set, positioned before the first row. Closed by the caller.
+         * @return what was read
+         */
+        T read(ResultSet rs) throws SQLException;
+    }
+
+    /**
+     * @param jdbcURL url of the model database
+     * @param maxConnections number of queries run at the same time
+     */
+    public AlpReportDatabase(String jdbcURL, int maxConnections)
+    {
+        this.jdbcURL = jdbcURL;
+        this.executor = Executors.newFixedThreadPool(maxConnections);
+    }
+
+    /**
+     * Runs a query on a worker thread. A failure to connect or to read is reported through the future, what the reader read
+     * before stays where the reader has put it.
+     * 
+     * @param query SQL query, prepared on the connection of the worker
+     * @param reader reads the result
+     * @return the result of the reader
+     */
+    public <T> Future<T> submit(final String query, final ResultReader<T> reader)
+    {
+        return this.executor.submit(new Callable<T>()
+        {
+            @Override
+            public T call() throws SQLException
+            {
+                PreparedStatement statement = getConnection().prepareStatement(query);
+                try
+                {
+                    ResultSet rs = statement.executeQuery();
+                    try
+                    {
+                        return reader.read(rs);
+                    }
+                    finally
+                    {
+                        rs.close();
+                    }
+                }
+                finally
+                {
+                    statement.close();
+                }
+            }
+        });
+    }
+
+    /**
+     * Waits for the running queries and closes the connections
+     */
+    @Override
+    public void close()
+    {
+        this.executor.shutdown();
+        try
+        {
+            this.executor.awaitTermination(Long.MAX_VALUE, TimeUnit.MILLISECONDS);
+        }
+        catch (InterruptedException e)
+        {
+            this.executor.shutdownNow();
+            Thread.currentThread().interrupt();
+        }
+        synchronized (this.connections)
+        {
+            for (Connection aConnection : this.connections)
+            {
+                try
+                {
+                    aConnection.close();
+                }
+                catch (SQLException e)
+                {
+                    // Nothing more can be done with this connection
+                }
+            }
+            this.connections.clear();
+        }
+    }
+
+    /**
+     * @return the connection of the current worker thread
+     */
+    private Connection getConnection() throws SQLException
+    {
+        Connection connection = this.workerConnection.get();
+        if (connection == null)
+        {
+            connection = DriverManager.getConnection(this.jdbcURL);
+            connection.setReadOnly(true);
+            this.workerConnection.set(connection);
+            synchronized (this.connections)
+            {
+                this.connections.add(connection);
+            }
+        }
+        return connection;
+    }
+
+    private final String jdbcURL;
+    private final ExecutorService executor;
+    private final ThreadLocal<Connection> workerConnection = new ThreadLocal<Connection>();
+    private final List<Connection> connections = new ArrayList<Connection>();
+}
@@ -0,0 +1,263 @@
+/*
+ Violet - A program for editing UML diagrams.
+
+ Copyright (C) 2007 Cay S. Horstmann (http://horstmann.com)
+ Alexandre de Pellegrin (http://alexdp.free.fr);
+
+ This program is free software; you can redistribute it and/or modify
+ it under the terms of the GNU General Public License as published by
+ the Free Software Foundation; either version 2 of the License, or
+ (at your option) any later version.
+
+ This program is distributed in the hope that it will be useful,
+ but WITHOUT ANY WARRANTY; without even the implied warranty of
+ MERCHANTABILITY or FITNESS FOR A PARTICULAR PURPOSE.  See the
+ GNU General Public License for more details.
+
+ You should have received a copy of the GNU General Public License
+ along with this program; if not, write to the Free Software
+ Foundation, Inc., 59 Temple Place, Suite 330, Boston, MA  02111-1307  USA
+ */
+
+package com.horstmann.violet.framework.file.export;
+
+import java.io.Closeable;
+import java.io.IOException;
+import java.io.OutputStream;
+import java.io.StringReader;
+import java.nio.charset.StandardCharsets;
+
+import javax.xml.stream.XMLInputFactory;
+import javax.xml.stream.XMLOutputFactory;
+import javax.xml.stream.XMLStreamConstants;
+import javax.xml.stream.XMLStreamException;
+import javax.xml.stream.XMLStreamReader;
+import javax.xml.stream.XMLStreamWriter;
+
+/**
+ * Writes an AnyLogic project file in one pass.<br/>
+ * <br/>
+ * The model skeleton is an XML template. It is piped event by event from a StAX reader to a StAX writer opened on the
+ * destination stream, so that neither the document nor a DOM tree is ever held in memory. When the end of a container element
+ * of the skeleton (Connectors, AnalysisData or EmbeddedObjects) is reached, the filler is asked for its content. Block
+ * fragments are built for this container only and copied to the stream as they are, without being parsed again.
+ */
+public class AlpStreamWriter implements Closeable
+{
+    /**
+     * Provides the fragments of the containers of the model skeleton
+     */
+    public interface ContainerFiller
+    {
+        /**
+         * Called once per container. Implementations call {@link AlpStreamWriter#append(String, String)} for the fragments of
+         * this container, in model order, and only build the fragments for which {@link AlpStreamWriter#isFilling(String)} is
+         * true.
+         * 
+         * @param container name of the container being written
+         */
+        void fill(String container) throws IOException;
+    }
+
+    /**
+     * @param out destination, should be buffered. Closed by {@link #close()}.
+     */
+    public AlpStreamWriter(OutputStream out) throws IOException
+    {
+        this.out = out;
+        try
+        {
+            this.writer = OUTPUT_FACTORY.createXMLStreamWriter(out, "UTF-8");
+        }
+        catch (XMLStreamException e)
+        {
+            throw new IOException(e);
+        }
+    }
+
+    /**
+     * Writes the whole document
+     * 
+     * @param skeleton model skeleton, with empty containers
+     * @param filler provides the content of the containers
+     */
+    public void write(String skeleton, ContainerFiller filler) throws IOException
+    {
+        try
+        {
+            XMLStreamReader reader = INPUT_FACTORY.createXMLStreamReader(new StringReader(skeleton));
+            try
+            {
+                // Written by hand to keep the double quoted declaration of AnyLogic files
+                this.out.write(DECLARATION.getBytes(StandardCharsets.UTF_8));
+                String indentation = "";
+                boolean rootStarted = false;
+                while (reader.hasNext())
+                {
+                    int event = reader.next();
+                    if (event == XMLStreamConstants.END_ELEMENT && isContainer(reader.getLocalName()))
+                    {
+                        this.container = reader.getLocalName();
+                        this.indentation = indentation;
+                        this.statisticsCount = this.skeletonStatisticsCount;
+                        filler.fill(this.container);
+                        this.container = null;
+                    }
+                    if (event == XMLStreamConstants.START_ELEMENT && "Statistics".equals(reader.getLocalName()))
+                    {
+                        this.skeletonStatisticsCount++;
+                    }
+                    if (event == XMLStreamConstants.CHARACTERS || event == XMLStreamConstants.SPACE)
+                    {
+                        indentation = reader.isWhiteSpace() ? reader.getText() : "";
+                    }
+                    else if (event != XMLStreamConstants.END_ELEMENT)
+                    {
+                        indentation = "";
+                    }
+                    copyEvent(reader, event);
+                    if (event == XMLStreamConstants.COMMENT && !rootStarted)
+                    {
+                        // Whitespace outside of the root element is not reported by the reader
+                        this.writer.writeCharacters("\n");
+                    }
+                    rootStarted |= event == XMLStreamConstants.START_ELEMENT;
+                }
+            }
+            finally
+            {
+                reader.close();
+            }
+            this.writer.flush();
+        }
+        catch (XMLStreamException e)
+        {
+            throw new IOException(e);
+        }
+    }
+
+    /**
+     * @param container name of a container element
+     * @return true if the fragments of this container are being written
+     */
+    public boolean isFilling(String container)
+    {
+        return container.equals(this.container);
+    }
+
+    /**
+     * Writes a fragment if it belongs to the container currently filled
+     * 
+     * @param container name of the element the fragment belongs to
+     * @param fragment a well-formed XML element, surrounding whitespace apart
+     */
+    public void append(String container, String fragment) throws IOException
+    {
+        if (!isFilling(container))
+        {
+            return;
+        }
+        try
+        {
+            // Children are one level deeper than the closing tag of their container
+            this.writer.writeCharacters("\t");
+            this.writer.flush();
+            this.out.write(fragment.trim().getBytes(StandardCharsets.UTF_8));
+            this.writer.writeCharacters(this.indentation);
+        }
+        catch (XMLStreamException e)
+        {
+            throw new IOException(e);
+        }
+    }
+
+    /**
+     * Places a Statistics element of AnalysisData, as the resource pools and queue statistics of the services are laid out in a
+     * column. Called for every such element in each container, whether it is written or not.
+     * 
+     * @return number of Statistics elements placed before this one
+     */
+    public int reserveStatistics()
+    {
+        return this.statisticsCount++;
+    }
+
+    private void copyEvent(XMLStreamReader reader, int event) throws XMLStreamException
+    {
+        switch (event)
+        {
+        case XMLStreamConstants.START_ELEMENT:
+            this.writer.writeStartElement(reader.getLocalName());
+            for (int i = 0; i < reader.getAttributeCount(); i++)
+            {
+                this.writer.writeAttribute(reader.getAttributeLocalName(i), reader.getAttributeValue(i));
+            }
+            break;
+        case XMLStreamConstants.END_ELEMENT:
+            this.writer.writeEndElement();
+            break;
+        case XMLStreamConstants.CHARACTERS:
+        case XMLStreamConstants.SPACE:
+            this.writer.writeCharacters(reader.getTextCharacters(), reader.getTextStart(), reader.getTextLength());
+            break;
+        case XMLStreamConstants.CDATA:
+            this.writer.writeCData(reader.getText());
+            break;
+        case XMLStreamConstants.COMMENT:
+            this.writer.writeComment(reader.getText());
+            break;
+        case XMLStreamConstants.END_DOCUMENT:
+            this.writer.writeEndDocument();
+            break;
+        default:
+            break;
+        }
+    }
+
+    private static boolean isContainer(String name)
+    {
+        return "Connectors".equals(name) || "AnalysisData".equals(name) || "EmbeddedObjects".equals(name);
+    }
+
+    @Override
+    public void close() throws IOException
+    {
+        try
+        {
+            this.writer.close();
+        }
+        catch (XMLStreamException e)
+        {
+            throw new IOException(e);
+        }
+        finally
+        {
+            this.out.close();
+        }
+    }
+
+    private static final String DECLARATION = "<?xml version=\"1.0\" encoding=\"UTF-8\"?>\n";
+
+    private static final String REPORT_CDATA = "http://java.sun.com/xml/stream/properties/report-cdata-event";
+
+    private static final XMLInputFactory INPUT_FACTORY = XMLInputFactory.newInstance();
+    private static final XMLOutputFactory OUTPUT_FACTORY = XMLOutputFactory.newInstance();
+
+    static
+    {
+        INPUT_FACTORY.setProperty(XMLInputFactory.IS_COALESCING, Boolean.FALSE);
+        INPUT_FACTORY.setProperty(XMLInputFactory.SUPPORT_DTD, Boolean.FALSE);
+        if (INPUT_FACTORY.isPropertySupported(REPORT_CDATA))
+        {
+            INPUT_FACTORY.setProperty(REPORT_CDATA, Boolean.TRUE);
+        }
+    }
+
+    private final OutputStream out;
+    private final XMLStreamWriter writer;
+    private String container;
+    private String indentation = "";
+    private int skeletonStatisticsCount;
+    private int statisticsCount;
+
+}
@@ -24,13 +24,26 @@ package com.horstmann.violet.framework.file.export;
 import com.horstmann.violet.framework.util.ClipboardPipe;
 import com.horstmann.violet.framework.util.PDFGraphics2DStringWriter;
 import com.horstmann.violet.product.diagram.abstracts.IGraph;
+import com.itextpdf.awt.PdfGraphics2D;
+import com.itextpdf.text.pdf.PdfContentByte;
+import com.itextpdf.text.pdf.PdfTemplate;
 import org.freehep.graphicsbase.util.UserProperties;
 import org.freehep.graphicsio.pdf.PDFGraphics2D;
 
 import java.awt.*;
 import java.awt.geom.Rectangle2D;
 import java.awt.image.BufferedImage;
+import java.awt.image.DataBufferInt;
+import java.io.IOException;
+import java.io.InterruptedIOException;
 import java.io.OutputStream;
+import java.util.ArrayList;
+import java.util.List;
+import java.util.concurrent.Callable;
+import java.util.concurrent.ExecutionException;
+import java.util.concurrent.ExecutorService;
+import java.util.concurrent.Executors;
+import java.util.concurrent.Future;
 
 public class FileExportService
 {
@@ -55,6 +68,143 @@ public class FileExportService
         return image;
     }
 
+    /**
+     * Returns an image of the graph drawn at the given scale, such as a preview
+     *
+     * @param graph
+     * @param scale 1 for the image returned by {@link #getImage(IGraph)}
+     */
+    public static BufferedImage getImage(IGraph graph, double scale)
+    {
+        Rectangle2D bounds = graph.getClipBounds();
+        int width = (int) (bounds.getWidth() * scale) + 1;
+        int height = (int) (bounds.getHeight() * scale) + 1;
+
+        BufferedImage image = new BufferedImage(width, height, BufferedImage.TYPE_INT_RGB);
+        Graphics2D g2 = image.createGraphics();
+        // Rounding may leave a pixel out of the scaled background
+        g2.setColor(Color.WHITE);
+        g2.fillRect(0, 0, width, height);
+        g2.scale(scale, scale);
+
+        renderIGraphToGraphics2D(graph, bounds, g2);
+        g2.dispose();
+
+        return image;
+    }
+
+    /**
+     * Writes the image of the graph as PNG without ever holding it whole in memory.<br/>
+     * <br/>
+     * The image is rendered in bands, each band being cut in one tile per processor. The tiles of a band are rendered in
+     * parallel while the previous band is compressed. Bands are at most {@link #TILE_SIZE} pixels high and lower for very wide
+     * graphs, so that memory use does not depend on the size of the graph. The image is the same as
+     * {@link #getImage(IGraph)} written as PNG.
+     *
+     * @param graph
+     * @param out   destination, not closed
+     */
+    public static void exportToPng(IGraph graph, OutputStream out) throws IOException
+    {
+        final Rectangle2D bounds = graph.getClipBounds();
+        final int width = (int) bounds.getWidth() + 1;
+        final int height = (int) bounds.getHeight() + 1;
+        final int bandHeight = Math.max(1, Math.min(TILE_SIZE, MAX_BAND_PIXELS / width));
+
+        // Elements compute and cache their geometry the first time they are drawn, and the graph refreshes the indexes it
+        // culls them with. A first drawing on a one pixel image, clipped like the tiles but to the whole graph, fills those
+        // caches and indexes, then tiles only read them and can be drawn concurrently.
+        BufferedImage warmUpImage = new BufferedImage(1, 1, BufferedImage.TYPE_INT_RGB);
+        Graphics2D warmUpG2 = warmUpImage.createGraphics();
+        warmUpG2.setClip(0, 0, width, height);
+        renderIGraphToGraphics2D(graph, bounds, warmUpG2);
+        warmUpG2.dispose();
+
+        // Edges crossing several tiles are drawn once per tile, so bands are only cut in as many tiles as there are processors
+        int threads = Math.max(1, Math.min(Runtime.getRuntime().availableProcessors(), (width + TILE_SIZE - 1) / TILE_SIZE));
+        int tileWidth = (width + threads - 1) / threads;
+        ExecutorService executor = Executors.newFixedThreadPool(threads);
+        PngStreamWriter writer = new PngStreamWriter(out, width, height);
+        try
+        {
+            List<Future<BufferedImage>> band = renderBand(executor, graph, bounds, 0, width, tileWidth, Math.min(bandHeight, height));
+            int[] pixels = new int[width];
+            for (int y = 0; y < height; y += bandHeight)
+            {
+                List<Future<BufferedImage>> nextBand = null;
+                int nextY = y + bandHeight;
+                if (nextY < height)
+                {
+                    nextBand = renderBand(executor, graph, bounds, nextY, width, tileWidth, Math.min(bandHeight, height - nextY));
+                }
+                List<BufferedImage> tiles = new ArrayList<BufferedImage>(band.size());
+                for (Future<BufferedImage> aTile : band)
+                {
+                    tiles.add(aTile.get());
+                }
+                int rows = tiles.get(0).getHeight();
+                for (int row = 0; row < rows; row++)
+                {
+                    int x = 0;
+                    for (BufferedImage aTile : tiles)
+                    {
+                        int[] tilePixels = ((DataBufferInt) aTile.getRaster().getDataBuffer()).getData();
+                        System.arraycopy(tilePixels, row * aTile.getWidth(), pixels, x, aTile.getWidth());
+                        x += aTile.getWidth();
+                    }
+                    writer.writeRow(pixels, 0);
+                }
+                band = nextBand;
+            }
+            writer.close();
+        }
+        catch (InterruptedException e)
+        {
+            Thread.currentThread().interrupt();
+            throw new InterruptedIOException();
+        }
+        catch (ExecutionException e)
+        {
+            throw new IOException(e.getCause());
+        }
+        finally
+        {
+            executor.shutdownNow();
+        }
+    }
+
+    /**
+     * Starts rendering the tiles of a band of the graph image
+     *
+     * @return the tiles, from left to right
+     */
+    private static List<Future<BufferedImage>> renderBand(ExecutorService executor, final IGraph graph,
+            final Rectangle2D bounds, final int y, int width, int maxTileWidth, final int height)
+    {
+        List<Future<BufferedImage>> tiles = new ArrayList<Future<BufferedImage>>();
+        for (int x = 0; x < width; x += maxTileWidth)
+        {
+            final int tileX = x;
+            final int tileWidth = Math.min(maxTileWidth, width - x);
+            tiles.add(executor.submit(new Callable<BufferedImage>()
+            {
+                @Override
+                public BufferedImage call()
+                {
+                    BufferedImage tile = new BufferedImage(tileWidth, height, BufferedImage.TYPE_INT_RGB);
+                    Graphics2D g2 = tile.createGraphics();
+                    // The clip lets the graph skip the elements out of the tile
+                    g2.setClip(0, 0, tileWidth, height);
+                    g2.translate(-tileX, -y);
+                    renderIGraphToGraphics2D(graph, bounds, g2);
+                    g2.dispose();
+                    return tile;
+                }
+            }));
+        }
+        return tiles;
+    }
+
     /**
      * Export graph to clipboard (Do not merge with exportToClipBoard(). Used in Eclipse plugin)
      *
@@ -95,10 +245,34 @@ public class FileExportService
         g.endExport();
     }
 
-    private static Graphics2D renderIGraphToGraphics2D(IGraph graph, Graphics2D g2)
+    /**
+     * Draws the graph as vectors into a new template of an iText document. The template can be wrapped into an image element
+     * and scaled like a bitmap, but stays sharp at any zoom. Texts are drawn as glyph outlines so that any script is rendered
+     * with the fonts of the diagram.
+     *
+     * @param graph
+     * @param cb    content of the document the template belongs to
+     * @return the template, as large as the graph
+     */
+    public static PdfTemplate exportToPdfTemplate(IGraph graph, PdfContentByte cb)
     {
         Rectangle2D bounds = graph.getClipBounds();
+        float width = (float) bounds.getWidth() + 1;
+        float height = (float) bounds.getHeight() + 1;
+        PdfTemplate template = cb.createTemplate(width, height);
+        Graphics2D g2 = new PdfGraphics2D(template, width, height, true);
+        renderIGraphToGraphics2D(graph, bounds, g2);
+        g2.dispose();
+        return template;
+    }
+
+    private static Graphics2D renderIGraphToGraphics2D(IGraph graph, Graphics2D g2)
+    {
+        return renderIGraphToGraphics2D(graph, graph.getClipBounds(), g2);
+    }
 
+    private static Graphics2D renderIGraphToGraphics2D(IGraph graph, Rectangle2D bounds, Graphics2D g2)
+    {
         g2.translate(-bounds.getX(), -bounds.getY());
         g2.setColor(Color.WHITE);
         g2.fill(new Rectangle2D.Double(bounds.getX(), bounds.getY(), bounds.getWidth() + 1, bounds.getHeight() + 1));
@@ -111,6 +285,12 @@ public class FileExportService
         return g2;
     }
 
+    /** Minimal width and maximal height of the tiles of {@link #exportToPng(IGraph, OutputStream)} */
+    private static final int TILE_SIZE = 256;
+
+    /** Maximal number of pixels of a band of tiles, that is 16 MB */
+    private static final int MAX_BAND_PIXELS = 4 * 1024 * 1024;
+
     /**
      * Auteur : a.depellegrin<br>
      * Definition : Exports class diagram graph to xmi <br>
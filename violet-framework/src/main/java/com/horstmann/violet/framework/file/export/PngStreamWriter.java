@@ -0,0 +1,210 @@
+/*
+ Violet - A program for editing UML diagrams.
+
+ Copyright (C) 2007 Cay S. Horstmann (http://horstmann.com)
+ Alexandre de Pellegrin (http://alexdp.free.fr);
+
+ This program is free software; you can redistribute it and/or modify
+ it under the terms of the GNU General Public License as published by
+ the Free Software Foundation; either version 2 of the License, or
+ (at your option) any later version.
+
+ This program is distributed in the hope that it will be useful,
+ but WITHOUT ANY WARRANTY; without even the implied warranty of
+ MERCHANTABILITY or FITNESS FOR A PARTICULAR PURPOSE.  See the
+ GNU General Public License for more details.
+
+ You should have received a copy of the GNU General Public License
+ along with this program; if not, write to the Free Software
+ Foundation, Inc., 59 Temple Place, Suite 330, Boston, MA  02111-1307  USA
+ */
+
+package com.horstmann.violet.framework.file.export;
+
+import java.io.ByteArrayOutputStream;
+import java.io.Closeable;
+import java.io.DataOutputStream;
+import java.io.IOException;
+import java.io.OutputStream;
+import java.nio.charset.StandardCharsets;
+import java.util.zip.CRC32;
+import java.util.zip.Deflater;
+import java.util.zip.DeflaterOutputStream;
+
+/**
+ * Writes a 24 bits RGB PNG image row by row.<br/>
+ * <br/>
+ * Rows are filtered and compressed as soon as they are written, and the compressed data is flushed in IDAT chunks of bounded
+ * size, so that only two rows of the image are ever held in memory whatever its size. Rows are filtered with the "Up" filter,
+ * which turns the vertical lines and flat areas of diagrams into runs of zeros.
+ */
+public class PngStreamWriter implements Closeable
+{
+    /**
+     * Writes the PNG signature and header
+     * 
+     * @param out destination, should be buffered. Not closed by {@link #close()}.
+     * @param width image width in pixels
+     * @param height image height in pixels
+     */
+    public PngStreamWriter(OutputStream out, int width, int height) throws IOException
+    {
+        if (width <= 0 || height <= 0)
+        {
+            throw new IllegalArgumentException("Invalid image size " + width + "x" + height);
+        }
+        this.out = new DataOutputStream(out);
+        this.width = width;
+        this.height = height;
+        this.row = new byte[1 + 3 * width];
+        this.previousRow = new byte[1 + 3 * width];
+        this.out.write(SIGNATURE);
+        ByteArrayOutputStream header = new ByteArrayOutputStream(13);
+        DataOutputStream headerData = new DataOutputStream(header);
+        headerData.writeInt(width);
+        headerData.writeInt(height);
+        headerData.writeByte(8); // bit depth
+        headerData.writeByte(2); // color type : RGB
+        headerData.writeByte(0); // compression : deflate
+        headerData.writeByte(0); // filter method : adaptive
+        headerData.writeByte(0); // no interlace
+        writeChunk("IHDR", header.toByteArray(), header.size());
+        this.deflater = new Deflater(Deflater.DEFAULT_COMPRESSION);
+        this.idat = new DeflaterOutputStream(new ChunkOutputStream(), this.deflater, CHUNK_SIZE);
+    }
+
+    /**
+     * Writes the next row
+     * 
+     * @param pixels RGB values, as in TYPE_INT_RGB images
+     * @param offset index of the first pixel of the row in pixels
+     */
+    public void writeRow(int[] pixels, int offset) throws IOException
+    {
+        if (this.rowCount >= this.height)
+        {
+            throw new IllegalStateException("All " + this.height + " rows have been written");
+        }
+        byte[] filtered = this.previousRow;
+        byte[] raw = this.row;
+        filtered[0] = FILTER_UP;
+        for (int i = 0, j = 1; i < this.width; i++)
+        {
+            int rgb = pixels[offset + i];
+            // The raw row is kept for the next row, the filtered one replaces the previous raw row which is no longer needed
+            byte r = (byte) (rgb >> 16);
+            byte g = (byte) (rgb >> 8);
+            byte b = (byte) rgb;
+            filtered[j] = (byte) (r - filtered[j]);
+            raw[j++] = r;
+            filtered[j] = (byte) (g - filtered[j]);
+            raw[j++] = g;
+            filtered[j] = (byte) (b - filtered[j]);
+            raw[j++] = b;
+        }
+        this.idat.write(filtered);
+        this.previousRow = raw;
+        this.row = filtered;
+        this.rowCount++;
+    }
+
+    /**
+     * Flushes the compressed data and writes the end of the image. All rows must have been written.
+     */
+    @Override
+    public void close() throws IOException
+    {
+        if (this.idat == null)
+        {
+            return;
+        }
+        if (this.rowCount != this.height)
+        {
+            throw new IllegalStateException(this.rowCount + " rows written out of " + this.height);
+        }
+        this.idat.close();
+        this.idat = null;
+        this.deflater.end();
+        writeChunk("IEND", new byte[0], 0);
+        this.out.flush();
+    }
+
+    private void writeChunk(String type, byte[] data, int length) throws IOException
+    {
+        byte[] typeBytes = type.getBytes(StandardCharsets.US_ASCII);
+        CRC32 crc = new CRC32();
+        crc.update(typeBytes);
+        crc.update(data, 0, length);
+        this.out.writeInt(length);
+        this.out.write(typeBytes);
+        this.out.write(data, 0, length);
+        this.out.writeInt((int) crc.getValue());
+    }
+
+    /**
+     * Cuts the compressed stream into IDAT chunks
+     */
+    private class ChunkOutputStream extends OutputStream
+    {
+        @Override
+        public void write(int b) throws IOException
+        {
+            write(new byte[]
+            {
+                (byte) b
+            }, 0, 1);
+        }
+
+        @Override
+        public void write(byte[] b, int off, int len) throws IOException
+        {
+            while (len > 0)
+            {
+                int count = Math.min(len, this.buffer.length - this.length);
+                System.arraycopy(b, off, this.buffer, this.length, count);
+                this.length += count;
+                off += count;
+                len -= count;
+                if (this.length == this.buffer.length)
+                {
+                    flush();
+                }
+            }
+        }
+
+        @Override
+        public void flush() throws IOException
+        {
+            if (this.length > 0)
+            {
+                writeChunk("IDAT", this.buffer, this.length);
+                this.length = 0;
+            }
+        }
+
+        @Override
+        public void close() throws IOException
+        {
+            flush();
+        }
+
+        private final byte[] buffer = new byte[CHUNK_SIZE];
+        private int length;
+    }
+
+    private static final byte[] SIGNATURE =
+    {
+            (byte) 137, 80, 78, 71, 13, 10, 26, 10
+    };
+    private static final byte FILTER_UP = 2;
+    private static final int CHUNK_SIZE = 64 * 1024;
+
+    private final DataOutputStream out;
+    private final int width;
+    private final int height;
+    private final Deflater deflater;
+    private DeflaterOutputStream idat;
+    private byte[] row;
+    private byte[] previousRow;
+    private int rowCount;
+}
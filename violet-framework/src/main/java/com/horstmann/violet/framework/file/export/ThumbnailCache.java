@@ -0,0 +1,278 @@
+/*
+ Violet - A program for editing UML diagrams.
+
+ Copyright (C) 2007 Cay S. Horstmann (http://horstmann.com)
+ Alexandre de Pellegrin (http://alexdp.free.fr);
+
+ This program is free software; you can redistribute it and/or modify
+ it under the terms of the GNU General Public License as published by
+ the Free Software Foundation; either version 2 of the License, or
+ (at your option) any later version.
+
+ This program is distributed in the hope that it will be useful,
+ but WITHOUT ANY WARRANTY; without even the implied warranty of
+ MERCHANTABILITY or FITNESS FOR A PARTICULAR PURPOSE.  See the
+ GNU General Public License for more details.
+
+ You should have received a copy of the GNU General Public License
+ along with this program; if not, write to the Free Software
+ Foundation, Inc., 59 Temple Place, Suite 330, Boston, MA  02111-1307  USA
+ */
+
+package com.horstmann.violet.framework.file.export;
+
+import java.awt.image.BufferedImage;
+import java.awt.image.DataBufferInt;
+import java.awt.geom.Rectangle2D;
+import java.io.ByteArrayOutputStream;
+import java.io.IOException;
+import java.lang.ref.WeakReference;
+import java.util.Map;
+import java.util.WeakHashMap;
+import java.util.concurrent.ExecutorService;
+import java.util.concurrent.Executors;
+
+import javax.swing.Timer;
+
+import com.horstmann.violet.product.diagram.abstracts.AbstractGraph;
+import com.horstmann.violet.product.diagram.abstracts.IGraph;
+
+/**
+ * Keeps the PNG preview of each open graph, as embedded in saved files.<br/>
+ * <br/>
+ * A preview is valid as long as the revision of its graph is unchanged. When a graph is edited, a new preview is rendered on a
+ * background thread once edits have settled, so that saving usually just copies the cached bytes. Previews of large graphs
+ * are drawn at a reduced scale, their longest side being {@link #MAX_SIZE} pixels.<br/>
+ * <br/>
+ * Graphs are not thread-safe and are only drawn by the thread which owns them. The background thread draws a copy taken with
+ * {@link AbstractGraph#copy()} when edits settle, and files saved in the background draw the copy being saved. Both record
+ * their preview for the edited graph with {@link #putPng(IGraph, byte[], int)}, at the revision the copy was taken.
+ */
+public class ThumbnailCache
+{
+    /**
+     * Renders a new preview of the graph in the background once it has not changed for {@link #SETTLE_DELAY} milliseconds.
+     * Call it after each edit, from the event dispatch thread.
+     *
+     * @param graph
+     */
+    public static void scheduleUpdate(IGraph graph)
+    {
+        if (!(graph instanceof AbstractGraph))
+        {
+            return;
+        }
+        Thumbnail thumbnail;
+        synchronized (THUMBNAILS)
+        {
+            thumbnail = getOrCreateThumbnail(graph);
+        }
+        if (thumbnail.pendingUpdate == null)
+        {
+            // The cache forgets closed graphs, so the timer must not keep them
+            final WeakReference<AbstractGraph> graphReference = new WeakReference<AbstractGraph>((AbstractGraph) graph);
+            thumbnail.pendingUpdate = new Timer((int) SETTLE_DELAY, event -> update(graphReference.get()));
+            thumbnail.pendingUpdate.setRepeats(false);
+        }
+        thumbnail.pendingUpdate.restart();
+    }
+
+    /**
+     * Copies the graph if its preview is out of date, then draws the copy in the background
+     */
+    private static void update(final AbstractGraph graph)
+    {
+        if (graph == null || getCachedPng(graph) != null)
+        {
+            return;
+        }
+        final int revision = graph.getRevision();
+        final AbstractGraph graphCopy = graph.copy();
+        getExecutor().execute(() -> {
+            try
+            {
+                putPng(graph, render(graphCopy), revision);
+            }
+            catch (RuntimeException e)
+            {
+                // The next save draws it again
+                e.printStackTrace();
+            }
+        });
+    }
+
+    /**
+     * @param graph
+     * @return the PNG preview of the graph in its current state, drawn now if the cached one is out of date
+     */
+    public static byte[] getPng(IGraph graph)
+    {
+        if (!(graph instanceof AbstractGraph))
+        {
+            return render(graph);
+        }
+        int revision = ((AbstractGraph) graph).getRevision();
+        synchronized (THUMBNAILS)
+        {
+            Thumbnail thumbnail = THUMBNAILS.get(graph);
+            if (thumbnail != null && thumbnail.png != null && thumbnail.revision == revision)
+            {
+                return thumbnail.png;
+            }
+        }
+        byte[] png = render(graph);
+        synchronized (THUMBNAILS)
+        {
+            if (((AbstractGraph) graph).getRevision() == revision)
+            {
+                Thumbnail thumbnail = getOrCreateThumbnail(graph);
+                thumbnail.png = png;
+                thumbnail.revision = revision;
+            }
+        }
+        return png;
+    }
+
+    /**
+     * @param graph
+     * @return the cached PNG preview of the graph if it is up to date, null otherwise
+     */
+    public static byte[] getCachedPng(IGraph graph)
+    {
+        if (!(graph instanceof AbstractGraph))
+        {
+            return null;
+        }
+        synchronized (THUMBNAILS)
+        {
+            Thumbnail thumbnail = THUMBNAILS.get(graph);
+            if (thumbnail != null && thumbnail.revision == ((AbstractGraph) graph).getRevision())
+            {
+                return thumbnail.png;
+            }
+            return null;
+        }
+    }
+
+    /**
+     * Records the PNG preview of a graph in its current state, such as the preview of the graph it was copied from
+     *
+     * @param graph
+     * @param png
+     */
+    public static void putPng(IGraph graph, byte[] png)
+    {
+        if (!(graph instanceof AbstractGraph))
+        {
+            return;
+        }
+        synchronized (THUMBNAILS)
+        {
+            Thumbnail thumbnail = getOrCreateThumbnail(graph);
+            thumbnail.png = png;
+            thumbnail.revision = ((AbstractGraph) graph).getRevision();
+        }
+    }
+
+    /**
+     * Records the PNG preview of a graph as it was at a given revision, such as the preview of a copy drawn in the background.
+     * The preview is only used while the graph stays at this revision, and does not replace one which is up to date.
+     *
+     * @param graph
+     * @param png
+     * @param revision
+     */
+    public static void putPng(IGraph graph, byte[] png, int revision)
+    {
+        if (!(graph instanceof AbstractGraph) || png == null)
+        {
+            return;
+        }
+        synchronized (THUMBNAILS)
+        {
+            Thumbnail thumbnail = getOrCreateThumbnail(graph);
+            if (thumbnail.png != null && thumbnail.revision == ((AbstractGraph) graph).getRevision())
+            {
+                return;
+            }
+            thumbnail.png = png;
+            thumbnail.revision = revision;
+        }
+    }
+
+    /**
+     * Draws the graph as PNG, reduced to {@link #MAX_SIZE} pixels if larger
+     */
+    private static byte[] render(IGraph graph)
+    {
+        Rectangle2D bounds = graph.getClipBounds();
+        double scale = Math.min(1, MAX_SIZE / (Math.max(bounds.getWidth(), bounds.getHeight()) + 1));
+        BufferedImage image = FileExportService.getImage(graph, scale);
+        int width = image.getWidth();
+        int[] pixels = ((DataBufferInt) image.getRaster().getDataBuffer()).getData();
+        try
+        {
+            ByteArrayOutputStream out = new ByteArrayOutputStream();
+            PngStreamWriter writer = new PngStreamWriter(out, width, image.getHeight());
+            for (int offset = 0; offset < pixels.length; offset += width)
+            {
+                writer.writeRow(pixels, offset);
+            }
+            writer.close();
+            return out.toByteArray();
+        }
+        catch (IOException e)
+        {
+            // Not thrown by byte arrays
+            throw new RuntimeException(e);
+        }
+    }
+
+    private static Thumbnail getOrCreateThumbnail(IGraph graph)
+    {
+        Thumbnail thumbnail = THUMBNAILS.get(graph);
+        if (thumbnail == null)
+        {
+            thumbnail = new Thumbnail();
+            THUMBNAILS.put(graph, thumbnail);
+        }
+        return thumbnail;
+    }
+
+    private static synchronized ExecutorService getExecutor()
+    {
+        if (executor == null)
+        {
+            executor = Executors.newSingleThreadExecutor(r -> {
+                Thread thread = new Thread(r, "Thumbnail renderer");
+                thread.setDaemon(true);
+                thread.setPriority(Thread.MIN_PRIORITY);
+                return thread;
+            });
+        }
+        return executor;
+    }
+
+    /**
+     * Preview of a graph
+     */
+    private static class Thumbnail
+    {
+        private byte[] png;
+        private int revision;
+
+        /** Restarted on each edit, only used by the event dispatch thread */
+        private Timer pendingUpdate;
+    }
+
+    /** Longest side of previews, in pixels */
+    private static final double MAX_SIZE = 2048;
+
+    /** Time without edits before a preview is rendered, in milliseconds */
+    private static final long SETTLE_DELAY = 1000;
+
+    /** Previews of open graphs, forgotten with their graph */
+    private static final Map<IGraph, Thumbnail> THUMBNAILS = new WeakHashMap<IGraph, Thumbnail>();
+
+    private static ExecutorService executor;
+}
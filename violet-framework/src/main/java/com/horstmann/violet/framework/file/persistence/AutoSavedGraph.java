@@ -0,0 +1,465 @@
+/*
+ Violet - A program for editing UML diagrams.
+
+ Copyright (C) 2007 Cay S. Horstmann (http://horstmann.com)
+ Alexandre de Pellegrin (http://alexdp.free.fr);
+
+ This program is free software; you can redistribute it and/or modify
+ it under the terms of the GNU General Public License as published by
+ the Free Software Foundation; either version 2 of the License, or
+ (at your option) any later version.
+
+ This program is distributed in the hope that it will be useful,
+ but WITHOUT ANY WARRANTY; without even the implied warranty of
+ MERCHANTABILITY or FITNESS FOR A PARTICULAR PURPOSE.  See the
+ GNU General Public License for more details.
+
+ You should have received a copy of the GNU General Public License
+ along with this program; if not, write to the Free Software
+ Foundation, Inc., 59 Temple Place, Suite 330, Boston, MA  02111-1307  USA
+ */
+
+package com.horstmann.violet.framework.file.persistence;
+
+import java.awt.Color;
+import java.awt.geom.Point2D;
+import java.io.BufferedInputStream;
+import java.io.ByteArrayInputStream;
+import java.io.DataInputStream;
+import java.io.File;
+import java.io.FileInputStream;
+import java.io.IOException;
+import java.io.InputStream;
+import java.nio.ByteBuffer;
+import java.nio.channels.FileChannel;
+import java.nio.channels.FileLock;
+import java.nio.channels.OverlappingFileLockException;
+import java.nio.charset.StandardCharsets;
+import java.nio.file.Files;
+import java.nio.file.StandardOpenOption;
+import java.util.ArrayList;
+import java.util.HashMap;
+import java.util.List;
+import java.util.Map;
+import java.util.TreeSet;
+import java.util.zip.CRC32;
+
+import com.horstmann.violet.framework.util.PropertyUtils;
+import com.horstmann.violet.framework.util.UniqueIDGenerator;
+import com.horstmann.violet.product.diagram.abstracts.IGraph;
+import com.horstmann.violet.product.diagram.abstracts.Id;
+import com.horstmann.violet.product.diagram.abstracts.edge.EdgeTransitionPoint;
+import com.horstmann.violet.product.diagram.abstracts.edge.IEdge;
+import com.horstmann.violet.product.diagram.abstracts.edge.ITransitionPoint;
+import com.horstmann.violet.product.diagram.abstracts.node.IColorableNode;
+import com.horstmann.violet.product.diagram.abstracts.node.INode;
+
+/**
+ * A graph left by an {@link EditJournal} which was not closed, because the application died before the graph was saved or
+ * closed.<br/>
+ * <br/>
+ * The graph is rebuilt from the last checkpoint written, then the records of the journal files that follow it are replayed in
+ * order, the same way undo and redo apply them. Replay stops at the first incomplete record. Nodes and edges get new ids when
+ * they are added to a graph, so added elements are tracked by the id they had when recorded.
+ */
+public class AutoSavedGraph
+{
+
+    private AutoSavedGraph(File directory, String name, long generation, String filename, String fileDirectory)
+    {
+        this.directory = directory;
+        this.name = name;
+        this.generation = generation;
+        this.filename = filename;
+        this.fileDirectory = fileDirectory;
+    }
+
+    /**
+     * Looks for graphs left by journals that were not closed. Journals still open in another running application are ignored.
+     * Leftovers of journals which never got to their first checkpoint are deleted.
+     * 
+     * @param directory where journal files are kept
+     * @return the graphs that can be recovered
+     */
+    public static List<AutoSavedGraph> find(File directory)
+    {
+        List<AutoSavedGraph> result = new ArrayList<AutoSavedGraph>();
+        String[] fileNames = directory.list();
+        if (fileNames == null)
+        {
+            return result;
+        }
+        TreeSet<String> names = new TreeSet<String>();
+        for (String aFileName : fileNames)
+        {
+            if (aFileName.endsWith(EditJournal.CHECKPOINT_SUFFIX) || aFileName.endsWith(EditJournal.JOURNAL_SUFFIX)
+                    || aFileName.endsWith(EditJournal.LOCK_SUFFIX))
+            {
+                names.add(aFileName.substring(0, aFileName.indexOf('.')));
+            }
+        }
+        for (String aName : names)
+        {
+            if (isOpen(directory, aName))
+            {
+                continue;
+            }
+            File checkpointFile = new File(directory, aName + EditJournal.CHECKPOINT_SUFFIX);
+            try (DataInputStream in = new DataInputStream(new BufferedInputStream(new FileInputStream(checkpointFile))))
+            {
+                if (in.readInt() != EditJournal.CHECKPOINT_MAGIC)
+                {
+                    throw new IOException("Not a checkpoint : " + checkpointFile);
+                }
+                long generation = in.readLong();
+                String filename = readString(in);
+                String fileDirectory = readString(in);
+                result.add(new AutoSavedGraph(directory, aName, generation, filename, fileDirectory));
+            }
+            catch (IOException e)
+            {
+                new AutoSavedGraph(directory, aName, 0, null, null).delete();
+            }
+        }
+        return result;
+    }
+
+    /**
+     * @return the name of the file the graph was last saved to, null if it was never saved
+     */
+    public String getFilename()
+    {
+        return this.filename;
+    }
+
+    /**
+     * @return the directory of the file the graph was last saved to, null if it was never saved
+     */
+    public String getDirectory()
+    {
+        return this.fileDirectory;
+    }
+
+    /**
+     * Rebuilds the graph as it was when the last edit was recorded
+     * 
+     * @return the recovered graph
+     * @throws IOException if the checkpoint cannot be read
+     */
+    public IGraph replay() throws IOException
+    {
+        IGraph graph;
+        try (InputStream in = new BufferedInputStream(new FileInputStream(new File(this.directory, this.name
+                + EditJournal.CHECKPOINT_SUFFIX))))
+        {
+            DataInputStream dataIn = new DataInputStream(in);
+            dataIn.readInt();
+            dataIn.readLong();
+            readString(dataIn);
+            readString(dataIn);
+            graph = this.persistenceService.read(in);
+        }
+        for (long aGeneration = this.generation;; aGeneration++)
+        {
+            File journalFile = new File(this.directory, this.name + "." + aGeneration + EditJournal.JOURNAL_SUFFIX);
+            if (!journalFile.exists())
+            {
+                break;
+            }
+            replayJournal(graph, ByteBuffer.wrap(Files.readAllBytes(journalFile.toPath())), aGeneration);
+        }
+        return graph;
+    }
+
+    /**
+     * Deletes the files of this graph
+     */
+    public void delete()
+    {
+        String[] fileNames = this.directory.list();
+        if (fileNames == null)
+        {
+            return;
+        }
+        for (String aFileName : fileNames)
+        {
+            if (aFileName.startsWith(this.name + "."))
+            {
+                new File(this.directory, aFileName).delete();
+            }
+        }
+    }
+
+    private void replayJournal(IGraph graph, ByteBuffer journal, long journalGeneration) throws IOException
+    {
+        if (journal.remaining() < EditJournal.JOURNAL_HEADER_SIZE || journal.getInt() != EditJournal.JOURNAL_MAGIC
+                || journal.getLong() != journalGeneration)
+        {
+            return;
+        }
+        CRC32 checksum = new CRC32();
+        while (journal.remaining() >= EditJournal.RECORD_HEADER_SIZE)
+        {
+            int length = journal.getInt();
+            int expectedChecksum = journal.getInt();
+            if (length <= 0 || length > journal.remaining())
+            {
+                return;
+            }
+            checksum.reset();
+            checksum.update(journal.array(), journal.position(), length);
+            if ((int) checksum.getValue() != expectedChecksum)
+            {
+                return;
+            }
+            DataInputStream in = new DataInputStream(new ByteArrayInputStream(journal.array(), journal.position(), length));
+            journal.position(journal.position() + length);
+            try
+            {
+                replayRecord(graph, in);
+            }
+            catch (RuntimeException e)
+            {
+                // A record that no longer applies, such as an edit on an element missing from the graph
+                e.printStackTrace();
+            }
+        }
+    }
+
+    private void replayRecord(IGraph graph, DataInputStream in) throws IOException
+    {
+        byte type = in.readByte();
+        switch (type)
+        {
+        case EditJournal.NODE_ADDED:
+        {
+            String key = readString(in);
+            Point2D locationOnGraph = new Point2D.Double(in.readDouble(), in.readDouble());
+            INode node = (INode) this.persistenceService.fromXML(readString(in));
+            trackAddedNode(node);
+            this.addedNodes.put(key, node);
+            graph.addNode(node, locationOnGraph);
+            break;
+        }
+        case EditJournal.EDGE_ADDED:
+        {
+            String key = readString(in);
+            INode start = findNode(graph, readString(in));
+            INode end = findNode(graph, readString(in));
+            IEdge edge = (IEdge) this.persistenceService.fromXML(readString(in));
+            if (start != null && end != null)
+            {
+                this.addedEdges.put(key, edge);
+                graph.connect(edge, start, edge.getStartLocation(), end, edge.getEndLocation());
+            }
+            break;
+        }
+        case EditJournal.NODE_REMOVED:
+        {
+            INode node = findNode(graph, readString(in));
+            if (node != null)
+            {
+                graph.removeNode(node);
+            }
+            break;
+        }
+        case EditJournal.EDGE_REMOVED:
+        {
+            IEdge edge = findEdge(graph, readString(in));
+            if (edge != null)
+            {
+                graph.removeEdge(edge);
+            }
+            break;
+        }
+        case EditJournal.NODE_MOVED:
+        {
+            INode node = findNode(graph, readString(in));
+            Point2D location = new Point2D.Double(in.readDouble(), in.readDouble());
+            if (node != null)
+            {
+                node.setLocation(location);
+            }
+            break;
+        }
+        case EditJournal.COLORS_CHANGED:
+        {
+            INode node = findNode(graph, readString(in));
+            Color backgroundColor = readColor(in);
+            Color borderColor = readColor(in);
+            Color textColor = readColor(in);
+            if (node instanceof IColorableNode)
+            {
+                IColorableNode colorableNode = (IColorableNode) node;
+                colorableNode.setBackgroundColor(backgroundColor);
+                colorableNode.setBorderColor(borderColor);
+                colorableNode.setTextColor(textColor);
+                graph.invalidate(node);
+            }
+            break;
+        }
+        case EditJournal.TRANSITION_POINTS_CHANGED:
+        {
+            IEdge edge = findEdge(graph, readString(in));
+            int count = in.readInt();
+            ITransitionPoint[] transitionPoints = count >= 0 ? new ITransitionPoint[count] : null;
+            for (int i = 0; i < count; i++)
+            {
+                transitionPoints[i] = EdgeTransitionPoint.fromPoint2D(new Point2D.Double(in.readDouble(), in.readDouble()));
+            }
+            if (edge != null)
+            {
+                edge.setTransitionPoints(transitionPoints);
+                graph.invalidate(edge);
+            }
+            break;
+        }
+        case EditJournal.NODE_PROPERTY_CHANGED:
+        case EditJournal.EDGE_PROPERTY_CHANGED:
+        {
+            String key = readString(in);
+            String propertyName = readString(in);
+            String valueXml = readString(in);
+            Object element = type == EditJournal.NODE_PROPERTY_CHANGED ? findNode(graph, key) : findEdge(graph, key);
+            if (element != null)
+            {
+                Object value = valueXml != null ? this.persistenceService.fromXML(valueXml) : null;
+                PropertyUtils.setProperty(element, propertyName, value);
+                if (element instanceof INode)
+                {
+                    graph.invalidate((INode) element);
+                }
+                else
+                {
+                    graph.invalidate((IEdge) element);
+                }
+            }
+            break;
+        }
+        default:
+            throw new IOException("Unknown journal record " + type);
+        }
+    }
+
+    /**
+     * The children of an added node keep the ids they were recorded with, and must not collide with new ones
+     */
+    private void trackAddedNode(INode node)
+    {
+        UniqueIDGenerator.ensureGreaterThan(node.getId().getValue());
+        for (INode aChild : node.getChildren())
+        {
+            this.addedNodes.put(aChild.getId().getValue(), aChild);
+            trackAddedNode(aChild);
+        }
+    }
+
+    /**
+     * @return the node recorded with this key if it is still on the graph
+     */
+    private INode findNode(IGraph graph, String key)
+    {
+        if (key == null)
+        {
+            return null;
+        }
+        INode node = this.addedNodes.get(key);
+        if (node == null)
+        {
+            return graph.findNode(toId(key));
+        }
+        return graph.findNode(node.getId()) == node ? node : null;
+    }
+
+    /**
+     * @return the edge recorded with this key if it is still on the graph
+     */
+    private IEdge findEdge(IGraph graph, String key)
+    {
+        if (key == null)
+        {
+            return null;
+        }
+        IEdge edge = this.addedEdges.get(key);
+        if (edge == null)
+        {
+            return graph.findEdge(toId(key));
+        }
+        return graph.findEdge(edge.getId()) == edge ? edge : null;
+    }
+
+    private static Id toId(String key)
+    {
+        Id id = new Id();
+        id.setValue(key);
+        return id;
+    }
+
+    static String readString(DataInputStream in) throws IOException
+    {
+        int length = in.readInt();
+        if (length < 0)
+        {
+            return null;
+        }
+        byte[] bytes = new byte[length];
+        in.readFully(bytes);
+        return new String(bytes, StandardCharsets.UTF_8);
+    }
+
+    private static Color readColor(DataInputStream in) throws IOException
+    {
+        boolean isPresent = in.readBoolean();
+        int rgb = in.readInt();
+        return isPresent ? new Color(rgb, true) : null;
+    }
+
+    /**
+     * @return true if the journal is locked by a running application, this one included
+     */
+    private static boolean isOpen(File directory, String name)
+    {
+        File lockFile = new File(directory, name + EditJournal.LOCK_SUFFIX);
+        if (!lockFile.exists())
+        {
+            return false;
+        }
+        try (FileChannel channel = FileChannel.open(lockFile.toPath(), StandardOpenOption.WRITE))
+        {
+            FileLock lock = channel.tryLock();
+            if (lock == null)
+            {
+                return true;
+            }
+            lock.release();
+            return false;
+        }
+        catch (OverlappingFileLockException e)
+        {
+            return true;
+        }
+        catch (IOException e)
+        {
+            return false;
+        }
+    }
+
+    private final XStreamBasedPersistenceService persistenceService = new XStreamBasedPersistenceService();
+
+    private final File directory;
+
+    private final String name;
+
+    /** Generation of the checkpoint, which is also the first journal file to replay */
+    private final long generation;
+
+    private final String filename;
+
+    private final String fileDirectory;
+
+    /** Nodes added while replaying, by the id they were recorded with */
+    private final Map<String, INode> addedNodes = new HashMap<String, INode>();
+
+    private final Map<String, IEdge> addedEdges = new HashMap<String, IEdge>();
+
+}
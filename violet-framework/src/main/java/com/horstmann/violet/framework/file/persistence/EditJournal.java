@@ -0,0 +1,714 @@
+/*
+ Violet - A program for editing UML diagrams.
+
+ Copyright (C) 2007 Cay S. Horstmann (http://horstmann.com)
+ Alexandre de Pellegrin (http://alexdp.free.fr);
+
+ This program is free software; you can redistribute it and/or modify
+ it under the terms of the GNU General Public License as published by
+ the Free Software Foundation; either version 2 of the License, or
+ (at your option) any later version.
+
+ This program is distributed in the hope that it will be useful,
+ but WITHOUT ANY WARRANTY; without even the implied warranty of
+ MERCHANTABILITY or FITNESS FOR A PARTICULAR PURPOSE.  See the
+ GNU General Public License for more details.
+
+ You should have received a copy of the GNU General Public License
+ along with this program; if not, write to the Free Software
+ Foundation, Inc., 59 Temple Place, Suite 330, Boston, MA  02111-1307  USA
+ */
+
+package com.horstmann.violet.framework.file.persistence;
+
+import java.awt.Color;
+import java.awt.geom.Point2D;
+import java.io.ByteArrayOutputStream;
+import java.io.DataOutputStream;
+import java.io.File;
+import java.io.FileOutputStream;
+import java.io.IOException;
+import java.io.RandomAccessFile;
+import java.nio.MappedByteBuffer;
+import java.nio.channels.FileChannel;
+import java.nio.channels.FileLock;
+import java.nio.charset.StandardCharsets;
+import java.nio.file.AtomicMoveNotSupportedException;
+import java.nio.file.Files;
+import java.nio.file.StandardCopyOption;
+import java.nio.file.StandardOpenOption;
+import java.util.concurrent.Executor;
+import java.util.zip.CRC32;
+
+import com.horstmann.violet.framework.file.IGraphFile;
+import com.horstmann.violet.product.diagram.abstracts.AbstractGraph;
+import com.horstmann.violet.product.diagram.abstracts.IGraph;
+import com.horstmann.violet.product.diagram.abstracts.IIdentifiable;
+import com.horstmann.violet.product.diagram.abstracts.edge.IEdge;
+import com.horstmann.violet.product.diagram.abstracts.edge.ITransitionPoint;
+import com.horstmann.violet.product.diagram.abstracts.node.IColorableNode;
+import com.horstmann.violet.product.diagram.abstracts.node.INode;
+
+/**
+ * Records the edits made on a graph since it was last saved, so that they can be recovered after a crash.<br/>
+ * <br/>
+ * The journal starts with a checkpoint, a complete copy of the graph. Each edit is then appended as a compact binary record to
+ * a memory-mapped file : recording an edit only copies a few bytes to memory, which the operating system writes to disk even if
+ * the application dies. A new checkpoint starts a new journal file after {@link #CHECKPOINT_RECORDS} records, after
+ * {@link #CHECKPOINT_PERIOD} milliseconds or when the journal file is full. Checkpoints are only taken between two edits : the
+ * calling thread only copies the graph with {@link AbstractGraph#copy()}, and the executor given to the constructor serializes
+ * and writes the copy, then deletes the files no longer needed. Added nodes and edges are still serialized when they are
+ * recorded, since their records must be complete before the next one, but this only costs as much as the added element.<br/>
+ * <br/>
+ * Records designate elements by the id they had when the record was written. {@link AutoSavedGraph} reads the last checkpoint
+ * back and replays the records written after it.
+ */
+public class EditJournal
+{
+
+    /**
+     * Creates a journal. Its files are only created on the first edit.
+     * 
+     * @param graphFile the edited file
+     * @param directory where journal files are kept
+     * @param name the prefix of the journal files, unique to the edited file
+     * @param executor runs file writes one after the other
+     */
+    public EditJournal(IGraphFile graphFile, File directory, String name, Executor executor)
+    {
+        this.graphFile = graphFile;
+        this.directory = directory;
+        this.name = name;
+        this.executor = executor;
+    }
+
+    /**
+     * Records a node added to the graph, with its children
+     */
+    public synchronized void nodeAdded(INode node)
+    {
+        try
+        {
+            DataOutputStream out = beginRecord(NODE_ADDED);
+            if (out == null)
+            {
+                return;
+            }
+            INode detachedNode = node.clone();
+            detachedNode.setParent(null);
+            Point2D locationOnGraph = node.getLocationOnGraph();
+            writeKey(out, node);
+            out.writeDouble(locationOnGraph.getX());
+            out.writeDouble(locationOnGraph.getY());
+            writeString(out, this.persistenceService.toXML(detachedNode));
+            endRecord();
+        }
+        catch (IOException e)
+        {
+            fail(e);
+        }
+    }
+
+    /**
+     * Records an edge connected in the graph
+     */
+    public synchronized void edgeAdded(IEdge edge)
+    {
+        try
+        {
+            DataOutputStream out = beginRecord(EDGE_ADDED);
+            if (out == null)
+            {
+                return;
+            }
+            IEdge detachedEdge = edge.clone();
+            detachedEdge.setStart(null);
+            detachedEdge.setEnd(null);
+            writeKey(out, edge);
+            writeKey(out, edge.getStart());
+            writeKey(out, edge.getEnd());
+            writeString(out, this.persistenceService.toXML(detachedEdge));
+            endRecord();
+        }
+        catch (IOException e)
+        {
+            fail(e);
+        }
+    }
+
+    /**
+     * Records a node removed from the graph, with its children and edges
+     */
+    public synchronized void nodeRemoved(INode node)
+    {
+        recordElement(NODE_REMOVED, node);
+    }
+
+    /**
+     * Records an edge removed from the graph
+     */
+    public synchronized void edgeRemoved(IEdge edge)
+    {
+        recordElement(EDGE_REMOVED, edge);
+    }
+
+    /**
+     * Records the new location of a node, relative to its parent
+     */
+    public synchronized void nodeMoved(INode node)
+    {
+        try
+        {
+            DataOutputStream out = beginRecord(NODE_MOVED);
+            if (out == null)
+            {
+                return;
+            }
+            Point2D location = node.getLocation();
+            writeKey(out, node);
+            out.writeDouble(location.getX());
+            out.writeDouble(location.getY());
+            endRecord();
+        }
+        catch (IOException e)
+        {
+            fail(e);
+        }
+    }
+
+    /**
+     * Records the new colors of a node
+     */
+    public synchronized void colorsChanged(IColorableNode element)
+    {
+        if (!(element instanceof IIdentifiable))
+        {
+            return;
+        }
+        try
+        {
+            DataOutputStream out = beginRecord(COLORS_CHANGED);
+            if (out == null)
+            {
+                return;
+            }
+            writeKey(out, (IIdentifiable) element);
+            writeColor(out, element.getBackgroundColor());
+            writeColor(out, element.getBorderColor());
+            writeColor(out, element.getTextColor());
+            endRecord();
+        }
+        catch (IOException e)
+        {
+            fail(e);
+        }
+    }
+
+    /**
+     * Records the new transition points of an edge
+     */
+    public synchronized void transitionPointsChanged(IEdge edge)
+    {
+        try
+        {
+            DataOutputStream out = beginRecord(TRANSITION_POINTS_CHANGED);
+            if (out == null)
+            {
+                return;
+            }
+            ITransitionPoint[] transitionPoints = edge.getTransitionPoints();
+            writeKey(out, edge);
+            out.writeInt(transitionPoints != null ? transitionPoints.length : -1);
+            for (int i = 0; transitionPoints != null && i < transitionPoints.length; i++)
+            {
+                Point2D point = transitionPoints[i].toPoint2D();
+                out.writeDouble(point.getX());
+                out.writeDouble(point.getY());
+            }
+            endRecord();
+        }
+        catch (IOException e)
+        {
+            fail(e);
+        }
+    }
+
+    /**
+     * Records the new value of a node or edge property
+     * 
+     * @param element the node or edge
+     * @param propertyName the bean property
+     * @param value its new value
+     */
+    public synchronized void propertyChanged(Object element, String propertyName, Object value)
+    {
+        if (!(element instanceof INode) && !(element instanceof IEdge))
+        {
+            return;
+        }
+        try
+        {
+            DataOutputStream out = beginRecord(element instanceof INode ? NODE_PROPERTY_CHANGED : EDGE_PROPERTY_CHANGED);
+            if (out == null)
+            {
+                return;
+            }
+            writeKey(out, (IIdentifiable) element);
+            writeString(out, propertyName);
+            writeString(out, value != null ? this.persistenceService.toXML(value) : null);
+            endRecord();
+        }
+        catch (IOException e)
+        {
+            fail(e);
+        }
+    }
+
+    /**
+     * Tells that all the records of an edit, or of its undo or redo, have been written. Checkpoints are taken here when one is
+     * due, so that they never fall in the middle of an edit.
+     */
+    public synchronized void editCompleted()
+    {
+        if (this.isClosed)
+        {
+            return;
+        }
+        boolean isPeriodElapsed = this.recordCount > 0 && System.currentTimeMillis() - this.checkpointTime > CHECKPOINT_PERIOD;
+        if (this.isCheckpointRequired || this.recordCount >= CHECKPOINT_RECORDS || isPeriodElapsed)
+        {
+            checkpoint();
+        }
+    }
+
+    /**
+     * Copies the whole graph as it is now and starts a new journal file after it
+     */
+    public synchronized void checkpoint()
+    {
+        if (this.isClosed)
+        {
+            return;
+        }
+        try
+        {
+            ByteArrayOutputStream checkpoint = beginCheckpoint();
+            IGraph graph = this.graphFile.getGraph();
+            if (graph instanceof AbstractGraph)
+            {
+                endCheckpoint(checkpoint, ((AbstractGraph) graph).copy());
+                return;
+            }
+            this.persistenceService.write(graph, checkpoint);
+            endCheckpoint(checkpoint, null);
+        }
+        catch (IOException | RuntimeException e)
+        {
+            fail(e);
+        }
+    }
+
+    /**
+     * Forgets the edits recorded so far, once the graph has been saved. The copy of the graph written to save it becomes the
+     * checkpoint of the next edit, so that the graph is not copied again, and is only serialized if the graph is edited.
+     * 
+     * @param savedGraph the copy of the graph which was saved, not to be changed anymore
+     */
+    public synchronized void reset(IGraph savedGraph)
+    {
+        this.buffer = null;
+        this.isCheckpointRequired = false;
+        this.recordCount = 0;
+        this.savedGraph = savedGraph;
+        // The journal of the next edit may be created before the files are deleted
+        final long lastGeneration = this.generation;
+        this.executor.execute(() -> deleteFiles(lastGeneration));
+    }
+
+    /**
+     * Stops recording edits, leaving the journal files as they are
+     */
+    public synchronized void close()
+    {
+        this.isClosed = true;
+        this.buffer = null;
+        try
+        {
+            if (this.lockChannel != null)
+            {
+                this.lockChannel.close();
+            }
+        }
+        catch (IOException e)
+        {
+            e.printStackTrace();
+        }
+        this.lock = null;
+        this.lockChannel = null;
+    }
+
+    /**
+     * Deletes the checkpoint and the journal files. The lock file is kept while the journal is open.
+     */
+    public synchronized void deleteFiles()
+    {
+        deleteFiles(Long.MAX_VALUE);
+    }
+
+    /**
+     * Deletes the checkpoint and the journal files up to a generation. Checkpoints are written by the executor, so when it runs
+     * this the checkpoint file is never more recent than the journal files it deletes.
+     */
+    private synchronized void deleteFiles(long lastGeneration)
+    {
+        final String prefix = this.name + ".";
+        File[] files = this.directory.listFiles((dir, fileName) -> fileName.startsWith(prefix));
+        if (files == null)
+        {
+            return;
+        }
+        for (File aFile : files)
+        {
+            String fileName = aFile.getName();
+            if (this.lock != null && fileName.endsWith(LOCK_SUFFIX))
+            {
+                continue;
+            }
+            if (fileName.endsWith(JOURNAL_SUFFIX))
+            {
+                try
+                {
+                    long aGeneration = Long.parseLong(fileName.substring(prefix.length(), fileName.length() - JOURNAL_SUFFIX.length()));
+                    if (aGeneration > lastGeneration)
+                    {
+                        continue;
+                    }
+                }
+                catch (NumberFormatException e)
+                {
+                    continue;
+                }
+            }
+            delete(aFile);
+        }
+    }
+
+    /**
+     * @return null if the record must not be written, because the journal is closed or a checkpoint will include the edit
+     */
+    private DataOutputStream beginRecord(byte type) throws IOException
+    {
+        if (this.isClosed)
+        {
+            return null;
+        }
+        if (this.buffer == null && this.savedGraph != null)
+        {
+            // The graph is still as saved : the edit is recorded after the saved copy
+            ByteArrayOutputStream checkpoint = beginCheckpoint();
+            IGraph graphCopy = this.savedGraph;
+            this.savedGraph = null;
+            endCheckpoint(checkpoint, graphCopy);
+        }
+        if (this.buffer == null)
+        {
+            this.isCheckpointRequired = true;
+        }
+        if (this.isCheckpointRequired)
+        {
+            return null;
+        }
+        this.recordBytes.reset();
+        this.record.writeByte(type);
+        return this.record;
+    }
+
+    /**
+     * Appends the record to the journal file, behind its length and checksum. The length is written last, so that a record
+     * is complete as soon as it can be read.
+     */
+    private void endRecord()
+    {
+        int length = this.recordBytes.size();
+        int position = this.buffer.position();
+        if (position + RECORD_HEADER_SIZE + length > this.buffer.capacity())
+        {
+            this.isCheckpointRequired = true;
+            return;
+        }
+        this.checksum.reset();
+        this.checksum.update(this.recordBytes.getBytes(), 0, length);
+        this.buffer.putInt(position + 4, (int) this.checksum.getValue());
+        this.buffer.put(position + RECORD_HEADER_SIZE, this.recordBytes.getBytes(), 0, length);
+        this.buffer.putInt(position, length);
+        this.buffer.position(position + RECORD_HEADER_SIZE + length);
+        this.recordCount++;
+    }
+
+    private void recordElement(byte type, IIdentifiable element)
+    {
+        try
+        {
+            DataOutputStream out = beginRecord(type);
+            if (out == null)
+            {
+                return;
+            }
+            writeKey(out, element);
+            endRecord();
+        }
+        catch (IOException e)
+        {
+            fail(e);
+        }
+    }
+
+    /**
+     * Takes the lock of the journal files on the first checkpoint, then starts a checkpoint with its header. The graph is
+     * written after it.
+     */
+    private ByteArrayOutputStream beginCheckpoint() throws IOException
+    {
+        if (this.lock == null)
+        {
+            this.directory.mkdirs();
+            this.lockChannel = FileChannel.open(getFile(LOCK_SUFFIX).toPath(), StandardOpenOption.CREATE, StandardOpenOption.WRITE);
+            this.lock = this.lockChannel.lock();
+        }
+        ByteArrayOutputStream checkpoint = new ByteArrayOutputStream();
+        DataOutputStream out = new DataOutputStream(checkpoint);
+        out.writeInt(CHECKPOINT_MAGIC);
+        out.writeLong(this.generation + 1);
+        writeString(out, this.graphFile.getFilename());
+        writeString(out, this.graphFile.getDirectory());
+        out.flush();
+        return checkpoint;
+    }
+
+    /**
+     * Starts the journal file which follows the checkpoint, then has the checkpoint written by the executor
+     * 
+     * @param checkpoint the checkpoint header, followed by the graph unless it is serialized by the executor
+     * @param graphCopy a copy of the graph for the executor to serialize after the header, null if it is already written
+     */
+    private void endCheckpoint(ByteArrayOutputStream checkpoint, final IGraph graphCopy) throws IOException
+    {
+        final long newGeneration = this.generation + 1;
+        startJournal(newGeneration);
+        this.executor.execute(() -> {
+            try
+            {
+                if (graphCopy != null)
+                {
+                    this.persistenceService.write(graphCopy, checkpoint);
+                }
+            }
+            catch (RuntimeException e)
+            {
+                // The previous checkpoint and the journal files after it are kept
+                e.printStackTrace();
+                return;
+            }
+            writeCheckpoint(checkpoint.toByteArray(), newGeneration);
+        });
+    }
+
+    /**
+     * Maps a new journal file, empty until records are appended
+     */
+    private void startJournal(long newGeneration) throws IOException
+    {
+        try (RandomAccessFile file = new RandomAccessFile(getFile("." + newGeneration + JOURNAL_SUFFIX), "rw"))
+        {
+            file.setLength(JOURNAL_SIZE);
+            this.buffer = file.getChannel().map(FileChannel.MapMode.READ_WRITE, 0, JOURNAL_SIZE);
+        }
+        this.buffer.putInt(JOURNAL_MAGIC);
+        this.buffer.putLong(newGeneration);
+        this.generation = newGeneration;
+        this.recordCount = 0;
+        this.checkpointTime = System.currentTimeMillis();
+        this.isCheckpointRequired = false;
+    }
+
+    /**
+     * Replaces the checkpoint file by a complete new one, flushed to disk, then deletes the journal files it makes useless
+     */
+    private void writeCheckpoint(byte[] checkpoint, long checkpointGeneration)
+    {
+        File file = getFile(CHECKPOINT_SUFFIX);
+        File temporaryFile = getFile(CHECKPOINT_SUFFIX + ".tmp");
+        try
+        {
+            try (FileOutputStream out = new FileOutputStream(temporaryFile))
+            {
+                out.write(checkpoint);
+                out.getChannel().force(true);
+            }
+            try
+            {
+                Files.move(temporaryFile.toPath(), file.toPath(), StandardCopyOption.ATOMIC_MOVE, StandardCopyOption.REPLACE_EXISTING);
+            }
+            catch (AtomicMoveNotSupportedException e)
+            {
+                Files.move(temporaryFile.toPath(), file.toPath(), StandardCopyOption.REPLACE_EXISTING);
+            }
+            for (long aGeneration = checkpointGeneration - 1; aGeneration > 0; aGeneration--)
+            {
+                File journalFile = getFile("." + aGeneration + JOURNAL_SUFFIX);
+                if (!journalFile.exists())
+                {
+                    break;
+                }
+                delete(journalFile);
+            }
+        }
+        catch (IOException e)
+        {
+            e.printStackTrace();
+            delete(temporaryFile);
+        }
+    }
+
+    /**
+     * Autosave must never get in the way of editing : it is stopped on the first error
+     */
+    private void fail(Exception e)
+    {
+        e.printStackTrace();
+        close();
+    }
+
+    private File getFile(String suffix)
+    {
+        return new File(this.directory, this.name + suffix);
+    }
+
+    private static void delete(File file)
+    {
+        // Mapped files cannot be deleted on some systems before being garbage collected
+        if (file.exists() && !file.delete())
+        {
+            file.deleteOnExit();
+        }
+    }
+
+    private static void writeKey(DataOutputStream out, IIdentifiable element) throws IOException
+    {
+        writeString(out, element != null ? element.getId().getValue() : null);
+    }
+
+    /**
+     * Writes strings of any length, null included
+     */
+    static void writeString(DataOutputStream out, String value) throws IOException
+    {
+        if (value == null)
+        {
+            out.writeInt(-1);
+            return;
+        }
+        byte[] bytes = value.getBytes(StandardCharsets.UTF_8);
+        out.writeInt(bytes.length);
+        out.write(bytes);
+    }
+
+    private static void writeColor(DataOutputStream out, Color color) throws IOException
+    {
+        out.writeBoolean(color != null);
+        out.writeInt(color != null ? color.getRGB() : 0);
+    }
+
+    /**
+     * Gives access to the written bytes without copying them
+     */
+    private static class RecordBytes extends ByteArrayOutputStream
+    {
+        byte[] getBytes()
+        {
+            return this.buf;
+        }
+    }
+
+    /** Records a node added, with its key, location on graph and XML */
+    static final byte NODE_ADDED = 1;
+
+    /** Records an edge added, with its key, the keys of its nodes and its XML */
+    static final byte EDGE_ADDED = 2;
+
+    static final byte NODE_REMOVED = 3;
+
+    static final byte EDGE_REMOVED = 4;
+
+    static final byte NODE_MOVED = 5;
+
+    static final byte COLORS_CHANGED = 6;
+
+    static final byte TRANSITION_POINTS_CHANGED = 7;
+
+    static final byte NODE_PROPERTY_CHANGED = 8;
+
+    static final byte EDGE_PROPERTY_CHANGED = 9;
+
+    static final int CHECKPOINT_MAGIC = 0x56434B31;
+
+    static final int JOURNAL_MAGIC = 0x564A4E31;
+
+    static final String CHECKPOINT_SUFFIX = ".checkpoint";
+
+    static final String JOURNAL_SUFFIX = ".journal";
+
+    static final String LOCK_SUFFIX = ".lock";
+
+    /** Journal header : magic number and generation */
+    static final int JOURNAL_HEADER_SIZE = 12;
+
+    /** Record header : length and CRC32 of the record */
+    static final int RECORD_HEADER_SIZE = 8;
+
+    private static final int JOURNAL_SIZE = 1024 * 1024;
+
+    private static final int CHECKPOINT_RECORDS = 1000;
+
+    private static final long CHECKPOINT_PERIOD = 5 * 60 * 1000;
+
+    private final XStreamBasedPersistenceService persistenceService = new XStreamBasedPersistenceService();
+
+    private final IGraphFile graphFile;
+
+    private final File directory;
+
+    private final String name;
+
+    private final Executor executor;
+
+    private final RecordBytes recordBytes = new RecordBytes();
+
+    private final DataOutputStream record = new DataOutputStream(this.recordBytes);
+
+    private final CRC32 checksum = new CRC32();
+
+    /** Current journal file, null until the first checkpoint */
+    private MappedByteBuffer buffer;
+
+    /** A copy of the graph as last saved, until it is edited and this copy becomes a checkpoint */
+    private IGraph savedGraph;
+
+    /** Generation of the last checkpoint, which numbers the journal file that follows it */
+    private long generation;
+
+    private int recordCount;
+
+    private long checkpointTime;
+
+    /** Set when an edit could not be recorded : the next checkpoint will include it */
+    private boolean isCheckpointRequired;
+
+    private boolean isClosed;
+
+    /** Held while the journal is open, so that it is not recovered by another instance of the application */
+    private FileChannel lockChannel;
+
+    private FileLock lock;
+
+}
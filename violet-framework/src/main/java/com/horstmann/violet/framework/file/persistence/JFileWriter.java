@@ -20,16 +20,30 @@ public class JFileWriter implements IFileWriter
     public JFileWriter(File f) throws FileNotFoundException
     {
         this.f = f;
-        this.out = new FileOutputStream(f);
     }
 
-    
+    /**
+     * Opens the file on first call, truncating it
+     */
     @Override
-    public OutputStream getOutputStream()
+    public OutputStream getOutputStream() throws IOException
     {
+        if (this.out == null)
+        {
+            this.out = new FileOutputStream(this.f);
+        }
         return out;
     }
 
+    /**
+     * @return the file to write. It is left untouched until {@link #getOutputStream()} is called, so that it can also be replaced
+     *         by a complete new file.
+     */
+    public File getFile()
+    {
+        return this.f;
+    }
+
     @Override
     public IFile getFileDefinition() throws IOException
     {
@@ -1,24 +1,24 @@
 package com.horstmann.violet.framework.file.persistence;
 
-import java.io.BufferedInputStream;
-import java.io.ByteArrayInputStream;
-import java.io.ByteArrayOutputStream;
+import java.io.BufferedReader;
+import java.io.BufferedWriter;
+import java.io.FilterOutputStream;
 import java.io.IOException;
 import java.io.InputStream;
 import java.io.InputStreamReader;
 import java.io.OutputStream;
 import java.io.OutputStreamWriter;
-import java.io.StringWriter;
+import java.io.Reader;
 import java.io.Writer;
-
-import javax.imageio.ImageIO;
-import javax.swing.text.MutableAttributeSet;
-import javax.swing.text.html.HTML;
-import javax.swing.text.html.HTMLEditorKit;
+import java.nio.charset.StandardCharsets;
+import java.util.ArrayList;
+import java.util.Collections;
+import java.util.List;
+import java.util.regex.Pattern;
 
 import org.apache.commons.codec.binary.Base64OutputStream;
 
-import com.horstmann.violet.framework.file.export.FileExportService;
+import com.horstmann.violet.framework.file.export.ThumbnailCache;
 import com.horstmann.violet.framework.injection.bean.ManiocFramework.InjectedBean;
 import com.horstmann.violet.framework.injection.bean.ManiocFramework.ManagedBean;
 import com.horstmann.violet.framework.util.VersionChecker;
@@ -30,8 +30,6 @@ public class XHTMLPersistenceService implements IFilePersistenceService
 
     private static final String TEMPLATE_FILE = "XHTMLFileTemplate.violet.html";
 
-    private static final String IMAGE_TYPE = "png";
-
     private static final String HTML_INLINE_IMAGE_PREFIX = "data:image/png;base64,";
 
     private static final String TEMPLATE_VERSION_KEY = "${version}";
@@ -50,23 +48,31 @@ public class XHTMLPersistenceService implements IFilePersistenceService
     {
         try
         {
-            OutputStreamWriter writer = new OutputStreamWriter(out, "UTF-8");
-        	InputStream templateAsStream = this.getClass().getResourceAsStream(TEMPLATE_FILE);
-            String template = getInputStreamContent(templateAsStream);
-            ByteArrayOutputStream graphOutputStream = new ByteArrayOutputStream();
-            xstreamService.write(graph, graphOutputStream);
-            String graphString = graphOutputStream.toString();
-            ByteArrayOutputStream imageOutputStream = new ByteArrayOutputStream();
-            Base64OutputStream base64ImageOutputStream = new Base64OutputStream(imageOutputStream);
-            ImageIO.write(FileExportService.getImage(graph), IMAGE_TYPE, base64ImageOutputStream);
-            String imageString = HTML_INLINE_IMAGE_PREFIX + imageOutputStream.toString();
-            template = template.replace(TEMPLATE_VERSION_KEY, this.versionChecker.getAppVersionNumber());
-            template = template.replace(TEMPLATE_XMLCONTENT_KEY, graphString);
-            template = template.replace(TEMPLATE_IMAGE_KEY, imageString);
-            writer.write(new String(template.getBytes()));
-            templateAsStream.close();
-            imageOutputStream.close();
-            base64ImageOutputStream.close();
+            // Template, XML and image are written one after the other, the document never exists as a whole in memory
+            Writer writer = new BufferedWriter(new OutputStreamWriter(out, StandardCharsets.UTF_8));
+            for (String aSegment : getTemplateSegments())
+            {
+                if (TEMPLATE_VERSION_KEY.equals(aSegment))
+                {
+                    writer.write(this.versionChecker.getAppVersionNumber());
+                }
+                else if (TEMPLATE_XMLCONTENT_KEY.equals(aSegment))
+                {
+                    xstreamService.write(graph, writer);
+                }
+                else if (TEMPLATE_IMAGE_KEY.equals(aSegment))
+                {
+                    writer.write(HTML_INLINE_IMAGE_PREFIX);
+                    writer.flush();
+                    Base64OutputStream base64ImageOutputStream = new Base64OutputStream(new UnclosableOutputStream(out));
+                    base64ImageOutputStream.write(ThumbnailCache.getPng(graph));
+                    base64ImageOutputStream.close();
+                }
+                else
+                {
+                    writer.write(aSegment);
+                }
+            }
             writer.close();
         }
         catch (IOException e)
@@ -78,119 +84,181 @@ public class XHTMLPersistenceService implements IFilePersistenceService
     @Override
     public IGraph read(InputStream in) throws IOException
     {
-        InputStreamReader reader = new InputStreamReader(in, "UTF-8");
-    	XHTMLPersistenceServiceParserGetter kit = new XHTMLPersistenceServiceParserGetter();
-        HTMLEditorKit.Parser parser = kit.getParser();
-        StringWriter writer = new StringWriter();
-        HTMLEditorKit.ParserCallback callback = new XHTMLPersistenceServiceParserCallback(writer);
-        parser.parse(reader, callback, true);
-        String xmlContent = writer.toString();
-        InputStream xmlContentStream = new ByteArrayInputStream(xmlContent.getBytes());
-        IGraph graph = this.xstreamService.read(xmlContentStream);
-        reader.close();
-        xmlContentStream.close();
-        reader.close();
-        writer.close();
-        return graph;
+        BufferedReader reader = new BufferedReader(new InputStreamReader(in, StandardCharsets.UTF_8));
+        try
+        {
+            return this.xstreamService.read(new EmbeddedContentReader(reader));
+        }
+        finally
+        {
+            reader.close();
+        }
     }
 
-    private String getInputStreamContent(InputStream in) throws IOException
+    /**
+     * @return the template cut at its keys, keys being segments of their own
+     */
+    private static synchronized List<String> getTemplateSegments() throws IOException
     {
-        BufferedInputStream bis = new BufferedInputStream(in);
-        ByteArrayOutputStream buf = new ByteArrayOutputStream();
-        int result = bis.read();
-        while (result != -1)
+        if (templateSegments != null)
         {
-            byte b = (byte) result;
-            buf.write(b);
-            result = bis.read();
+            return templateSegments;
         }
-        String content = buf.toString("UTF-8");
-        bis.close();
-        buf.close();
-        in.close();
-        return content;
+        InputStream templateAsStream = XHTMLPersistenceService.class.getResourceAsStream(TEMPLATE_FILE);
+        String template = new String(templateAsStream.readAllBytes(), StandardCharsets.UTF_8);
+        templateAsStream.close();
+        List<String> segments = new ArrayList<String>();
+        int segmentStart = 0;
+        int keyStart = template.indexOf("${");
+        while (keyStart >= 0)
+        {
+            int keyEnd = template.indexOf('}', keyStart) + 1;
+            segments.add(template.substring(segmentStart, keyStart));
+            segments.add(template.substring(keyStart, keyEnd));
+            segmentStart = keyEnd;
+            keyStart = template.indexOf("${", segmentStart);
+        }
+        segments.add(template.substring(segmentStart));
+        templateSegments = Collections.unmodifiableList(segments);
+        return templateSegments;
     }
 
-    private class XHTMLPersistenceServiceParserGetter extends HTMLEditorKit
+    /** Template cut by getTemplateSegments() */
+    private static List<String> templateSegments;
+
+    /**
+     * Lets the base64 encoder finish the image without closing the file it is written to
+     */
+    private static class UnclosableOutputStream extends FilterOutputStream
     {
-        public HTMLEditorKit.Parser getParser()
+        public UnclosableOutputStream(OutputStream out)
+        {
+            super(out);
+        }
+
+        @Override
+        public void write(byte[] b, int off, int len) throws IOException
+        {
+            out.write(b, off, len);
+        }
+
+        @Override
+        public void close() throws IOException
         {
-            return super.getParser();
+            flush();
         }
     }
 
-    private class XHTMLPersistenceServiceParserCallback extends HTMLEditorKit.ParserCallback
+    /**
+     * Gives the characters of the XML embedded in the SCRIPT element whose id is "content", without its CDATA markers. The
+     * document is read as far as the end of this element only.
+     */
+    private static class EmbeddedContentReader extends Reader
     {
 
-        private Writer out;
+        private static final Pattern CONTENT_TAG_PATTERN = Pattern.compile("\\bid\\s*=\\s*[\"']?content\\b", Pattern.CASE_INSENSITIVE);
+
+        private static final String CDATA_START = "<![CDATA[";
+
+        private static final String CDATA_END = "]]>";
 
-        private boolean inHeader = false;
+        private BufferedReader in;
 
-        public XHTMLPersistenceServiceParserCallback(Writer out)
+        private boolean started = false;
+
+        private boolean ended = false;
+
+        public EmbeddedContentReader(BufferedReader in)
         {
-            this.out = out;
+            this.in = in;
         }
 
-        public void handleStartTag(HTML.Tag tag, MutableAttributeSet attributes, int position)
+        @Override
+        public int read(char[] cbuf, int off, int len) throws IOException
         {
-            if (!tag.equals(HTML.Tag.SCRIPT))
+            if (!this.started)
             {
-                return;
+                seekContent();
+                this.started = true;
             }
-            if (!attributes.containsAttribute(HTML.getAttributeKey("id"), "content"))
+            int count = 0;
+            while (count < len && !this.ended)
             {
-                return;
-            }
-            this.inHeader = true;
-        }
-
-        public void handleEndTag(HTML.Tag tag, int position)
-        {
-            if (tag.equals(HTML.Tag.SCRIPT))
-            {
-                if (this.inHeader)
+                int c = this.in.read();
+                if (c == -1 || (c == CDATA_END.charAt(0) && skip(CDATA_END.substring(1))))
+                {
+                    this.ended = true;
+                }
+                else
                 {
-                    this.inHeader = false;
+                    cbuf[off + count] = (char) c;
+                    count++;
                 }
             }
-            // work around bug in the parser that fails to call flush
-            if (tag.equals(HTML.Tag.HTML)) this.flush();
+            return count == 0 && len > 0 ? -1 : count;
         }
-        
 
         @Override
-        public void handleComment(char[] text, int position)
+        public void close() throws IOException
+        {
+            this.ended = true;
+        }
+
+        /**
+         * Moves the underlying reader just after the opening of the content
+         */
+        private void seekContent() throws IOException
         {
-            if (this.inHeader)
+            while (true)
             {
-                try
+                int c = this.in.read();
+                if (c == -1)
                 {
-                    String xmlContent = new String(text);
-                    xmlContent = xmlContent.replace("<![CDATA[", "");
-                    xmlContent = xmlContent.replace("]]>", "");
-                    out.write(xmlContent);
-                    out.flush();
+                    throw new IOException("No diagram content found in the document");
                 }
-                catch (IOException ex)
+                if (c == '<' && skip("script"))
                 {
-                    throw new RuntimeException(ex);
+                    StringBuilder tag = new StringBuilder();
+                    for (c = this.in.read(); c != -1 && c != '>'; c = this.in.read())
+                    {
+                        tag.append((char) c);
+                    }
+                    if (CONTENT_TAG_PATTERN.matcher(tag).find())
+                    {
+                        break;
+                    }
                 }
             }
-        }
-
-        public void flush()
-        {
-            try
+            int c = this.in.read();
+            while (c != -1 && Character.isWhitespace(c))
             {
-                out.flush();
+                c = this.in.read();
             }
-            catch (IOException e)
+            if (c != '<' || !skip(CDATA_START.substring(1)))
             {
-                throw new RuntimeException(e);
+                throw new IOException("Diagram content is expected in a CDATA section");
             }
         }
 
+        /**
+         * Consumes the given text if it comes next, ignoring case
+         *
+         * @return true if it was consumed, false if the reader is left where it was
+         */
+        private boolean skip(String text) throws IOException
+        {
+            this.in.mark(text.length());
+            for (int i = 0; i < text.length(); i++)
+            {
+                int c = this.in.read();
+                if (c == -1 || Character.toLowerCase((char) c) != Character.toLowerCase(text.charAt(i)))
+                {
+                    this.in.reset();
+                    return false;
+                }
+            }
+            return true;
+        }
     }
 
 }
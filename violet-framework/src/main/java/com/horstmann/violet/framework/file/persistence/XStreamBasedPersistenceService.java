@@ -3,11 +3,17 @@ package com.horstmann.violet.framework.file.persistence;
 import java.awt.geom.Point2D;
 import java.awt.geom.Rectangle2D;
 import java.awt.geom.RoundRectangle2D;
+import java.io.BufferedReader;
+import java.io.BufferedWriter;
 import java.io.IOException;
 import java.io.InputStream;
 import java.io.InputStreamReader;
 import java.io.OutputStream;
 import java.io.OutputStreamWriter;
+import java.io.Reader;
+import java.io.Writer;
+import java.nio.charset.StandardCharsets;
+import java.util.ArrayList;
 import java.util.Collection;
 import java.util.List;
 
@@ -16,16 +22,29 @@ import com.horstmann.violet.framework.injection.bean.ManiocFramework.InjectedBea
 import com.horstmann.violet.framework.injection.bean.ManiocFramework.ManagedBean;
 import com.horstmann.violet.framework.plugin.IDiagramPlugin;
 import com.horstmann.violet.framework.plugin.PluginRegistry;
+import com.horstmann.violet.framework.util.UniqueIDGenerator;
 import com.horstmann.violet.product.diagram.abstracts.IGraph;
+import com.horstmann.violet.product.diagram.abstracts.Id;
 import com.horstmann.violet.product.diagram.abstracts.edge.IEdge;
 import com.horstmann.violet.product.diagram.abstracts.node.INode;
 import com.horstmann.violet.product.diagram.abstracts.property.ArrowHead;
 import com.horstmann.violet.product.diagram.abstracts.property.BentStyle;
 import com.horstmann.violet.product.diagram.abstracts.property.LineStyle;
+import com.horstmann.violet.product.diagram.abstracts.property.MultiLineString;
 import com.thoughtworks.xstream.XStream;
-import com.thoughtworks.xstream.io.xml.DomDriver;
+import com.thoughtworks.xstream.io.xml.MXParserDriver;
 import com.thoughtworks.xstream.security.AnyTypePermission;
 
+/**
+ * Reads and writes graphs as XML with XStream.<br/>
+ * <br/>
+ * Documents are parsed by a pull parser and written as they are marshalled, never held as a DOM tree. Configuring XStream
+ * means instantiating every plugin graph to alias its node and edge classes, so the configured instance is built once and
+ * shared by all services until another diagram plugin gets registered.<br/>
+ * <br/>
+ * XStream may only be shared between threads if it is never reconfigured while marshalling. Annotations are therefore processed
+ * up front for every graph, node, edge and property class, rather than detected on the fly the first time a class is met.
+ */
 @ManagedBean(registeredManually=true)
 public class XStreamBasedPersistenceService implements IFilePersistenceService {
 	
@@ -38,34 +57,81 @@ public class XStreamBasedPersistenceService implements IFilePersistenceService {
 
 	@Override
 	public IGraph read(InputStream in) throws IOException {
-		InputStreamReader reader = new InputStreamReader(in);
-		XStream xStream = new XStream(new DomDriver("UTF-8"));
-		xStream = getConfiguredXStream(xStream);
-		Object fromXML = xStream.fromXML(reader);
+		Reader reader = new BufferedReader(new InputStreamReader(in, StandardCharsets.UTF_8));
+		IGraph graph = read(reader);
+		reader.close();
+		return graph;
+	}
+
+	/**
+	 * Reads a graph from XML characters, leaving the reader open
+	 */
+	IGraph read(Reader reader) {
+		Object fromXML = getConfiguredXStream().fromXML(reader);
 		IGraph graph = (IGraph) fromXML;
 		Collection<INode> allNodes = graph.getAllNodes();
+		UniqueIDGenerator.ensureGreaterThan(graph.getId());
 		for (INode aNode : allNodes) {
 			aNode.setGraph(graph);
+			UniqueIDGenerator.ensureGreaterThan(aNode.getId().getValue());
+		}
+		for (IEdge anEdge : graph.getAllEdges()) {
+			UniqueIDGenerator.ensureGreaterThan(anEdge.getId().getValue());
 		}
-		reader.close();
 		return graph;
 	}
 
 	@Override
 	public void write(IGraph graph, OutputStream out) {
 		try {
-			OutputStreamWriter writer = new OutputStreamWriter(out);
-			XStream xStream = new XStream(new DomDriver("UTF-8"));
-			xStream = getConfiguredXStream(xStream);
-			xStream.toXML(graph, writer);
+			Writer writer = new BufferedWriter(new OutputStreamWriter(out, StandardCharsets.UTF_8));
+			write(graph, writer);
 			writer.close();
 		} catch (IOException e) {
 			throw new RuntimeException(e);
 		}
 	}
-	
-	private XStream getConfiguredXStream(XStream xStream) {
-		xStream.autodetectAnnotations(true);
+
+	/**
+	 * Writes a graph as XML characters, leaving the writer open
+	 */
+	void write(IGraph graph, Writer writer) {
+		getConfiguredXStream().toXML(graph, writer);
+	}
+
+	/**
+	 * Writes a single diagram element or property value as XML
+	 */
+	String toXML(Object object) {
+		return getConfiguredXStream().toXML(object);
+	}
+
+	/**
+	 * Reads back an object written by {@link #toXML(Object)}
+	 */
+	Object fromXML(String xml) {
+		return getConfiguredXStream().fromXML(xml);
+	}
+
+	/**
+	 * @return the shared XStream instance, configured for the diagram plugins registered so far
+	 */
+	private XStream getConfiguredXStream() {
+		List<Class<? extends IGraph>> graphClasses = new ArrayList<Class<? extends IGraph>>();
+		for (IDiagramPlugin aPlugin : this.pluginRegistry.getDiagramPlugins()) {
+			graphClasses.add(aPlugin.getGraphClass());
+		}
+		synchronized (XStreamBasedPersistenceService.class) {
+			if (configuredXStream == null || !graphClasses.equals(configuredGraphClasses)) {
+				configuredXStream = createConfiguredXStream(graphClasses);
+				configuredGraphClasses = graphClasses;
+			}
+			return configuredXStream;
+		}
+	}
+
+	private static XStream createConfiguredXStream(List<Class<? extends IGraph>> graphClasses) {
+		XStream xStream = new XStream(new MXParserDriver());
 		xStream.setMode(XStream.ID_REFERENCES);
 		xStream.addPermission(AnyTypePermission.ANY);
 		xStream.alias("Point", Point2D.Double.class);
@@ -78,10 +144,11 @@ public class XStreamBasedPersistenceService implements IFilePersistenceService {
 		xStream.addImmutableType(ArrowHead.class);
         xStream.addImmutableType(LineStyle.class);
         xStream.addImmutableType(BentStyle.class);
-		List<IDiagramPlugin> diagramPlugins = this.pluginRegistry.getDiagramPlugins();
-		for (IDiagramPlugin aPlugin : diagramPlugins) {
-			Class<? extends IGraph> graphClass = aPlugin.getGraphClass();
+		// Also processes the classes of their fields, such as ids and multiline strings
+		xStream.processAnnotations(new Class<?>[] { Id.class, MultiLineString.class, ArrowHead.class, LineStyle.class, BentStyle.class });
+		for (Class<? extends IGraph> graphClass : graphClasses) {
 			xStream.alias(graphClass.getSimpleName(), graphClass);
+			xStream.processAnnotations(graphClass);
 			try {
 				IGraph aDummyGraph = graphClass.getDeclaredConstructor().newInstance();
 				List<IEdge> edgePrototypes = aDummyGraph.getEdgePrototypes();
@@ -89,10 +156,12 @@ public class XStreamBasedPersistenceService implements IFilePersistenceService {
 				for (IEdge anEdgePrototype : edgePrototypes) {
 					Class<? extends IEdge> edgeClass = anEdgePrototype.getClass();
 					xStream.alias(edgeClass.getSimpleName(), anEdgePrototype.getClass());
+					xStream.processAnnotations(edgeClass);
 				}
 				for (INode aNodePrototype : nodePrototypes) {
 					Class<? extends INode> nodeClass = aNodePrototype.getClass();
 					xStream.alias(nodeClass.getSimpleName(), aNodePrototype.getClass());
+					xStream.processAnnotations(nodeClass);
 				}
 			} catch (Exception e) {
 				throw new RuntimeException(e);
@@ -101,4 +170,9 @@ public class XStreamBasedPersistenceService implements IFilePersistenceService {
 		return xStream;
 	}
 
+	/** XStream shared by all services, with the graph classes it was configured for */
+	private static XStream configuredXStream;
+
+	private static List<Class<? extends IGraph>> configuredGraphClasses;
+
 }
@@ -0,0 +1,234 @@
+/*
+ Violet - A program for editing UML diagrams.
+
+ Copyright (C) 2007 Cay S. Horstmann (http://horstmann.com)
+ Alexandre de Pellegrin (http://alexdp.free.fr);
+
+ This program is free software; you can redistribute it and/or modify
+ it under the terms of the GNU General Public License as published by
+ the Free Software Foundation; either version 2 of the License, or
+ (at your option) any later version.
+
+ This program is distributed in the hope that it will be useful,
+ but WITHOUT ANY WARRANTY; without even the implied warranty of
+ MERCHANTABILITY or FITNESS FOR A PARTICULAR PURPOSE.  See the
+ GNU General Public License for more details.
+
+ You should have received a copy of the GNU General Public License
+ along with this program; if not, write to the Free Software
+ Foundation, Inc., 59 Temple Place, Suite 330, Boston, MA  02111-1307  USA
+ */
+
+package com.horstmann.violet.framework.util;
+
+import java.awt.Font;
+import java.awt.Graphics2D;
+import java.awt.font.FontRenderContext;
+import java.awt.font.LineMetrics;
+import java.util.Map;
+import java.util.concurrent.ConcurrentHashMap;
+
+/**
+ * Process wide cache of the size and line layout of diagram texts.<br/>
+ * <br/>
+ * Texts are measured with the default font render context (no transform, no antialiasing, integer metrics), which gives the same
+ * sizes as the font metrics of an AWT component but needs neither a component nor an image. Layouts are immutable and the cache
+ * is concurrent, so texts can be measured from export threads as well as from the event dispatch thread.
+ */
+public class TextLayoutCache
+{
+    /**
+     * Measured multiline text
+     */
+    public static class Layout
+    {
+        private Layout(String text, Font font, int justification)
+        {
+            this.font = font;
+            this.justification = justification;
+            this.lines = text.split("\n");
+            this.lineWidths = new int[this.lines.length];
+            int maxWidth = 0;
+            for (int i = 0; i < this.lines.length; i++)
+            {
+                // Rounded as FontMetrics.stringWidth()
+                this.lineWidths[i] = (int) (0.5 + font.getStringBounds(this.lines[i], RENDER_CONTEXT).getWidth());
+                maxWidth = Math.max(maxWidth, this.lineWidths[i]);
+            }
+            this.width = maxWidth;
+            // Rounded as FontMetrics.getAscent() and getHeight()
+            LineMetrics metrics = font.getLineMetrics(text, RENDER_CONTEXT);
+            this.ascent = (int) (ROUNDING_UP + metrics.getAscent());
+            this.lineHeight = this.ascent + (int) (ROUNDING_UP + metrics.getDescent() + metrics.getLeading());
+        }
+
+        /**
+         * @return width of the widest line
+         */
+        public int getWidth()
+        {
+            return this.width;
+        }
+
+        /**
+         * @return height of all lines
+         */
+        public int getHeight()
+        {
+            return this.lines.length * this.lineHeight;
+        }
+
+        /**
+         * @return height of one line, ascent included
+         */
+        public int getLineHeight()
+        {
+            return this.lineHeight;
+        }
+
+        /**
+         * @return distance from the top of a line to its baseline
+         */
+        public int getAscent()
+        {
+            return this.ascent;
+        }
+
+        /**
+         * Draws the lines centered vertically in a box, with the color of g2
+         * 
+         * @param g2 the graphics context
+         * @param x left of the box
+         * @param y top of the box
+         * @param boxWidth width of the box
+         * @param boxHeight height of the box
+         * @param margin space kept on the left and on the right of justified lines
+         */
+        public void draw(Graphics2D g2, int x, int y, int boxWidth, int boxHeight, int margin)
+        {
+            Font oldFont = g2.getFont();
+            g2.setFont(this.font);
+            int baseline = y + this.ascent + (boxHeight - getHeight()) / 2;
+            for (int i = 0; i < this.lines.length; i++, baseline += this.lineHeight)
+            {
+                g2.drawString(this.lines[i], x + getLineX(i, boxWidth, margin), baseline);
+            }
+            g2.setFont(oldFont);
+        }
+
+        /**
+         * Draws each line as a bar where {@link #draw(Graphics2D, int, int, int, int, int)} would draw its glyphs, for texts too
+         * small to be read
+         * 
+         * @param g2 the graphics context
+         * @param x left of the box
+         * @param y top of the box
+         * @param boxWidth width of the box
+         * @param boxHeight height of the box
+         * @param margin space kept on the left and on the right of justified lines
+         */
+        public void drawGreeked(Graphics2D g2, int x, int y, int boxWidth, int boxHeight, int margin)
+        {
+            int barHeight = Math.max(1, this.ascent / 2);
+            int baseline = y + this.ascent + (boxHeight - getHeight()) / 2;
+            for (int i = 0; i < this.lines.length; i++, baseline += this.lineHeight)
+            {
+                g2.fillRect(x + getLineX(i, boxWidth, margin), baseline - barHeight, this.lineWidths[i], barHeight);
+            }
+        }
+
+        private int getLineX(int line, int boxWidth, int margin)
+        {
+            switch (this.justification)
+            {
+            case LEFT:
+                return margin;
+            case RIGHT:
+                return boxWidth - margin - this.lineWidths[line];
+            case CENTER:
+            default:
+                return (boxWidth - this.lineWidths[line]) / 2;
+            }
+        }
+
+        private final Font font;
+        private final int justification;
+        private final String[] lines;
+        private final int[] lineWidths;
+        private final int width;
+        private final int ascent;
+        private final int lineHeight;
+    }
+
+    /**
+     * Gets the layout of a text, measuring it if needed
+     * 
+     * @param text lines separated by '\n'
+     * @param font the font the text is drawn with
+     * @param justification one of LEFT, CENTER, RIGHT
+     * @return the shared layout
+     */
+    public static Layout getLayout(String text, Font font, int justification)
+    {
+        Key key = new Key(text, font, justification);
+        Layout layout = CACHE.get(key);
+        if (layout != null)
+        {
+            return layout;
+        }
+        if (CACHE.size() >= MAX_SIZE)
+        {
+            // Texts being edited leave many unused entries
+            CACHE.clear();
+        }
+        layout = new Layout(text, font, justification);
+        CACHE.putIfAbsent(key, layout);
+        return layout;
+    }
+
+    private static class Key
+    {
+        Key(String text, Font font, int justification)
+        {
+            this.text = text;
+            this.font = font;
+            this.justification = justification;
+        }
+
+        @Override
+        public boolean equals(Object obj)
+        {
+            if (!(obj instanceof Key))
+            {
+                return false;
+            }
+            Key other = (Key) obj;
+            return this.justification == other.justification && this.text.equals(other.text) && this.font.equals(other.font);
+        }
+
+        @Override
+        public int hashCode()
+        {
+            return (this.text.hashCode() * 31 + this.font.hashCode()) * 31 + this.justification;
+        }
+
+        private final String text;
+        private final Font font;
+        private final int justification;
+    }
+
+    public static final int LEFT = 0;
+    public static final int CENTER = 1;
+    public static final int RIGHT = 2;
+
+    /** Render context of the font metrics of components */
+    private static final FontRenderContext RENDER_CONTEXT = new FontRenderContext(null, false, false);
+
+    /** FontMetrics round float metrics up from this fraction */
+    private static final float ROUNDING_UP = 0.95f;
+
+    private static final int MAX_SIZE = 10000;
+
+    private static final Map<Key, Layout> CACHE = new ConcurrentHashMap<Key, Layout>();
+
+}
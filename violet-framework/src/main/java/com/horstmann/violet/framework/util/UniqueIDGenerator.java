@@ -1,19 +1,50 @@
 package com.horstmann.violet.framework.util;
 
-import java.util.Random;
-import java.util.UUID;
+import java.util.concurrent.atomic.AtomicLong;
 
+/**
+ * Allocates the ids of diagram elements and of exported AnyLogic elements.<br/>
+ * <br/>
+ * Ids are numbers taken from a single atomic counter, so they never collide and always increase, even when several diagrams are
+ * edited or exported at the same time. The counter starts at the current time in milliseconds, which gives the 13 digit ids
+ * AnyLogic uses and keeps ids of successive sessions apart. Diagrams read from disk push it past their own ids with
+ * {@link #ensureGreaterThan(String)}.
+ */
 public class UniqueIDGenerator
 {
-    public static synchronized String getNewId() {
-        int leftLimit = 48;
-        int rightLimit = 57;
-        int targetStringLength = 4;
-        Random random = new Random();
+    /**
+     * @return a new id, greater than all ids returned or reserved before
+     */
+    public static String getNewId()
+    {
+        return Long.toString(COUNTER.getAndIncrement());
+    }
 
-        return random.ints(leftLimit, rightLimit + 1)
-                .limit(targetStringLength)
-                .collect(StringBuilder::new, StringBuilder::appendCodePoint, StringBuilder::append)
-                .toString();
+    /**
+     * Makes sure that next ids are greater than an existing one
+     *
+     * @param id an id read from a file. Ignored if it is not a number.
+     */
+    public static void ensureGreaterThan(String id)
+    {
+        if (id == null || id.isEmpty() || id.length() > 18)
+        {
+            return;
+        }
+        for (int i = 0; i < id.length(); i++)
+        {
+            if (id.charAt(i) < '0' || id.charAt(i) > '9')
+            {
+                return;
+            }
+        }
+        final long value = Long.parseLong(id);
+        if (COUNTER.get() > value)
+        {
+            return;
+        }
+        COUNTER.accumulateAndGet(value + 1, Math::max);
     }
-}
\ No newline at end of file
+
+    private static final AtomicLong COUNTER = new AtomicLong(System.currentTimeMillis());
+}
@@ -21,17 +21,31 @@
 
 package com.horstmann.violet.product.diagram.abstracts;
 
+import java.awt.Font;
 import java.awt.Graphics2D;
+import java.awt.Paint;
 import java.awt.RenderingHints;
+import java.awt.Stroke;
+import java.awt.geom.AffineTransform;
 import java.awt.geom.Point2D;
 import java.awt.geom.Rectangle2D;
 import java.io.Serializable;
 import java.util.ArrayList;
 import java.util.Collection;
 import java.util.Collections;
+import java.util.Comparator;
+import java.util.HashMap;
+import java.util.IdentityHashMap;
 import java.util.List;
+import java.util.Map;
+import java.util.Set;
+import java.util.SortedMap;
+import java.util.TreeMap;
+import java.util.function.Predicate;
 
+import com.horstmann.violet.product.diagram.abstracts.edge.EdgeTransitionPoint;
 import com.horstmann.violet.product.diagram.abstracts.edge.IEdge;
+import com.horstmann.violet.product.diagram.abstracts.edge.ITransitionPoint;
 import com.horstmann.violet.product.diagram.abstracts.node.AbstractNode;
 import com.horstmann.violet.product.diagram.abstracts.node.INode;
 import com.horstmann.violet.product.diagram.abstracts.node.RectangularNode;
@@ -54,48 +68,44 @@ public abstract class AbstractGraph implements Serializable, Cloneable, IGraph
     @Override
     public INode findNode(Point2D p)
     {
-        for (INode n : getAllNodes())
+        INode found = null;
+        for (INode n : getNodeIndex().get(p))
         {
-            Point2D locationOnGraph = n.getLocationOnGraph();
-            Rectangle2D bounds = n.getBounds();
-            Rectangle2D boundsToCheck = new Rectangle2D.Double(locationOnGraph.getX(), locationOnGraph.getY(), bounds.getWidth(),
-                    bounds.getHeight());
-            if (boundsToCheck.contains(p))
+            if (isOnNode(n, p) && (found == null || isBefore(n, found)))
             {
-                return n;
+                found = n;
             }
         }
-        return null;
+        return found;
     }
 
     @Override
     public INode findNode(Id id)
     {
-        for (INode n : getAllNodes())
-        {
-            if (n.getId().equals(id)) return n;
-        }
-        return null;
+        ensureRegistry();
+        return this.nodesById.get(id);
     }
 
     @Override
     public IEdge findEdge(Point2D p)
     {
-        for (IEdge e : edges)
+        SpatialIndex<IEdge> index = getEdgeIndex();
+        IEdge found = null;
+        for (IEdge e : index.get(p))
         {
-            if (e.contains(p)) return e;
+            if ((found == null || index.getOrder(e) < index.getOrder(found)) && e.contains(p))
+            {
+                found = e;
+            }
         }
-        return null;
+        return found;
     }
 
     @Override
     public IEdge findEdge(Id id)
     {
-        for (IEdge e : edges)
-        {
-            if (e.getId().equals(id)) return e;
-        }
-        return null;
+        ensureRegistry();
+        return this.edgesById.get(id);
     }
     
     
@@ -104,39 +114,64 @@ public abstract class AbstractGraph implements Serializable, Cloneable, IGraph
     @Override
     public void draw(Graphics2D g2)
     {
-        g2.setRenderingHint(RenderingHints.KEY_TEXT_ANTIALIASING, RenderingHints.VALUE_TEXT_ANTIALIAS_ON);
-        g2.setRenderingHint(RenderingHints.KEY_ANTIALIASING, RenderingHints.VALUE_ANTIALIAS_ON);
+        draw(g2, ALL_ELEMENTS);
+    }
 
-        List<INode> specialNodes = new ArrayList<INode>();
+    @Override
+    public void draw(Graphics2D g2, Predicate<ISelectable> filter)
+    {
+        // Antialiasing costs more than it shows once texts are greeked
+        boolean antialiasing = LevelOfDetail.isAntialiasingUseful(g2);
+        g2.setRenderingHint(RenderingHints.KEY_TEXT_ANTIALIASING, antialiasing ? RenderingHints.VALUE_TEXT_ANTIALIAS_ON
+                : RenderingHints.VALUE_TEXT_ANTIALIAS_OFF);
+        g2.setRenderingHint(RenderingHints.KEY_ANTIALIASING, antialiasing ? RenderingHints.VALUE_ANTIALIAS_ON
+                : RenderingHints.VALUE_ANTIALIAS_OFF);
+
+        List<INode> nodesToDraw = getDrawOrder();
+        List<IEdge> edgesToDraw = this.edges;
+        Rectangle2D clip = g2.getClipBounds();
+        if (clip != null)
+        {
+            // Only what may touch the clip is drawn, so repaint cost follows what is on screen
+            Rectangle2D area = new Rectangle2D.Double(clip.getX() - DRAW_MARGIN, clip.getY() - DRAW_MARGIN, clip.getWidth() + 2
+                    * DRAW_MARGIN, clip.getHeight() + 2 * DRAW_MARGIN);
+            nodesToDraw = getNodesToDraw(area);
+            edgesToDraw = getEdgesToDraw(area);
+        }
+
+        // Some elements leave their color or stroke on g2, and translating back and forth is not exact. Each one is drawn from
+        // the same state so that its look does not depend on the elements culled before it.
+        AffineTransform transform = g2.getTransform();
+        Paint paint = g2.getPaint();
+        Stroke stroke = g2.getStroke();
+        Font font = g2.getFont();
 
-        int count = 0;
-        int z = 0;
-        Collection<INode> nodes = getAllNodes();
-        while (count < nodes.size())
+        List<INode> specialNodes = new ArrayList<INode>();
+        for (INode n : nodesToDraw)
         {
-            for (INode n : nodes)
+            if (!filter.test(n))
             {
-
-                if (n.getZ() == z)
-                {
-                    if (n instanceof NoteNode)
-                    {
-                        specialNodes.add(n);
-                    }
-                    else
-                    {
-                        n.draw(g2);
-                    }
-                    count++;
-                }
+                continue;
+            }
+            if (n instanceof NoteNode)
+            {
+                specialNodes.add(n);
+            }
+            else
+            {
+                n.draw(g2);
+                restore(g2, transform, paint, stroke, font);
             }
-            z++;
         }
 
-        for (int i = 0; i < edges.size(); i++)
+        for (IEdge e : edgesToDraw)
         {
-            IEdge e = (IEdge) edges.get(i);
+            if (!filter.test(e))
+            {
+                continue;
+            }
             e.draw(g2);
+            restore(g2, transform, paint, stroke, font);
         }
         // Special nodes are always drawn upon other elements
         for (INode n : specialNodes)
@@ -149,11 +184,111 @@ public abstract class AbstractGraph implements Serializable, Cloneable, IGraph
             g2.translate(g2Location.getX(), g2Location.getY());
             n.draw(g2);
             // Restore g2 original location
-            g2.translate(-g2Location.getX(), -g2Location.getY());
+            restore(g2, transform, paint, stroke, font);
         }
 
     }
 
+    private static void restore(Graphics2D g2, AffineTransform transform, Paint paint, Stroke stroke, Font font)
+    {
+        g2.setTransform(transform);
+        g2.setPaint(paint);
+        g2.setStroke(stroke);
+        g2.setFont(font);
+    }
+
+    /**
+     * @return all nodes sorted by z, nodes of the same z level keeping the order of {@link #getAllNodes()}. Rebuilt only when the
+     *         node tree changes.
+     */
+    private List<INode> getDrawOrder()
+    {
+        if (this.drawOrder == null || this.drawOrderModificationCount != this.modificationCount)
+        {
+            // Bucketed by z in a single pass, whatever the z levels in use (notes are on level 10000)
+            SortedMap<Integer, List<INode>> buckets = new TreeMap<Integer, List<INode>>();
+            for (INode aNode : getAllNodes())
+            {
+                Integer z = Integer.valueOf(aNode.getZ());
+                List<INode> bucket = buckets.get(z);
+                if (bucket == null)
+                {
+                    bucket = new ArrayList<INode>();
+                    buckets.put(z, bucket);
+                }
+                bucket.add(aNode);
+            }
+            List<INode> drawOrder = new ArrayList<INode>();
+            for (List<INode> aBucket : buckets.values())
+            {
+                drawOrder.addAll(aBucket);
+            }
+            Map<INode, Integer> drawRanks = new IdentityHashMap<INode, Integer>();
+            for (int i = 0; i < drawOrder.size(); i++)
+            {
+                drawRanks.put(drawOrder.get(i), Integer.valueOf(i));
+            }
+            this.drawOrder = Collections.unmodifiableList(drawOrder);
+            this.drawRanks = drawRanks;
+            this.drawOrderModificationCount = this.modificationCount;
+        }
+        return this.drawOrder;
+    }
+
+    /**
+     * @param area a rectangle on graph
+     * @return nodes which may be visible in this area, in draw order
+     */
+    private List<INode> getNodesToDraw(Rectangle2D area)
+    {
+        List<INode> drawOrder = getDrawOrder();
+        List<INode> visibleNodes = getNodeIndex().get(area);
+        if (visibleNodes.size() == drawOrder.size())
+        {
+            return drawOrder;
+        }
+        final Map<INode, Integer> ranks = this.drawRanks;
+        Collections.sort(visibleNodes, new Comparator<INode>()
+        {
+            @Override
+            public int compare(INode n1, INode n2)
+            {
+                return Integer.compare(getRank(n1), getRank(n2));
+            }
+
+            private int getRank(INode n)
+            {
+                Integer rank = ranks.get(n);
+                return rank == null ? Integer.MAX_VALUE : rank.intValue();
+            }
+        });
+        return visibleNodes;
+    }
+
+    /**
+     * @param area a rectangle on graph
+     * @return edges which may be visible in this area, in draw order
+     */
+    private List<IEdge> getEdgesToDraw(Rectangle2D area)
+    {
+        final SpatialIndex<IEdge> index = getEdgeIndex();
+        List<IEdge> visibleEdges = index.get(area);
+        if (visibleEdges.size() == this.edges.size())
+        {
+            return this.edges;
+        }
+        // Edges are registered in the order of the edge list
+        Collections.sort(visibleEdges, new Comparator<IEdge>()
+        {
+            @Override
+            public int compare(IEdge e1, IEdge e2)
+            {
+                return Long.compare(index.getOrder(e1), index.getOrder(e2));
+            }
+        });
+        return visibleEdges;
+    }
+
     /*
      * (non-Javadoc)
      * 
@@ -191,20 +326,139 @@ public abstract class AbstractGraph implements Serializable, Cloneable, IGraph
     @Override
     public Collection<INode> getAllNodes()
     {
-        List<INode> fifo = new ArrayList<INode>();
-        List<INode> allNodes = new ArrayList<INode>();
-        fifo.addAll(nodes);
-        allNodes.addAll(nodes);
-        while (!fifo.isEmpty())
+        // The view is shared by all callers until the node tree changes, so it is never modified once built
+        if (this.allNodes == null || this.allNodesModificationCount != this.modificationCount)
         {
-            INode nodeToInspect = fifo.remove(0);
-            List<INode> children = nodeToInspect.getChildren();
-            fifo.addAll(children);
-            allNodes.addAll(children);
+            // Breadth-first walk, the list itself being the queue
+            List<INode> allNodes = new ArrayList<INode>(nodes);
+            for (int i = 0; i < allNodes.size(); i++)
+            {
+                allNodes.addAll(allNodes.get(i).getChildren());
+            }
+            // Let's have children first
+            Collections.reverse(allNodes);
+            this.allNodes = Collections.unmodifiableCollection(allNodes);
+            this.allNodesModificationCount = this.modificationCount;
         }
-        // Let's have children first
-        Collections.reverse(allNodes);
-        return Collections.unmodifiableCollection(allNodes);
+        return this.allNodes;
+    }
+
+    /**
+     * Records a change of the node tree : a node added to or removed from the graph or from a parent node, or a node moved to
+     * another z level. Nodes call it from addChild, removeChild and setZ.
+     */
+    public void incrementModificationCount()
+    {
+        this.modificationCount++;
+        this.geometryRevision++;
+    }
+
+    /**
+     * @return a number which changes each time the node tree or the z order changes
+     */
+    public int getModificationCount()
+    {
+        return this.modificationCount;
+    }
+
+    /**
+     * @return a number which changes each time an element may have moved or changed size : on changes of the node tree, on
+     *         connections and disconnections and on {@link #invalidate(ISelectable)}. Edges keep their paths while it is
+     *         unchanged.
+     */
+    public int getGeometryRevision()
+    {
+        return this.geometryRevision;
+    }
+
+    /**
+     * @return a number which changes each time the drawing of the graph may have changed : on {@link #incrementRevision()} and
+     *         whenever the geometry revision changes
+     */
+    public int getRevision()
+    {
+        return this.revision + this.geometryRevision;
+    }
+
+    /**
+     * Records a change which may not move anything, such as a new text or color. Like nodes and edges, the graph gets a new
+     * revision after each edit.
+     */
+    public void incrementRevision()
+    {
+        this.revision++;
+    }
+
+    /**
+     * Copies the graph so that another thread can write or draw it while this one is edited. Nodes and edges are cloned as when
+     * they are pasted, which is much faster than serializing them, but they keep their ids and their connections.
+     *
+     * @return an independent copy of the graph
+     */
+    public AbstractGraph copy()
+    {
+        AbstractGraph copy;
+        try
+        {
+            copy = getClass().getDeclaredConstructor().newInstance();
+        }
+        catch (ReflectiveOperationException e)
+        {
+            throw new RuntimeException(e);
+        }
+        copy.id = this.id;
+        copy.timeStamp = this.timeStamp;
+        Map<INode, INode> nodeCopies = new IdentityHashMap<INode, INode>();
+        for (INode aNode : this.nodes)
+        {
+            INode nodeCopy = aNode.clone();
+            mapCopies(aNode, nodeCopy, nodeCopies);
+            nodeCopy.setGraph(copy);
+            copy.nodes.add(nodeCopy);
+        }
+        for (IEdge anEdge : this.edges)
+        {
+            IEdge edgeCopy = anEdge.clone();
+            Id id = new Id();
+            id.setValue(anEdge.getId().getValue());
+            edgeCopy.setId(id);
+            edgeCopy.setStart(nodeCopies.get(anEdge.getStart()));
+            edgeCopy.setEnd(nodeCopies.get(anEdge.getEnd()));
+            edgeCopy.setStartLocation(copyPoint(anEdge.getStartLocation()));
+            edgeCopy.setEndLocation(copyPoint(anEdge.getEndLocation()));
+            ITransitionPoint[] transitionPoints = anEdge.getTransitionPoints();
+            // Empty arrays are shared by the clone
+            if (transitionPoints != null && transitionPoints.length > 0)
+            {
+                ITransitionPoint[] transitionPointCopies = new ITransitionPoint[transitionPoints.length];
+                for (int i = 0; i < transitionPoints.length; i++)
+                {
+                    transitionPointCopies[i] = EdgeTransitionPoint.fromPoint2D(transitionPoints[i].toPoint2D());
+                }
+                edgeCopy.setTransitionPoints(transitionPointCopies);
+            }
+            copy.edges.add(edgeCopy);
+        }
+        return copy;
+    }
+
+    /**
+     * Pairs a node with its clone, children included, which are cloned in the same order
+     */
+    private static void mapCopies(INode node, INode nodeCopy, Map<INode, INode> nodeCopies)
+    {
+        nodeCopies.put(node, nodeCopy);
+        List<INode> children = node.getChildren();
+        List<INode> childCopies = nodeCopy.getChildren();
+        for (int i = 0; i < children.size(); i++)
+        {
+            mapCopies(children.get(i), childCopies.get(i), nodeCopies);
+        }
+    }
+
+    private static Point2D copyPoint(Point2D point)
+    {
+        return point != null ? (Point2D) point.clone() : null;
     }
 
     @Override
@@ -213,6 +467,18 @@ public abstract class AbstractGraph implements Serializable, Cloneable, IGraph
         return Collections.unmodifiableCollection(edges);
     }
 
+    @Override
+    public Collection<IEdge> getConnectedEdges(INode node)
+    {
+        ensureRegistry();
+        List<IEdge> connected = this.edgesByNode.get(node);
+        if (connected == null)
+        {
+            return Collections.emptyList();
+        }
+        return Collections.unmodifiableCollection(connected);
+    }
+
     @Override
     public boolean addNode(INode newNode, Point2D p)
     {
@@ -223,6 +489,7 @@ public abstract class AbstractGraph implements Serializable, Cloneable, IGraph
         {
             newNode.setLocation(p);
             nodes.add(newNode);
+            attachNode(newNode);
             return true;
         }
         // Case 2 : attached to an existing node
@@ -232,50 +499,43 @@ public abstract class AbstractGraph implements Serializable, Cloneable, IGraph
             Point2D parentLocationOnGraph = potentialParentNode.getLocationOnGraph();
             Point2D relativeLocation = new Point2D.Double(p.getX() - parentLocationOnGraph.getX(), p.getY()
                     - parentLocationOnGraph.getY());
-            return potentialParentNode.addChild(newNode, relativeLocation);
+            boolean isAdded = potentialParentNode.addChild(newNode, relativeLocation);
+            if (isAdded)
+            {
+                attachNode(newNode);
+            }
+            return isAdded;
         }
         // Case 3 : attached directly to the graph
         newNode.setLocation(p);
         newNode.setParent(null);
         nodes.add(newNode);
+        attachNode(newNode);
         return true;
     }
 
     @Override
     public void removeNode(INode... nodesToRemove)
     {
-        // Step 1a : Remove nodes directly attach to the graph
+        ensureRegistry();
+        // Step 1 : Detach nodes from the graph or from their parent
+        Set<INode> detachedNodes = Collections.newSetFromMap(new IdentityHashMap<INode, Boolean>());
         for (INode aNodeToRemove : nodesToRemove)
         {
-            if (this.nodes.contains(aNodeToRemove))
+            detachedNodes.add(aNodeToRemove);
+            INode parent = aNodeToRemove.getParent();
+            if (parent != null)
             {
-                this.nodes.remove(aNodeToRemove);
+                parent.removeChild(aNodeToRemove);
             }
         }
-        // Step 1b : Remove nodes attach to other nodes as children
-        for (INode aNode : getAllNodes())
-        {
-            for (INode aNodeToRemove : nodesToRemove)
-            {
-                List<INode> children = aNode.getChildren();
-                if (children.contains(aNodeToRemove))
-                {
-                    aNode.removeChild(aNodeToRemove);
-                }
-            }
-        }
-        // Step 2 : Disconnect edges
-        List<IEdge> edgesToRemove = new ArrayList<IEdge>();
-        Collection<INode> allNodes = getAllNodes();
-        for (IEdge anEdge : this.edges)
+        this.nodes.removeIf(detachedNodes::contains);
+        incrementModificationCount();
+        // Step 2 : Disconnect edges of the removed nodes and of their children
+        Set<IEdge> edgesToRemove = Collections.newSetFromMap(new IdentityHashMap<IEdge, Boolean>());
+        for (INode aNodeToRemove : nodesToRemove)
         {
-            INode startingNode = anEdge.getStart();
-            INode endingNode = anEdge.getEnd();
-            boolean isEdgeStillConnected = (allNodes.contains(startingNode) && allNodes.contains(endingNode));
-            if (!isEdgeStillConnected)
-            {
-                edgesToRemove.add(anEdge);
-            }
+            detachNode(aNodeToRemove, edgesToRemove);
         }
         IEdge[] edgesToRemoveAsArray = edgesToRemove.toArray(new IEdge[edgesToRemove.size()]);
         removeEdge(edgesToRemoveAsArray);
@@ -285,12 +545,12 @@ public abstract class AbstractGraph implements Serializable, Cloneable, IGraph
     public boolean connect(IEdge e, INode start, Point2D startLocation, INode end, Point2D endLocation)
     {
         // Step 1 : find if nodes exist
-        Collection<INode> allNodes = getAllNodes();
-        if (start != null && !allNodes.contains(start))
+        ensureRegistry();
+        if (start != null && !this.nodeIds.containsKey(start))
         {
             addNode(start, start.getLocation());
         }
-        if (end != null && !allNodes.contains(end))
+        if (end != null && !this.nodeIds.containsKey(end))
         {
             addNode(end, end.getLocation());
         }
@@ -302,6 +562,7 @@ public abstract class AbstractGraph implements Serializable, Cloneable, IGraph
         {
             e.setId(new Id());
             edges.add(e);
+            attachEdge(e);
             return true;
         }
         return false;
@@ -310,14 +571,20 @@ public abstract class AbstractGraph implements Serializable, Cloneable, IGraph
     @Override
     public void removeEdge(IEdge... edgesToRemove)
     {
+        ensureRegistry();
+        Set<IEdge> detachedEdges = Collections.newSetFromMap(new IdentityHashMap<IEdge, Boolean>());
         for (IEdge anEdgeToRemove : edgesToRemove)
         {
             INode startingNode = anEdgeToRemove.getStart();
             INode endingNode = anEdgeToRemove.getEnd();
             startingNode.removeConnection(anEdgeToRemove);
             endingNode.removeConnection(anEdgeToRemove);
-            this.edges.remove(anEdgeToRemove);
+            if (detachedEdges.add(anEdgeToRemove))
+            {
+                detachEdge(anEdgeToRemove);
+            }
         }
+        this.edges.removeIf(detachedEdges::contains);
     }
 
     @Override
@@ -347,6 +614,357 @@ public abstract class AbstractGraph implements Serializable, Cloneable, IGraph
     public void setGridSticker(IGridSticker positionCorrector)
     {
         this.gridSticker = positionCorrector;
+        // Snapping changes the bounds of every node
+        this.nodeIndex = null;
+        this.edgeIndex = null;
+        this.geometryRevision++;
+    }
+
+    @Override
+    public void invalidate(ISelectable element)
+    {
+        this.geometryRevision++;
+        if (element instanceof INode && this.nodeIndex != null && this.nodeIndex.contains((INode) element))
+        {
+            INode node = (INode) element;
+            putNodeTree(node);
+            // Containers may fit their content
+            for (INode parent = node.getParent(); parent != null; parent = parent.getParent())
+            {
+                putNode(parent);
+            }
+        }
+        if (element instanceof IEdge && this.edgeIndex != null && this.edgeIndex.contains((IEdge) element))
+        {
+            this.edgeIndex.put((IEdge) element, getHitBounds((IEdge) element));
+        }
+    }
+
+    /**
+     * @return index of all nodes, built on first use (for example after deserialization)
+     */
+    private SpatialIndex<INode> getNodeIndex()
+    {
+        if (this.nodeIndex == null)
+        {
+            this.nodeIndex = new SpatialIndex<INode>(INDEX_CELL_SIZE);
+            for (INode aNode : this.nodes)
+            {
+                putNodeTree(aNode);
+            }
+        }
+        return this.nodeIndex;
+    }
+
+    /**
+     * @return index of all edges, refreshed for the edges connected to nodes which moved since the last lookup
+     */
+    private SpatialIndex<IEdge> getEdgeIndex()
+    {
+        if (this.edgeIndex == null)
+        {
+            this.edgeIndex = new SpatialIndex<IEdge>(INDEX_CELL_SIZE);
+            for (IEdge anEdge : this.edges)
+            {
+                this.edgeIndex.put(anEdge, getHitBounds(anEdge));
+            }
+            getNodesWithMovedEdges().clear();
+        }
+        Set<INode> movedNodes = getNodesWithMovedEdges();
+        if (!movedNodes.isEmpty())
+        {
+            // Edges are spread on each side of a node according to where their far ends are, so the edges of the
+            // neighbours of a moved node move too
+            Set<INode> nodesToRefresh = Collections.newSetFromMap(new IdentityHashMap<INode, Boolean>());
+            for (INode aNode : movedNodes)
+            {
+                nodesToRefresh.add(aNode);
+                for (IEdge anEdge : getConnectedEdges(aNode))
+                {
+                    nodesToRefresh.add(anEdge.getStart());
+                    nodesToRefresh.add(anEdge.getEnd());
+                }
+            }
+            Set<IEdge> refreshedEdges = Collections.newSetFromMap(new IdentityHashMap<IEdge, Boolean>());
+            for (INode aNode : nodesToRefresh)
+            {
+                for (IEdge anEdge : getConnectedEdges(aNode))
+                {
+                    if (refreshedEdges.add(anEdge))
+                    {
+                        this.edgeIndex.put(anEdge, getHitBounds(anEdge));
+                    }
+                }
+            }
+            movedNodes.clear();
+        }
+        return this.edgeIndex;
+    }
+
+    /**
+     * Builds the id and connectivity tables on first use (for example after deserialization)
+     */
+    private void ensureRegistry()
+    {
+        if (this.nodeIds != null)
+        {
+            return;
+        }
+        this.nodeIds = new IdentityHashMap<INode, Id>();
+        this.nodesById = new HashMap<Id, INode>();
+        this.edgesById = new HashMap<Id, IEdge>();
+        this.edgesByNode = new IdentityHashMap<INode, List<IEdge>>();
+        for (INode aNode : this.nodes)
+        {
+            registerNodeTree(aNode);
+        }
+        for (IEdge anEdge : this.edges)
+        {
+            registerEdge(anEdge);
+        }
+    }
+
+    private void registerNodeTree(INode node)
+    {
+        Id id = node.getId();
+        this.nodeIds.put(node, id);
+        this.nodesById.put(id, node);
+        for (INode aChild : node.getChildren())
+        {
+            registerNodeTree(aChild);
+        }
+    }
+
+    private void registerEdge(IEdge edge)
+    {
+        this.edgesById.put(edge.getId(), edge);
+        addConnectedEdge(edge.getStart(), edge);
+        if (edge.getEnd() != edge.getStart())
+        {
+            addConnectedEdge(edge.getEnd(), edge);
+        }
+    }
+
+    private void addConnectedEdge(INode node, IEdge edge)
+    {
+        List<IEdge> connected = this.edgesByNode.get(node);
+        if (connected == null)
+        {
+            connected = new ArrayList<IEdge>(2);
+            this.edgesByNode.put(node, connected);
+        }
+        connected.add(edge);
+    }
+
+    private void removeConnectedEdge(INode node, IEdge edge)
+    {
+        List<IEdge> connected = this.edgesByNode.get(node);
+        if (connected == null)
+        {
+            return;
+        }
+        for (int i = 0; i < connected.size(); i++)
+        {
+            if (connected.get(i) == edge)
+            {
+                connected.remove(i);
+                break;
+            }
+        }
+        if (connected.isEmpty())
+        {
+            this.edgesByNode.remove(node);
+        }
+    }
+
+    /**
+     * Registers a node newly attached to the graph, with its children
+     */
+    private void attachNode(INode node)
+    {
+        incrementModificationCount();
+        if (this.nodeIds != null)
+        {
+            registerNodeTree(node);
+        }
+        if (this.nodeIndex != null)
+        {
+            // A node re-attached to the graph must be ranked as the last one
+            removeFromNodeIndex(node);
+            putNodeTree(node);
+            invalidate(node.getParent());
+        }
+    }
+
+    /**
+     * Unregisters a node detached from the graph, with its children
+     * 
+     * @param node n
+     * @param connectedEdges collects the edges of the detached nodes
+     */
+    private void detachNode(INode node, Collection<IEdge> connectedEdges)
+    {
+        Id id = this.nodeIds.remove(node);
+        if (id != null && this.nodesById.get(id) == node)
+        {
+            this.nodesById.remove(id);
+        }
+        List<IEdge> connected = this.edgesByNode.get(node);
+        if (connected != null)
+        {
+            connectedEdges.addAll(connected);
+        }
+        if (this.nodeIndex != null)
+        {
+            this.nodeIndex.remove(node);
+        }
+        for (INode aChild : node.getChildren())
+        {
+            detachNode(aChild, connectedEdges);
+        }
+    }
+
+    private void removeFromNodeIndex(INode node)
+    {
+        this.nodeIndex.remove(node);
+        for (INode aChild : node.getChildren())
+        {
+            removeFromNodeIndex(aChild);
+        }
+    }
+
+    /**
+     * Updates the bounds of a node and of its children, which move with it
+     */
+    private void putNodeTree(INode node)
+    {
+        putNode(node);
+        for (INode aChild : node.getChildren())
+        {
+            putNodeTree(aChild);
+        }
+    }
+
+    private void putNode(INode node)
+    {
+        Point2D locationOnGraph = node.getLocationOnGraph();
+        Rectangle2D bounds = node.getBounds();
+        this.nodeIndex.put(node, new Rectangle2D.Double(locationOnGraph.getX(), locationOnGraph.getY(), bounds.getWidth(),
+                bounds.getHeight()));
+        markEdgesMoved(node);
+    }
+
+    private void markEdgesMoved(INode node)
+    {
+        if (this.edgeIndex != null)
+        {
+            getNodesWithMovedEdges().add(node);
+        }
+    }
+
+    /**
+     * @return nodes whose edges must be re-indexed before the next edge lookup
+     */
+    private Set<INode> getNodesWithMovedEdges()
+    {
+        if (this.nodesWithMovedEdges == null)
+        {
+            this.nodesWithMovedEdges = Collections.newSetFromMap(new IdentityHashMap<INode, Boolean>());
+        }
+        return this.nodesWithMovedEdges;
+    }
+
+    private void attachEdge(IEdge edge)
+    {
+        // Edges sharing a side of a node are spread along it
+        this.geometryRevision++;
+        if (this.nodeIds != null)
+        {
+            registerEdge(edge);
+        }
+        if (this.edgeIndex != null)
+        {
+            this.edgeIndex.put(edge, getHitBounds(edge));
+        }
+        // Edges sharing a side with the new one get new connection points
+        markEdgesMoved(edge.getStart());
+        markEdgesMoved(edge.getEnd());
+    }
+
+    private void detachEdge(IEdge edge)
+    {
+        this.geometryRevision++;
+        if (this.edgesById.get(edge.getId()) == edge)
+        {
+            this.edgesById.remove(edge.getId());
+        }
+        removeConnectedEdge(edge.getStart(), edge);
+        removeConnectedEdge(edge.getEnd(), edge);
+        if (this.edgeIndex != null)
+        {
+            this.edgeIndex.remove(edge);
+        }
+        markEdgesMoved(edge.getStart());
+        markEdgesMoved(edge.getEnd());
+    }
+
+    /**
+     * @return bounds of the area in which the edge may contain points
+     */
+    private static Rectangle2D getHitBounds(IEdge edge)
+    {
+        Rectangle2D bounds = edge.getBounds();
+        return new Rectangle2D.Double(bounds.getX() - EDGE_HIT_MARGIN, bounds.getY() - EDGE_HIT_MARGIN, bounds.getWidth() + 2
+                * EDGE_HIT_MARGIN, bounds.getHeight() + 2 * EDGE_HIT_MARGIN);
+    }
+
+    private static boolean isOnNode(INode node, Point2D p)
+    {
+        Point2D locationOnGraph = node.getLocationOnGraph();
+        Rectangle2D bounds = node.getBounds();
+        return locationOnGraph.getX() <= p.getX() && p.getX() < locationOnGraph.getX() + bounds.getWidth()
+                && locationOnGraph.getY() <= p.getY() && p.getY() < locationOnGraph.getY() + bounds.getHeight();
+    }
+
+    /**
+     * Tells if a node comes before another one in {@link #getAllNodes()}, that is to say if it is deeper in the node tree or, at
+     * the same depth, later in breadth-first order
+     */
+    private boolean isBefore(INode node, INode otherNode)
+    {
+        int depth = getDepth(node);
+        int otherDepth = getDepth(otherNode);
+        if (depth != otherDepth)
+        {
+            return depth > otherDepth;
+        }
+        return compareAtSameDepth(node, otherNode) > 0;
+    }
+
+    private int compareAtSameDepth(INode node, INode otherNode)
+    {
+        INode parent = node.getParent();
+        INode otherParent = otherNode.getParent();
+        if (parent == null || otherParent == null)
+        {
+            return Long.compare(this.nodeIndex.getOrder(node), this.nodeIndex.getOrder(otherNode));
+        }
+        if (parent == otherParent)
+        {
+            List<INode> children = parent.getChildren();
+            return Integer.compare(children.indexOf(node), children.indexOf(otherNode));
+        }
+        return compareAtSameDepth(parent, otherParent);
+    }
+
+    private static int getDepth(INode node)
+    {
+        int depth = 0;
+        for (INode parent = node.getParent(); parent != null; parent = parent.getParent())
+        {
+            depth++;
+        }
+        return depth;
     }
 
     public String getId() {
@@ -371,4 +989,29 @@ public abstract class AbstractGraph implements Serializable, Cloneable, IGraph
     private ArrayList<IEdge> edges;
     private transient Rectangle2D minBounds;
     private transient IGridSticker gridSticker;
+    private transient SpatialIndex<INode> nodeIndex;
+    private transient SpatialIndex<IEdge> edgeIndex;
+    private transient Set<INode> nodesWithMovedEdges;
+    private transient int modificationCount;
+    private transient int geometryRevision;
+    private transient int revision;
+    private transient Collection<INode> allNodes;
+    private transient int allNodesModificationCount;
+    private transient List<INode> drawOrder;
+    private transient Map<INode, Integer> drawRanks;
+    private transient int drawOrderModificationCount;
+    private transient Map<INode, Id> nodeIds;
+    private transient Map<Id, INode> nodesById;
+    private transient Map<Id, IEdge> edgesById;
+    private transient Map<INode, List<IEdge>> edgesByNode;
+
+    private static final Predicate<ISelectable> ALL_ELEMENTS = e -> true;
+
+    private static final double INDEX_CELL_SIZE = 128;
+
+    /** Fat stroke half width used by edges to test containment, plus rounding */
+    private static final double EDGE_HIT_MARGIN = 4;
+
+    /** Room left around the clip for strokes, shadows and text slightly overflowing the bounds of elements */
+    private static final double DRAW_MARGIN = 16;
 }
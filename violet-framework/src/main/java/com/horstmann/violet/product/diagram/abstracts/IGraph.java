@@ -5,6 +5,7 @@ import java.awt.geom.Point2D;
 import java.awt.geom.Rectangle2D;
 import java.util.Collection;
 import java.util.List;
+import java.util.function.Predicate;
 
 import com.horstmann.violet.product.diagram.abstracts.edge.IEdge;
 import com.horstmann.violet.product.diagram.abstracts.node.INode;
@@ -44,6 +45,15 @@ public interface IGraph
     public abstract Collection<IEdge> getAllEdges();
 
 
+    /**
+     * Gets the edges starting or ending on a node.
+     * 
+     * @param node a node of this graph
+     * @return an unmodifiable collection of the edges, in the order of {@link #getAllEdges()}
+     */
+    public abstract Collection<IEdge> getConnectedEdges(INode node);
+
+
     /**
      * Removes one or more edges from this graph.
      * 
@@ -118,6 +128,15 @@ public interface IGraph
      */
     public abstract IEdge findEdge(Point2D p);
 
+    /**
+     * Tells the graph that the bounds of one of its elements changed, for example after a property edit, so that
+     * {@link #findNode(Point2D)} and {@link #findEdge(Point2D)} see the new geometry and edges recompute their cached paths.
+     * Moving a node with {@link INode#setLocation(Point2D)} notifies the graph automatically.
+     * 
+     * @param element a node or an edge of this graph
+     */
+    public abstract void invalidate(ISelectable element);
+
     /**
      * Draws the graph
      * 
@@ -125,6 +144,14 @@ public interface IGraph
      */
     public abstract void draw(Graphics2D g2);
 
+    /**
+     * Draws a part of the graph, in the same order as {@link #draw(Graphics2D)}
+     * 
+     * @param g2 the graphics context
+     * @param filter tells which nodes and edges are drawn
+     */
+    public abstract void draw(Graphics2D g2, Predicate<ISelectable> filter);
+
 
     /**
      * Gets the smallest rectangle enclosing the graph
@@ -13,7 +13,7 @@ import com.thoughtworks.xstream.annotations.XStreamAsAttribute;
  * @author Alexandre de Pellegrin
  * 
  */
-public class Id
+public class Id implements Cloneable
 {
 
     /**
@@ -72,9 +72,8 @@ public class Id
     
     @Override
     public Id clone() throws CloneNotSupportedException {
-    	Id clone = new Id();
-    	clone.value = this.value + "";
-    	return clone;
+    	// Copies the value without drawing a new id from the generator
+    	return (Id) super.clone();
     }
 
     /**
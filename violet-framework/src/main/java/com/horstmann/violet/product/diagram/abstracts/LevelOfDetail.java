@@ -0,0 +1,114 @@
+/*
+ Violet - A program for editing UML diagrams.
+
+ Copyright (C) 2007 Cay S. Horstmann (http://horstmann.com)
+ Alexandre de Pellegrin (http://alexdp.free.fr);
+
+ This program is free software; you can redistribute it and/or modify
+ it under the terms of the GNU General Public License as published by
+ the Free Software Foundation; either version 2 of the License, or
+ (at your option) any later version.
+
+ This program is distributed in the hope that it will be useful,
+ but WITHOUT ANY WARRANTY; without even the implied warranty of
+ MERCHANTABILITY or FITNESS FOR A PARTICULAR PURPOSE.  See the
+ GNU General Public License for more details.
+
+ You should have received a copy of the GNU General Public License
+ along with this program; if not, write to the Free Software
+ Foundation, Inc., 59 Temple Place, Suite 330, Boston, MA  02111-1307  USA
+ */
+
+package com.horstmann.violet.product.diagram.abstracts;
+
+import java.awt.Graphics2D;
+import java.awt.geom.AffineTransform;
+
+/**
+ * Level of detail policy of diagram rendering.<br/>
+ * <br/>
+ * Nodes and edges ask it how much to draw according to the scale of the graphics they draw on, which includes the zoom of the
+ * editor. Below the text threshold, texts are greeked (drawn as bars) and antialiasing is turned off. Below the shape threshold,
+ * nodes are drawn as plain rectangles, texts are skipped and edges are drawn without arrow heads and labels. Images exported at
+ * their actual size are always drawn with full detail.
+ */
+public class LevelOfDetail
+{
+    /**
+     * @param g2 the graphics context
+     * @return the number of device pixels for one unit of the diagram
+     */
+    public static double getScale(Graphics2D g2)
+    {
+        AffineTransform transform = g2.getTransform();
+        return Math.sqrt(Math.abs(transform.getDeterminant()));
+    }
+
+    /**
+     * @param g2 the graphics context
+     * @return true if texts are too small to be read and should be drawn as bars
+     */
+    public static boolean isTextGreeked(Graphics2D g2)
+    {
+        return getScale(g2) < textThreshold;
+    }
+
+    /**
+     * @param g2 the graphics context
+     * @return true if shapes should be simplified and small adornments such as texts, arrow heads and labels skipped
+     */
+    public static boolean isSimplified(Graphics2D g2)
+    {
+        return getScale(g2) < shapeThreshold;
+    }
+
+    /**
+     * @param g2 the graphics context
+     * @return true if smoothing edges is worth its cost
+     */
+    public static boolean isAntialiasingUseful(Graphics2D g2)
+    {
+        return !isTextGreeked(g2);
+    }
+
+    /**
+     * @return the scale below which texts are greeked
+     */
+    public static double getTextThreshold()
+    {
+        return textThreshold;
+    }
+
+    /**
+     * @param threshold the scale below which texts are greeked and antialiasing is turned off. 0 disables greeking.
+     */
+    public static void setTextThreshold(double threshold)
+    {
+        textThreshold = threshold;
+    }
+
+    /**
+     * @return the scale below which shapes are simplified
+     */
+    public static double getShapeThreshold()
+    {
+        return shapeThreshold;
+    }
+
+    /**
+     * @param threshold the scale below which shapes are simplified. 0 disables simplification.
+     */
+    public static void setShapeThreshold(double threshold)
+    {
+        shapeThreshold = threshold;
+    }
+
+    /** Default text threshold : 12 points fonts are less than 5 pixels high */
+    public static final double DEFAULT_TEXT_THRESHOLD = 0.4;
+
+    /** Default shape threshold : nodes are a few pixels wide */
+    public static final double DEFAULT_SHAPE_THRESHOLD = 0.2;
+
+    private static volatile double textThreshold = DEFAULT_TEXT_THRESHOLD;
+    private static volatile double shapeThreshold = DEFAULT_SHAPE_THRESHOLD;
+}
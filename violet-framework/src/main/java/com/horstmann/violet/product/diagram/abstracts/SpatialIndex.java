@@ -0,0 +1,329 @@
+/*
+ Violet - A program for editing UML diagrams.
+
+ Copyright (C) 2007 Cay S. Horstmann (http://horstmann.com)
+ Alexandre de Pellegrin (http://alexdp.free.fr);
+
+ This program is free software; you can redistribute it and/or modify
+ it under the terms of the GNU General Public License as published by
+ the Free Software Foundation; either version 2 of the License, or
+ (at your option) any later version.
+
+ This program is distributed in the hope that it will be useful,
+ but WITHOUT ANY WARRANTY; without even the implied warranty of
+ MERCHANTABILITY or FITNESS FOR A PARTICULAR PURPOSE.  See the
+ GNU General Public License for more details.
+
+ You should have received a copy of the GNU General Public License
+ along with this program; if not, write to the Free Software
+ Foundation, Inc., 59 Temple Place, Suite 330, Boston, MA  02111-1307  USA
+ */
+
+package com.horstmann.violet.product.diagram.abstracts;
+
+import java.awt.geom.Point2D;
+import java.awt.geom.Rectangle2D;
+import java.util.ArrayList;
+import java.util.Collections;
+import java.util.HashMap;
+import java.util.IdentityHashMap;
+import java.util.List;
+import java.util.Map;
+import java.util.Set;
+
+/**
+ * Uniform grid over graph coordinates used to hit-test nodes and edges and to find the ones to draw.<br/>
+ * <br/>
+ * Each element is registered in every cell its bounds overlap, so a point lookup only inspects the elements of one cell.
+ * Elements spanning too many cells (long edges, huge containers) are kept in a separate list which is always inspected, though
+ * only against their bounds. The index only narrows the search : callers check the candidates against their current geometry
+ * and use {@link #getOrder(Object)} to break ties.
+ * 
+ * @param <E> indexed element type
+ */
+final class SpatialIndex<E>
+{
+    /**
+     * @param cellSize width and height of a cell
+     */
+    SpatialIndex(double cellSize)
+    {
+        this.cellSize = cellSize;
+    }
+
+    /**
+     * Registers an element or moves it to new bounds. An element keeps its order when it is moved.
+     * 
+     * @param element e
+     * @param bounds bounds on graph, or null if unknown
+     */
+    void put(E element, Rectangle2D bounds)
+    {
+        Entry entry = this.entries.get(element);
+        if (entry == null)
+        {
+            entry = new Entry(this.nextOrder++);
+            this.entries.put(element, entry);
+        }
+        else
+        {
+            unregister(element, entry);
+        }
+        if (bounds == null || bounds.getWidth() < 0 || bounds.getHeight() < 0 || Double.isNaN(bounds.getX())
+                || Double.isNaN(bounds.getY()) || Double.isNaN(bounds.getWidth()) || Double.isNaN(bounds.getHeight()))
+        {
+            // Unknown geometry, always a candidate
+            entry.bounds = null;
+            entry.oversized = true;
+            this.oversized.add(element);
+            return;
+        }
+        entry.bounds = new Rectangle2D.Double(bounds.getX(), bounds.getY(), bounds.getWidth(), bounds.getHeight());
+        entry.minColumn = cell(bounds.getMinX());
+        entry.minRow = cell(bounds.getMinY());
+        entry.maxColumn = cell(bounds.getMaxX());
+        entry.maxRow = cell(bounds.getMaxY());
+        long cellCount = ((long) entry.maxColumn - entry.minColumn + 1) * ((long) entry.maxRow - entry.minRow + 1);
+        entry.oversized = cellCount > MAX_CELLS_PER_ELEMENT;
+        if (entry.oversized)
+        {
+            this.oversized.add(element);
+            return;
+        }
+        for (int column = entry.minColumn; column <= entry.maxColumn; column++)
+        {
+            for (int row = entry.minRow; row <= entry.maxRow; row++)
+            {
+                Long key = key(column, row);
+                List<E> content = this.cells.get(key);
+                if (content == null)
+                {
+                    content = new ArrayList<E>(4);
+                    this.cells.put(key, content);
+                }
+                content.add(element);
+            }
+        }
+    }
+
+    /**
+     * Unregisters an element
+     * 
+     * @param element e
+     */
+    void remove(E element)
+    {
+        Entry entry = this.entries.remove(element);
+        if (entry != null)
+        {
+            unregister(element, entry);
+        }
+    }
+
+    /**
+     * @param element e
+     * @return true if the element is registered
+     */
+    boolean contains(E element)
+    {
+        return this.entries.containsKey(element);
+    }
+
+    /**
+     * @param element a registered element
+     * @return registration rank of the element, or Long.MAX_VALUE if it is not registered
+     */
+    long getOrder(E element)
+    {
+        Entry entry = this.entries.get(element);
+        return entry == null ? Long.MAX_VALUE : entry.order;
+    }
+
+    /**
+     * @param p a point on graph
+     * @return elements whose registered bounds contain this point, in no particular order
+     */
+    List<E> get(Point2D p)
+    {
+        List<E> content = this.cells.get(key(cell(p.getX()), cell(p.getY())));
+        if (content == null && this.oversized.isEmpty())
+        {
+            return Collections.emptyList();
+        }
+        List<E> result = new ArrayList<E>(4);
+        if (content != null)
+        {
+            addCandidates(content, p, result);
+        }
+        addCandidates(this.oversized, p, result);
+        return result;
+    }
+
+    /**
+     * @param area a rectangle on graph
+     * @return elements whose registered bounds intersect this rectangle, in no particular order
+     */
+    List<E> get(Rectangle2D area)
+    {
+        int minColumn = cell(area.getMinX());
+        int minRow = cell(area.getMinY());
+        int maxColumn = cell(area.getMaxX());
+        int maxRow = cell(area.getMaxY());
+        long cellCount = ((long) maxColumn - minColumn + 1) * ((long) maxRow - minRow + 1);
+        List<E> result = new ArrayList<E>();
+        if (cellCount > this.entries.size())
+        {
+            // Large area (zoomed out view, export) : cheaper to test every element than to visit mostly empty cells
+            for (Map.Entry<E, Entry> anEntry : this.entries.entrySet())
+            {
+                if (intersects(anEntry.getValue().bounds, area))
+                {
+                    result.add(anEntry.getKey());
+                }
+            }
+            return result;
+        }
+        // Elements spanning several cells are met once per cell
+        Set<E> visited = Collections.newSetFromMap(new IdentityHashMap<E, Boolean>());
+        for (int column = minColumn; column <= maxColumn; column++)
+        {
+            for (int row = minRow; row <= maxRow; row++)
+            {
+                List<E> content = this.cells.get(key(column, row));
+                if (content == null)
+                {
+                    continue;
+                }
+                for (E anElement : content)
+                {
+                    if (visited.add(anElement) && intersects(this.entries.get(anElement).bounds, area))
+                    {
+                        result.add(anElement);
+                    }
+                }
+            }
+        }
+        for (E anElement : this.oversized)
+        {
+            if (intersects(this.entries.get(anElement).bounds, area))
+            {
+                result.add(anElement);
+            }
+        }
+        return result;
+    }
+
+    /**
+     * @return the number of registered elements
+     */
+    int size()
+    {
+        return this.entries.size();
+    }
+
+    private void addCandidates(List<E> elements, Point2D p, List<E> result)
+    {
+        for (E anElement : elements)
+        {
+            Rectangle2D bounds = this.entries.get(anElement).bounds;
+            // Closed bounds, as some elements contain the points of their right and bottom sides
+            if (bounds == null
+                    || (bounds.getMinX() <= p.getX() && p.getX() <= bounds.getMaxX() && bounds.getMinY() <= p.getY() && p.getY() <= bounds
+                            .getMaxY()))
+            {
+                result.add(anElement);
+            }
+        }
+    }
+
+    private static boolean intersects(Rectangle2D bounds, Rectangle2D area)
+    {
+        return bounds == null
+                || (bounds.getMinX() <= area.getMaxX() && area.getMinX() <= bounds.getMaxX() && bounds.getMinY() <= area.getMaxY() && area
+                        .getMinY() <= bounds.getMaxY());
+    }
+
+    private void unregister(E element, Entry entry)
+    {
+        if (entry.oversized)
+        {
+            removeIdentical(this.oversized, element);
+            return;
+        }
+        for (int column = entry.minColumn; column <= entry.maxColumn; column++)
+        {
+            for (int row = entry.minRow; row <= entry.maxRow; row++)
+            {
+                Long key = key(column, row);
+                List<E> content = this.cells.get(key);
+                if (content != null && removeIdentical(content, element) && content.isEmpty())
+                {
+                    this.cells.remove(key);
+                }
+            }
+        }
+    }
+
+    /**
+     * Removes an element by swapping it with the last one, as order inside a cell does not matter
+     */
+    private static <E> boolean removeIdentical(List<E> list, E element)
+    {
+        for (int i = list.size() - 1; i >= 0; i--)
+        {
+            if (list.get(i) == element)
+            {
+                E last = list.remove(list.size() - 1);
+                if (i < list.size())
+                {
+                    list.set(i, last);
+                }
+                return true;
+            }
+        }
+        return false;
+    }
+
+    private int cell(double coordinate)
+    {
+        // Clamped far from Integer.MAX_VALUE so that loops over cells cannot overflow
+        double cell = Math.floor(coordinate / this.cellSize);
+        return (int) Math.max(-MAX_CELL, Math.min(MAX_CELL, cell));
+    }
+
+    private static Long key(int column, int row)
+    {
+        return Long.valueOf(((long) column << 32) | (row & 0xFFFFFFFFL));
+    }
+
+    /**
+     * Cells covered by a registered element
+     */
+    private static final class Entry
+    {
+        Entry(long order)
+        {
+            this.order = order;
+        }
+
+        private final long order;
+        private Rectangle2D bounds;
+        private boolean oversized;
+        private int minColumn;
+        private int minRow;
+        private int maxColumn;
+        private int maxRow;
+    }
+
+    /** Elements covering more cells are not split across the grid */
+    private static final int MAX_CELLS_PER_ELEMENT = 64;
+
+    private static final int MAX_CELL = 1 << 30;
+
+    private final double cellSize;
+    private final Map<Long, List<E>> cells = new HashMap<Long, List<E>>();
+    private final Map<E, Entry> entries = new IdentityHashMap<E, Entry>();
+    private final List<E> oversized = new ArrayList<E>();
+    private long nextOrder;
+
+}
@@ -28,6 +28,7 @@ import java.util.ArrayList;
 import java.util.Arrays;
 import java.util.List;
 
+import com.horstmann.violet.product.diagram.abstracts.AbstractGraph;
 import com.horstmann.violet.product.diagram.abstracts.Direction;
 import com.horstmann.violet.product.diagram.abstracts.IGraph;
 import com.horstmann.violet.product.diagram.abstracts.IGridSticker;
@@ -49,6 +50,7 @@ public abstract class AbstractEdge implements IEdge
     public void setStart(INode startingNode)
     {
         this.start = startingNode;
+        clearGeometryCache();
     }
 
     @Override
@@ -61,6 +63,7 @@ public abstract class AbstractEdge implements IEdge
     public void setEnd(INode endingNode)
     {
         this.end = endingNode;
+        clearGeometryCache();
     }
 
     @Override
@@ -73,6 +76,7 @@ public abstract class AbstractEdge implements IEdge
     public void setStartLocation(Point2D startLocation)
     {
         this.startLocation = startLocation;
+        clearGeometryCache();
     }
 
     @Override
@@ -100,6 +104,7 @@ public abstract class AbstractEdge implements IEdge
     public final void setEndLocation(Point2D endLocation)
     {
         this.endLocation = endLocation;
+        clearGeometryCache();
     }
 
     @Override
@@ -131,6 +136,7 @@ public abstract class AbstractEdge implements IEdge
             transitionPoints = new ITransitionPoint[] {};
         }
         this.transitionPoints = transitionPoints;
+        invalidateOnGraph();
     }
     
     @Override
@@ -179,6 +185,19 @@ public abstract class AbstractEdge implements IEdge
     @Override
     public void clearTransitionPoints() {
     	this.transitionPoints = new ITransitionPoint[] {};
+    	invalidateOnGraph();
+    }
+
+    /**
+     * Tells the graph that the path of this edge changed
+     */
+    protected void invalidateOnGraph()
+    {
+        clearGeometryCache();
+        if (this.start != null)
+        {
+            this.start.getGraph().invalidate(this);
+        }
     }
 
     @Override
@@ -219,8 +238,52 @@ public abstract class AbstractEdge implements IEdge
         return null;
     }
 
+    /**
+     * Drops the values computed from the geometry of the graph if it changed since they were computed. Nodes moved, resized or
+     * edited and edges reshaped or edited are reported to the graph through {@link IGraph#invalidate(ISelectable)}, and
+     * connections through the structure of the graph, so cached values stay valid as long as the graph reports no change.
+     * Subclasses call this method before reading their caches.
+     */
+    protected final void checkGeometryCache()
+    {
+        IGraph graph = this.start != null && this.end != null ? this.start.getGraph() : null;
+        // Nodes outside of a graph each have their own, so their changes can't be tracked through a single graph
+        if (!(graph instanceof AbstractGraph) || graph != this.end.getGraph())
+        {
+            clearGeometryCache();
+            return;
+        }
+        int revision = ((AbstractGraph) graph).getGeometryRevision();
+        if (graph != this.geometryGraph || revision != this.geometryRevision)
+        {
+            clearGeometryCache();
+            this.geometryGraph = graph;
+            this.geometryRevision = revision;
+        }
+    }
+
+    /**
+     * Drops the values computed from the geometry of the graph. Subclasses caching such values override it and call the super
+     * method.
+     */
+    protected void clearGeometryCache()
+    {
+        this.geometryGraph = null;
+        this.connectionPoints = null;
+    }
+
     @Override
     public Line2D getConnectionPoints()
+    {
+        checkGeometryCache();
+        if (this.connectionPoints == null)
+        {
+            this.connectionPoints = computeConnectionPoints();
+        }
+        return new Line2D.Double(this.connectionPoints.getP1(), this.connectionPoints.getP2());
+    }
+
+    private Line2D computeConnectionPoints()
     {
     	Point2D startLocationOnGraph = start.getLocationOnGraph();
         Point2D endLocationOnGraph = end.getLocationOnGraph();
@@ -269,6 +332,7 @@ public abstract class AbstractEdge implements IEdge
         {
             AbstractEdge cloned = (AbstractEdge) super.clone();
             cloned.id = new Id();
+            cloned.clearGeometryCache();
             return cloned;
         }
         catch (CloneNotSupportedException ex)
@@ -364,4 +428,11 @@ public abstract class AbstractEdge implements IEdge
 
     /** Edge tool tip */
     private transient String toolTip;
+
+    /** Graph whose geometry revision the cached values were computed at */
+    private transient IGraph geometryGraph;
+
+    private transient int geometryRevision;
+
+    private transient Line2D connectionPoints;
 }
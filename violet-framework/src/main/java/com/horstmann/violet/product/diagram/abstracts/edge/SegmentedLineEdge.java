@@ -23,6 +23,7 @@ package com.horstmann.violet.product.diagram.abstracts.edge;
 
 import java.awt.Color;
 import java.awt.Dimension;
+import java.awt.Font;
 import java.awt.Graphics2D;
 import java.awt.Shape;
 import java.awt.Stroke;
@@ -30,13 +31,12 @@ import java.awt.geom.GeneralPath;
 import java.awt.geom.Line2D;
 import java.awt.geom.Point2D;
 import java.awt.geom.Rectangle2D;
-import java.awt.image.BufferedImage;
 import java.util.ArrayList;
 import java.util.List;
 
-import javax.swing.JLabel;
-
+import com.horstmann.violet.framework.util.TextLayoutCache;
 import com.horstmann.violet.product.diagram.abstracts.Direction;
+import com.horstmann.violet.product.diagram.abstracts.LevelOfDetail;
 import com.horstmann.violet.product.diagram.abstracts.node.INode;
 import com.horstmann.violet.product.diagram.abstracts.property.ArrowHead;
 import com.horstmann.violet.product.diagram.abstracts.property.BentStyle;
@@ -89,6 +89,7 @@ public abstract class SegmentedLineEdge extends ShapeEdge
     public void setBentStyle(BentStyle newValue)
     {
         this.bentStyle = newValue;
+        invalidateOnGraph();
     }
 
     /**
@@ -137,6 +138,7 @@ public abstract class SegmentedLineEdge extends ShapeEdge
     public void setStartArrowHead(ArrowHead newValue)
     {
         this.startArrowHead = newValue;
+        invalidateOnGraph();
     }
 
     /**
@@ -161,6 +163,7 @@ public abstract class SegmentedLineEdge extends ShapeEdge
     public void setEndArrowHead(ArrowHead newValue)
     {
         this.endArrowHead = newValue;
+        invalidateOnGraph();
     }
 
     /**
@@ -185,6 +188,7 @@ public abstract class SegmentedLineEdge extends ShapeEdge
     public void setStartLabel(String newValue)
     {
         startLabel = newValue;
+        invalidateOnGraph();
     }
 
     /**
@@ -205,6 +209,7 @@ public abstract class SegmentedLineEdge extends ShapeEdge
     public void setMiddleLabel(String newValue)
     {
         middleLabel = newValue;
+        invalidateOnGraph();
     }
 
     /**
@@ -225,6 +230,7 @@ public abstract class SegmentedLineEdge extends ShapeEdge
     public void setEndLabel(String newValue)
     {
         endLabel = newValue;
+        invalidateOnGraph();
     }
 
     /**
@@ -251,6 +257,11 @@ public abstract class SegmentedLineEdge extends ShapeEdge
         g2.setStroke(getLineStyle().getStroke());
         g2.draw(getSegmentPath());
         g2.setStroke(oldStroke);
+        if (LevelOfDetail.isSimplified(g2))
+        {
+            g2.setColor(oldColor);
+            return;
+        }
         getStartArrowHead().draw(g2, (Point2D) points.get(1), (Point2D) points.get(0));
         getEndArrowHead().draw(g2, (Point2D) points.get(points.size() - 2), (Point2D) points.get(points.size() - 1));
 
@@ -274,15 +285,18 @@ public abstract class SegmentedLineEdge extends ShapeEdge
     private void drawString(Graphics2D g2, Point2D p, Point2D q, ArrowHead arrow, String s, boolean center)
     {
         if (s == null || s.length() == 0) return;
-        label.setText(s);
-        label.setFont(g2.getFont());
-        Dimension d = label.getPreferredSize();
-        label.setBounds(0, 0, d.width, d.height);
-
+        TextLayoutCache.Layout layout = TextLayoutCache.getLayout(s, g2.getFont(), TextLayoutCache.LEFT);
         Rectangle2D b = getStringBounds(p, q, arrow, s, center);
 
         g2.translate(b.getX(), b.getY());
-        label.paint(g2);
+        if (LevelOfDetail.isTextGreeked(g2))
+        {
+            layout.drawGreeked(g2, 0, 0, layout.getWidth(), layout.getHeight(), 0);
+        }
+        else
+        {
+            layout.draw(g2, 0, 0, layout.getWidth(), layout.getHeight(), 0);
+        }
         g2.translate(-b.getX(), -b.getY());
     }
 
@@ -350,14 +364,9 @@ public abstract class SegmentedLineEdge extends ShapeEdge
      */
     private static Rectangle2D getStringBounds(Point2D p, Point2D q, ArrowHead arrow, String s, boolean center)
     {
-        BufferedImage dummy = new BufferedImage(1, 1, BufferedImage.TYPE_INT_RGB);
-        // need a dummy image to get a Graphics to
-        // measure the size
-        Graphics2D g2 = (Graphics2D) dummy.getGraphics();
         if (s == null || s.equals("")) return new Rectangle2D.Double(q.getX(), q.getY(), 0, 0);
-        label.setText("<html>" + s + "</html>");
-        label.setFont(g2.getFont());
-        Dimension d = label.getPreferredSize();
+        TextLayoutCache.Layout layout = TextLayoutCache.getLayout(s, LABEL_FONT, TextLayoutCache.LEFT);
+        Dimension d = new Dimension(layout.getWidth(), layout.getHeight());
         Point2D a = getAttachmentPoint(p, q, arrow, d, center);
         return new Rectangle2D.Double(a.getX(), a.getY(), d.getWidth(), d.getHeight());
     }
@@ -365,28 +374,51 @@ public abstract class SegmentedLineEdge extends ShapeEdge
     @Override
     public Rectangle2D getBounds()
     {
-        ArrayList<Point2D> points = getPoints();
-        Rectangle2D r = super.getBounds();
-        r.add(getStringBounds((Point2D) points.get(1), (Point2D) points.get(0), getStartArrowHead(), startLabel, false));
-        r.add(getStringBounds((Point2D) points.get(points.size() / 2 - 1), (Point2D) points.get(points.size() / 2), null,
-                middleLabel, true));
-        r.add(getStringBounds((Point2D) points.get(points.size() - 2), (Point2D) points.get(points.size() - 1), getEndArrowHead(),
-                endLabel, false));
-        return r;
+        checkGeometryCache();
+        if (this.bounds == null)
+        {
+            ArrayList<Point2D> points = getPoints();
+            Rectangle2D r = super.getBounds();
+            r.add(getStringBounds((Point2D) points.get(1), (Point2D) points.get(0), getStartArrowHead(), startLabel, false));
+            r.add(getStringBounds((Point2D) points.get(points.size() / 2 - 1), (Point2D) points.get(points.size() / 2), null,
+                    middleLabel, true));
+            r.add(getStringBounds((Point2D) points.get(points.size() - 2), (Point2D) points.get(points.size() - 1),
+                    getEndArrowHead(), endLabel, false));
+            this.bounds = r;
+        }
+        return (Rectangle2D) this.bounds.clone();
     }
 
     @Override
     public Shape getShape()
     {
-        GeneralPath path = getSegmentPath();
-        ArrayList<Point2D> points = getPoints();
-        path.append(getStartArrowHead().getPath((Point2D) points.get(1), (Point2D) points.get(0)), false);
-        path.append(getEndArrowHead().getPath((Point2D) points.get(points.size() - 2), (Point2D) points.get(points.size() - 1)),
-                false);
-        return path;
+        checkGeometryCache();
+        if (this.shape == null)
+        {
+            GeneralPath path = (GeneralPath) getSegmentPath().clone();
+            ArrayList<Point2D> points = getPoints();
+            path.append(getStartArrowHead().getPath((Point2D) points.get(1), (Point2D) points.get(0)), false);
+            path.append(getEndArrowHead().getPath((Point2D) points.get(points.size() - 2),
+                    (Point2D) points.get(points.size() - 1)), false);
+            this.shape = path;
+        }
+        return this.shape;
     }
 
+    /**
+     * @return the lines between the corner points, shared until the geometry changes
+     */
     private GeneralPath getSegmentPath()
+    {
+        checkGeometryCache();
+        if (this.segmentPath == null)
+        {
+            this.segmentPath = computeSegmentPath();
+        }
+        return this.segmentPath;
+    }
+
+    private GeneralPath computeSegmentPath()
     {
         ArrayList<Point2D> points = getPoints();
 
@@ -407,6 +439,16 @@ public abstract class SegmentedLineEdge extends ShapeEdge
      * @return an array list of Point2D objects, containing the corner points
      */
     public ArrayList<Point2D> getPoints()
+    {
+        checkGeometryCache();
+        if (this.points == null)
+        {
+            this.points = computePoints();
+        }
+        return new ArrayList<Point2D>(this.points);
+    }
+
+    private ArrayList<Point2D> computePoints()
     {
         Line2D connectionPoints = getConnectionPoints();
         Point2D startingPoint = connectionPoints.getP1();
@@ -502,6 +544,16 @@ public abstract class SegmentedLineEdge extends ShapeEdge
         return straightDirection;
     }
 
+    @Override
+    protected void clearGeometryCache()
+    {
+        super.clearGeometryCache();
+        this.points = null;
+        this.segmentPath = null;
+        this.shape = null;
+        this.bounds = null;
+    }
+
     private LineStyle lineStyle;
     private ArrowHead startArrowHead;
     private ArrowHead endArrowHead;
@@ -510,5 +562,11 @@ public abstract class SegmentedLineEdge extends ShapeEdge
     private String middleLabel;
     private String endLabel;
 
-    private static JLabel label = new JLabel();
+    private transient ArrayList<Point2D> points;
+    private transient GeneralPath segmentPath;
+    private transient Shape shape;
+    private transient Rectangle2D bounds;
+
+    /** Default font of image graphics, which labels have always been measured with */
+    private static final Font LABEL_FONT = new Font(Font.DIALOG, Font.PLAIN, 12);
 }
@@ -56,9 +56,23 @@ public abstract class ShapeEdge extends AbstractEdge
         Line2D conn = getConnectionPoints();
         if (aPoint.distance(conn.getP1()) <= MAX_DIST || aPoint.distance(conn.getP2()) <= MAX_DIST) return false;
 
-        Shape p = getShape();
-        BasicStroke fatStroke = new BasicStroke((float) (2 * MAX_DIST));
-        Shape fatPath = fatStroke.createStrokedShape(p);
-        return fatPath.contains(aPoint);
+        checkGeometryCache();
+        if (this.fatPath == null)
+        {
+            Shape p = getShape();
+            BasicStroke fatStroke = new BasicStroke((float) (2 * MAX_DIST));
+            this.fatPath = fatStroke.createStrokedShape(p);
+        }
+        return this.fatPath.contains(aPoint);
     }
+
+    @Override
+    protected void clearGeometryCache()
+    {
+        super.clearGeometryCache();
+        this.fatPath = null;
+    }
+
+    /** Area tested by contains(), stroking is costly */
+    private transient Shape fatPath;
 }
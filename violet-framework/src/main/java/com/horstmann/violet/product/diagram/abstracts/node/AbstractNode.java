@@ -57,18 +57,8 @@ public abstract class AbstractNode implements INode, IColorableNode
      */
     protected List<IEdge> getConnectedEdges()
     {
-        List<IEdge> connectedEdges = new ArrayList<IEdge>();
         IGraph currentGraph = getGraph();
-        for (IEdge anEdge : currentGraph.getAllEdges())
-        {
-            INode start = anEdge.getStart();
-            INode end = anEdge.getEnd();
-            if (this.equals(start) || this.equals(end))
-            {
-                connectedEdges.add(anEdge);
-            }
-        }
-        return connectedEdges;
+        return new ArrayList<IEdge>(currentGraph.getConnectedEdges(this));
     }
 
     @Override
@@ -99,6 +89,10 @@ public abstract class AbstractNode implements INode, IColorableNode
     public void setLocation(Point2D aPoint)
     {
         this.location = aPoint;
+        if (this.graph != null)
+        {
+            this.graph.invalidate(this);
+        }
     }
 
     @Override
@@ -162,6 +156,10 @@ public abstract class AbstractNode implements INode, IColorableNode
     {
         if (node.getParent() != this) return;
         getChildren().remove(node);
+        if (this.graph instanceof AbstractGraph)
+        {
+            ((AbstractGraph) this.graph).incrementModificationCount();
+        }
     }
 
     @Override
@@ -199,6 +197,10 @@ public abstract class AbstractNode implements INode, IColorableNode
         getChildren().add(index, node);
         node.setParent(this);
         node.setGraph(getGraph());
+        if (this.graph instanceof AbstractGraph)
+        {
+            ((AbstractGraph) this.graph).incrementModificationCount();
+        }
         return true;
     }
 
@@ -275,6 +277,10 @@ public abstract class AbstractNode implements INode, IColorableNode
     public void setZ(int z)
     {
         this.z = z;
+        if (this.graph instanceof AbstractGraph)
+        {
+            ((AbstractGraph) this.graph).incrementModificationCount();
+        }
     }
 
     /**
@@ -380,6 +386,9 @@ public abstract class AbstractNode implements INode, IColorableNode
     
     public void setPreferredSize(Rectangle2D size) {
     	this.preferredSize = size;
+    	if (this.graph != null) {
+    		this.graph.invalidate(this);
+    	}
     }
     
     public Rectangle2D getPreferredSize() {
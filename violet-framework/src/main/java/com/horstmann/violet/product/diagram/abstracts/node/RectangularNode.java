@@ -31,6 +31,7 @@ import java.util.Comparator;
 import java.util.List;
 
 import com.horstmann.violet.product.diagram.abstracts.Direction;
+import com.horstmann.violet.product.diagram.abstracts.LevelOfDetail;
 import com.horstmann.violet.product.diagram.abstracts.edge.IEdge;
 
 /**
@@ -164,6 +165,16 @@ public abstract class RectangularNode extends AbstractNode
         return getBounds();
     }
 
+    /**
+     * @param g2 where the node is drawn
+     * @return the shape to fill on g2, which is the plain bounds once the graph is drawn too small for rounded corners to show,
+     *         as they are cheaper to fill
+     */
+    protected Shape getShape(Graphics2D g2)
+    {
+        return LevelOfDetail.isSimplified(g2) ? getBounds() : getShape();
+    }
+
    
     
 
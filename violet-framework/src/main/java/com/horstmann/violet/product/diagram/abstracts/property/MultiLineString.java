@@ -21,14 +21,13 @@
 
 package com.horstmann.violet.product.diagram.abstracts.property;
 
-import java.awt.Dimension;
 import java.awt.Font;
 import java.awt.Graphics2D;
 import java.awt.geom.Rectangle2D;
-import java.awt.image.BufferedImage;
 import java.io.Serializable;
 
-import com.horstmann.violet.framework.swingextension.MultiLineLabel;
+import com.horstmann.violet.framework.util.TextLayoutCache;
+import com.horstmann.violet.product.diagram.abstracts.LevelOfDetail;
 import com.thoughtworks.xstream.annotations.XStreamAsAttribute;
 
 /**
@@ -54,7 +53,6 @@ public class MultiLineString implements Serializable, Cloneable {
 	 */
 	public void setText(String newValue) {
 		text = newValue;
-		setLabelText();
 		isBoundsDirty = true;
 	}
 
@@ -75,7 +73,6 @@ public class MultiLineString implements Serializable, Cloneable {
 	 */
 	public void setJustification(int newValue) {
 		justification = newValue;
-		setLabelText();
 		isBoundsDirty = true;
 	}
 
@@ -105,7 +102,6 @@ public class MultiLineString implements Serializable, Cloneable {
 	 */
 	public void setUnderlined(boolean newValue) {
 		underlined = newValue;
-		setLabelText();
 		isBoundsDirty = true;
 	}
 
@@ -117,7 +113,6 @@ public class MultiLineString implements Serializable, Cloneable {
 	 */
 	public void setSize(int newValue) {
 		size = newValue;
-		setLabelText();
 		isBoundsDirty = true;
 	}
 
@@ -134,33 +129,6 @@ public class MultiLineString implements Serializable, Cloneable {
 		return text.replace('\n', '|');
 	}
 
-	private void setLabelText() {
-		getLabel().setLabel(text);
-		if (justification == LEFT)
-			getLabel().setAlignment(MultiLineLabel.LEFT);
-		else if (justification == CENTER)
-			getLabel().setAlignment(MultiLineLabel.CENTER);
-		else if (justification == RIGHT)
-			getLabel().setAlignment(MultiLineLabel.RIGHT);
-		
-	}
-
-	/**
-	 * Gets the bounding rectangle for this multiline string.
-	 * 
-	 * @param g2
-	 *            the graphics context
-	 * @return the bounding rectangle (with top left corner (0,0))
-	 */
-	private Rectangle2D getBounds(Graphics2D g2) {
-		setLabelText();
-		getLabel().validate();
-		if (text.length() == 0)
-			return new Rectangle2D.Double(0, 0, 0, 0);
-		Dimension dim = getLabel().getPreferredSize();
-		return new Rectangle2D.Double(0, 0, dim.getWidth(), dim.getHeight());
-	}
-
 	/**
 	 * Gets the bounding rectangle for this multiline string.
 	 * 
@@ -168,9 +136,13 @@ public class MultiLineString implements Serializable, Cloneable {
 	 */
 	public Rectangle2D getBounds() {
 		if (this.isBoundsDirty || this.bounds == null) {
-			BufferedImage image = new BufferedImage(1000, 1000, BufferedImage.TYPE_INT_RGB);
-			Graphics2D g2 = (Graphics2D) image.getGraphics();
-			this.bounds = getBounds(g2);
+			if (text.length() == 0) {
+				this.bounds = new Rectangle2D.Double(0, 0, 0, 0);
+			} else {
+				TextLayoutCache.Layout layout = getLayout();
+				this.bounds = new Rectangle2D.Double(0, 0, layout.getWidth() + 2 * MARGIN_WIDTH,
+						layout.getHeight() + 2 * MARGIN_HEIGHT);
+			}
 			this.isBoundsDirty = false;
 		}
 		return this.bounds;
@@ -182,12 +154,20 @@ public class MultiLineString implements Serializable, Cloneable {
 	 * @param g2
 	 *            the graphics context
 	 * @param r
-	 *            the rectangle into which to place this multiline string
+	 *            the rectangle into which to place this multiline string.
+	 *            Nothing is drawn at a zoom where shapes are simplified, and
+	 *            lines are greeked at a zoom where they cannot be read.
 	 */
 	public void draw(Graphics2D g2, Rectangle2D r) {
-		getLabel().setBounds(0, 0, (int) r.getWidth(), (int) r.getHeight());
+		if (LevelOfDetail.isSimplified(g2)) {
+			return;
+		}
 		g2.translate(r.getX(), r.getY());
-		getLabel().paint(g2);
+		if (LevelOfDetail.isTextGreeked(g2)) {
+			getLayout().drawGreeked(g2, 0, 0, (int) r.getWidth(), (int) r.getHeight(), MARGIN_WIDTH);
+		} else {
+			getLayout().draw(g2, 0, 0, (int) r.getWidth(), (int) r.getHeight(), MARGIN_WIDTH);
+		}
 		g2.translate(-r.getX(), -r.getY());
 	}
 
@@ -197,24 +177,16 @@ public class MultiLineString implements Serializable, Cloneable {
 		cloned.justification = justification;
 		cloned.size = size;
 		cloned.underlined = underlined;
-		cloned.setLabelText();
 		return cloned;
 	}
 
-	private MultiLineLabel getLabel() {
-		if (this.label == null) {
-			this.label = new MultiLineLabel("");
-			Font font = new Font(Font.SANS_SERIF, Font.PLAIN, 12);
-			if (size == LARGE) {
-				font = font.deriveFont(Font.BOLD);
-			}
-			if (size == SMALL) {
-				font = font.deriveFont(Font.PLAIN);
-			}
-			this.label.setFont(font);
-			this.label.setMarginWidth(2);
-		}
-		return this.label;
+	/**
+	 * @return the measured lines, shared by all strings with the same text,
+	 *         size and justification
+	 */
+	private TextLayoutCache.Layout getLayout() {
+		Font font = size == LARGE ? BOLD_FONT : PLAIN_FONT;
+		return TextLayoutCache.getLayout(text, font, justification);
 	}
 
 	public static final int LEFT = 0;
@@ -224,6 +196,11 @@ public class MultiLineString implements Serializable, Cloneable {
 	public static final int NORMAL = 4;
 	public static final int SMALL = 5;
 
+	private static final Font PLAIN_FONT = new Font(Font.SANS_SERIF, Font.PLAIN, 12);
+	private static final Font BOLD_FONT = PLAIN_FONT.deriveFont(Font.BOLD);
+	private static final int MARGIN_WIDTH = 2;
+	private static final int MARGIN_HEIGHT = 10;
+
 	private String text;
 	@XStreamAsAttribute
 	private int justification;
@@ -231,7 +208,6 @@ public class MultiLineString implements Serializable, Cloneable {
 	private int size;
 	@XStreamAsAttribute
 	private boolean underlined;
-	private transient MultiLineLabel label;
 	private transient boolean isBoundsDirty = true;
 	private transient Rectangle2D bounds;
 }
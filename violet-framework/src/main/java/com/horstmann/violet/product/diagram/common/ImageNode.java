@@ -156,8 +156,9 @@ public class ImageNode extends RectangularNode implements IResizableNode
 	
 	@Override
 	public void setPreferredSize(Rectangle2D size) {
-		super.setPreferredSize(size);
+		// Drop the scaled icon first so that the graph indexes the new bounds
 		this.imageIcon = null;
+		super.setPreferredSize(size);
 	}
 
 	/*
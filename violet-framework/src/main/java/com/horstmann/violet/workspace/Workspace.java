@@ -169,7 +169,7 @@ public class Workspace implements IWorkspace
             behaviorManager.addBehavior(new ChangeToolByWeelBehavior(this.getSideBar().getGraphToolsBar()));
             behaviorManager.addBehavior(new ShowMenuOnRightClickBehavior(this.graphEditor));
             behaviorManager.addBehavior(new ResetGraphToolBarOnRightClickBehavior(this.getSideBar().getGraphToolsBar()));
-            behaviorManager.addBehavior(new UndoRedoCompoundBehavior(this.graphEditor));
+            behaviorManager.addBehavior(new UndoRedoCompoundBehavior(this.graphEditor, this.graphFile.getEditJournal()));
             behaviorManager.addBehavior(new CutCopyPasteBehavior(this.graphEditor));
             behaviorManager.addBehavior(new SwingRepaintingBehavior(this.graphEditor));
             behaviorManager.addBehavior(new ColorizeBehavior(this, this.getSideBar().getColorChoiceBar()));
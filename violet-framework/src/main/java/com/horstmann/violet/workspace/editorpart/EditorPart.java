@@ -25,6 +25,7 @@ import java.awt.Container;
 import java.awt.Dimension;
 import java.awt.Graphics;
 import java.awt.Graphics2D;
+import java.awt.Rectangle;
 import java.awt.RenderingHints;
 import java.awt.event.ComponentAdapter;
 import java.awt.event.ComponentEvent;
@@ -37,7 +38,11 @@ import java.awt.geom.Rectangle2D;
 import java.awt.geom.Rectangle2D.Double;
 import java.util.ArrayList;
 import java.util.Arrays;
+import java.util.Collection;
+import java.util.Collections;
+import java.util.IdentityHashMap;
 import java.util.List;
+import java.util.Set;
 
 import javax.swing.JComponent;
 import javax.swing.JPanel;
@@ -47,6 +52,7 @@ import com.horstmann.violet.product.diagram.abstracts.ISelectable;
 import com.horstmann.violet.product.diagram.abstracts.edge.IEdge;
 import com.horstmann.violet.product.diagram.abstracts.edge.ITransitionPoint;
 import com.horstmann.violet.product.diagram.abstracts.node.INode;
+import com.horstmann.violet.workspace.editorpart.behavior.DirtyRegion;
 import com.horstmann.violet.workspace.editorpart.behavior.IEditorPartBehavior;
 
 /**
@@ -269,9 +275,66 @@ public class EditorPart extends JPanel implements IEditorPart
         getSwingComponent().invalidate();
         super.paintImmediately(x, y, w, h);
     }
-    
-    
-   
+
+    @Override
+    public void repaint(long tm, int x, int y, int width, int height)
+    {
+        // Static content is being repainted, so it changed. Moving elements are never cached.
+        if (this.staticLayer != null && this.movingElements.isEmpty())
+        {
+            this.staticLayer.invalidate(new Rectangle(x, y, width, height));
+        }
+        super.repaint(tm, x, y, width, height);
+    }
+
+    /*
+     * (non-Javadoc)
+     * 
+     * @see com.horstmann.violet.workspace.editorpart.IEditorPart#setMovingElements(java.util.Collection)
+     */
+    public void setMovingElements(Collection<? extends ISelectable> elements)
+    {
+        Set<ISelectable> newMovingElements = Collections.newSetFromMap(new IdentityHashMap<ISelectable, Boolean>());
+        for (ISelectable anElement : elements)
+        {
+            addMovingElement(anElement, newMovingElements);
+        }
+        if (newMovingElements.equals(this.movingElements))
+        {
+            return;
+        }
+        // Elements joining or leaving the static layer change its look
+        DirtyRegion changedElements = new DirtyRegion(this);
+        changedElements.add(this.movingElements);
+        changedElements.add(newMovingElements);
+        this.movingElements = Collections.emptySet();
+        changedElements.repaint();
+        this.movingElements = newMovingElements;
+    }
+
+    private void addMovingElement(ISelectable element, Set<ISelectable> movingElements)
+    {
+        if (!movingElements.add(element) || !(element instanceof INode))
+        {
+            return;
+        }
+        INode node = (INode) element;
+        // Edges ending on the node move with it, and so do the connection points of edges sharing a side with them
+        for (IEdge anEdge : this.graph.getConnectedEdges(node))
+        {
+            movingElements.add(anEdge);
+            INode otherNode = anEdge.getStart() == node ? anEdge.getEnd() : anEdge.getStart();
+            if (otherNode != null)
+            {
+                movingElements.addAll(this.graph.getConnectedEdges(otherNode));
+            }
+        }
+        for (INode aChild : node.getChildren())
+        {
+            addMovingElement(aChild, movingElements);
+        }
+    }
+
     @Override
     protected void paintComponent(Graphics g)
     {
@@ -282,16 +345,57 @@ public class EditorPart extends JPanel implements IEditorPart
         }
         getSwingComponent().revalidate(); // to inform parent scrollpane container
         Graphics2D g2 = (Graphics2D) g;
-        g2.scale(zoom, zoom);
-        g2.setRenderingHint(RenderingHints.KEY_ANTIALIASING, RenderingHints.VALUE_ANTIALIAS_OFF);
-        if (grid.isVisible()) grid.paint(g2);
-        g2.setRenderingHint(RenderingHints.KEY_ANTIALIASING, RenderingHints.VALUE_ANTIALIAS_ON);
-        graph.draw(g2);
+        final Set<ISelectable> moving = this.movingElements;
+        if (moving.isEmpty() || !paintStaticLayer(g2, moving))
+        {
+            g2.scale(zoom, zoom);
+            paintGrid(g2);
+            g2.setRenderingHint(RenderingHints.KEY_ANTIALIASING, RenderingHints.VALUE_ANTIALIAS_ON);
+            graph.draw(g2);
+        }
+        else
+        {
+            g2.scale(zoom, zoom);
+            g2.setRenderingHint(RenderingHints.KEY_ANTIALIASING, RenderingHints.VALUE_ANTIALIAS_ON);
+            graph.draw(g2, moving::contains);
+        }
         for (IEditorPartBehavior behavior : this.behaviorManager.getBehaviors())
         {
             behavior.onPaint(g2);
         }
     }
+
+    /**
+     * Paints the grid and the elements which are not moving from cached tiles
+     * 
+     * @return false if the tiles could not be used
+     */
+    private boolean paintStaticLayer(Graphics2D g2, final Set<ISelectable> moving)
+    {
+        if (this.staticLayer == null)
+        {
+            this.staticLayer = new TiledLayer(this);
+        }
+        List<Object> key = Arrays.asList(java.lang.Double.valueOf(zoom), Boolean.valueOf(grid.isVisible()),
+                java.lang.Double.valueOf(grid.getSnappingWidth()), java.lang.Double.valueOf(grid.getSnappingHeight()), getBackground());
+        return this.staticLayer.paint(g2, new TiledLayer.Painter()
+        {
+            @Override
+            public void paint(Graphics2D tileG2)
+            {
+                tileG2.scale(zoom, zoom);
+                paintGrid(tileG2);
+                tileG2.setRenderingHint(RenderingHints.KEY_ANTIALIASING, RenderingHints.VALUE_ANTIALIAS_ON);
+                graph.draw(tileG2, e -> !moving.contains(e));
+            }
+        }, key);
+    }
+
+    private void paintGrid(Graphics2D g2)
+    {
+        g2.setRenderingHint(RenderingHints.KEY_ANTIALIASING, RenderingHints.VALUE_ANTIALIAS_OFF);
+        if (grid.isVisible()) grid.paint(g2);
+    }
     
     
     
@@ -330,6 +434,16 @@ public class EditorPart extends JPanel implements IEditorPart
     private static final double GROW_SCALE_FACTOR = Math.sqrt(2);
 
     private IEditorPartBehaviorManager behaviorManager = new EditorPartBehaviorManager();
+
+    /**
+     * Elements drawn over the static layer, with the edges whose geometry follows them
+     */
+    private Set<ISelectable> movingElements = Collections.emptySet();
+
+    /**
+     * Tiles of everything but the moving elements, only used while elements are moving
+     */
+    private TiledLayer staticLayer;
     
 
 
@@ -1,10 +1,12 @@
 package com.horstmann.violet.workspace.editorpart;
 
+import java.util.Collection;
 import java.util.List;
 
 import javax.swing.JComponent;
 
 import com.horstmann.violet.product.diagram.abstracts.IGraph;
+import com.horstmann.violet.product.diagram.abstracts.ISelectable;
 import com.horstmann.violet.product.diagram.abstracts.edge.IEdge;
 import com.horstmann.violet.product.diagram.abstracts.node.INode;
 
@@ -55,6 +57,14 @@ public interface IEditorPart
      */
     public void clipDrawingArea();
 
+    /**
+     * Declares the elements the user is moving. Until the set is emptied, everything else is painted from a cache and only these
+     * elements are drawn again when the editor repaints.
+     * 
+     * @param elements nodes being dragged, with their children. Empty when the move is over.
+     */
+    public void setMovingElements(Collection<? extends ISelectable> elements);
+
     /**
      * @return the awt object displaying this editor part
      */
@@ -26,10 +26,13 @@ import java.awt.Component;
 import java.awt.Dimension;
 import java.awt.Graphics2D;
 import java.awt.Rectangle;
-import java.awt.Stroke;
+import java.awt.Shape;
+import java.awt.RenderingHints;
+import java.awt.geom.AffineTransform;
 import java.awt.geom.Line2D;
 import java.awt.geom.Point2D;
 import java.awt.geom.Rectangle2D;
+import java.awt.image.BufferedImage;
 
 import com.horstmann.violet.framework.theme.ThemeManager;
 import com.horstmann.violet.product.diagram.abstracts.IGraph;
@@ -103,17 +106,145 @@ public class PlainGrid implements IGrid
     {
         if (snappingWidth == 0 || snappingHeight == 0) return;
         Color oldColor = g2.getColor();
-        Rectangle2D.Double bounds = getBounds(g2);
+        Rectangle2D bounds = getBounds(g2);
+        // Only the repainted region is filled and ruled
+        Rectangle2D clip = g2.getClipBounds();
+        if (clip != null)
+        {
+            bounds = bounds.createIntersection(clip);
+            if (bounds.isEmpty()) return;
+        }
+        Color gridColor = ThemeManager.getInstance().getTheme().getGridColor();
+        if (gridColor == null || !paintTiles(g2, bounds, gridColor))
+        {
+            paintLines(g2, bounds, gridColor);
+        }
+        g2.setColor(oldColor);
+    }
+
+    /**
+     * Fills the given area by copying a pre-rendered tile of the grid. The tile is rendered in device space, so this only works
+     * when the graphics context is not sheared or rotated and is translated by whole pixels.
+     * 
+     * @return false if the grid must be drawn line by line
+     */
+    private boolean paintTiles(Graphics2D g2, Rectangle2D bounds, Color gridColor)
+    {
+        AffineTransform transform = g2.getTransform();
+        double scaleX = transform.getScaleX();
+        double scaleY = transform.getScaleY();
+        double translateX = transform.getTranslateX();
+        double translateY = transform.getTranslateY();
+        if (transform.getShearX() != 0 || transform.getShearY() != 0 || scaleX <= 0 || scaleY <= 0
+                || translateX != Math.rint(translateX) || translateY != Math.rint(translateY))
+        {
+            return false;
+        }
+        BufferedImage tile = getTile(scaleX, scaleY, gridColor);
+        int tileWidth = tile.getWidth();
+        int tileHeight = tile.getHeight();
+        Shape oldClip = g2.getClip();
+        // Tiles are anchored on the device position of the grid origin
+        g2.setTransform(AffineTransform.getTranslateInstance(translateX, translateY));
+        Rectangle2D area = new Rectangle2D.Double(bounds.getX() * scaleX, bounds.getY() * scaleY, bounds.getWidth() * scaleX,
+                bounds.getHeight() * scaleY);
+        g2.clip(area);
+        int firstX = (int) Math.floor(area.getX() / tileWidth) * tileWidth;
+        int firstY = (int) Math.floor(area.getY() / tileHeight) * tileHeight;
+        for (int y = firstY; y < area.getMaxY(); y += tileHeight)
+        {
+            for (int x = firstX; x < area.getMaxX(); x += tileWidth)
+            {
+                g2.drawImage(tile, x, y, null);
+            }
+        }
+        g2.setTransform(transform);
+        g2.setClip(oldClip);
+        return true;
+    }
+
+    /**
+     * @return the tile for the current snapping size, the given scale and the given color, rendered again only when one of them
+     *         has changed
+     */
+    private BufferedImage getTile(double scaleX, double scaleY, Color gridColor)
+    {
+        if (this.tile != null && this.tileScaleX == scaleX && this.tileScaleY == scaleY && this.tileSnappingWidth == snappingWidth
+                && this.tileSnappingHeight == snappingHeight && gridColor.equals(this.tileColor))
+        {
+            return this.tile;
+        }
+        int columns = getPeriodCount(snappingWidth * scaleX);
+        int rows = getPeriodCount(snappingHeight * scaleY);
+        int width = Math.max(1, (int) Math.round(columns * snappingWidth * scaleX));
+        int height = Math.max(1, (int) Math.round(rows * snappingHeight * scaleY));
+        BufferedImage image = new BufferedImage(width, height, BufferedImage.TYPE_INT_RGB);
+        Graphics2D imageG2 = image.createGraphics();
+        imageG2.setColor(Color.WHITE);
+        imageG2.fillRect(0, 0, width, height);
+        // Lines are drawn as on the editor so that they look the same. Those on the far edges are drawn too because wide lines
+        // spread over both sides of a tile border.
+        imageG2.setRenderingHint(RenderingHints.KEY_ANTIALIASING, RenderingHints.VALUE_ANTIALIAS_OFF);
+        imageG2.scale(scaleX, scaleY);
+        imageG2.setColor(gridColor);
+        for (int i = 0; i <= columns; i++)
+        {
+            double x = i * snappingWidth;
+            imageG2.draw(new Line2D.Double(x, 0, x, height / scaleY));
+        }
+        for (int i = 0; i <= rows; i++)
+        {
+            double y = i * snappingHeight;
+            imageG2.draw(new Line2D.Double(0, y, width / scaleX, y));
+        }
+        imageG2.dispose();
+        this.tile = image;
+        this.tileScaleX = scaleX;
+        this.tileScaleY = scaleY;
+        this.tileSnappingWidth = snappingWidth;
+        this.tileSnappingHeight = snappingHeight;
+        this.tileColor = gridColor;
+        return this.tile;
+    }
+
+    /**
+     * A tile must be a whole number of pixels wide. Grid steps are usually not, so a tile holds the number of steps which
+     * lands closest to a pixel boundary, which keeps lines from drifting from one tile to the next.
+     * 
+     * @param step the grid step in device pixels
+     * @return the number of steps a tile holds
+     */
+    private static int getPeriodCount(double step)
+    {
+        int first = Math.max(1, (int) Math.ceil(MIN_TILE_SIZE / step));
+        int best = first;
+        double bestDrift = Double.MAX_VALUE;
+        for (int count = first; count == first || count * step <= MAX_TILE_SIZE; count++)
+        {
+            double size = count * step;
+            double drift = Math.abs(size - Math.rint(size)) / size;
+            if (drift < bestDrift)
+            {
+                best = count;
+                bestDrift = drift;
+            }
+            if (drift == 0)
+            {
+                break;
+            }
+        }
+        return best;
+    }
+
+    private void paintLines(Graphics2D g2, Rectangle2D bounds, Color gridColor)
+    {
         g2.setColor(Color.WHITE);
         g2.fill(bounds);
-        g2.setColor(ThemeManager.getInstance().getTheme().getGridColor());
-        Stroke oldStroke = g2.getStroke();
-        for (double x = bounds.getX(); x < bounds.getMaxX(); x += snappingWidth)
+        g2.setColor(gridColor);
+        for (double x = Math.floor(bounds.getX() / snappingWidth) * snappingWidth; x < bounds.getMaxX(); x += snappingWidth)
             g2.draw(new Line2D.Double(x, bounds.getY(), x, bounds.getMaxY()));
-        for (double y = bounds.getY(); y < bounds.getMaxY(); y += snappingHeight)
+        for (double y = Math.floor(bounds.getY() / snappingHeight) * snappingHeight; y < bounds.getMaxY(); y += snappingHeight)
             g2.draw(new Line2D.Double(bounds.getX(), y, bounds.getMaxX(), y));
-        g2.setStroke(oldStroke);
-        g2.setColor(oldColor);
     }
     
     
@@ -205,4 +336,12 @@ public class PlainGrid implements IGrid
     private boolean isVisible = true;
     public static final int DEFAULT_GRID_SIZE = 10;
     private IEditorPart editorPart;
+    private BufferedImage tile;
+    private double tileScaleX;
+    private double tileScaleY;
+    private double tileSnappingWidth;
+    private double tileSnappingHeight;
+    private Color tileColor;
+    private static final int MIN_TILE_SIZE = 256;
+    private static final int MAX_TILE_SIZE = 512;
 }
@@ -0,0 +1,248 @@
+/*
+ Violet - A program for editing UML diagrams.
+
+ Copyright (C) 2007 Cay S. Horstmann (http://horstmann.com)
+ Alexandre de Pellegrin (http://alexdp.free.fr);
+
+ This program is free software; you can redistribute it and/or modify
+ it under the terms of the GNU General Public License as published by
+ the Free Software Foundation; either version 2 of the License, or
+ (at your option) any later version.
+
+ This program is distributed in the hope that it will be useful,
+ but WITHOUT ANY WARRANTY; without even the implied warranty of
+ MERCHANTABILITY or FITNESS FOR A PARTICULAR PURPOSE.  See the
+ GNU General Public License for more details.
+
+ You should have received a copy of the GNU General Public License
+ along with this program; if not, write to the Free Software
+ Foundation, Inc., 59 Temple Place, Suite 330, Boston, MA  02111-1307  USA
+ */
+
+package com.horstmann.violet.workspace.editorpart;
+
+import java.awt.Component;
+import java.awt.Graphics2D;
+import java.awt.GraphicsConfiguration;
+import java.awt.Rectangle;
+import java.awt.Transparency;
+import java.awt.geom.AffineTransform;
+import java.awt.image.BufferedImage;
+import java.util.Arrays;
+import java.util.Iterator;
+import java.util.LinkedHashMap;
+import java.util.List;
+import java.util.Map;
+
+/**
+ * Raster cache of content which does not change while the user drags elements.<br/>
+ * <br/>
+ * The content is rendered once into square tiles of device pixels and then copied to the screen, so that a frame costs a few
+ * image copies whatever the size of the diagram. Tiles are kept for one rendering key (zoom, device scale, grid...) and are
+ * dropped one by one when the bounds of a changed element cross them. Least recently painted tiles are evicted first.
+ */
+final class TiledLayer
+{
+    /**
+     * Renders the cached content
+     */
+    interface Painter
+    {
+        /**
+         * @param g2 graphics in component coordinates, clipped to a tile
+         */
+        void paint(Graphics2D g2);
+    }
+
+    /**
+     * @param component the component painted with this layer
+     */
+    TiledLayer(Component component)
+    {
+        this.component = component;
+    }
+
+    /**
+     * Paints the part of the layer inside the clip of g2, rendering missing tiles
+     * 
+     * @param g2 graphics of the component
+     * @param painter renders the content of missing tiles
+     * @param key everything the content depends on besides the diagram itself. Tiles rendered with another key are dropped.
+     * @return false if tiles can't be used with the transform of g2, in which case nothing was painted
+     */
+    boolean paint(Graphics2D g2, Painter painter, Object key)
+    {
+        AffineTransform transform = g2.getTransform();
+        Rectangle clip = g2.getClipBounds();
+        double scaleX = transform.getScaleX();
+        double scaleY = transform.getScaleY();
+        double translateX = transform.getTranslateX();
+        double translateY = transform.getTranslateY();
+        // Tiles are copied pixel for pixel : no rotation and whole pixel offsets only
+        if (clip == null || transform.getShearX() != 0 || transform.getShearY() != 0 || scaleX <= 0 || scaleY <= 0
+                || translateX != Math.rint(translateX) || translateY != Math.rint(translateY))
+        {
+            return false;
+        }
+        List<Object> fullKey = Arrays.asList(key, Double.valueOf(scaleX), Double.valueOf(scaleY));
+        if (!fullKey.equals(this.key))
+        {
+            this.tiles.clear();
+            this.key = fullKey;
+            this.scaleX = scaleX;
+            this.scaleY = scaleY;
+        }
+        int minColumn = tile(clip.getMinX() * scaleX);
+        int minRow = tile(clip.getMinY() * scaleY);
+        int maxColumn = tile(clip.getMaxX() * scaleX - 1);
+        int maxRow = tile(clip.getMaxY() * scaleY - 1);
+        GraphicsConfiguration configuration = g2.getDeviceConfiguration();
+        // Device pixels, the origin being the one of the component. The clip is kept in device space.
+        g2.setTransform(AffineTransform.getTranslateInstance(translateX, translateY));
+        try
+        {
+            for (int column = minColumn; column <= maxColumn; column++)
+            {
+                for (int row = minRow; row <= maxRow; row++)
+                {
+                    BufferedImage tile = getTile(column, row, painter, configuration);
+                    g2.drawImage(tile, column * TILE_SIZE, row * TILE_SIZE, null);
+                }
+            }
+        }
+        finally
+        {
+            g2.setTransform(transform);
+        }
+        // Keeps at least two screens of tiles
+        int visibleTiles = (maxColumn - minColumn + 1) * (maxRow - minRow + 1);
+        this.maxTiles = Math.max(MIN_TILES, 2 * visibleTiles);
+        evict();
+        return true;
+    }
+
+    /**
+     * Drops the tiles crossing an area
+     * 
+     * @param area rectangle in component coordinates
+     */
+    void invalidate(Rectangle area)
+    {
+        if (this.tiles.isEmpty())
+        {
+            return;
+        }
+        if (area.contains(0, 0, this.component.getWidth(), this.component.getHeight()))
+        {
+            this.tiles.clear();
+            return;
+        }
+        int minColumn = tile(area.getMinX() * this.scaleX);
+        int minRow = tile(area.getMinY() * this.scaleY);
+        int maxColumn = tile(area.getMaxX() * this.scaleX);
+        int maxRow = tile(area.getMaxY() * this.scaleY);
+        if ((long) (maxColumn - minColumn + 1) * (maxRow - minRow + 1) > this.tiles.size())
+        {
+            for (Iterator<Long> it = this.tiles.keySet().iterator(); it.hasNext();)
+            {
+                long key = it.next().longValue();
+                int column = (int) (key >> 32);
+                int row = (int) key;
+                if (minColumn <= column && column <= maxColumn && minRow <= row && row <= maxRow)
+                {
+                    it.remove();
+                }
+            }
+            return;
+        }
+        for (int column = minColumn; column <= maxColumn; column++)
+        {
+            for (int row = minRow; row <= maxRow; row++)
+            {
+                this.tiles.remove(key(column, row));
+            }
+        }
+    }
+
+    /**
+     * Drops all tiles
+     */
+    void clear()
+    {
+        this.tiles.clear();
+    }
+
+    private BufferedImage getTile(int column, int row, Painter painter, GraphicsConfiguration configuration)
+    {
+        Long key = key(column, row);
+        BufferedImage tile = this.tiles.get(key);
+        if (tile != null)
+        {
+            return tile;
+        }
+        if (configuration != null)
+        {
+            tile = configuration.createCompatibleImage(TILE_SIZE, TILE_SIZE, Transparency.OPAQUE);
+        }
+        else
+        {
+            tile = new BufferedImage(TILE_SIZE, TILE_SIZE, BufferedImage.TYPE_INT_RGB);
+        }
+        Graphics2D tileG2 = tile.createGraphics();
+        try
+        {
+            tileG2.setColor(this.component.getBackground());
+            tileG2.fillRect(0, 0, TILE_SIZE, TILE_SIZE);
+            // Same initial state as the graphics Swing gives to the component
+            tileG2.setColor(this.component.getForeground());
+            tileG2.setFont(this.component.getFont());
+            tileG2.translate(-column * TILE_SIZE, -row * TILE_SIZE);
+            tileG2.scale(this.scaleX, this.scaleY);
+            tileG2.clip(new Rectangle.Double(column * TILE_SIZE / this.scaleX, row * TILE_SIZE / this.scaleY, TILE_SIZE / this.scaleX,
+                    TILE_SIZE / this.scaleY));
+            painter.paint(tileG2);
+        }
+        finally
+        {
+            tileG2.dispose();
+        }
+        this.tiles.put(key, tile);
+        return tile;
+    }
+
+    private void evict()
+    {
+        Iterator<Map.Entry<Long, BufferedImage>> it = this.tiles.entrySet().iterator();
+        while (this.tiles.size() > this.maxTiles && it.hasNext())
+        {
+            it.next();
+            it.remove();
+        }
+    }
+
+    private static int tile(double devicePixel)
+    {
+        return (int) Math.floor(devicePixel / TILE_SIZE);
+    }
+
+    private static Long key(int column, int row)
+    {
+        return Long.valueOf(((long) column << 32) | (row & 0xFFFFFFFFL));
+    }
+
+    private final Component component;
+
+    /** Tiles in access order, the least recently painted first */
+    private final Map<Long, BufferedImage> tiles = new LinkedHashMap<Long, BufferedImage>(16, 0.75f, true);
+
+    private List<Object> key;
+    private double scaleX = 1;
+    private double scaleY = 1;
+    private int maxTiles = MIN_TILES;
+
+    /** Width and height of a tile in device pixels */
+    private static final int TILE_SIZE = 256;
+
+    private static final int MIN_TILES = 32;
+
+}
@@ -14,6 +14,7 @@ import java.io.ByteArrayInputStream;
 import java.io.ByteArrayOutputStream;
 import java.io.IOException;
 import java.nio.ByteBuffer;
+import java.nio.charset.StandardCharsets;
 import java.util.ArrayList;
 import java.util.Arrays;
 import java.util.Collection;
@@ -139,7 +140,7 @@ public class CutCopyPasteBehavior extends AbstractEditorPartBehavior
         ByteArrayOutputStream byteArrayOutputStream = new ByteArrayOutputStream();
         persistenceService.write(newGraph, byteArrayOutputStream);
         byteArrayOutputStream.toString();
-        String xmlContent = byteArrayOutputStream.toString();
+        String xmlContent = byteArrayOutputStream.toString(StandardCharsets.UTF_8);
         pushContentToSystemClipboard(xmlContent);
         
     }
@@ -176,7 +177,7 @@ public class CutCopyPasteBehavior extends AbstractEditorPartBehavior
     }
 
 	private void pasteNodesAndEdges(IGraph graph, String xmlContent) throws IOException {
-		ByteArrayInputStream byteArrayInputStream = new ByteArrayInputStream(xmlContent.getBytes());
+		ByteArrayInputStream byteArrayInputStream = new ByteArrayInputStream(xmlContent.getBytes(StandardCharsets.UTF_8));
 		IGraph deserializedGraph = persistenceService.read(byteArrayInputStream);
 		deserializedGraph = translateToMouseLocation(deserializedGraph, this.lastMouseLocation);
 		
@@ -231,6 +232,14 @@ public class CutCopyPasteBehavior extends AbstractEditorPartBehavior
             return;
         }
         UndoRedoCompoundBehavior undoRedoBehavior = found.get(0);
+        for (INode aNode : nodesPasted)
+        {
+            undoRedoBehavior.getJournal().nodeAdded(aNode);
+        }
+        for (IEdge anEdge : edgesPasted)
+        {
+            undoRedoBehavior.getJournal().edgeAdded(anEdge);
+        }
 
         undoRedoBehavior.startHistoryCapture();
         CompoundEdit capturedEdit = undoRedoBehavior.getCurrentCapturedEdit();
@@ -243,6 +252,7 @@ public class CutCopyPasteBehavior extends AbstractEditorPartBehavior
                 {
                     IGraph graph = editorPart.getGraph();
                     graph.removeNode(aNode);
+                    undoRedoBehavior.getJournal().nodeRemoved(aNode);
                     super.undo();
                 }
 
@@ -252,6 +262,7 @@ public class CutCopyPasteBehavior extends AbstractEditorPartBehavior
                     super.redo();
                     IGraph graph = editorPart.getGraph();
                     graph.addNode(aNode, aNode.getLocationOnGraph());
+                    undoRedoBehavior.getJournal().nodeAdded(aNode);
                 }
             };
             capturedEdit.addEdit(edit);
@@ -266,6 +277,7 @@ public class CutCopyPasteBehavior extends AbstractEditorPartBehavior
                 {
                     IGraph graph = editorPart.getGraph();
                     graph.removeEdge(anEdge);
+                    undoRedoBehavior.getJournal().edgeRemoved(anEdge);
                     super.undo();
                 }
 
@@ -275,6 +287,7 @@ public class CutCopyPasteBehavior extends AbstractEditorPartBehavior
                     super.redo();
                     IGraph graph = editorPart.getGraph();
                     graph.connect(anEdge, anEdge.getStart(), anEdge.getStartLocation(), anEdge.getEnd(), anEdge.getEndLocation());
+                    undoRedoBehavior.getJournal().edgeAdded(anEdge);
                 }
             };
             capturedEdit.addEdit(edit);
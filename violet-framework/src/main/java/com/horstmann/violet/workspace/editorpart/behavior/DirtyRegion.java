@@ -0,0 +1,178 @@
+/*
+ Violet - A program for editing UML diagrams.
+
+ Copyright (C) 2007 Cay S. Horstmann (http://horstmann.com)
+ Alexandre de Pellegrin (http://alexdp.free.fr);
+
+ This program is free software; you can redistribute it and/or modify
+ it under the terms of the GNU General Public License as published by
+ the Free Software Foundation; either version 2 of the License, or
+ (at your option) any later version.
+
+ This program is distributed in the hope that it will be useful,
+ but WITHOUT ANY WARRANTY; without even the implied warranty of
+ MERCHANTABILITY or FITNESS FOR A PARTICULAR PURPOSE.  See the
+ GNU General Public License for more details.
+
+ You should have received a copy of the GNU General Public License
+ along with this program; if not, write to the Free Software
+ Foundation, Inc., 59 Temple Place, Suite 330, Boston, MA  02111-1307  USA
+ */
+
+package com.horstmann.violet.workspace.editorpart.behavior;
+
+import java.awt.geom.Point2D;
+import java.awt.geom.Rectangle2D;
+import java.util.Collection;
+
+import javax.swing.JComponent;
+
+import com.horstmann.violet.framework.util.GrabberUtils;
+import com.horstmann.violet.product.diagram.abstracts.IGraph;
+import com.horstmann.violet.product.diagram.abstracts.ISelectable;
+import com.horstmann.violet.product.diagram.abstracts.edge.IEdge;
+import com.horstmann.violet.product.diagram.abstracts.node.INode;
+import com.horstmann.violet.workspace.editorpart.IEditorPart;
+
+/**
+ * Part of an editor part which needs to be repainted after some elements changed.<br/>
+ * <br/>
+ * Behaviors add the changed elements before and after the change, so that both their old and their new look are refreshed,
+ * then call {@link #repaint()}. A node brings its children, its connected edges and the edges sharing a side with them, as
+ * their connection points move with the node. Every element brings its selection grabbers.
+ */
+public class DirtyRegion
+{
+    /**
+     * @param editorPart the editor part to repaint
+     */
+    public DirtyRegion(IEditorPart editorPart)
+    {
+        this.editorPart = editorPart;
+    }
+
+    /**
+     * Adds the area covered by an element
+     * 
+     * @param element a node, an edge or a transition point
+     */
+    public void add(ISelectable element)
+    {
+        if (element instanceof INode)
+        {
+            addNode((INode) element);
+        }
+        if (element instanceof IEdge)
+        {
+            add(((IEdge) element).getBounds());
+        }
+        addSelectionPoints(element);
+        for (ISelectable aChild : element.getSelectableChildren())
+        {
+            addSelectionPoints(aChild);
+        }
+    }
+
+    /**
+     * Adds the area covered by several elements
+     * 
+     * @param elements nodes, edges or transition points
+     */
+    public void add(Collection<? extends ISelectable> elements)
+    {
+        for (ISelectable anElement : elements)
+        {
+            add(anElement);
+        }
+    }
+
+    /**
+     * Adds an area
+     * 
+     * @param boundsOnGraph a rectangle in graph coordinates, ignored if null
+     */
+    public void add(Rectangle2D boundsOnGraph)
+    {
+        if (boundsOnGraph == null)
+        {
+            return;
+        }
+        if (this.bounds == null)
+        {
+            this.bounds = new Rectangle2D.Double(boundsOnGraph.getX(), boundsOnGraph.getY(), boundsOnGraph.getWidth(),
+                    boundsOnGraph.getHeight());
+            return;
+        }
+        this.bounds.add(boundsOnGraph);
+    }
+
+    /**
+     * @return true if nothing was added since the last repaint
+     */
+    public boolean isEmpty()
+    {
+        return this.bounds == null;
+    }
+
+    /**
+     * Asks Swing to repaint the area added so far, converted to screen coordinates with the zoom factor, and empties this
+     * region.
+     */
+    public void repaint()
+    {
+        if (this.bounds == null)
+        {
+            return;
+        }
+        double zoom = this.editorPart.getZoomFactor();
+        int x = (int) Math.floor((this.bounds.getMinX() - MARGIN) * zoom);
+        int y = (int) Math.floor((this.bounds.getMinY() - MARGIN) * zoom);
+        int maxX = (int) Math.ceil((this.bounds.getMaxX() + MARGIN) * zoom);
+        int maxY = (int) Math.ceil((this.bounds.getMaxY() + MARGIN) * zoom);
+        this.bounds = null;
+        JComponent component = this.editorPart.getSwingComponent();
+        // The editor part only paints itself when it is invalid
+        component.invalidate();
+        component.repaint(x, y, maxX - x, maxY - y);
+    }
+
+    private void addNode(INode node)
+    {
+        Point2D locationOnGraph = node.getLocationOnGraph();
+        Rectangle2D nodeBounds = node.getBounds();
+        add(new Rectangle2D.Double(locationOnGraph.getX(), locationOnGraph.getY(), nodeBounds.getWidth(), nodeBounds.getHeight()));
+        IGraph graph = this.editorPart.getGraph();
+        for (IEdge anEdge : graph.getConnectedEdges(node))
+        {
+            add(anEdge.getBounds());
+            INode otherNode = anEdge.getStart() == node ? anEdge.getEnd() : anEdge.getStart();
+            if (otherNode != null && otherNode != node)
+            {
+                for (IEdge anotherEdge : graph.getConnectedEdges(otherNode))
+                {
+                    add(anotherEdge.getBounds());
+                }
+            }
+        }
+        for (INode aChild : node.getChildren())
+        {
+            addNode(aChild);
+        }
+    }
+
+    private void addSelectionPoints(ISelectable element)
+    {
+        for (Point2D aPoint : element.getSelectionPoints())
+        {
+            add(new Rectangle2D.Double(aPoint.getX() - GrabberUtils.GRABBER_WIDTH, aPoint.getY() - GrabberUtils.GRABBER_WIDTH,
+                    2 * GrabberUtils.GRABBER_WIDTH, 2 * GrabberUtils.GRABBER_WIDTH));
+        }
+    }
+
+    private final IEditorPart editorPart;
+    private Rectangle2D bounds;
+
+    /** Room for strokes, shadows and text slightly overflowing the bounds of elements, as in AbstractGraph */
+    private static final double MARGIN = 16;
+
+}
@@ -4,6 +4,7 @@ import java.awt.Cursor;
 import java.awt.event.MouseEvent;
 import java.awt.geom.Point2D;
 import java.awt.geom.Rectangle2D;
+import java.util.Collections;
 import java.util.Iterator;
 import java.util.List;
 
@@ -25,6 +26,7 @@ public class DragSelectedBehavior extends AbstractEditorPartBehavior {
         this.graph = editorPart.getGraph();
         this.selectionHandler = editorPart.getSelectionHandler();
         this.graphToolsBar = graphToolsBar;
+        this.movedElements = new DirtyRegion(editorPart);
     }
 
     @Override
@@ -93,6 +95,10 @@ public class DragSelectedBehavior extends AbstractEditorPartBehavior {
         dx = Math.max(dx, -bounds.getX());
         dy = Math.max(dy, -bounds.getY());
 
+        // Everything else is painted from the cached static layer until the mouse is released
+        editorPart.setMovingElements(selectedNodes);
+        // Old places, repainted with the new ones
+        movedElements.add(selectedNodes);
         boolean isAtLeastOneNodeMoved = false;
         IGridSticker gridSticker = graph.getGridSticker();
         for (INode n : selectedNodes) {
@@ -131,8 +137,8 @@ public class DragSelectedBehavior extends AbstractEditorPartBehavior {
         if (isAtLeastOneNodeMoved) {
             Point2D snappedMousePoint = gridSticker.snap(mousePoint);
             if (!snappedMousePoint.equals(lastMousePoint)) {
-                editorPart.getSwingComponent().invalidate();
-                editorPart.getSwingComponent().repaint();
+                movedElements.add(selectedNodes);
+                movedElements.repaint();
             }
             lastMousePoint = snappedMousePoint;
         }
@@ -143,6 +149,12 @@ public class DragSelectedBehavior extends AbstractEditorPartBehavior {
     	if (this.editorPart.getSwingComponent().getCursor().equals(this.dragCursor)) {
     		this.editorPart.getSwingComponent().setCursor(this.initialCursor);
     	}
+        this.editorPart.setMovingElements(Collections.<INode> emptyList());
+        if (!this.movedElements.isEmpty()) {
+            // Last moves, if the mouse stayed on the same grid point
+            this.movedElements.add(selectionHandler.getSelectedElements());
+            this.movedElements.repaint();
+        }
         this.lastMousePoint = null;
         this.isReadyForDragging = false;
         this.initialCursor = null;
@@ -185,6 +197,8 @@ public class DragSelectedBehavior extends AbstractEditorPartBehavior {
 
     private IGraphToolsBar graphToolsBar;
 
+    private DirtyRegion movedElements;
+
     private boolean isReadyForDragging = false;
 
     private Cursor initialCursor = null;
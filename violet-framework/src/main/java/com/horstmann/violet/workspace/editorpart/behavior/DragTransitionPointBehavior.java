@@ -93,6 +93,7 @@ public class DragTransitionPointBehavior extends AbstractEditorPartBehavior
             newTransitionPoint = gridSticker.snap(newTransitionPoint);
             this.edgeTransitionPointToDrag.setX(newTransitionPoint.getX());
             this.edgeTransitionPointToDrag.setY(newTransitionPoint.getY());
+            editorPart.getGraph().invalidate(getSelectedEdge());
             // Save mouse location for next dragging sequence
             Point2D snappedMousePoint = gridSticker.snap(mousePoint);
             if (!snappedMousePoint.equals(lastMousePoint)) {
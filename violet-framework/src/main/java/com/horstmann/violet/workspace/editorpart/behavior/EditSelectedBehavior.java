@@ -106,10 +106,12 @@ public class EditSelectedBehavior extends AbstractEditorPartBehavior
 
                 if (edited instanceof INode)
                 {
+                    graph.invalidate((INode) edited);
                     behaviorManager.fireWhileEditingNode((INode) edited, event);
                 }
                 if (edited instanceof IEdge)
                 {
+                    graph.invalidate((IEdge) edited);
                     behaviorManager.fireWhileEditingEdge((IEdge) edited, event);
                 }
                 editorPart.getSwingComponent().invalidate();
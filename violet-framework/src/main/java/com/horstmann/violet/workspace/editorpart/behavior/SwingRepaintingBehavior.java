@@ -5,22 +5,35 @@ import java.awt.event.MouseEvent;
 import java.awt.event.MouseWheelEvent;
 import java.awt.geom.Point2D;
 import java.beans.PropertyChangeEvent;
+import java.util.ArrayList;
+import java.util.List;
 
+import com.horstmann.violet.product.diagram.abstracts.ISelectable;
 import com.horstmann.violet.product.diagram.abstracts.edge.IEdge;
 import com.horstmann.violet.product.diagram.abstracts.node.IColorableNode;
 import com.horstmann.violet.product.diagram.abstracts.node.INode;
 import com.horstmann.violet.workspace.editorpart.IEditorPart;
 import com.horstmann.violet.workspace.sidebar.graphtools.GraphTool;
 
+/**
+ * Repaints the parts of the editor part touched by edits, selection changes and color changes.<br/>
+ * <br/>
+ * Old bounds of the changed elements are recorded before the change and repainted along with their new bounds. The
+ * selection painted last time is kept, so that grabbers of deselected elements are erased.
+ */
 public class SwingRepaintingBehavior implements IEditorPartBehavior
 {
 
     private IEditorPart editorPart;
-    
+
+    private DirtyRegion changedElements;
+
+    private List<ISelectable> paintedSelection = new ArrayList<ISelectable>();
     
     public SwingRepaintingBehavior(IEditorPart editorPart)
     {
         this.editorPart = editorPart;
+        this.changedElements = new DirtyRegion(editorPart);
     }
 
     @Override
@@ -38,7 +51,7 @@ public class SwingRepaintingBehavior implements IEditorPartBehavior
     @Override
     public void onMouseClicked(MouseEvent event)
     {
-        this.editorPart.getSwingComponent().repaint();
+        repaintSelection();
     }
 
     @Override
@@ -68,19 +81,19 @@ public class SwingRepaintingBehavior implements IEditorPartBehavior
     @Override
     public void beforeRemovingSelectedElements()
     {
-        // Nothing to do
+        this.changedElements.add(this.editorPart.getSelectionHandler().getSelectedElements());
     }
 
     @Override
     public void beforeEditingNode(INode node)
     {
-        // nothing to do
+        this.changedElements.add(node);
     }
 
     @Override
     public void beforeEditingEdge(IEdge edge)
     {
-        // nothing to do
+        this.changedElements.add(edge);
     }
 
     @Override
@@ -98,71 +111,77 @@ public class SwingRepaintingBehavior implements IEditorPartBehavior
     @Override
     public void afterRemovingSelectedElements()
     {
-        this.editorPart.getSwingComponent().invalidate();
-        this.editorPart.getSwingComponent().repaint();
+        repaintSelection();
     }
 
     @Override
     public void afterEditingNode(INode node)
     {
-        this.editorPart.getSwingComponent().invalidate();
-        this.editorPart.getSwingComponent().repaint();
+        this.changedElements.add(node);
+        this.changedElements.repaint();
     }
 
     @Override
     public void afterEditingEdge(IEdge edge)
     {
-        this.editorPart.getSwingComponent().invalidate();
-        this.editorPart.getSwingComponent().repaint();
+        this.changedElements.add(edge);
+        this.changedElements.repaint();
     }
 
     @Override
     public void afterAddingNodeAtPoint(INode node, Point2D location)
     {
-        this.editorPart.getSwingComponent().invalidate();
-        this.editorPart.getSwingComponent().repaint();
+        this.changedElements.add(node);
+        repaintSelection();
     }
 
     @Override
     public void afterAddingEdgeAtPoints(IEdge edge, Point2D startPoint, Point2D endPoint)
     {
-        this.editorPart.getSwingComponent().invalidate();
-        this.editorPart.getSwingComponent().repaint();
+        if (edge.getStart() != null && edge.getEnd() != null)
+        {
+            // Edges sharing a side with the new one get new connection points
+            this.changedElements.add(edge);
+            this.changedElements.add(edge.getStart());
+            this.changedElements.add(edge.getEnd());
+        }
+        repaintSelection();
     }
     
     @Override
     public void onPaint(Graphics2D g2)
     {
-        // nothing to do
-        
+        this.paintedSelection = new ArrayList<ISelectable>(this.editorPart.getSelectionHandler().getSelectedElements());
     }
 
     @Override
     public void onEdgeSelected(IEdge edge)
     {
-        this.editorPart.getSwingComponent().invalidate();
-        this.editorPart.getSwingComponent().repaint();
+        repaintSelection();
     }
 
     @Override
     public void onNodeSelected(INode node)
     {
-        this.editorPart.getSwingComponent().invalidate();
-        this.editorPart.getSwingComponent().repaint();
+        repaintSelection();
     }
 
     @Override
     public void whileEditingEdge(IEdge edge, PropertyChangeEvent event)
     {
-        this.editorPart.getSwingComponent().invalidate();
-        this.editorPart.getSwingComponent().repaint();
+        this.changedElements.add(edge);
+        this.changedElements.repaint();
+        // Current look, to be refreshed by the next change
+        this.changedElements.add(edge);
     }
 
     @Override
     public void whileEditingNode(INode node, PropertyChangeEvent event)
     {
-        this.editorPart.getSwingComponent().invalidate();
-        this.editorPart.getSwingComponent().repaint();
+        this.changedElements.add(node);
+        this.changedElements.repaint();
+        // Current look, to be refreshed by the next change
+        this.changedElements.add(node);
     }
     
     @Override
@@ -181,16 +200,30 @@ public class SwingRepaintingBehavior implements IEditorPartBehavior
     @Override
     public void beforeChangingColorOnElement(IColorableNode element)
     {
-        // TODO Auto-generated method stub
-        
+        if (element instanceof ISelectable)
+        {
+            this.changedElements.add((ISelectable) element);
+        }
     }
     
     @Override
     public void afterChangingColorOnElement(IColorableNode element)
     {
-    	this.editorPart.getSwingComponent().invalidate();
-        this.editorPart.getSwingComponent().repaint();
+        if (element instanceof ISelectable)
+        {
+            this.changedElements.add((ISelectable) element);
+        }
+        this.changedElements.repaint();
+    }
+
+    /**
+     * Repaints the pending changes, the elements selected at last paint and the ones selected now
+     */
+    private void repaintSelection()
+    {
+        this.changedElements.add(this.paintedSelection);
+        this.changedElements.add(this.editorPart.getSelectionHandler().getSelectedElements());
+        this.changedElements.repaint();
     }
 
-   
 }
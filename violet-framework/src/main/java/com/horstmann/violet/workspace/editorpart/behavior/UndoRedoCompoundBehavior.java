@@ -9,6 +9,7 @@ import java.util.List;
 import javax.swing.undo.CompoundEdit;
 import javax.swing.undo.UndoManager;
 
+import com.horstmann.violet.framework.file.persistence.EditJournal;
 import com.horstmann.violet.product.diagram.abstracts.edge.IEdge;
 import com.horstmann.violet.product.diagram.abstracts.node.IColorableNode;
 import com.horstmann.violet.product.diagram.abstracts.node.INode;
@@ -43,14 +44,20 @@ public class UndoRedoCompoundBehavior extends AbstractEditorPartBehavior
      */
     private List<IEditorPartBehavior> behaviors = new ArrayList<IEditorPartBehavior>();
 
+    /**
+     * Records edits, their undo and redo for autosave
+     */
+    private EditJournal journal;
 
     /**
      * Default constructor
      * @param editorPart
+     * @param journal where edits are recorded for autosave
      */
-    public UndoRedoCompoundBehavior(IEditorPart editorPart)
+    public UndoRedoCompoundBehavior(IEditorPart editorPart, EditJournal journal)
     {
         this.editorPart = editorPart;
+        this.journal = journal;
         behaviors.add(new UndoRedoOnAddBehavior(editorPart, this));
         behaviors.add(new UndoRedoOnDragBehavior(editorPart, this));
         behaviors.add(new UndoRedoOnEditBehavior(this));
@@ -227,6 +234,7 @@ public class UndoRedoCompoundBehavior extends AbstractEditorPartBehavior
         if (undoManager.canUndo())
         {
             undoManager.undo();
+            journal.editCompleted();
             editorPart.getSwingComponent().invalidate();
             editorPart.getSwingComponent().repaint();
         }
@@ -240,6 +248,7 @@ public class UndoRedoCompoundBehavior extends AbstractEditorPartBehavior
         if (undoManager.canRedo())
         {
             undoManager.redo();
+            journal.editCompleted();
             editorPart.getSwingComponent().invalidate();
             editorPart.getSwingComponent().repaint();
         }
@@ -257,6 +266,14 @@ public class UndoRedoCompoundBehavior extends AbstractEditorPartBehavior
     }
 
 
+    /**
+     * @return the journal where sub-behaviors record edits, their undo and redo
+     */
+    protected EditJournal getJournal()
+    {
+        return this.journal;
+    }
+
     /**
      * @return current composed undoable edit
      */
@@ -274,6 +291,7 @@ public class UndoRedoCompoundBehavior extends AbstractEditorPartBehavior
         this.currentCapturedEdit.end();
         this.undoManager.addEdit(this.currentCapturedEdit);
         this.currentCapturedEdit = null;
+        this.journal.editCompleted();
     }
     
     
@@ -83,6 +83,7 @@ public class UndoRedoOnAddBehavior extends AbstractEditorPartBehavior
         edgesReallyAdded.addAll(edgesOnGraphAfterAction);
         edgesReallyAdded.removeAll(this.edgesOnGraphBeforeAdd);
         
+        recordAddedElements(nodesReallyAdded, edgesReallyAdded);
         this.compoundBehavior.startHistoryCapture();
         CompoundEdit capturedEdit = this.compoundBehavior.getCurrentCapturedEdit();
 
@@ -97,6 +98,7 @@ public class UndoRedoOnAddBehavior extends AbstractEditorPartBehavior
                 {
                     IGraph graph = editorPart.getGraph();
                     graph.removeNode(aSelectedNode);
+                    compoundBehavior.getJournal().nodeRemoved(aSelectedNode);
                     super.undo();
                 }
 
@@ -106,6 +108,7 @@ public class UndoRedoOnAddBehavior extends AbstractEditorPartBehavior
                     super.redo();
                     IGraph graph = editorPart.getGraph();
                     graph.addNode(aSelectedNode, aSelectedNode.getLocationOnGraph());
+                    compoundBehavior.getJournal().nodeAdded(aSelectedNode);
                 }
             };
             capturedEdit.addEdit(edit);
@@ -120,6 +123,7 @@ public class UndoRedoOnAddBehavior extends AbstractEditorPartBehavior
                 {
                     IGraph graph = editorPart.getGraph();
                     graph.removeEdge(aSelectedEdge);
+                    compoundBehavior.getJournal().edgeRemoved(aSelectedEdge);
                     super.undo();
                 }
 
@@ -129,6 +133,7 @@ public class UndoRedoOnAddBehavior extends AbstractEditorPartBehavior
                     super.redo();
                     IGraph graph = editorPart.getGraph();
                     graph.connect(aSelectedEdge, aSelectedEdge.getStart(), aSelectedEdge.getStartLocation(), aSelectedEdge.getEnd(), aSelectedEdge.getEndLocation());
+                    compoundBehavior.getJournal().edgeAdded(aSelectedEdge);
                 }
             };
             capturedEdit.addEdit(edit);
@@ -164,6 +169,7 @@ public class UndoRedoOnAddBehavior extends AbstractEditorPartBehavior
         edgesReallyAdded.addAll(edgesOnGraphAfterAction);
         edgesReallyAdded.removeAll(this.edgesOnGraphBeforeAdd);
         
+        recordAddedElements(nodesReallyAdded, edgesReallyAdded);
         this.compoundBehavior.startHistoryCapture();
         CompoundEdit capturedEdit = this.compoundBehavior.getCurrentCapturedEdit();
 
@@ -178,6 +184,7 @@ public class UndoRedoOnAddBehavior extends AbstractEditorPartBehavior
                 {
                     IGraph graph = editorPart.getGraph();
                     graph.removeNode(aSelectedNode);
+                    compoundBehavior.getJournal().nodeRemoved(aSelectedNode);
                     super.undo();
                 }
 
@@ -187,6 +194,7 @@ public class UndoRedoOnAddBehavior extends AbstractEditorPartBehavior
                     super.redo();
                     IGraph graph = editorPart.getGraph();
                     graph.addNode(aSelectedNode, aSelectedNode.getLocationOnGraph());
+                    compoundBehavior.getJournal().nodeAdded(aSelectedNode);
                 }
             };
             capturedEdit.addEdit(edit);
@@ -201,6 +209,7 @@ public class UndoRedoOnAddBehavior extends AbstractEditorPartBehavior
                 {
                     IGraph graph = editorPart.getGraph();
                     graph.removeEdge(aSelectedEdge);
+                    compoundBehavior.getJournal().edgeRemoved(aSelectedEdge);
                     super.undo();
                 }
 
@@ -210,6 +219,7 @@ public class UndoRedoOnAddBehavior extends AbstractEditorPartBehavior
                     super.redo();
                     IGraph graph = editorPart.getGraph();
                     graph.connect(aSelectedEdge, aSelectedEdge.getStart(), aSelectedEdge.getStartLocation(), aSelectedEdge.getEnd(), aSelectedEdge.getEndLocation());
+                    compoundBehavior.getJournal().edgeAdded(aSelectedEdge);
                 }
             };
             capturedEdit.addEdit(edit);
@@ -222,5 +232,25 @@ public class UndoRedoOnAddBehavior extends AbstractEditorPartBehavior
         this.edgesOnGraphBeforeAdd.clear();
     }
 
+    /**
+     * Records added elements in the journal. Children are recorded with their parent.
+     * 
+     * @param nodesReallyAdded
+     * @param edgesReallyAdded
+     */
+    private void recordAddedElements(List<INode> nodesReallyAdded, List<IEdge> edgesReallyAdded)
+    {
+        for (INode aNode : nodesReallyAdded)
+        {
+            if (!nodesReallyAdded.contains(aNode.getParent()))
+            {
+                this.compoundBehavior.getJournal().nodeAdded(aNode);
+            }
+        }
+        for (IEdge anEdge : edgesReallyAdded)
+        {
+            this.compoundBehavior.getJournal().edgeAdded(anEdge);
+        }
+    }
 
 }
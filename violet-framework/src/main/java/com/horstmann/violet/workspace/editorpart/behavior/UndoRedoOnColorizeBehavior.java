@@ -49,6 +49,7 @@ public class UndoRedoOnColorizeBehavior extends AbstractEditorPartBehavior
         this.compoundBehavior.startHistoryCapture();
         CompoundEdit currentCapturedEdit = this.compoundBehavior.getCurrentCapturedEdit();
         currentCapturedEdit.addEdit(new UndoableColorEdit(element, this.oldColorChoice, this.newColorChoice));
+        this.compoundBehavior.getJournal().colorsChanged(element);
         this.compoundBehavior.stopHistoryCapture();
         reset();
     }
@@ -79,6 +80,7 @@ public class UndoRedoOnColorizeBehavior extends AbstractEditorPartBehavior
             this.element.setBackgroundColor(this.oldColorChoice.getBackgroundColor());
             this.element.setBorderColor(this.oldColorChoice.getBorderColor());
             this.element.setTextColor(this.oldColorChoice.getTextColor());
+            compoundBehavior.getJournal().colorsChanged(this.element);
         }
 
         @Override
@@ -87,6 +89,7 @@ public class UndoRedoOnColorizeBehavior extends AbstractEditorPartBehavior
             this.element.setBackgroundColor(this.newColorChoice.getBackgroundColor());
             this.element.setBorderColor(this.newColorChoice.getBorderColor());
             this.element.setTextColor(this.newColorChoice.getTextColor());
+            compoundBehavior.getJournal().colorsChanged(this.element);
         }
 
     }
@@ -112,6 +112,7 @@ public class UndoRedoOnDragBehavior extends AbstractEditorPartBehavior
                 public void undo() throws CannotUndoException
                 {
                     aSelectedNode.translate(-dx, -dy);
+                    compoundBehavior.getJournal().nodeMoved(aSelectedNode);
                     super.undo();
                 }
 
@@ -120,9 +121,11 @@ public class UndoRedoOnDragBehavior extends AbstractEditorPartBehavior
                 {
                     super.redo();
                     aSelectedNode.translate(dx, dy);
+                    compoundBehavior.getJournal().nodeMoved(aSelectedNode);
                 }
             };
             editList.add(edit);
+            this.compoundBehavior.getJournal().nodeMoved(aSelectedNode);
         }
         if (editList.size() > 0)
         {
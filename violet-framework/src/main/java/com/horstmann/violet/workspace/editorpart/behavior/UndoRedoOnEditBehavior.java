@@ -80,6 +80,7 @@ public class UndoRedoOnEditBehavior extends AbstractEditorPartBehavior
         Object newValue = event.getNewValue();
         Object oldValue = event.getOldValue();
         if (oldValue == null && newValue == null) return;
+        this.compoundBehavior.getJournal().propertyChanged(event.getSource(), event.getPropertyName(), newValue);
 //        boolean isOldValueRecognized = oldValue != null
 //                && (String.class.isInstance(oldValue) || MultiLineText.class.isInstance(oldValue));
 //        boolean isNewValueRecognized = oldValue != null
@@ -104,6 +105,17 @@ public class UndoRedoOnEditBehavior extends AbstractEditorPartBehavior
             private void changeNodeOrEdgeProperty(PropertyChangeEvent e)
             {
                 PropertyUtils.setProperty(e.getSource(), e.getPropertyName(), e.getNewValue());
+                compoundBehavior.getJournal().propertyChanged(e.getSource(), e.getPropertyName(), e.getNewValue());
+                if (e.getSource() instanceof INode)
+                {
+                    INode node = (INode) e.getSource();
+                    node.getGraph().invalidate(node);
+                }
+                if (e.getSource() instanceof IEdge && ((IEdge) e.getSource()).getStart() != null)
+                {
+                    IEdge edge = (IEdge) e.getSource();
+                    edge.getStart().getGraph().invalidate(edge);
+                }
             }
         };
         capturedEdit.addEdit(edit);
@@ -91,6 +91,7 @@ public class UndoRedoOnRemoveBehavior extends AbstractEditorPartBehavior
                     IGraph graph = editorPart.getGraph();
                     graph.connect(aSelectedEdge, aSelectedEdge.getStart(), aSelectedEdge.getStartLocation(),
                             aSelectedEdge.getEnd(), aSelectedEdge.getEndLocation());
+                    compoundBehavior.getJournal().edgeAdded(aSelectedEdge);
                     super.undo();
                 }
 
@@ -100,9 +101,11 @@ public class UndoRedoOnRemoveBehavior extends AbstractEditorPartBehavior
                     super.redo();
                     IGraph graph = editorPart.getGraph();
                     graph.removeEdge(aSelectedEdge);
+                    compoundBehavior.getJournal().edgeRemoved(aSelectedEdge);
                 }
             };
             capturedEdit.addEdit(edit);
+            this.compoundBehavior.getJournal().edgeRemoved(aSelectedEdge);
         }
 
         List<INode> filteredNodes = removeChildren(nodesReallyRemoved);
@@ -116,6 +119,7 @@ public class UndoRedoOnRemoveBehavior extends AbstractEditorPartBehavior
                 {
                     IGraph graph = editorPart.getGraph();
                     graph.addNode(aSelectedNode, aSelectedNode.getLocationOnGraph());
+                    compoundBehavior.getJournal().nodeAdded(aSelectedNode);
                     super.undo();
                 }
 
@@ -125,9 +129,11 @@ public class UndoRedoOnRemoveBehavior extends AbstractEditorPartBehavior
                     super.redo();
                     IGraph graph = editorPart.getGraph();
                     graph.removeNode(aSelectedNode);
+                    compoundBehavior.getJournal().nodeRemoved(aSelectedNode);
                 }
             };
             capturedEdit.addEdit(edit);
+            this.compoundBehavior.getJournal().nodeRemoved(aSelectedNode);
         }
 
         this.compoundBehavior.stopHistoryCapture();
@@ -69,6 +69,7 @@ public class UndoRedoOnTransitionPointChangeBehavior extends AbstractEditorPartB
 		this.compoundBehavior.startHistoryCapture();
 		CompoundEdit capturedEdit = this.compoundBehavior.getCurrentCapturedEdit();
 		captureChanges(this.graph, this.selectedEdge, this.transitionPointsBeforeChanges, this.transitionPointsAfterChanges, capturedEdit);
+		this.compoundBehavior.getJournal().transitionPointsChanged(edge);
 		this.compoundBehavior.stopHistoryCapture();
 	}
 
@@ -87,6 +88,7 @@ public class UndoRedoOnTransitionPointChangeBehavior extends AbstractEditorPartB
 				}
 
 				edge.setTransitionPoints(transitionPointsBeforeChangesCopy);
+				compoundBehavior.getJournal().transitionPointsChanged(edge);
 				removeAllTransitionPointsFromSelectionHandler(edge);
 			}
 
@@ -98,6 +100,7 @@ public class UndoRedoOnTransitionPointChangeBehavior extends AbstractEditorPartB
 				}
 				
 				edge.setTransitionPoints(transitionPointsAfterChangesCopy);
+				compoundBehavior.getJournal().transitionPointsChanged(edge);
 				removeAllTransitionPointsFromSelectionHandler(edge);
 			}
 		};
@@ -32,36 +32,69 @@ import java.awt.Insets;
 import java.awt.Point;
 import java.awt.Rectangle;
 import java.awt.Robot;
+import java.awt.RenderingHints;
+import java.awt.event.ActionEvent;
+import java.awt.event.ActionListener;
 import java.awt.event.ComponentAdapter;
 import java.awt.event.ComponentEvent;
 import java.awt.event.MouseEvent;
 import java.awt.geom.Area;
+import java.awt.geom.Line2D;
+import java.awt.geom.Point2D;
+import java.awt.geom.Rectangle2D;
 import java.awt.image.BufferedImage;
+import java.util.ArrayList;
+import java.util.List;
+import java.util.concurrent.ExecutionException;
 
 import javax.swing.BorderFactory;
 import javax.swing.JComponent;
 import javax.swing.JPanel;
 import javax.swing.JScrollPane;
 import javax.swing.SwingUtilities;
+import javax.swing.SwingWorker;
+import javax.swing.Timer;
 import javax.swing.event.MouseInputAdapter;
 import javax.swing.event.MouseInputListener;
 
+import com.horstmann.violet.product.diagram.abstracts.AbstractGraph;
+import com.horstmann.violet.product.diagram.abstracts.IGraph;
+import com.horstmann.violet.product.diagram.abstracts.edge.IEdge;
+import com.horstmann.violet.product.diagram.abstracts.node.IColorableNode;
+import com.horstmann.violet.product.diagram.abstracts.node.INode;
+import com.horstmann.violet.workspace.editorpart.IEditorPart;
+
+/**
+ * Shows a thumbnail of a scroll pane view with the visible part of it framed. Dragging the frame scrolls the view.<br/>
+ * <br/>
+ * When the view is a graph editor, the thumbnail is rendered from the graph at reduced detail on a background thread, from a
+ * copy of the node bounds and edge ends taken on the event dispatch thread. The graph is checked for changes a few times per
+ * second, so that a burst of edits leads to a single new thumbnail, which replaces the previous one once complete.
+ */
 public class ScrollPaneNavigatorPanel extends JPanel
 {
     private static final double MAX_SIZE = 200;
+    private static final int REFRESH_DELAY = 300;
     private JScrollPane theScrollPane;
     private JComponent theComponent;
+    private IEditorPart theEditorPart;
     private BufferedImage theImage;
     private Rectangle theStartRectangle;
     private Rectangle theRectangle;
     private Point theStartPoint;
     private double theScale;
+    private Timer theRefreshTimer;
+    private ThumbnailWorker theWorker;
+    private boolean isRefreshPending;
+    private int theRenderedRevision;
+    private Dimension theRenderedSize;
 
     public ScrollPaneNavigatorPanel(JScrollPane aScrollPane)
     {
         setBorder(BorderFactory.createEmptyBorder(5, 5, 5, 5));
         theScrollPane = aScrollPane;
         theComponent = (JComponent) theScrollPane.getViewport().getView();
+        theEditorPart = theComponent instanceof IEditorPart ? (IEditorPart) theComponent : null;
         theImage = null;
         theStartRectangle = null;
         theRectangle = null;
@@ -110,6 +143,25 @@ public class ScrollPaneNavigatorPanel extends JPanel
                 display();
             }
         });
+        theRefreshTimer = new Timer(REFRESH_DELAY, new ActionListener()
+        {
+            public void actionPerformed(ActionEvent e)
+            {
+                refreshIfChanged();
+            }
+        });
+    }
+
+    public void addNotify()
+    {
+        super.addNotify();
+        theRefreshTimer.start();
+    }
+
+    public void removeNotify()
+    {
+        theRefreshTimer.stop();
+        super.removeNotify();
     }
 
     protected void paintComponent(Graphics g1D)
@@ -141,20 +193,49 @@ public class ScrollPaneNavigatorPanel extends JPanel
     }
 
     private void display()
+    {
+        if (!updateScale()) return;
+        refreshThumbnail();
+        updateRectangle();
+
+        // Dimension pref = thePopupMenu.getPreferredSize();
+        //
+        // thePopupMenu.show(theButton,
+        // (theButton.getWidth() - pref.width) / 2,
+        // (theButton.getHeight() - pref.height) / 2);
+        repaint();
+
+        try
+        {
+            Robot robot = new Robot();
+            Point centerPoint = new Point(theRectangle.x + theRectangle.width / 2, theRectangle.y + theRectangle.height / 2);
+            SwingUtilities.convertPointToScreen(centerPoint, this);
+            robot.mouseMove(centerPoint.x, centerPoint.y);
+        }
+        catch (AWTException e)
+        {
+            e.printStackTrace();
+        }
+    }
+
+    /**
+     * Computes the scale of the thumbnail from the size of the view
+     * 
+     * @return false if the view is empty
+     */
+    private boolean updateScale()
     {
         double compWidth = theComponent.getWidth();
         double compHeight = theComponent.getHeight();
+        if (compWidth <= 0 || compHeight <= 0) return false;
         double scaleX = MAX_SIZE / compWidth;
         double scaleY = MAX_SIZE / compHeight;
         theScale = Math.min(scaleX, scaleY);
+        return true;
+    }
 
-        theImage = new BufferedImage((int) (theComponent.getWidth() * theScale), (int) (theComponent.getHeight() * theScale),
-                BufferedImage.TYPE_BYTE_BINARY);
-
-        Graphics2D g = theImage.createGraphics();
-        g.scale(theScale, theScale);
-        theComponent.paint(g);
-
+    private void updateRectangle()
+    {
         theStartRectangle = theComponent.getVisibleRect();
         Insets insets = getInsets();
         theStartRectangle.x = (int) (theScale * theStartRectangle.x + insets.left);
@@ -162,25 +243,60 @@ public class ScrollPaneNavigatorPanel extends JPanel
         theStartRectangle.width *= theScale;
         theStartRectangle.height *= theScale;
         theRectangle = theStartRectangle;
+    }
 
-        // Dimension pref = thePopupMenu.getPreferredSize();
-        //
-        // thePopupMenu.show(theButton,
-        // (theButton.getWidth() - pref.width) / 2,
-        // (theButton.getHeight() - pref.height) / 2);
+    /**
+     * Called by the refresh timer. Starts a new thumbnail if the graph or the size of the view has changed since the last one.
+     */
+    private void refreshIfChanged()
+    {
+        if (theEditorPart == null || !isShowing()) return;
+        if (getGeometryRevision() == theRenderedRevision && theComponent.getSize().equals(theRenderedSize)) return;
+        if (!updateScale()) return;
+        refreshThumbnail();
+        if (theStartPoint == null) updateRectangle();
         repaint();
+    }
 
-        try
+    /**
+     * Starts rendering a new thumbnail. If one is already being rendered, the new one is started when it completes, so that
+     * renderings never pile up.
+     */
+    private void refreshThumbnail()
+    {
+        if (theEditorPart == null)
         {
-            Robot robot = new Robot();
-            Point centerPoint = new Point(theRectangle.x + theRectangle.width / 2, theRectangle.y + theRectangle.height / 2);
-            SwingUtilities.convertPointToScreen(centerPoint, this);
-            robot.mouseMove(centerPoint.x, centerPoint.y);
+            // Any other view can only paint itself on this thread
+            theImage = new BufferedImage((int) (theComponent.getWidth() * theScale), (int) (theComponent.getHeight() * theScale),
+                    BufferedImage.TYPE_BYTE_BINARY);
+            Graphics2D g = theImage.createGraphics();
+            g.scale(theScale, theScale);
+            theComponent.paint(g);
+            g.dispose();
+            return;
         }
-        catch (AWTException e)
+        if (theWorker != null)
         {
-            e.printStackTrace();
+            isRefreshPending = true;
+            return;
         }
+        theRenderedRevision = getGeometryRevision();
+        theRenderedSize = theComponent.getSize();
+        theWorker = new ThumbnailWorker(new Thumbnail(theEditorPart, theRenderedSize, theScale));
+        theWorker.execute();
+    }
+
+    /**
+     * @return the geometry revision of the graph, or the last rendered one for graphs which do not track it
+     */
+    private int getGeometryRevision()
+    {
+        IGraph graph = theEditorPart.getGraph();
+        if (graph instanceof AbstractGraph)
+        {
+            return ((AbstractGraph) graph).getGeometryRevision();
+        }
+        return theRenderedRevision;
     }
 
     private void moveRectangle(int aDeltaX, int aDeltaY)
@@ -209,6 +325,108 @@ public class ScrollPaneNavigatorPanel extends JPanel
         // thePopupMenu.setVisible(false);
     }
 
+    /**
+     * Renders a thumbnail off the event dispatch thread and shows it once complete
+     */
+    private class ThumbnailWorker extends SwingWorker<BufferedImage, Void>
+    {
+        public ThumbnailWorker(Thumbnail aThumbnail)
+        {
+            theThumbnail = aThumbnail;
+        }
+
+        protected BufferedImage doInBackground()
+        {
+            return theThumbnail.render();
+        }
+
+        protected void done()
+        {
+            theWorker = null;
+            try
+            {
+                theImage = get();
+                revalidate();
+                repaint();
+            }
+            catch (InterruptedException e)
+            {
+                Thread.currentThread().interrupt();
+            }
+            catch (ExecutionException e)
+            {
+                e.printStackTrace();
+            }
+            if (isRefreshPending)
+            {
+                isRefreshPending = false;
+                refreshThumbnail();
+            }
+        }
+
+        private Thumbnail theThumbnail;
+    }
+
+    /**
+     * What the thumbnail shows of a graph : node boxes with their background color and edges as straight lines. It is copied
+     * from the graph so that it can be rendered while the graph is being edited.
+     */
+    private static class Thumbnail
+    {
+        public Thumbnail(IEditorPart anEditorPart, Dimension aViewSize, double aScale)
+        {
+            theWidth = Math.max(1, (int) (aViewSize.width * aScale));
+            theHeight = Math.max(1, (int) (aViewSize.height * aScale));
+            theScale = aScale * anEditorPart.getZoomFactor();
+            IGraph graph = anEditorPart.getGraph();
+            for (INode aNode : graph.getAllNodes())
+            {
+                Point2D location = aNode.getLocationOnGraph();
+                Rectangle2D bounds = aNode.getBounds();
+                theNodeBounds.add(new Rectangle2D.Double(location.getX(), location.getY(), bounds.getWidth(), bounds.getHeight()));
+                Color color = aNode instanceof IColorableNode ? ((IColorableNode) aNode).getBackgroundColor() : null;
+                theNodeColors.add(color != null ? color : Color.WHITE);
+            }
+            for (IEdge anEdge : graph.getAllEdges())
+            {
+                theEdgeLines.add(anEdge.getConnectionPoints());
+            }
+        }
+
+        public BufferedImage render()
+        {
+            BufferedImage image = new BufferedImage(theWidth, theHeight, BufferedImage.TYPE_INT_RGB);
+            Graphics2D g = image.createGraphics();
+            g.setColor(Color.WHITE);
+            g.fillRect(0, 0, theWidth, theHeight);
+            g.setRenderingHint(RenderingHints.KEY_ANTIALIASING, RenderingHints.VALUE_ANTIALIAS_OFF);
+            g.scale(theScale, theScale);
+            // Nodes are listed with children first, parents are drawn below them
+            for (int i = theNodeBounds.size() - 1; i >= 0; i--)
+            {
+                Rectangle2D bounds = theNodeBounds.get(i);
+                g.setColor(theNodeColors.get(i));
+                g.fill(bounds);
+                g.setColor(Color.GRAY);
+                g.draw(bounds);
+            }
+            g.setColor(Color.BLACK);
+            for (Line2D line : theEdgeLines)
+            {
+                g.draw(line);
+            }
+            g.dispose();
+            return image;
+        }
+
+        private int theWidth;
+        private int theHeight;
+        private double theScale;
+        private List<Rectangle2D> theNodeBounds = new ArrayList<Rectangle2D>();
+        private List<Color> theNodeColors = new ArrayList<Color>();
+        private List<Line2D> theEdgeLines = new ArrayList<Line2D>();
+    }
+
     // public static void main(String[] args) {
     // EventQueue.invokeLater(new Runnable() {
     // public void run() {
@@ -29,6 +29,8 @@ import java.awt.geom.Rectangle2D;
 
 import com.horstmann.violet.product.diagram.abstracts.node.EllipticalNode;
 import com.horstmann.violet.product.diagram.abstracts.property.MultiLineString;
+import com.horstmann.violet.product.diagram.state.simulation.Sampler;
+import com.horstmann.violet.product.diagram.state.simulation.Samplers;
 import com.horstmann.violet.workspace.sidebar.colortools.ColorToolsBarPanel;
 
 /**
@@ -91,9 +93,26 @@ public class CircularInitialStateNode extends EllipticalNode
 
     public void setLambda(String lambda) {
         this.lambda = lambda;
+        this.lambdaSampler = null;
+    }
+
+    /**
+     * Gets the compiled lambda expression, kept until the lambda property changes.
+     * 
+     * @return the arrival rate sampler
+     * @throws IllegalArgumentException if lambda is not a valid expression
+     */
+    public Sampler getLambdaSampler()
+    {
+        if (lambdaSampler == null)
+        {
+            lambdaSampler = Samplers.parse(lambda);
+        }
+        return lambdaSampler;
     }
 
     private String lambda;
+    private transient Sampler lambdaSampler;
 
     @Override
     public String getLimit() {
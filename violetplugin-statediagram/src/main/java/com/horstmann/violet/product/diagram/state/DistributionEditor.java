@@ -0,0 +1,109 @@
+/*
+ Violet - A program for editing UML diagrams.
+
+ Copyright (C) 2007 Cay S. Horstmann (http://horstmann.com)
+ Alexandre de Pellegrin (http://alexdp.free.fr);
+
+ This program is free software; you can redistribute it and/or modify
+ it under the terms of the GNU General Public License as published by
+ the Free Software Foundation; either version 2 of the License, or
+ (at your option) any later version.
+
+ This program is distributed in the hope that it will be useful,
+ but WITHOUT ANY WARRANTY; without even the implied warranty of
+ MERCHANTABILITY or FITNESS FOR A PARTICULAR PURPOSE.  See the
+ GNU General Public License for more details.
+
+ You should have received a copy of the GNU General Public License
+ along with this program; if not, write to the Free Software
+ Foundation, Inc., 59 Temple Place, Suite 330, Boston, MA  02111-1307  USA
+ */
+
+package com.horstmann.violet.product.diagram.state;
+
+import java.awt.Color;
+import java.awt.Component;
+import java.beans.PropertyEditorSupport;
+import java.text.MessageFormat;
+
+import javax.swing.JTextField;
+import javax.swing.event.DocumentEvent;
+import javax.swing.event.DocumentListener;
+
+import com.horstmann.violet.product.diagram.state.simulation.Samplers;
+
+/**
+ * Editor of the properties holding an AnyLogic distribution expression. The text is always applied to the node, as it is
+ * exported to AnyLogic unchanged. It is also compiled while it is typed : text which the local simulation cannot sample, such as
+ * AnyLogic expressions it does not know, is shown in red with the reason as tooltip.
+ */
+public class DistributionEditor extends PropertyEditorSupport
+{
+    public String getAsText()
+    {
+        return (String) getValue();
+    }
+
+    public void setAsText(String s)
+    {
+        setValue(s);
+    }
+
+    /**
+     * Checks that an expression can be simulated
+     * 
+     * @param text the typed expression
+     * @throws IllegalArgumentException if the expression cannot be simulated
+     */
+    protected void validate(String text)
+    {
+        Samplers.parse(text);
+    }
+
+    public boolean supportsCustomEditor()
+    {
+        return true;
+    }
+
+    public Component getCustomEditor()
+    {
+        final JTextField textField = new JTextField(getAsText(), 10);
+        final Color validColor = textField.getForeground();
+        textField.getDocument().addDocumentListener(new DocumentListener()
+        {
+            public void insertUpdate(DocumentEvent e)
+            {
+                update();
+            }
+
+            public void removeUpdate(DocumentEvent e)
+            {
+                update();
+            }
+
+            public void changedUpdate(DocumentEvent e)
+            {
+            }
+
+            private void update()
+            {
+                String text = textField.getText();
+                setAsText(text);
+                try
+                {
+                    validate(text);
+                    textField.setForeground(validColor);
+                    textField.setToolTipText(null);
+                }
+                catch (IllegalArgumentException exception)
+                {
+                    textField.setForeground(Color.RED);
+                    textField.setToolTipText(MessageFormat.format(NOT_SIMULATABLE, exception.getMessage()));
+                }
+            }
+        });
+        return textField;
+    }
+
+    private static final String NOT_SIMULATABLE = "Kept for AnyLogic, but cannot be simulated : {0}";
+}
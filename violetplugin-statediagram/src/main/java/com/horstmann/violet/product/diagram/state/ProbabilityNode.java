@@ -74,7 +74,7 @@ public class ProbabilityNode extends RectangularNode
     {
         super.draw(g2);
         // Perform drawing
-        Shape shape = getShape();
+        Shape shape = getShape(g2);
         g2.setColor(Color.YELLOW);
         g2.fill(shape);
         g2.setColor(Color.RED);
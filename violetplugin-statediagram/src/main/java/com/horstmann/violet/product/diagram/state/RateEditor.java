@@ -0,0 +1,41 @@
+/*
+ Violet - A program for editing UML diagrams.
+
+ Copyright (C) 2007 Cay S. Horstmann (http://horstmann.com)
+ Alexandre de Pellegrin (http://alexdp.free.fr);
+
+ This program is free software; you can redistribute it and/or modify
+ it under the terms of the GNU General Public License as published by
+ the Free Software Foundation; either version 2 of the License, or
+ (at your option) any later version.
+
+ This program is distributed in the hope that it will be useful,
+ but WITHOUT ANY WARRANTY; without even the implied warranty of
+ MERCHANTABILITY or FITNESS FOR A PARTICULAR PURPOSE.  See the
+ GNU General Public License for more details.
+
+ You should have received a copy of the GNU General Public License
+ along with this program; if not, write to the Free Software
+ Foundation, Inc., 59 Temple Place, Suite 330, Boston, MA  02111-1307  USA
+ */
+
+package com.horstmann.violet.product.diagram.state;
+
+import com.horstmann.violet.product.diagram.state.simulation.Sampler;
+import com.horstmann.violet.product.diagram.state.simulation.Samplers;
+
+/**
+ * Editor of the arrival rate of a source, which must be a non-negative constant expression such as "1/5"
+ */
+public class RateEditor extends DistributionEditor
+{
+    @Override
+    protected void validate(String text)
+    {
+        Sampler rate = Samplers.parse(text);
+        if (!Samplers.isConstant(rate) || rate.getMean() < 0)
+        {
+            throw new IllegalArgumentException("The rate must be a non-negative constant");
+        }
+    }
+}
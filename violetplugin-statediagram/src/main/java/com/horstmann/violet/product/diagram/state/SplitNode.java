@@ -73,7 +73,7 @@ public class SplitNode extends RectangularNode
     {
         super.draw(g2);
         // Perform drawing
-        Shape shape = getShape();
+        Shape shape = getShape(g2);
         g2.setColor(Color.GREEN);
         g2.fill(shape);
         g2.setColor(Color.MAGENTA);
@@ -34,6 +34,8 @@ import java.util.Random;
 import com.horstmann.violet.product.diagram.abstracts.edge.IEdge;
 import com.horstmann.violet.product.diagram.abstracts.node.RectangularNode;
 import com.horstmann.violet.product.diagram.abstracts.property.MultiLineString;
+import com.horstmann.violet.product.diagram.state.simulation.Sampler;
+import com.horstmann.violet.product.diagram.state.simulation.Samplers;
 
 /**
  * A node in a state diagram.
@@ -85,7 +87,7 @@ public class StateNode extends RectangularNode
         Color oldColor = g2.getColor();
 
         // Perform drawing
-        Shape shape = getShape();
+        Shape shape = getShape(g2);
         g2.setColor(getBackgroundColor());
         g2.fill(shape);
         g2.setColor(getBorderColor());
@@ -135,6 +137,7 @@ public class StateNode extends RectangularNode
     private String tob;
     private String queue;
     private String workers;
+    private transient Sampler tobSampler;
 
     @Override
     public String getTob() {
@@ -144,6 +147,22 @@ public class StateNode extends RectangularNode
     @Override
     public void setTob(String tob) {
         this.tob = tob;
+        this.tobSampler = null;
+    }
+
+    /**
+     * Gets the compiled tob expression, kept until the tob property changes.
+     * 
+     * @return the service time sampler
+     * @throws IllegalArgumentException if tob is not a valid expression
+     */
+    public Sampler getTobSampler()
+    {
+        if (tobSampler == null)
+        {
+            tobSampler = Samplers.parse(tob);
+        }
+        return tobSampler;
     }
 
     @Override
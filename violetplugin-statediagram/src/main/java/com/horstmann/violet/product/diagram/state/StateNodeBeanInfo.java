@@ -0,0 +1,60 @@
+/*
+ Violet - A program for editing UML diagrams.
+
+ Copyright (C) 2007 Cay S. Horstmann (http://horstmann.com)
+ Alexandre de Pellegrin (http://alexdp.free.fr);
+
+ This program is free software; you can redistribute it and/or modify
+ it under the terms of the GNU General Public License as published by
+ the Free Software Foundation; either version 2 of the License, or
+ (at your option) any later version.
+
+ This program is distributed in the hope that it will be useful,
+ but WITHOUT ANY WARRANTY; without even the implied warranty of
+ MERCHANTABILITY or FITNESS FOR A PARTICULAR PURPOSE.  See the
+ GNU General Public License for more details.
+
+ You should have received a copy of the GNU General Public License
+ along with this program; if not, write to the Free Software
+ Foundation, Inc., 59 Temple Place, Suite 330, Boston, MA  02111-1307  USA
+ */
+
+package com.horstmann.violet.product.diagram.state;
+
+import java.beans.IntrospectionException;
+import java.beans.Introspector;
+import java.beans.PropertyDescriptor;
+import java.beans.SimpleBeanInfo;
+
+/**
+ * The bean info for the StateNode type. Properties are the introspected ones, the tob property being checked while typed.
+ */
+public class StateNodeBeanInfo extends SimpleBeanInfo
+{
+    /*
+     * (non-Javadoc)
+     * 
+     * @see java.beans.BeanInfo#getPropertyDescriptors()
+     */
+    public PropertyDescriptor[] getPropertyDescriptors()
+    {
+        try
+        {
+            PropertyDescriptor[] descriptors = Introspector.getBeanInfo(StateNode.class, Introspector.IGNORE_IMMEDIATE_BEANINFO)
+                    .getPropertyDescriptors();
+            for (PropertyDescriptor aDescriptor : descriptors)
+            {
+                if ("tob".equals(aDescriptor.getName()))
+                {
+                    aDescriptor.setPropertyEditorClass(DistributionEditor.class);
+                }
+            }
+            return descriptors;
+        }
+        catch (IntrospectionException e)
+        {
+            e.printStackTrace();
+            return null;
+        }
+    }
+}
@@ -22,17 +22,17 @@
 package com.horstmann.violet.product.diagram.state;
 
 import java.awt.Dimension;
+import java.awt.Font;
 import java.awt.Graphics2D;
 import java.awt.Shape;
 import java.awt.geom.GeneralPath;
 import java.awt.geom.Line2D;
 import java.awt.geom.Point2D;
 import java.awt.geom.Rectangle2D;
-import java.awt.image.BufferedImage;
-
-import javax.swing.JLabel;
 
+import com.horstmann.violet.framework.util.TextLayoutCache;
 import com.horstmann.violet.product.diagram.abstracts.Direction;
+import com.horstmann.violet.product.diagram.abstracts.LevelOfDetail;
 import com.horstmann.violet.product.diagram.abstracts.edge.ShapeEdge;
 import com.horstmann.violet.product.diagram.abstracts.node.INode;
 import com.horstmann.violet.product.diagram.abstracts.property.ArrowHead;
@@ -50,6 +50,7 @@ public class StateTransitionEdge extends ShapeEdge
     public void setLabel(String newValue)
     {
         labelText = newValue;
+        invalidateOnGraph();
     }
 
     /**
@@ -65,6 +66,10 @@ public class StateTransitionEdge extends ShapeEdge
     public void draw(Graphics2D g2)
     {
         g2.draw(getShape());
+        if (LevelOfDetail.isSimplified(g2))
+        {
+            return;
+        }
         drawLabel(g2);
         ArrowHead.V.draw(g2, getControlPoint(), getConnectionPoints().getP2());
     }
@@ -79,9 +84,17 @@ public class StateTransitionEdge extends ShapeEdge
         Rectangle2D labelBounds = getLabelBounds();
         double x = labelBounds.getX();
         double y = labelBounds.getY();
+        TextLayoutCache.Layout layout = getLabelLayout();
 
         g2.translate(x, y);
-        label.paint(g2);
+        if (LevelOfDetail.isTextGreeked(g2))
+        {
+            layout.drawGreeked(g2, 0, 0, layout.getWidth(), layout.getHeight(), 0);
+        }
+        else
+        {
+            layout.draw(g2, 0, 0, layout.getWidth(), layout.getHeight(), 0);
+        }
         g2.translate(-x, -y);
     }
 
@@ -93,15 +106,18 @@ public class StateTransitionEdge extends ShapeEdge
      */
     private Rectangle2D getLabelBounds()
     {
-        BufferedImage dummy = new BufferedImage(1, 1, BufferedImage.TYPE_INT_RGB);
-        // need a dummy image to get a Graphics to
-        // measure the size
-        Graphics2D g2 = (Graphics2D) dummy.getGraphics();
-        
-        label.setText("<html>" + labelText + "</html>");
-        label.setFont(g2.getFont());
-        Dimension d = label.getPreferredSize();
-        label.setBounds(0, 0, d.width, d.height);
+        checkGeometryCache();
+        if (this.labelBounds == null)
+        {
+            this.labelBounds = computeLabelBounds();
+        }
+        return this.labelBounds;
+    }
+
+    private Rectangle2D computeLabelBounds()
+    {
+        TextLayoutCache.Layout layout = getLabelLayout();
+        Dimension d = new Dimension(layout.getWidth(), layout.getHeight());
 
         Line2D line = getConnectionPoints();
         Point2D control = getControlPoint();
@@ -127,6 +143,14 @@ public class StateTransitionEdge extends ShapeEdge
         return new Rectangle2D.Double(x, y, d.width, d.height);
     }
 
+    /**
+     * @return the measured label text, shared with other edges having the same label
+     */
+    private TextLayoutCache.Layout getLabelLayout()
+    {
+        return TextLayoutCache.getLayout(labelText != null ? labelText : "", LABEL_FONT, TextLayoutCache.LEFT);
+    }
+
     /**
      * Gets the control point for the quadratic spline.
      * 
@@ -143,20 +167,30 @@ public class StateTransitionEdge extends ShapeEdge
 
     public Shape getShape()
     {
-        Line2D line = getConnectionPoints();
-        Point2D control = getControlPoint();
-        GeneralPath p = new GeneralPath();
-        p.moveTo((float) line.getX1(), (float) line.getY1());
-        p.quadTo((float) control.getX(), (float) control.getY(), (float) line.getX2(), (float) line.getY2());
-        return p;
+        checkGeometryCache();
+        if (this.shape == null)
+        {
+            Line2D line = getConnectionPoints();
+            Point2D control = getControlPoint();
+            GeneralPath p = new GeneralPath();
+            p.moveTo((float) line.getX1(), (float) line.getY1());
+            p.quadTo((float) control.getX(), (float) control.getY(), (float) line.getX2(), (float) line.getY2());
+            this.shape = p;
+        }
+        return this.shape;
     }
 
     @Override
     public Rectangle2D getBounds()
     {
-        Rectangle2D r = super.getBounds();
-        r.add(getLabelBounds());
-        return r;
+        checkGeometryCache();
+        if (this.bounds == null)
+        {
+            Rectangle2D r = super.getBounds();
+            r.add(getLabelBounds());
+            this.bounds = r;
+        }
+        return (Rectangle2D) this.bounds.clone();
     }
     
     @Override
@@ -172,9 +206,22 @@ public class StateTransitionEdge extends ShapeEdge
         return super.getDirection(node);
     }
 
+    @Override
+    protected void clearGeometryCache()
+    {
+        super.clearGeometryCache();
+        this.shape = null;
+        this.labelBounds = null;
+        this.bounds = null;
+    }
+
 
     private double angle;
     private String labelText = "";
+    private transient Shape shape;
+    private transient Rectangle2D labelBounds;
+    private transient Rectangle2D bounds;
 
-    private static JLabel label = new JLabel();
+    /** Default font of image graphics, which labels have always been measured with */
+    private static final Font LABEL_FONT = new Font(Font.DIALOG, Font.PLAIN, 12);
 }
@@ -0,0 +1,202 @@
+/*
+ Violet - A program for editing UML diagrams.
+
+ Copyright (C) 2007 Cay S. Horstmann (http://horstmann.com)
+ Alexandre de Pellegrin (http://alexdp.free.fr);
+
+ This program is free software; you can redistribute it and/or modify
+ it under the terms of the GNU General Public License as published by
+ the Free Software Foundation; either version 2 of the License, or
+ (at your option) any later version.
+
+ This program is distributed in the hope that it will be useful,
+ but WITHOUT ANY WARRANTY; without even the implied warranty of
+ MERCHANTABILITY or FITNESS FOR A PARTICULAR PURPOSE.  See the
+ GNU General Public License for more details.
+
+ You should have received a copy of the GNU General Public License
+ along with this program; if not, write to the Free Software
+ Foundation, Inc., 59 Temple Place, Suite 330, Boston, MA  02111-1307  USA
+ */
+
+package com.horstmann.violet.product.diagram.state.simulation;
+
+import java.util.Arrays;
+import java.util.Collections;
+import java.util.List;
+
+import com.horstmann.violet.product.diagram.abstracts.node.INode;
+
+/**
+ * Steady state estimates computed by {@link NetworkSolver}. All times are in seconds, like the times of the diagram and of
+ * {@link SimulationResult}, and all rates in entities per second. Times are also given in milliseconds for display.
+ */
+public class AnalyticResult
+{
+    /**
+     * Estimates of one block of the network
+     */
+    public static class BlockEstimate
+    {
+        BlockEstimate(INode node)
+        {
+            this.node = node;
+        }
+
+        public INode getNode()
+        {
+            return this.node;
+        }
+
+        /**
+         * @return mean arrival rate solved from the traffic equations
+         */
+        public double getArrivalRate()
+        {
+            return this.arrivalRate;
+        }
+
+        /**
+         * @return mean departure rate
+         */
+        public double getThroughput()
+        {
+            return this.throughput;
+        }
+
+        /**
+         * @return busy fraction of the workers, may be greater than 1 when the station is overloaded
+         */
+        public double getUtilization()
+        {
+            return this.utilization;
+        }
+
+        public double getMeanQueueLength()
+        {
+            return this.meanQueueLength;
+        }
+
+        public double getMeanWaitingTime()
+        {
+            return this.meanWaitingTime;
+        }
+
+        public double getMeanSojournTime()
+        {
+            return this.meanSojournTime;
+        }
+
+        /**
+         * @return mean waiting time in milliseconds
+         */
+        public double getMeanWaitingTimeMillis()
+        {
+            return this.meanWaitingTime * MILLIS_PER_SECOND;
+        }
+
+        /**
+         * @return mean sojourn time in milliseconds, waiting and service included
+         */
+        public double getMeanSojournTimeMillis()
+        {
+            return this.meanSojournTime * MILLIS_PER_SECOND;
+        }
+
+        /**
+         * @return false if the offered load exceeds the capacity of the workers, in which case queue length and times are
+         *         infinite
+         */
+        public boolean isStable()
+        {
+            return this.stable;
+        }
+
+        private final INode node;
+        double arrivalRate;
+        double throughput;
+        double utilization;
+        double meanQueueLength;
+        double meanWaitingTime;
+        double meanSojournTime;
+        boolean stable = true;
+    }
+
+    AnalyticResult(BlockEstimate[] blocks, double timeInSystem, int largestLoop)
+    {
+        this.blocks = blocks;
+        this.timeInSystem = timeInSystem;
+        this.largestLoop = largestLoop;
+    }
+
+    /**
+     * @return per block estimates, in model order
+     */
+    public List<BlockEstimate> getBlockEstimates()
+    {
+        return Collections.unmodifiableList(Arrays.asList(this.blocks));
+    }
+
+    /**
+     * @param node a diagram node
+     * @return estimates of the block built from this node, or null
+     */
+    public BlockEstimate getBlockEstimate(INode node)
+    {
+        for (BlockEstimate aBlock : this.blocks)
+        {
+            if (aBlock.getNode() == node)
+            {
+                return aBlock;
+            }
+        }
+        return null;
+    }
+
+    /**
+     * @return mean time between source and final nodes given by Little's law, infinite if a station is unstable
+     */
+    public double getTimeInSystem()
+    {
+        return this.timeInSystem;
+    }
+
+    /**
+     * @return {@link #getTimeInSystem()} in milliseconds
+     */
+    public double getTimeInSystemMillis()
+    {
+        return this.timeInSystem * MILLIS_PER_SECOND;
+    }
+
+    /**
+     * @return true if every station is stable
+     */
+    public boolean isStable()
+    {
+        for (BlockEstimate aBlock : this.blocks)
+        {
+            if (!aBlock.isStable())
+            {
+                return false;
+            }
+        }
+        return true;
+    }
+
+    /**
+     * @return number of blocks of the largest loop of the network, whose traffic equations were solved together, 0 if it has
+     *         no loop
+     */
+    public int getLargestLoop()
+    {
+        return this.largestLoop;
+    }
+
+    private static final double MILLIS_PER_SECOND = 1000;
+
+    private final BlockEstimate[] blocks;
+    private final double timeInSystem;
+    private final int largestLoop;
+
+}
@@ -0,0 +1,150 @@
+/*
+ Violet - A program for editing UML diagrams.
+
+ Copyright (C) 2007 Cay S. Horstmann (http://horstmann.com)
+ Alexandre de Pellegrin (http://alexdp.free.fr);
+
+ This program is free software; you can redistribute it and/or modify
+ it under the terms of the GNU General Public License as published by
+ the Free Software Foundation; either version 2 of the License, or
+ (at your option) any later version.
+
+ This program is distributed in the hope that it will be useful,
+ but WITHOUT ANY WARRANTY; without even the implied warranty of
+ MERCHANTABILITY or FITNESS FOR A PARTICULAR PURPOSE.  See the
+ GNU General Public License for more details.
+
+ You should have received a copy of the GNU General Public License
+ along with this program; if not, write to the Free Software
+ Foundation, Inc., 59 Temple Place, Suite 330, Boston, MA  02111-1307  USA
+ */
+
+package com.horstmann.violet.product.diagram.state.simulation;
+
+import com.horstmann.violet.product.diagram.abstracts.node.INode;
+
+/**
+ * Statistics collected on one block during a simulation run. Time averages only make sense for service blocks and are 0 for the
+ * other ones.
+ */
+public class BlockStatistics
+{
+    BlockStatistics(INode node, int workers)
+    {
+        this.node = node;
+        this.workers = workers;
+    }
+
+    /**
+     * @return the diagram node of this block
+     */
+    public INode getNode()
+    {
+        return this.node;
+    }
+
+    /**
+     * @return number of entities which entered the block
+     */
+    public long getArrivals()
+    {
+        return this.arrivals;
+    }
+
+    /**
+     * @return number of entities which left the block
+     */
+    public long getDepartures()
+    {
+        return this.departures;
+    }
+
+    /**
+     * @return number of entities refused because the queue was full
+     */
+    public long getLost()
+    {
+        return this.lost;
+    }
+
+    /**
+     * @return number of entities discarded because the output they were sent to is not connected
+     */
+    public long getDisposed()
+    {
+        return this.disposed;
+    }
+
+    /**
+     * @return mean fraction of busy workers
+     */
+    public double getUtilization()
+    {
+        return this.duration > 0 && this.workers > 0 ? this.busyArea / (this.duration * this.workers) : 0;
+    }
+
+    /**
+     * @return time average number of entities waiting in the queue
+     */
+    public double getMeanQueueLength()
+    {
+        return this.duration > 0 ? this.queueArea / this.duration : 0;
+    }
+
+    /**
+     * @return largest number of entities waiting in the queue
+     */
+    public int getMaxQueueLength()
+    {
+        return this.maxQueueLength;
+    }
+
+    /**
+     * @return time spent by entities in the queue, in seconds
+     */
+    public Tally getWaitingTime()
+    {
+        return this.waitingTime;
+    }
+
+    /**
+     * @return time spent by entities in the block (queue and service), in seconds
+     */
+    public Tally getSojournTime()
+    {
+        return this.sojournTime;
+    }
+
+    /**
+     * Accumulates time weighted areas up to the given time
+     *
+     * @param now current model time
+     */
+    void advance(double now)
+    {
+        double elapsed = now - this.lastChange;
+        this.busyArea += elapsed * this.busy;
+        this.queueArea += elapsed * this.queueLength;
+        this.lastChange = now;
+    }
+
+    private final INode node;
+    private final int workers;
+
+    long arrivals;
+    long departures;
+    long lost;
+    long disposed;
+
+    int busy;
+    int queueLength;
+    int maxQueueLength;
+    double lastChange;
+    double busyArea;
+    double queueArea;
+    double duration;
+
+    final Tally waitingTime = new Tally();
+    final Tally sojournTime = new Tally();
+
+}
@@ -0,0 +1,204 @@
+/*
+ Violet - A program for editing UML diagrams.
+
+ Copyright (C) 2007 Cay S. Horstmann (http://horstmann.com)
+ Alexandre de Pellegrin (http://alexdp.free.fr);
+
+ This program is free software; you can redistribute it and/or modify
+ it under the terms of the GNU General Public License as published by
+ the Free Software Foundation; either version 2 of the License, or
+ (at your option) any later version.
+
+ This program is distributed in the hope that it will be useful,
+ but WITHOUT ANY WARRANTY; without even the implied warranty of
+ MERCHANTABILITY or FITNESS FOR A PARTICULAR PURPOSE.  See the
+ GNU General Public License for more details.
+
+ You should have received a copy of the GNU General Public License
+ along with this program; if not, write to the Free Software
+ Foundation, Inc., 59 Temple Place, Suite 330, Boston, MA  02111-1307  USA
+ */
+
+package com.horstmann.violet.product.diagram.state.simulation;
+
+/**
+ * Student-t confidence interval of a mean estimated from independent replications
+ */
+public class ConfidenceInterval
+{
+    /**
+     * @param tally one observation per replication
+     * @param level confidence level, for example 0.95
+     */
+    public ConfidenceInterval(Tally tally, double level)
+    {
+        this.mean = tally.getMean();
+        this.count = tally.getCount();
+        this.level = level;
+        if (this.count > 1)
+        {
+            double t = studentQuantile(0.5 + level / 2, this.count - 1);
+            this.halfWidth = t * tally.getDeviation() / Math.sqrt(this.count);
+        }
+        else
+        {
+            this.halfWidth = Double.NaN;
+        }
+    }
+
+    /**
+     * @return point estimate
+     */
+    public double getMean()
+    {
+        return this.mean;
+    }
+
+    /**
+     * @return half width of the interval, NaN if there are less than two replications
+     */
+    public double getHalfWidth()
+    {
+        return this.halfWidth;
+    }
+
+    public double getLower()
+    {
+        return this.mean - this.halfWidth;
+    }
+
+    public double getUpper()
+    {
+        return this.mean + this.halfWidth;
+    }
+
+    /**
+     * @return number of replications
+     */
+    public long getCount()
+    {
+        return this.count;
+    }
+
+    /**
+     * @return confidence level
+     */
+    public double getLevel()
+    {
+        return this.level;
+    }
+
+    @Override
+    public String toString()
+    {
+        return String.format("%.4f ± %.4f", this.mean, this.halfWidth);
+    }
+
+    /**
+     * Inverts the Student-t distribution function by bisection
+     *
+     * @param p probability, greater than 0.5
+     * @param degrees degrees of freedom
+     * @return t such that P(T &lt;= t) = p
+     */
+    static double studentQuantile(double p, long degrees)
+    {
+        double low = 0;
+        double high = 1;
+        while (studentCdf(high, degrees) < p)
+        {
+            high *= 2;
+        }
+        for (int i = 0; i < 100 && high - low > 1e-10; i++)
+        {
+            double middle = (low + high) / 2;
+            if (studentCdf(middle, degrees) < p)
+            {
+                low = middle;
+            }
+            else
+            {
+                high = middle;
+            }
+        }
+        return (low + high) / 2;
+    }
+
+    private static double studentCdf(double t, long degrees)
+    {
+        double x = degrees / (degrees + t * t);
+        double tail = 0.5 * regularizedBeta(x, degrees / 2.0, 0.5);
+        return t >= 0 ? 1 - tail : tail;
+    }
+
+    /**
+     * Regularized incomplete beta function, evaluated with Lentz's continued fraction
+     */
+    private static double regularizedBeta(double x, double a, double b)
+    {
+        if (x <= 0) return 0;
+        if (x >= 1) return 1;
+        if (x > (a + 1) / (a + b + 2))
+        {
+            return 1 - regularizedBeta(1 - x, b, a);
+        }
+        double front = Math.exp(logGamma(a + b) - logGamma(a) - logGamma(b) + a * Math.log(x) + b * Math.log(1 - x)) / a;
+        double tiny = 1e-300;
+        double f = 1;
+        double c = 1;
+        double d = 0;
+        for (int i = 0; i <= 300; i++)
+        {
+            int m = i / 2;
+            double numerator;
+            if (i == 0)
+            {
+                numerator = 1;
+            }
+            else if (i % 2 == 0)
+            {
+                numerator = m * (b - m) * x / ((a + 2 * m - 1) * (a + 2 * m));
+            }
+            else
+            {
+                numerator = -((a + m) * (a + b + m) * x) / ((a + 2 * m) * (a + 2 * m + 1));
+            }
+            d = 1 + numerator * d;
+            if (Math.abs(d) < tiny) d = tiny;
+            d = 1 / d;
+            c = 1 + numerator / c;
+            if (Math.abs(c) < tiny) c = tiny;
+            double delta = c * d;
+            f *= delta;
+            if (Math.abs(1 - delta) < 1e-12)
+            {
+                break;
+            }
+        }
+        return front * (f - 1);
+    }
+
+    /**
+     * Lanczos approximation of ln(Gamma(x))
+     */
+    private static double logGamma(double x)
+    {
+        double[] coefficients = { 76.18009172947146, -86.50532032941677, 24.01409824083091, -1.231739572450155,
+                0.1208650973866179e-2, -0.5395239384953e-5 };
+        double y = x;
+        double tmp = x + 5.5;
+        tmp -= (x + 0.5) * Math.log(tmp);
+        double series = 1.000000000190015;
+        for (double coefficient : coefficients)
+        {
+            series += coefficient / ++y;
+        }
+        return -tmp + Math.log(2.5066282746310005 * series / x);
+    }
+
+    private final double mean;
+    private final double halfWidth;
+    private final long count;
+    private final double level;
+
+}
@@ -0,0 +1,134 @@
+/*
+ Violet - A program for editing UML diagrams.
+
+ Copyright (C) 2007 Cay S. Horstmann (http://horstmann.com)
+ Alexandre de Pellegrin (http://alexdp.free.fr);
+
+ This program is free software; you can redistribute it and/or modify
+ it under the terms of the GNU General Public License as published by
+ the Free Software Foundation; either version 2 of the License, or
+ (at your option) any later version.
+
+ This program is distributed in the hope that it will be useful,
+ but WITHOUT ANY WARRANTY; without even the implied warranty of
+ MERCHANTABILITY or FITNESS FOR A PARTICULAR PURPOSE.  See the
+ GNU General Public License for more details.
+
+ You should have received a copy of the GNU General Public License
+ along with this program; if not, write to the Free Software
+ Foundation, Inc., 59 Temple Place, Suite 330, Boston, MA  02111-1307  USA
+ */
+
+package com.horstmann.violet.product.diagram.state.simulation;
+
+import java.util.Arrays;
+
+/**
+ * Recycles the entities (transactions) flowing through the model. Entities are referenced by an integer handle so that the event
+ * list can store them in a primitive array, and released entities are reused instead of being garbage collected.
+ */
+final class EntityPool
+{
+    /**
+     * A transaction moving between blocks
+     */
+    static final class Entity
+    {
+        /** Handle of this entity in the pool */
+        final int handle;
+
+        /** Time at which the entity left its source */
+        double createdAt;
+
+        /** Time at which the entity entered its current block */
+        double enteredAt;
+
+        /** Next entity in the block queue this entity is waiting in, or null */
+        Entity next;
+
+        Entity(int handle)
+        {
+            this.handle = handle;
+        }
+    }
+
+    EntityPool(int initialCapacity)
+    {
+        this.entities = new Entity[Math.max(initialCapacity, 16)];
+        this.free = new int[this.entities.length];
+    }
+
+    /**
+     * @param createdAt creation time of the entity
+     * @return a free entity
+     */
+    Entity acquire(double createdAt)
+    {
+        Entity entity;
+        if (this.freeCount > 0)
+        {
+            entity = this.entities[this.free[--this.freeCount]];
+        }
+        else
+        {
+            if (this.allocated == this.entities.length)
+            {
+                this.entities = Arrays.copyOf(this.entities, this.entities.length * 2);
+                this.free = Arrays.copyOf(this.free, this.entities.length);
+            }
+            entity = new Entity(this.allocated);
+            this.entities[this.allocated++] = entity;
+        }
+        entity.createdAt = createdAt;
+        entity.enteredAt = createdAt;
+        entity.next = null;
+        return entity;
+    }
+
+    /**
+     * Gives an entity back to the pool
+     *
+     * @param entity e
+     */
+    void release(Entity entity)
+    {
+        entity.next = null;
+        this.free[this.freeCount++] = entity.handle;
+    }
+
+    /**
+     * @param handle h
+     * @return the entity bound to this handle
+     */
+    Entity get(int handle)
+    {
+        return this.entities[handle];
+    }
+
+    /**
+     * Makes all the entities available again
+     */
+    void reset()
+    {
+        for (int i = 0; i < this.allocated; i++)
+        {
+            this.free[i] = this.allocated - 1 - i;
+            this.entities[i].next = null;
+        }
+        this.freeCount = this.allocated;
+    }
+
+    /**
+     * @return number of entities currently in use
+     */
+    int inUse()
+    {
+        return this.allocated - this.freeCount;
+    }
+
+    private Entity[] entities;
+    private int[] free;
+    private int freeCount;
+    private int allocated;
+
+}
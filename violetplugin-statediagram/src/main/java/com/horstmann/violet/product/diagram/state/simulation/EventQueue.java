@@ -0,0 +1,188 @@
+/*
+ Violet - A program for editing UML diagrams.
+
+ Copyright (C) 2007 Cay S. Horstmann (http://horstmann.com)
+ Alexandre de Pellegrin (http://alexdp.free.fr);
+
+ This program is free software; you can redistribute it and/or modify
+ it under the terms of the GNU General Public License as published by
+ the Free Software Foundation; either version 2 of the License, or
+ (at your option) any later version.
+
+ This program is distributed in the hope that it will be useful,
+ but WITHOUT ANY WARRANTY; without even the implied warranty of
+ MERCHANTABILITY or FITNESS FOR A PARTICULAR PURPOSE.  See the
+ GNU General Public License for more details.
+
+ You should have received a copy of the GNU General Public License
+ along with this program; if not, write to the Free Software
+ Foundation, Inc., 59 Temple Place, Suite 330, Boston, MA  02111-1307  USA
+ */
+
+package com.horstmann.violet.product.diagram.state.simulation;
+
+import java.util.Arrays;
+
+/**
+ * Future event list of the simulation engine. It is a binary min-heap stored in parallel primitive arrays so that scheduling an
+ * event never allocates once the arrays have reached their working size.<br/>
+ * Simultaneous events are served last-in first-out, as the exported AnyLogic experiment does
+ * (SelectionModeForSimultaneousEvents = LIFO).
+ */
+final class EventQueue
+{
+    EventQueue(int initialCapacity)
+    {
+        int capacity = Math.max(initialCapacity, 16);
+        this.times = new double[capacity];
+        this.sequences = new long[capacity];
+        this.blocks = new int[capacity];
+        this.entities = new int[capacity];
+    }
+
+    /**
+     * Schedules an event
+     *
+     * @param time model time of the event
+     * @param block index of the block which handles the event
+     * @param entity handle of the entity concerned, or -1
+     */
+    void push(double time, int block, int entity)
+    {
+        if (this.size == this.times.length)
+        {
+            grow();
+        }
+        int i = this.size++;
+        long sequence = this.counter++;
+        while (i > 0)
+        {
+            int parent = (i - 1) >>> 1;
+            if (!before(time, sequence, parent))
+            {
+                break;
+            }
+            move(parent, i);
+            i = parent;
+        }
+        set(i, time, sequence, block, entity);
+    }
+
+    /**
+     * Removes the earliest event. Its content is then available through {@link #time()}, {@link #block()} and {@link #entity()}.
+     */
+    void poll()
+    {
+        this.time = this.times[0];
+        this.block = this.blocks[0];
+        this.entity = this.entities[0];
+        int last = --this.size;
+        if (last == 0)
+        {
+            return;
+        }
+        double lastTime = this.times[last];
+        long lastSequence = this.sequences[last];
+        int lastBlock = this.blocks[last];
+        int lastEntity = this.entities[last];
+        int i = 0;
+        int half = last >>> 1;
+        while (i < half)
+        {
+            int child = 2 * i + 1;
+            int right = child + 1;
+            if (right < last && before(this.times[right], this.sequences[right], child))
+            {
+                child = right;
+            }
+            if (!before(this.times[child], this.sequences[child], lastTime, lastSequence))
+            {
+                break;
+            }
+            move(child, i);
+            i = child;
+        }
+        set(i, lastTime, lastSequence, lastBlock, lastEntity);
+    }
+
+    boolean isEmpty()
+    {
+        return this.size == 0;
+    }
+
+    /**
+     * @return time of the earliest pending event
+     */
+    double peekTime()
+    {
+        return this.times[0];
+    }
+
+    double time()
+    {
+        return this.time;
+    }
+
+    int block()
+    {
+        return this.block;
+    }
+
+    int entity()
+    {
+        return this.entity;
+    }
+
+    void clear()
+    {
+        this.size = 0;
+        this.counter = 0;
+    }
+
+    private boolean before(double t, long s, int index)
+    {
+        return before(t, s, this.times[index], this.sequences[index]);
+    }
+
+    private static boolean before(double t1, long s1, double t2, long s2)
+    {
+        return t1 < t2 || (t1 == t2 && s1 > s2);
+    }
+
+    private void move(int from, int to)
+    {
+        this.times[to] = this.times[from];
+        this.sequences[to] = this.sequences[from];
+        this.blocks[to] = this.blocks[from];
+        this.entities[to] = this.entities[from];
+    }
+
+    private void set(int i, double t, long s, int b, int e)
+    {
+        this.times[i] = t;
+        this.sequences[i] = s;
+        this.blocks[i] = b;
+        this.entities[i] = e;
+    }
+
+    private void grow()
+    {
+        int capacity = this.times.length * 2;
+        this.times = Arrays.copyOf(this.times, capacity);
+        this.sequences = Arrays.copyOf(this.sequences, capacity);
+        this.blocks = Arrays.copyOf(this.blocks, capacity);
+        this.entities = Arrays.copyOf(this.entities, capacity);
+    }
+
+    private double[] times;
+    private long[] sequences;
+    private int[] blocks;
+    private int[] entities;
+    private int size;
+    private long counter;
+
+    private double time;
+    private int block;
+    private int entity;
+
+}
@@ -0,0 +1,316 @@
+/*
+ Violet - A program for editing UML diagrams.
+
+ Copyright (C) 2007 Cay S. Horstmann (http://horstmann.com)
+ Alexandre de Pellegrin (http://alexdp.free.fr);
+
+ This program is free software; you can redistribute it and/or modify
+ it under the terms of the GNU General Public License as published by
+ the Free Software Foundation; either version 2 of the License, or
+ (at your option) any later version.
+
+ This program is distributed in the hope that it will be useful,
+ but WITHOUT ANY WARRANTY; without even the implied warranty of
+ MERCHANTABILITY or FITNESS FOR A PARTICULAR PURPOSE.  See the
+ GNU General Public License for more details.
+
+ You should have received a copy of the GNU General Public License
+ along with this program; if not, write to the Free Software
+ Foundation, Inc., 59 Temple Place, Suite 330, Boston, MA  02111-1307  USA
+ */
+
+package com.horstmann.violet.product.diagram.state.simulation;
+
+import java.util.ArrayList;
+import java.util.List;
+
+/**
+ * Recursive descent compiler of the expressions accepted by {@link Samplers#parse(String)}.<br/>
+ * <br/>
+ * Grammar :
+ * 
+ * <pre>
+ * expression := term (('+' | '-') term)*
+ * term       := factor (('*' | '/') factor)*
+ * factor     := ('+' | '-') factor | number | name '(' [expression (',' expression)*] ')' | '(' expression ')'
+ * </pre>
+ */
+final class ExpressionParser
+{
+    /**
+     * @param expression text to compile
+     */
+    ExpressionParser(String expression)
+    {
+        this.text = expression;
+    }
+
+    /**
+     * @return the compiled expression
+     * @throws IllegalArgumentException if the text is not a valid expression
+     */
+    Sampler parse()
+    {
+        Sampler result = parseExpression();
+        skipSpaces();
+        if (this.position < this.text.length())
+        {
+            throw error("Unexpected '" + this.text.charAt(this.position) + "'");
+        }
+        return result;
+    }
+
+    private Sampler parseExpression()
+    {
+        Sampler result = parseTerm();
+        while (true)
+        {
+            if (accept('+'))
+            {
+                Sampler right = parseTerm();
+                result = fold(result, right, '+');
+            }
+            else if (accept('-'))
+            {
+                Sampler right = parseTerm();
+                result = fold(result, right, '-');
+            }
+            else
+            {
+                return result;
+            }
+        }
+    }
+
+    private Sampler parseTerm()
+    {
+        Sampler result = parseFactor();
+        while (true)
+        {
+            if (accept('*'))
+            {
+                Sampler right = parseFactor();
+                result = fold(result, right, '*');
+            }
+            else if (accept('/'))
+            {
+                Sampler right = parseFactor();
+                result = fold(result, right, '/');
+            }
+            else
+            {
+                return result;
+            }
+        }
+    }
+
+    private Sampler parseFactor()
+    {
+        if (accept('+'))
+        {
+            return parseFactor();
+        }
+        if (accept('-'))
+        {
+            return fold(Samplers.constant(0), parseFactor(), '-');
+        }
+        if (accept('('))
+        {
+            Sampler result = parseExpression();
+            expect(')');
+            return result;
+        }
+        skipSpaces();
+        if (this.position >= this.text.length())
+        {
+            throw error("Unexpected end of expression");
+        }
+        char c = this.text.charAt(this.position);
+        if (Character.isDigit(c) || c == '.')
+        {
+            return Samplers.constant(parseNumber());
+        }
+        if (Character.isJavaIdentifierStart(c))
+        {
+            return parseCall();
+        }
+        throw error("Unexpected '" + c + "'");
+    }
+
+    private double parseNumber()
+    {
+        int start = this.position;
+        while (this.position < this.text.length())
+        {
+            char c = this.text.charAt(this.position);
+            boolean exponentSign = (c == '+' || c == '-') && this.position > start
+                    && Character.toLowerCase(this.text.charAt(this.position - 1)) == 'e';
+            if (!Character.isDigit(c) && c != '.' && c != 'e' && c != 'E' && !exponentSign)
+            {
+                break;
+            }
+            this.position++;
+        }
+        String token = this.text.substring(start, this.position);
+        // Java literal suffixes, as the expression is also AnyLogic code
+        if (this.position < this.text.length() && "dDfF".indexOf(this.text.charAt(this.position)) >= 0)
+        {
+            this.position++;
+        }
+        try
+        {
+            return Double.parseDouble(token);
+        }
+        catch (NumberFormatException e)
+        {
+            this.position = start;
+            throw error("Invalid number '" + token + "'");
+        }
+    }
+
+    private Sampler parseCall()
+    {
+        int start = this.position;
+        while (this.position < this.text.length() && Character.isJavaIdentifierPart(this.text.charAt(this.position)))
+        {
+            this.position++;
+        }
+        String name = this.text.substring(start, this.position);
+        expect('(');
+        List<Sampler> arguments = new ArrayList<Sampler>();
+        if (!accept(')'))
+        {
+            do
+            {
+                arguments.add(parseExpression());
+            }
+            while (accept(','));
+            expect(')');
+        }
+        double[] values = new double[arguments.size()];
+        for (int i = 0; i < values.length; i++)
+        {
+            if (!Samplers.isConstant(arguments.get(i)))
+            {
+                throw error("Parameters of " + name + " must be constants");
+            }
+            values[i] = arguments.get(i).getMean();
+        }
+        return distribution(name, values);
+    }
+
+    private Sampler distribution(String name, double[] args)
+    {
+        int count = args.length;
+        if ("uniform".equals(name) && count <= 2)
+        {
+            double min = count == 2 ? args[0] : 0;
+            double max = count == 0 ? 1 : args[count - 1];
+            check(min <= max, "uniform requires min <= max");
+            return Samplers.uniform(min, max);
+        }
+        if ("exponential".equals(name) && (count == 1 || count == 2))
+        {
+            check(args[0] > 0, "exponential requires a positive rate");
+            return Samplers.exponential(args[0], count == 2 ? args[1] : 0);
+        }
+        if ("triangular".equals(name) && count == 3)
+        {
+            check(args[0] < args[1] && args[0] <= args[2] && args[2] <= args[1], "triangular requires min < max and min <= mode <= max");
+            return Samplers.triangular(args[0], args[1], args[2]);
+        }
+        if ("normal".equals(name) && count <= 2)
+        {
+            double sigma = count >= 1 ? args[0] : 1;
+            check(sigma >= 0, "normal requires a positive sigma");
+            return Samplers.normal(sigma, count == 2 ? args[1] : 0);
+        }
+        if ("lognormal".equals(name) && (count == 2 || count == 3))
+        {
+            check(args[1] >= 0, "lognormal requires a positive sigma");
+            return Samplers.lognormal(args[0], args[1], count == 3 ? args[2] : 0);
+        }
+        if ("erlang".equals(name) && count == 2)
+        {
+            check(args[0] > 0, "erlang requires a positive beta");
+            check(args[1] >= 1 && args[1] == Math.floor(args[1]), "erlang requires a positive integer m");
+            return Samplers.erlang(args[0], (int) args[1]);
+        }
+        throw error("Unsupported function " + name + " with " + count + " parameter(s)");
+    }
+
+    private Sampler fold(Sampler left, Sampler right, char operator)
+    {
+        if (Samplers.isConstant(left) && Samplers.isConstant(right))
+        {
+            double a = left.getMean();
+            double b = right.getMean();
+            switch (operator)
+            {
+            case '+':
+                return Samplers.constant(a + b);
+            case '-':
+                return Samplers.constant(a - b);
+            case '*':
+                return Samplers.constant(a * b);
+            default:
+                return Samplers.constant(a / b);
+            }
+        }
+        switch (operator)
+        {
+        case '+':
+            return Samplers.sum(left, right);
+        case '-':
+            return Samplers.difference(left, right);
+        case '*':
+            return Samplers.product(left, right);
+        default:
+            return Samplers.quotient(left, right);
+        }
+    }
+
+    private void check(boolean condition, String message)
+    {
+        if (!condition)
+        {
+            throw new IllegalArgumentException(message + " in " + this.text);
+        }
+    }
+
+    private boolean accept(char c)
+    {
+        skipSpaces();
+        if (this.position < this.text.length() && this.text.charAt(this.position) == c)
+        {
+            this.position++;
+            return true;
+        }
+        return false;
+    }
+
+    private void expect(char c)
+    {
+        if (!accept(c))
+        {
+            throw error("Expected '" + c + "'");
+        }
+    }
+
+    private void skipSpaces()
+    {
+        while (this.position < this.text.length() && Character.isWhitespace(this.text.charAt(this.position)))
+        {
+            this.position++;
+        }
+    }
+
+    private IllegalArgumentException error(String message)
+    {
+        return new IllegalArgumentException(message + " at position " + (this.position + 1) + " in " + this.text);
+    }
+
+    private final String text;
+    private int position;
+
+}
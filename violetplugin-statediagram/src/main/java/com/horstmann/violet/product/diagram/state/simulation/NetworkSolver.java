@@ -0,0 +1,442 @@
+/*
+ Violet - A program for editing UML diagrams.
+
+ Copyright (C) 2007 Cay S. Horstmann (http://horstmann.com)
+ Alexandre de Pellegrin (http://alexdp.free.fr);
+
+ This program is free software; you can redistribute it and/or modify
+ it under the terms of the GNU General Public License as published by
+ the Free Software Foundation; either version 2 of the License, or
+ (at your option) any later version.
+
+ This program is distributed in the hope that it will be useful,
+ but WITHOUT ANY WARRANTY; without even the implied warranty of
+ MERCHANTABILITY or FITNESS FOR A PARTICULAR PURPOSE.  See the
+ GNU General Public License for more details.
+
+ You should have received a copy of the GNU General Public License
+ along with this program; if not, write to the Free Software
+ Foundation, Inc., 59 Temple Place, Suite 330, Boston, MA  02111-1307  USA
+ */
+
+package com.horstmann.violet.product.diagram.state.simulation;
+
+import java.util.ArrayList;
+import java.util.Arrays;
+import java.util.Collections;
+import java.util.HashMap;
+import java.util.List;
+import java.util.Map;
+
+import com.horstmann.violet.product.diagram.state.simulation.AnalyticResult.BlockEstimate;
+
+/**
+ * Estimates the steady state of a model without simulating it, by treating the diagram as an open Jackson network.<br/>
+ * <br/>
+ * The traffic equations (arrival rates from the sources, routing probabilities of the select nodes, fan-out of the split nodes)
+ * form the linear system (I - P<sup>T</sup>) x = g of the outflows x of the blocks. It is solved directly, one strongly
+ * connected group of blocks after the other in topological order : blocks outside loops by substitution, each loop by Gaussian
+ * elimination with partial pivoting. Combine nodes pass on the mean of their two inputs, which is their matched flow when they
+ * are stable. Each service is then evaluated as an M/G/c station : Erlang-C for exponential delays, corrected by the
+ * Allen-Cunneen factor (1 + cs^2) / 2 for other tob distributions.<br/>
+ * <br/>
+ * Queue capacities and arrival limits are ignored, so the estimates are those of the uncongested design : rates are the ones
+ * offered to the blocks, even downstream of an overloaded station. Solving is linear in the number of nodes and edges outside
+ * loops, and cubic in the size of each loop only.
+ */
+public class NetworkSolver
+{
+    /**
+     * @param model the model to solve
+     */
+    public NetworkSolver(SimulationModel model)
+    {
+        this.model = model;
+        int n = model.getBlockCount();
+        this.predecessorStart = new int[n + 1];
+        for (int from = 0; from < n; from++)
+        {
+            for (int port = 0; port < 2; port++)
+            {
+                int to = model.successors[from][port];
+                if (to != SimulationModel.NONE)
+                {
+                    this.predecessorStart[to + 1]++;
+                }
+            }
+        }
+        for (int i = 0; i < n; i++)
+        {
+            this.predecessorStart[i + 1] += this.predecessorStart[i];
+        }
+        int edges = this.predecessorStart[n];
+        this.predecessors = new int[edges];
+        this.predecessorPorts = new int[edges];
+        this.weights = new double[edges];
+        int[] fill = Arrays.copyOf(this.predecessorStart, n);
+        for (int from = 0; from < n; from++)
+        {
+            for (int port = 0; port < 2; port++)
+            {
+                int to = model.successors[from][port];
+                if (to != SimulationModel.NONE)
+                {
+                    int k = fill[to]++;
+                    this.predecessors[k] = from;
+                    this.predecessorPorts[k] = model.successorPorts[from][port];
+                    this.weights[k] = routingProbability(from, port);
+                }
+            }
+        }
+    }
+
+    private double routingProbability(int from, int port)
+    {
+        if (this.model.types[from] == SimulationModel.SELECT)
+        {
+            double p = this.model.probabilities[from];
+            return port == 0 ? p : 1 - p;
+        }
+        return 1;
+    }
+
+    /**
+     * Solves the traffic equations and evaluates every station
+     *
+     * @return steady state estimates
+     * @throws IllegalStateException if the traffic equations have no solution, for example in a closed loop which entities
+     *         never leave, or if the flow grows without bound, for example in a loop of split nodes
+     */
+    public AnalyticResult solve()
+    {
+        int n = this.model.getBlockCount();
+        double[] outflows = new double[n];
+        int largestLoop = 0;
+        for (int[] aGroup : stronglyConnectedGroups())
+        {
+            if (aGroup.length == 1 && !hasSelfLoop(aGroup[0]))
+            {
+                int block = aGroup[0];
+                outflows[block] = source(block) + gain(block) * inflow(block, outflows);
+            }
+            else
+            {
+                solveLoop(aGroup, outflows);
+                largestLoop = Math.max(largestLoop, aGroup.length);
+            }
+            for (int block : aGroup)
+            {
+                if (!(outflows[block] >= 0) || Double.isInfinite(outflows[block]))
+                {
+                    throw new IllegalStateException("Traffic equations diverge at node " + this.model.getNode(block).getId());
+                }
+            }
+        }
+        double[] arrivals = new double[n];
+        double[] firstPortArrivals = new double[n];
+        for (int block = 0; block < n; block++)
+        {
+            for (int k = this.predecessorStart[block]; k < this.predecessorStart[block + 1]; k++)
+            {
+                double flow = outflows[this.predecessors[k]] * this.weights[k];
+                arrivals[block] += flow;
+                if (this.predecessorPorts[k] == 0)
+                {
+                    firstPortArrivals[block] += flow;
+                }
+            }
+        }
+        BlockEstimate[] estimates = new BlockEstimate[n];
+        double inSystem = 0;
+        double disposed = 0;
+        boolean stable = true;
+        for (int i = 0; i < n; i++)
+        {
+            BlockEstimate estimate = new BlockEstimate(this.model.getNode(i));
+            estimate.arrivalRate = arrivals[i];
+            estimate.throughput = outflows[i];
+            switch (this.model.types[i])
+            {
+            case SimulationModel.SERVICE:
+                evaluateStation(i, estimate);
+                inSystem += estimate.arrivalRate * estimate.meanSojournTime;
+                break;
+            case SimulationModel.COMBINE:
+                double second = arrivals[i] - firstPortArrivals[i];
+                // Unmatched entities pile up on the faster input
+                estimate.stable = Math.abs(firstPortArrivals[i] - second) <= TOLERANCE * Math.max(1, arrivals[i]);
+                break;
+            case SimulationModel.SINK:
+                disposed += arrivals[i];
+                break;
+            default:
+                break;
+            }
+            stable &= estimate.stable;
+            estimates[i] = estimate;
+        }
+        double timeInSystem = disposed > 0 ? inSystem / disposed : 0;
+        if (!stable)
+        {
+            timeInSystem = Double.POSITIVE_INFINITY;
+        }
+        return new AnalyticResult(estimates, timeInSystem, largestLoop);
+    }
+
+    /**
+     * @return outflow of a block which does not depend on its inputs
+     */
+    private double source(int block)
+    {
+        return this.model.types[block] == SimulationModel.SOURCE ? this.model.rates[block] : 0;
+    }
+
+    /**
+     * @return ratio of the outflow of a block to its inflow
+     */
+    private double gain(int block)
+    {
+        switch (this.model.types[block])
+        {
+        case SimulationModel.SOURCE:
+            return 0;
+        case SimulationModel.COMBINE:
+            // Each output pairs one entity of each input
+            return 0.5;
+        default:
+            return 1;
+        }
+    }
+
+    private double inflow(int block, double[] outflows)
+    {
+        double inflow = 0;
+        for (int k = this.predecessorStart[block]; k < this.predecessorStart[block + 1]; k++)
+        {
+            inflow += outflows[this.predecessors[k]] * this.weights[k];
+        }
+        return inflow;
+    }
+
+    private boolean hasSelfLoop(int block)
+    {
+        for (int k = this.predecessorStart[block]; k < this.predecessorStart[block + 1]; k++)
+        {
+            if (this.predecessors[k] == block)
+            {
+                return true;
+            }
+        }
+        return false;
+    }
+
+    /**
+     * Solves the outflows of the blocks of a loop by Gaussian elimination with partial pivoting, the outflows of the blocks
+     * upstream of the loop being known
+     */
+    private void solveLoop(int[] group, double[] outflows)
+    {
+        int size = group.length;
+        Map<Integer, Integer> positions = new HashMap<Integer, Integer>();
+        for (int i = 0; i < size; i++)
+        {
+            positions.put(group[i], i);
+        }
+        double[][] matrix = new double[size][size + 1];
+        for (int i = 0; i < size; i++)
+        {
+            int block = group[i];
+            double gain = gain(block);
+            matrix[i][i] = 1;
+            matrix[i][size] = source(block);
+            for (int k = this.predecessorStart[block]; k < this.predecessorStart[block + 1]; k++)
+            {
+                Integer j = positions.get(this.predecessors[k]);
+                if (j != null)
+                {
+                    matrix[i][j] -= gain * this.weights[k];
+                }
+                else
+                {
+                    matrix[i][size] += gain * outflows[this.predecessors[k]] * this.weights[k];
+                }
+            }
+        }
+        for (int column = 0; column < size; column++)
+        {
+            int pivot = column;
+            for (int row = column + 1; row < size; row++)
+            {
+                if (Math.abs(matrix[row][column]) > Math.abs(matrix[pivot][column]))
+                {
+                    pivot = row;
+                }
+            }
+            if (Math.abs(matrix[pivot][column]) < SINGULAR)
+            {
+                throw new IllegalStateException("Traffic equations have no solution : entities never leave the loop of node "
+                        + this.model.getNode(group[column]).getId());
+            }
+            double[] swap = matrix[pivot];
+            matrix[pivot] = matrix[column];
+            matrix[column] = swap;
+            for (int row = column + 1; row < size; row++)
+            {
+                double factor = matrix[row][column] / matrix[column][column];
+                if (factor != 0)
+                {
+                    for (int k = column; k <= size; k++)
+                    {
+                        matrix[row][k] -= factor * matrix[column][k];
+                    }
+                }
+            }
+        }
+        for (int row = size - 1; row >= 0; row--)
+        {
+            double value = matrix[row][size];
+            for (int k = row + 1; k < size; k++)
+            {
+                value -= matrix[row][k] * outflows[group[k]];
+            }
+            outflows[group[row]] = value / matrix[row][row];
+        }
+    }
+
+    /**
+     * Tarjan's algorithm, iterative so that long chains of blocks do not overflow the stack
+     *
+     * @return the strongly connected groups of blocks, each one after the groups upstream of it
+     */
+    private List<int[]> stronglyConnectedGroups()
+    {
+        int n = this.model.getBlockCount();
+        int[] index = new int[n];
+        Arrays.fill(index, -1);
+        int[] lowLink = new int[n];
+        boolean[] onStack = new boolean[n];
+        int[] stack = new int[n];
+        int stackSize = 0;
+        int[] callStack = new int[n];
+        int[] nextPort = new int[n];
+        int counter = 0;
+        List<int[]> groups = new ArrayList<int[]>();
+        for (int root = 0; root < n; root++)
+        {
+            if (index[root] >= 0)
+            {
+                continue;
+            }
+            int depth = 0;
+            callStack[0] = root;
+            index[root] = lowLink[root] = counter++;
+            stack[stackSize++] = root;
+            onStack[root] = true;
+            nextPort[root] = 0;
+            while (depth >= 0)
+            {
+                int block = callStack[depth];
+                if (nextPort[block] < 2)
+                {
+                    int to = this.model.successors[block][nextPort[block]++];
+                    if (to == SimulationModel.NONE)
+                    {
+                        continue;
+                    }
+                    if (index[to] < 0)
+                    {
+                        index[to] = lowLink[to] = counter++;
+                        stack[stackSize++] = to;
+                        onStack[to] = true;
+                        nextPort[to] = 0;
+                        callStack[++depth] = to;
+                    }
+                    else if (onStack[to])
+                    {
+                        lowLink[block] = Math.min(lowLink[block], index[to]);
+                    }
+                    continue;
+                }
+                if (lowLink[block] == index[block])
+                {
+                    int start = stackSize;
+                    do
+                    {
+                        onStack[stack[--start]] = false;
+                    }
+                    while (stack[start] != block);
+                    groups.add(Arrays.copyOfRange(stack, start, stackSize));
+                    stackSize = start;
+                }
+                if (--depth >= 0)
+                {
+                    int parent = callStack[depth];
+                    lowLink[parent] = Math.min(lowLink[parent], lowLink[block]);
+                }
+            }
+        }
+        // Groups are found downstream first
+        Collections.reverse(groups);
+        return groups;
+    }
+
+    private void evaluateStation(int block, BlockEstimate estimate)
+    {
+        Sampler delay = this.model.serviceTimes[block];
+        double mean = delay.getMean();
+        double lambda = estimate.arrivalRate;
+        int servers = this.model.workers[block];
+        double load = lambda * mean;
+        if (lambda == 0 || mean <= 0)
+        {
+            estimate.meanSojournTime = Math.max(mean, 0);
+            return;
+        }
+        if (servers == 0 || load >= servers)
+        {
+            estimate.stable = false;
+            estimate.utilization = servers == 0 ? Double.POSITIVE_INFINITY : load / servers;
+            estimate.meanQueueLength = Double.POSITIVE_INFINITY;
+            estimate.meanWaitingTime = Double.POSITIVE_INFINITY;
+            estimate.meanSojournTime = Double.POSITIVE_INFINITY;
+            return;
+        }
+        double variation = delay.getVariance() / (mean * mean);
+        double waiting = erlangC(servers, load) * mean / (servers - load) * (1 + variation) / 2;
+        estimate.utilization = load / servers;
+        estimate.meanWaitingTime = waiting;
+        estimate.meanQueueLength = lambda * waiting;
+        estimate.meanSojournTime = waiting + mean;
+    }
+
+    /**
+     * Probability of waiting in an M/M/c queue, computed from the Erlang-B recursion to stay stable for large c
+     *
+     * @param servers number of servers c
+     * @param load offered load a = lambda / mu, lower than c
+     * @return the Erlang-C probability
+     */
+    static double erlangC(int servers, double load)
+    {
+        double blocking = 1;
+        for (int k = 1; k <= servers; k++)
+        {
+            blocking = load * blocking / (k + load * blocking);
+        }
+        double rho = load / servers;
+        return blocking / (1 - rho * (1 - blocking));
+    }
+
+    /** Relative difference between the inputs of a combine node above which it is unstable */
+    private static final double TOLERANCE = 1e-9;
+
+    /** Pivot below which the traffic equations of a loop are singular */
+    private static final double SINGULAR = 1e-12;
+
+    private final SimulationModel model;
+    private final int[] predecessorStart;
+    private final int[] predecessors;
+    private final int[] predecessorPorts;
+    private final double[] weights;
+
+}
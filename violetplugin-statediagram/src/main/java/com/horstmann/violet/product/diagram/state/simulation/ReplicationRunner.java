@@ -0,0 +1,150 @@
+/*
+ Violet - A program for editing UML diagrams.
+
+ Copyright (C) 2007 Cay S. Horstmann (http://horstmann.com)
+ Alexandre de Pellegrin (http://alexdp.free.fr);
+
+ This program is free software; you can redistribute it and/or modify
+ it under the terms of the GNU General Public License as published by
+ the Free Software Foundation; either version 2 of the License, or
+ (at your option) any later version.
+
+ This program is distributed in the hope that it will be useful,
+ but WITHOUT ANY WARRANTY; without even the implied warranty of
+ MERCHANTABILITY or FITNESS FOR A PARTICULAR PURPOSE.  See the
+ GNU General Public License for more details.
+
+ You should have received a copy of the GNU General Public License
+ along with this program; if not, write to the Free Software
+ Foundation, Inc., 59 Temple Place, Suite 330, Boston, MA  02111-1307  USA
+ */
+
+package com.horstmann.violet.product.diagram.state.simulation;
+
+import java.util.ArrayList;
+import java.util.List;
+import java.util.SplittableRandom;
+import java.util.concurrent.Callable;
+import java.util.concurrent.ExecutionException;
+import java.util.concurrent.ExecutorService;
+import java.util.concurrent.Executors;
+import java.util.concurrent.Future;
+import java.util.concurrent.atomic.AtomicInteger;
+
+/**
+ * Runs independent replications of a model on all available cores.<br/>
+ * <br/>
+ * Replication i always uses the i-th stream split from a master SplittableRandom seeded with the settings seed (1 by default,
+ * like the fixed SeedValue of exported AnyLogic experiments). Results are therefore reproducible and do not depend on the number
+ * of threads or on scheduling.
+ */
+public class ReplicationRunner
+{
+    /**
+     * @param model the model to replicate
+     */
+    public ReplicationRunner(SimulationModel model)
+    {
+        this(model, Runtime.getRuntime().availableProcessors());
+    }
+
+    /**
+     * @param model the model to replicate
+     * @param threads maximum number of replications running at the same time
+     */
+    public ReplicationRunner(SimulationModel model, int threads)
+    {
+        this.model = model;
+        this.threads = Math.max(1, threads);
+    }
+
+    /**
+     * Runs the replications and merges them with 95% confidence intervals
+     *
+     * @param settings run control shared by all replications
+     * @param replications number of replications
+     * @return merged statistics
+     */
+    public ReplicationSummary run(SimulationSettings settings, int replications)
+    {
+        return run(settings, replications, 0.95);
+    }
+
+    /**
+     * Runs the replications and merges them
+     *
+     * @param settings run control shared by all replications
+     * @param replications number of replications
+     * @param level confidence level of the merged intervals
+     * @return merged statistics
+     */
+    public ReplicationSummary run(final SimulationSettings settings, int replications, double level)
+    {
+        final SplittableRandom[] streams = new SplittableRandom[replications];
+        SplittableRandom master = new SplittableRandom(settings.getSeed());
+        for (int i = 0; i < replications; i++)
+        {
+            streams[i] = master.split();
+        }
+        final SimulationResult[] results = new SimulationResult[replications];
+        final AtomicInteger next = new AtomicInteger();
+        int workers = Math.min(this.threads, replications);
+        if (workers <= 1)
+        {
+            SimulationEngine engine = new SimulationEngine(this.model);
+            for (int i = 0; i < replications; i++)
+            {
+                results[i] = engine.run(settings, streams[i]);
+            }
+            return new ReplicationSummary(results, level);
+        }
+        ExecutorService executor = Executors.newFixedThreadPool(workers);
+        try
+        {
+            List<Future<Void>> futures = new ArrayList<Future<Void>>();
+            for (int w = 0; w < workers; w++)
+            {
+                futures.add(executor.submit(new Callable<Void>()
+                {
+                    @Override
+                    public Void call()
+                    {
+                        // One engine per worker so that its event list and entity pool are reused between replications
+                        SimulationEngine engine = new SimulationEngine(model);
+                        for (int i = next.getAndIncrement(); i < results.length; i = next.getAndIncrement())
+                        {
+                            results[i] = engine.run(settings, streams[i]);
+                        }
+                        return null;
+                    }
+                }));
+            }
+            for (Future<Void> aFuture : futures)
+            {
+                aFuture.get();
+            }
+        }
+        catch (InterruptedException e)
+        {
+            Thread.currentThread().interrupt();
+            throw new RuntimeException(e);
+        }
+        catch (ExecutionException e)
+        {
+            if (e.getCause() instanceof RuntimeException)
+            {
+                throw (RuntimeException) e.getCause();
+            }
+            throw new RuntimeException(e.getCause());
+        }
+        finally
+        {
+            executor.shutdownNow();
+        }
+        return new ReplicationSummary(results, level);
+    }
+
+    private final SimulationModel model;
+    private final int threads;
+
+}
@@ -0,0 +1,205 @@
+/*
+ Violet - A program for editing UML diagrams.
+
+ Copyright (C) 2007 Cay S. Horstmann (http://horstmann.com)
+ Alexandre de Pellegrin (http://alexdp.free.fr);
+
+ This program is free software; you can redistribute it and/or modify
+ it under the terms of the GNU General Public License as published by
+ the Free Software Foundation; either version 2 of the License, or
+ (at your option) any later version.
+
+ This program is distributed in the hope that it will be useful,
+ but WITHOUT ANY WARRANTY; without even the implied warranty of
+ MERCHANTABILITY or FITNESS FOR A PARTICULAR PURPOSE.  See the
+ GNU General Public License for more details.
+
+ You should have received a copy of the GNU General Public License
+ along with this program; if not, write to the Free Software
+ Foundation, Inc., 59 Temple Place, Suite 330, Boston, MA  02111-1307  USA
+ */
+
+package com.horstmann.violet.product.diagram.state.simulation;
+
+import java.util.ArrayList;
+import java.util.Arrays;
+import java.util.Collections;
+import java.util.List;
+
+import com.horstmann.violet.product.diagram.abstracts.node.INode;
+
+/**
+ * Merged statistics of independent replications of the same model. Each replication contributes one observation per indicator,
+ * so the intervals are valid whatever the autocorrelation inside a run.
+ */
+public class ReplicationSummary
+{
+    /**
+     * Confidence intervals of the indicators of one block
+     */
+    public static class BlockSummary
+    {
+        BlockSummary(INode node)
+        {
+            this.node = node;
+        }
+
+        public INode getNode()
+        {
+            return this.node;
+        }
+
+        public ConfidenceInterval getUtilization()
+        {
+            return this.utilization;
+        }
+
+        public ConfidenceInterval getMeanQueueLength()
+        {
+            return this.meanQueueLength;
+        }
+
+        /**
+         * @return mean waiting time in queue, in seconds
+         */
+        public ConfidenceInterval getMeanWaitingTime()
+        {
+            return this.meanWaitingTime;
+        }
+
+        /**
+         * @return mean time spent in the block, in seconds
+         */
+        public ConfidenceInterval getMeanSojournTime()
+        {
+            return this.meanSojournTime;
+        }
+
+        /**
+         * @return departures per second
+         */
+        public ConfidenceInterval getThroughput()
+        {
+            return this.throughput;
+        }
+
+        /**
+         * @return entities refused per replication
+         */
+        public ConfidenceInterval getLost()
+        {
+            return this.lost;
+        }
+
+        private final INode node;
+        private ConfidenceInterval utilization;
+        private ConfidenceInterval meanQueueLength;
+        private ConfidenceInterval meanWaitingTime;
+        private ConfidenceInterval meanSojournTime;
+        private ConfidenceInterval throughput;
+        private ConfidenceInterval lost;
+    }
+
+    /**
+     * @param results one result per replication, all produced by the same model
+     * @param level confidence level
+     */
+    ReplicationSummary(SimulationResult[] results, double level)
+    {
+        this.results = results;
+        this.level = level;
+        int blockCount = results.length == 0 ? 0 : results[0].getBlockStatistics().size();
+        Tally[][] tallies = new Tally[blockCount][6];
+        for (Tally[] row : tallies)
+        {
+            for (int j = 0; j < row.length; j++)
+            {
+                row[j] = new Tally();
+            }
+        }
+        Tally timeInSystem = new Tally();
+        for (SimulationResult aResult : results)
+        {
+            List<BlockStatistics> blocks = aResult.getBlockStatistics();
+            double duration = aResult.getEndTime();
+            for (int i = 0; i < blockCount; i++)
+            {
+                BlockStatistics block = blocks.get(i);
+                tallies[i][0].add(block.getUtilization());
+                tallies[i][1].add(block.getMeanQueueLength());
+                tallies[i][2].add(block.getWaitingTime().getMean());
+                tallies[i][3].add(block.getSojournTime().getMean());
+                tallies[i][4].add(duration > 0 ? block.getDepartures() / duration : 0);
+                tallies[i][5].add(block.getLost());
+            }
+            timeInSystem.add(aResult.getTimeInSystem().getMean());
+        }
+        this.blocks = new ArrayList<BlockSummary>(blockCount);
+        for (int i = 0; i < blockCount; i++)
+        {
+            BlockSummary summary = new BlockSummary(results[0].getBlockStatistics().get(i).getNode());
+            summary.utilization = new ConfidenceInterval(tallies[i][0], level);
+            summary.meanQueueLength = new ConfidenceInterval(tallies[i][1], level);
+            summary.meanWaitingTime = new ConfidenceInterval(tallies[i][2], level);
+            summary.meanSojournTime = new ConfidenceInterval(tallies[i][3], level);
+            summary.throughput = new ConfidenceInterval(tallies[i][4], level);
+            summary.lost = new ConfidenceInterval(tallies[i][5], level);
+            this.blocks.add(summary);
+        }
+        this.timeInSystem = new ConfidenceInterval(timeInSystem, level);
+    }
+
+    /**
+     * @return per block intervals, in model order
+     */
+    public List<BlockSummary> getBlockSummaries()
+    {
+        return Collections.unmodifiableList(this.blocks);
+    }
+
+    /**
+     * @param node a diagram node
+     * @return intervals of the block built from this node, or null
+     */
+    public BlockSummary getBlockSummary(INode node)
+    {
+        for (BlockSummary aBlock : this.blocks)
+        {
+            if (aBlock.getNode() == node)
+            {
+                return aBlock;
+            }
+        }
+        return null;
+    }
+
+    /**
+     * @return mean time between source and final nodes, in seconds
+     */
+    public ConfidenceInterval getTimeInSystem()
+    {
+        return this.timeInSystem;
+    }
+
+    /**
+     * @return the individual replications, in replication order
+     */
+    public List<SimulationResult> getResults()
+    {
+        return Collections.unmodifiableList(Arrays.asList(this.results));
+    }
+
+    /**
+     * @return confidence level of the intervals
+     */
+    public double getLevel()
+    {
+        return this.level;
+    }
+
+    private final SimulationResult[] results;
+    private final double level;
+    private final List<BlockSummary> blocks;
+    private final ConfidenceInterval timeInSystem;
+
+}
@@ -0,0 +1,49 @@
+/*
+ Violet - A program for editing UML diagrams.
+
+ Copyright (C) 2007 Cay S. Horstmann (http://horstmann.com)
+ Alexandre de Pellegrin (http://alexdp.free.fr);
+
+ This program is free software; you can redistribute it and/or modify
+ it under the terms of the GNU General Public License as published by
+ the Free Software Foundation; either version 2 of the License, or
+ (at your option) any later version.
+
+ This program is distributed in the hope that it will be useful,
+ but WITHOUT ANY WARRANTY; without even the implied warranty of
+ MERCHANTABILITY or FITNESS FOR A PARTICULAR PURPOSE.  See the
+ GNU General Public License for more details.
+
+ You should have received a copy of the GNU General Public License
+ along with this program; if not, write to the Free Software
+ Foundation, Inc., 59 Temple Place, Suite 330, Boston, MA  02111-1307  USA
+ */
+
+package com.horstmann.violet.product.diagram.state.simulation;
+
+import java.util.SplittableRandom;
+
+/**
+ * Draws random variates for a node property such as a service time.<br/>
+ * Implementations are stateless so that a single instance can be shared by several simulation runs, each one passing its own
+ * random stream.
+ */
+public interface Sampler
+{
+    /**
+     * @param random the random stream of the current run
+     * @return the next variate
+     */
+    double sample(SplittableRandom random);
+
+    /**
+     * @return expected value of the variates
+     */
+    double getMean();
+
+    /**
+     * @return variance of the variates
+     */
+    double getVariance();
+
+}
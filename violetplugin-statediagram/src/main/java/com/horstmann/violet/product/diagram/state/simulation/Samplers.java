@@ -0,0 +1,422 @@
+/*
+ Violet - A program for editing UML diagrams.
+
+ Copyright (C) 2007 Cay S. Horstmann (http://horstmann.com)
+ Alexandre de Pellegrin (http://alexdp.free.fr);
+
+ This program is free software; you can redistribute it and/or modify
+ it under the terms of the GNU General Public License as published by
+ the Free Software Foundation; either version 2 of the License, or
+ (at your option) any later version.
+
+ This program is distributed in the hope that it will be useful,
+ but WITHOUT ANY WARRANTY; without even the implied warranty of
+ MERCHANTABILITY or FITNESS FOR A PARTICULAR PURPOSE.  See the
+ GNU General Public License for more details.
+
+ You should have received a copy of the GNU General Public License
+ along with this program; if not, write to the Free Software
+ Foundation, Inc., 59 Temple Place, Suite 330, Boston, MA  02111-1307  USA
+ */
+
+package com.horstmann.violet.product.diagram.state.simulation;
+
+import java.util.SplittableRandom;
+
+/**
+ * Builds samplers from the AnyLogic expressions stored in node properties (for example "uniform(0,1)" or "2 * exponential(1)").
+ * <br/>
+ * Expressions are compiled once into a tree of immutable samplers, constant sub-expressions being folded, so that drawing a
+ * variate neither parses, boxes nor allocates.
+ */
+public class Samplers
+{
+    /**
+     * Singleton
+     */
+    private Samplers()
+    {
+    }
+
+    /**
+     * Compiles an expression. Supported forms are numeric constants, the + - * / operators, parentheses and the AnyLogic
+     * distributions uniform([[min,] max]), exponential(rate [,min]), triangular(min,max,mode), normal([sigma [,mean]]),
+     * lognormal(mu,sigma [,min]) and erlang(beta,m). Distribution parameters must be constant expressions.
+     *
+     * @param expression the expression as typed in the property editor
+     * @return a sampler for this expression
+     * @throws IllegalArgumentException if the expression cannot be understood
+     */
+    public static Sampler parse(String expression)
+    {
+        if (expression == null || expression.trim().isEmpty())
+        {
+            throw new IllegalArgumentException("Empty expression");
+        }
+        return new ExpressionParser(expression).parse();
+    }
+
+    /**
+     * @param sampler a compiled expression
+     * @return true if the expression does not depend on any random draw
+     */
+    public static boolean isConstant(Sampler sampler)
+    {
+        return sampler instanceof Constant;
+    }
+
+    /**
+     * @param value a fixed value
+     * @return a sampler always returning this value
+     */
+    public static Sampler constant(double value)
+    {
+        return new Constant(value);
+    }
+
+    /**
+     * @param min lower bound
+     * @param max upper bound
+     * @return uniform distribution on [min, max)
+     */
+    public static Sampler uniform(final double min, double max)
+    {
+        final double width = max - min;
+        return new Sampler()
+        {
+            @Override
+            public double sample(SplittableRandom random)
+            {
+                return min + width * random.nextDouble();
+            }
+
+            @Override
+            public double getMean()
+            {
+                return min + width / 2;
+            }
+
+            @Override
+            public double getVariance()
+            {
+                return width * width / 12;
+            }
+        };
+    }
+
+    /**
+     * @param rate rate (inverse of the mean) of the distribution
+     * @param min shift of the distribution
+     * @return exponential distribution
+     */
+    public static Sampler exponential(double rate, final double min)
+    {
+        final double mean = 1 / rate;
+        return new Sampler()
+        {
+            @Override
+            public double sample(SplittableRandom random)
+            {
+                return min - mean * Math.log(1 - random.nextDouble());
+            }
+
+            @Override
+            public double getMean()
+            {
+                return min + mean;
+            }
+
+            @Override
+            public double getVariance()
+            {
+                return mean * mean;
+            }
+        };
+    }
+
+    /**
+     * @param min lower bound
+     * @param max upper bound
+     * @param mode most likely value
+     * @return triangular distribution
+     */
+    public static Sampler triangular(final double min, final double max, final double mode)
+    {
+        final double split = (mode - min) / (max - min);
+        return new Sampler()
+        {
+            @Override
+            public double sample(SplittableRandom random)
+            {
+                double u = random.nextDouble();
+                if (u < split)
+                {
+                    return min + Math.sqrt(u * (max - min) * (mode - min));
+                }
+                return max - Math.sqrt((1 - u) * (max - min) * (max - mode));
+            }
+
+            @Override
+            public double getMean()
+            {
+                return (min + max + mode) / 3;
+            }
+
+            @Override
+            public double getVariance()
+            {
+                return (min * min + max * max + mode * mode - min * max - min * mode - max * mode) / 18;
+            }
+        };
+    }
+
+    /**
+     * @param sigma standard deviation
+     * @param mean mean
+     * @return normal distribution
+     */
+    public static Sampler normal(final double sigma, final double mean)
+    {
+        return new Sampler()
+        {
+            @Override
+            public double sample(SplittableRandom random)
+            {
+                return mean + sigma * standardNormal(random);
+            }
+
+            @Override
+            public double getMean()
+            {
+                return mean;
+            }
+
+            @Override
+            public double getVariance()
+            {
+                return sigma * sigma;
+            }
+        };
+    }
+
+    /**
+     * @param mu mean of the underlying normal distribution
+     * @param sigma standard deviation of the underlying normal distribution
+     * @param min shift of the distribution
+     * @return lognormal distribution
+     */
+    public static Sampler lognormal(final double mu, final double sigma, final double min)
+    {
+        return new Sampler()
+        {
+            @Override
+            public double sample(SplittableRandom random)
+            {
+                return min + Math.exp(mu + sigma * standardNormal(random));
+            }
+
+            @Override
+            public double getMean()
+            {
+                return min + Math.exp(mu + sigma * sigma / 2);
+            }
+
+            @Override
+            public double getVariance()
+            {
+                return (Math.exp(sigma * sigma) - 1) * Math.exp(2 * mu + sigma * sigma);
+            }
+        };
+    }
+
+    /**
+     * @param beta scale of each exponential phase
+     * @param m number of phases
+     * @return Erlang distribution, sum of m exponential variates of mean beta
+     */
+    public static Sampler erlang(final double beta, final int m)
+    {
+        return new Sampler()
+        {
+            @Override
+            public double sample(SplittableRandom random)
+            {
+                double sum = 0;
+                for (int i = 0; i < m; i++)
+                {
+                    sum -= Math.log(1 - random.nextDouble());
+                }
+                return beta * sum;
+            }
+
+            @Override
+            public double getMean()
+            {
+                return m * beta;
+            }
+
+            @Override
+            public double getVariance()
+            {
+                return m * beta * beta;
+            }
+        };
+    }
+
+    /**
+     * @return the sum of two independent variates
+     */
+    static Sampler sum(final Sampler left, final Sampler right)
+    {
+        return new Sampler()
+        {
+            @Override
+            public double sample(SplittableRandom random)
+            {
+                return left.sample(random) + right.sample(random);
+            }
+
+            @Override
+            public double getMean()
+            {
+                return left.getMean() + right.getMean();
+            }
+
+            @Override
+            public double getVariance()
+            {
+                return left.getVariance() + right.getVariance();
+            }
+        };
+    }
+
+    /**
+     * @return the difference of two independent variates
+     */
+    static Sampler difference(final Sampler left, final Sampler right)
+    {
+        return new Sampler()
+        {
+            @Override
+            public double sample(SplittableRandom random)
+            {
+                return left.sample(random) - right.sample(random);
+            }
+
+            @Override
+            public double getMean()
+            {
+                return left.getMean() - right.getMean();
+            }
+
+            @Override
+            public double getVariance()
+            {
+                return left.getVariance() + right.getVariance();
+            }
+        };
+    }
+
+    /**
+     * @return the product of two independent variates
+     */
+    static Sampler product(final Sampler left, final Sampler right)
+    {
+        return new Sampler()
+        {
+            @Override
+            public double sample(SplittableRandom random)
+            {
+                return left.sample(random) * right.sample(random);
+            }
+
+            @Override
+            public double getMean()
+            {
+                return left.getMean() * right.getMean();
+            }
+
+            @Override
+            public double getVariance()
+            {
+                double leftMean = left.getMean();
+                double rightMean = right.getMean();
+                return left.getVariance() * right.getVariance() + left.getVariance() * rightMean * rightMean
+                        + right.getVariance() * leftMean * leftMean;
+            }
+        };
+    }
+
+    /**
+     * @return the quotient of two independent variates. Moments are exact for a constant divisor and first order
+     *         approximations otherwise.
+     */
+    static Sampler quotient(final Sampler left, final Sampler right)
+    {
+        return new Sampler()
+        {
+            @Override
+            public double sample(SplittableRandom random)
+            {
+                return left.sample(random) / right.sample(random);
+            }
+
+            @Override
+            public double getMean()
+            {
+                return left.getMean() / right.getMean();
+            }
+
+            @Override
+            public double getVariance()
+            {
+                double leftMean = left.getMean();
+                double rightMean = right.getMean();
+                return (left.getVariance() + leftMean * leftMean * right.getVariance() / (rightMean * rightMean))
+                        / (rightMean * rightMean);
+            }
+        };
+    }
+
+    /**
+     * Standard normal variate by the Box-Muller transform
+     */
+    private static double standardNormal(SplittableRandom random)
+    {
+        double u1 = 1 - random.nextDouble();
+        double u2 = random.nextDouble();
+        return Math.sqrt(-2 * Math.log(u1)) * Math.cos(2 * Math.PI * u2);
+    }
+
+    /**
+     * A constant, recognized by the parser to fold constant sub-expressions
+     */
+    private static final class Constant implements Sampler
+    {
+        Constant(double value)
+        {
+            this.value = value;
+        }
+
+        @Override
+        public double sample(SplittableRandom random)
+        {
+            return this.value;
+        }
+
+        @Override
+        public double getMean()
+        {
+            return this.value;
+        }
+
+        @Override
+        public double getVariance()
+        {
+            return 0;
+        }
+
+        private final double value;
+    }
+
+}
@@ -0,0 +1,321 @@
+/*
+ Violet - A program for editing UML diagrams.
+
+ Copyright (C) 2007 Cay S. Horstmann (http://horstmann.com)
+ Alexandre de Pellegrin (http://alexdp.free.fr);
+
+ This program is free software; you can redistribute it and/or modify
+ it under the terms of the GNU General Public License as published by
+ the Free Software Foundation; either version 2 of the License, or
+ (at your option) any later version.
+
+ This program is distributed in the hope that it will be useful,
+ but WITHOUT ANY WARRANTY; without even the implied warranty of
+ MERCHANTABILITY or FITNESS FOR A PARTICULAR PURPOSE.  See the
+ GNU General Public License for more details.
+
+ You should have received a copy of the GNU General Public License
+ along with this program; if not, write to the Free Software
+ Foundation, Inc., 59 Temple Place, Suite 330, Boston, MA  02111-1307  USA
+ */
+
+package com.horstmann.violet.product.diagram.state.simulation;
+
+import java.util.Arrays;
+import java.util.SplittableRandom;
+
+import com.horstmann.violet.product.diagram.state.simulation.EntityPool.Entity;
+
+/**
+ * Discrete event simulation of a compiled state diagram. Only two kinds of events exist : an arrival produced by a source and a
+ * service completion. Every other block routes entities instantly when they enter it.<br/>
+ * <br/>
+ * An engine keeps its event list, entity pool and queues between runs, so that no event of a run allocates once they have
+ * grown. Each run only allocates its statistics, one object per block, since they belong to the {@link SimulationResult} it
+ * returns and results of earlier runs are kept, for example by {@link ReplicationSummary#getResults()}. An engine is not
+ * thread safe : concurrent runs must use one engine each, all sharing the same {@link SimulationModel}.
+ */
+public class SimulationEngine
+{
+    /**
+     * @param model the model to simulate
+     */
+    public SimulationEngine(SimulationModel model)
+    {
+        this.model = model;
+        int n = model.getBlockCount();
+        this.events = new EventQueue(Math.max(64, 4 * n));
+        this.pool = new EntityPool(1024);
+        this.queueHeads = new Entity[2 * n];
+        this.queueTails = new Entity[2 * n];
+        this.generated = new long[n];
+    }
+
+    /**
+     * Runs the model with a random stream seeded by the settings
+     *
+     * @param settings run control
+     * @return collected statistics
+     */
+    public SimulationResult run(SimulationSettings settings)
+    {
+        return run(settings, new SplittableRandom(settings.getSeed()));
+    }
+
+    /**
+     * Runs the model
+     *
+     * @param settings run control (its seed is ignored)
+     * @param random the random stream of this run
+     * @return collected statistics
+     */
+    public SimulationResult run(SimulationSettings settings, SplittableRandom random)
+    {
+        reset(random);
+        double stopTime = settings.getStopTime();
+        long maxEvents = settings.getMaxEvents();
+        int[] types = this.model.types;
+        for (int i = 0; i < types.length; i++)
+        {
+            if (types[i] == SimulationModel.SOURCE)
+            {
+                scheduleArrival(i);
+            }
+        }
+        long count = 0;
+        double endTime = 0;
+        while (true)
+        {
+            if (this.events.isEmpty())
+            {
+                endTime = this.clock;
+                break;
+            }
+            if (this.events.peekTime() > stopTime)
+            {
+                endTime = stopTime;
+                break;
+            }
+            if (count >= maxEvents)
+            {
+                endTime = this.clock;
+                break;
+            }
+            this.events.poll();
+            this.clock = this.events.time();
+            count++;
+            int block = this.events.block();
+            if (types[block] == SimulationModel.SOURCE)
+            {
+                generate(block);
+            }
+            else
+            {
+                complete(block, this.pool.get(this.events.entity()));
+            }
+        }
+        for (BlockStatistics aBlock : this.statistics)
+        {
+            aBlock.advance(endTime);
+            aBlock.duration = endTime;
+        }
+        return new SimulationResult(this.statistics, this.timeInSystem, endTime, count, this.created);
+    }
+
+    private void reset(SplittableRandom newRandom)
+    {
+        this.random = newRandom;
+        this.clock = 0;
+        this.created = 0;
+        this.depth = 0;
+        this.events.clear();
+        this.pool.reset();
+        Arrays.fill(this.queueHeads, null);
+        Arrays.fill(this.queueTails, null);
+        Arrays.fill(this.generated, 0);
+        // Not cleared in place : the result of the previous run still holds them
+        int n = this.model.getBlockCount();
+        this.statistics = new BlockStatistics[n];
+        for (int i = 0; i < n; i++)
+        {
+            this.statistics[i] = new BlockStatistics(this.model.getNode(i), this.model.workers[i]);
+        }
+        this.timeInSystem = new Tally();
+    }
+
+    private void scheduleArrival(int source)
+    {
+        long limit = this.model.limits[source];
+        double rate = this.model.rates[source];
+        if (rate <= 0 || (limit > 0 && this.generated[source] >= limit))
+        {
+            return;
+        }
+        double interarrival = -Math.log(1 - this.random.nextDouble()) / rate;
+        this.events.push(this.clock + interarrival, source, -1);
+    }
+
+    private void generate(int source)
+    {
+        Entity entity = this.pool.acquire(this.clock);
+        this.created++;
+        this.generated[source]++;
+        BlockStatistics stats = this.statistics[source];
+        stats.arrivals++;
+        stats.departures++;
+        scheduleArrival(source);
+        forward(source, 0, entity);
+    }
+
+    private void forward(int block, int port, Entity entity)
+    {
+        int target = this.model.successors[block][port];
+        if (target == SimulationModel.NONE)
+        {
+            this.statistics[block].disposed++;
+            this.pool.release(entity);
+            return;
+        }
+        arrive(target, this.model.successorPorts[block][port], entity);
+    }
+
+    private void arrive(int block, int port, Entity entity)
+    {
+        if (++this.depth > MAX_INSTANT_HOPS)
+        {
+            throw new IllegalStateException("Node " + this.model.getNode(block).getId()
+                    + " is part of a loop which does not contain any service node");
+        }
+        BlockStatistics stats = this.statistics[block];
+        stats.arrivals++;
+        entity.enteredAt = this.clock;
+        switch (this.model.types[block])
+        {
+        case SimulationModel.SERVICE:
+            stats.advance(this.clock);
+            if (stats.busy < this.model.workers[block])
+            {
+                startService(block, entity);
+            }
+            else if (stats.queueLength < this.model.queueCapacities[block])
+            {
+                enqueue(2 * block, entity);
+                stats.queueLength++;
+                if (stats.queueLength > stats.maxQueueLength)
+                {
+                    stats.maxQueueLength = stats.queueLength;
+                }
+            }
+            else
+            {
+                stats.lost++;
+                this.pool.release(entity);
+            }
+            break;
+        case SimulationModel.SELECT:
+            stats.departures++;
+            forward(block, this.random.nextDouble() < this.model.probabilities[block] ? 0 : 1, entity);
+            break;
+        case SimulationModel.SPLIT:
+            Entity copy = this.pool.acquire(entity.createdAt);
+            this.created++;
+            stats.departures++;
+            forward(block, 0, entity);
+            forward(block, 1, copy);
+            break;
+        case SimulationModel.COMBINE:
+            Entity partner = dequeue(2 * block + 1 - port);
+            if (partner == null)
+            {
+                enqueue(2 * block + port, entity);
+                break;
+            }
+            stats.departures++;
+            Entity kept = port == 0 ? entity : partner;
+            this.pool.release(kept == entity ? partner : entity);
+            forward(block, 0, kept);
+            break;
+        case SimulationModel.SINK:
+            stats.departures++;
+            this.timeInSystem.add(this.clock - entity.createdAt);
+            this.pool.release(entity);
+            break;
+        default:
+            forward(block, 0, entity);
+            break;
+        }
+        this.depth--;
+    }
+
+    private void startService(int block, Entity entity)
+    {
+        BlockStatistics stats = this.statistics[block];
+        stats.busy++;
+        stats.waitingTime.add(this.clock - entity.enteredAt);
+        double delay = this.model.serviceTimes[block].sample(this.random);
+        this.events.push(this.clock + Math.max(delay, 0), block, entity.handle);
+    }
+
+    private void complete(int block, Entity entity)
+    {
+        BlockStatistics stats = this.statistics[block];
+        stats.advance(this.clock);
+        stats.busy--;
+        stats.departures++;
+        stats.sojournTime.add(this.clock - entity.enteredAt);
+        Entity next = dequeue(2 * block);
+        if (next != null)
+        {
+            stats.queueLength--;
+            startService(block, next);
+        }
+        forward(block, 0, entity);
+    }
+
+    private void enqueue(int queue, Entity entity)
+    {
+        entity.next = null;
+        if (this.queueTails[queue] == null)
+        {
+            this.queueHeads[queue] = entity;
+        }
+        else
+        {
+            this.queueTails[queue].next = entity;
+        }
+        this.queueTails[queue] = entity;
+    }
+
+    private Entity dequeue(int queue)
+    {
+        Entity head = this.queueHeads[queue];
+        if (head != null)
+        {
+            this.queueHeads[queue] = head.next;
+            if (head.next == null)
+            {
+                this.queueTails[queue] = null;
+            }
+            head.next = null;
+        }
+        return head;
+    }
+
+    /** Guard against loops made only of instantaneous blocks */
+    private static final int MAX_INSTANT_HOPS = 10000;
+
+    private final SimulationModel model;
+    private final EventQueue events;
+    private final EntityPool pool;
+    private final Entity[] queueHeads;
+    private final Entity[] queueTails;
+    private final long[] generated;
+
+    private SplittableRandom random;
+    private BlockStatistics[] statistics;
+    private Tally timeInSystem;
+    private double clock;
+    private long created;
+    private int depth;
+
+}
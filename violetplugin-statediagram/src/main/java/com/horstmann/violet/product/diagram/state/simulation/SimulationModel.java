@@ -0,0 +1,258 @@
+/*
+ Violet - A program for editing UML diagrams.
+
+ Copyright (C) 2007 Cay S. Horstmann (http://horstmann.com)
+ Alexandre de Pellegrin (http://alexdp.free.fr);
+
+ This program is free software; you can redistribute it and/or modify
+ it under the terms of the GNU General Public License as published by
+ the Free Software Foundation; either version 2 of the License, or
+ (at your option) any later version.
+
+ This program is distributed in the hope that it will be useful,
+ but WITHOUT ANY WARRANTY; without even the implied warranty of
+ MERCHANTABILITY or FITNESS FOR A PARTICULAR PURPOSE.  See the
+ GNU General Public License for more details.
+
+ You should have received a copy of the GNU General Public License
+ along with this program; if not, write to the Free Software
+ Foundation, Inc., 59 Temple Place, Suite 330, Boston, MA  02111-1307  USA
+ */
+
+package com.horstmann.violet.product.diagram.state.simulation;
+
+import java.util.ArrayList;
+import java.util.Arrays;
+import java.util.IdentityHashMap;
+import java.util.List;
+import java.util.Map;
+
+import com.horstmann.violet.product.diagram.abstracts.IGraph;
+import com.horstmann.violet.product.diagram.abstracts.edge.IEdge;
+import com.horstmann.violet.product.diagram.abstracts.node.INode;
+import com.horstmann.violet.product.diagram.state.CircularFinalStateNode;
+import com.horstmann.violet.product.diagram.state.CircularInitialStateNode;
+import com.horstmann.violet.product.diagram.state.CombineNode;
+import com.horstmann.violet.product.diagram.state.ProbabilityNode;
+import com.horstmann.violet.product.diagram.state.SplitNode;
+import com.horstmann.violet.product.diagram.state.StateNode;
+import com.horstmann.violet.product.diagram.state.StateTransitionEdge;
+
+/**
+ * Immutable, array based view of a state diagram used as a queueing network. Each supported node becomes a block with the same
+ * semantics as the AnyLogic block written by GraphFile.exportToAlp() :
+ * <ul>
+ * <li>CircularInitialStateNode : Source with a Poisson arrival rate (lambda per second) and an optional arrival limit</li>
+ * <li>StateNode : Service with a bounded queue, a pool of workers and a delay drawn from the tob expression</li>
+ * <li>ProbabilityNode : SelectOutput, the first outgoing edge is taken with the given probability</li>
+ * <li>SplitNode : Split, the first outgoing edge receives the original and the second one a copy</li>
+ * <li>CombineNode : Combine, waits for one entity on each incoming edge and forwards the first one</li>
+ * <li>CircularFinalStateNode : TimeMeasureEnd followed by a Sink</li>
+ * </ul>
+ * A compiled model can be shared by several concurrent {@link SimulationEngine} instances.
+ */
+public class SimulationModel
+{
+    static final int SOURCE = 0;
+    static final int SERVICE = 1;
+    static final int SELECT = 2;
+    static final int SPLIT = 3;
+    static final int COMBINE = 4;
+    static final int SINK = 5;
+
+    /** No block connected to an output port */
+    static final int NONE = -1;
+
+    private SimulationModel(List<INode> blocks)
+    {
+        int n = blocks.size();
+        this.nodes = blocks.toArray(new INode[n]);
+        this.types = new int[n];
+        this.successors = new int[n][2];
+        this.successorPorts = new int[n][2];
+        this.rates = new double[n];
+        this.limits = new long[n];
+        this.workers = new int[n];
+        this.queueCapacities = new int[n];
+        this.probabilities = new double[n];
+        this.serviceTimes = new Sampler[n];
+        for (int i = 0; i < n; i++)
+        {
+            Arrays.fill(this.successors[i], NONE);
+        }
+    }
+
+    /**
+     * Compiles a state diagram. Nodes which are not part of the queueing network (notes for example) are ignored.
+     *
+     * @param graph the diagram to simulate
+     * @return the compiled model
+     * @throws IllegalArgumentException if a node property cannot be interpreted
+     */
+    public static SimulationModel compile(IGraph graph)
+    {
+        List<INode> blocks = new ArrayList<INode>();
+        Map<INode, Integer> indexes = new IdentityHashMap<INode, Integer>();
+        for (INode aNode : graph.getAllNodes())
+        {
+            if (typeOf(aNode) != NONE)
+            {
+                indexes.put(aNode, blocks.size());
+                blocks.add(aNode);
+            }
+        }
+        SimulationModel model = new SimulationModel(blocks);
+        for (int i = 0; i < model.nodes.length; i++)
+        {
+            model.configure(i);
+        }
+        int[] connectedInputs = new int[model.nodes.length];
+        for (IEdge anEdge : graph.getAllEdges())
+        {
+            if (!(anEdge instanceof StateTransitionEdge))
+            {
+                continue;
+            }
+            Integer from = indexes.get(anEdge.getStart());
+            Integer to = indexes.get(anEdge.getEnd());
+            if (from == null || to == null)
+            {
+                continue;
+            }
+            int[] outputs = model.successors[from];
+            int port = outputs[0] == NONE ? 0 : 1;
+            if (outputs[port] != NONE || (port == 1 && !model.hasTwoOutputs(from)))
+            {
+                // Extra edges on a single output port are ignored, as only one connector per port makes sense in AnyLogic
+                continue;
+            }
+            outputs[port] = to;
+            model.successorPorts[from][port] = model.types[to] == COMBINE ? (connectedInputs[to]++ % 2) : 0;
+        }
+        return model;
+    }
+
+    private void configure(int i)
+    {
+        INode node = this.nodes[i];
+        int type = typeOf(node);
+        this.types[i] = type;
+        switch (type)
+        {
+        case SOURCE:
+            this.rates[i] = parseRate((CircularInitialStateNode) node);
+            this.limits[i] = parseLong(node, "limit", node.getLimit());
+            break;
+        case SERVICE:
+            this.workers[i] = (int) parseLong(node, "workers", node.getWorkers());
+            this.queueCapacities[i] = (int) parseLong(node, "queue", node.getQueue());
+            try
+            {
+                this.serviceTimes[i] = ((StateNode) node).getTobSampler();
+            }
+            catch (IllegalArgumentException e)
+            {
+                throw new IllegalArgumentException("Node " + node.getId() + " : invalid tob. " + e.getMessage(), e);
+            }
+            break;
+        case SELECT:
+            this.probabilities[i] = parseDouble(node, "probability", node.getProbability());
+            break;
+        default:
+            break;
+        }
+    }
+
+    private static int typeOf(INode node)
+    {
+        if (node instanceof CircularInitialStateNode) return SOURCE;
+        if (node instanceof StateNode) return SERVICE;
+        if (node instanceof ProbabilityNode) return SELECT;
+        if (node instanceof SplitNode) return SPLIT;
+        if (node instanceof CombineNode) return COMBINE;
+        if (node instanceof CircularFinalStateNode) return SINK;
+        return NONE;
+    }
+
+    private boolean hasTwoOutputs(int block)
+    {
+        return this.types[block] == SELECT || this.types[block] == SPLIT;
+    }
+
+    private static double parseRate(CircularInitialStateNode node)
+    {
+        Sampler rate;
+        try
+        {
+            rate = node.getLambdaSampler();
+        }
+        catch (IllegalArgumentException e)
+        {
+            throw new IllegalArgumentException("Node " + node.getId() + " : invalid lambda. " + e.getMessage(), e);
+        }
+        if (!Samplers.isConstant(rate) || rate.getMean() < 0)
+        {
+            throw new IllegalArgumentException("Node " + node.getId() + " : lambda must be a non-negative constant '" + node.getLambda()
+                    + "'");
+        }
+        return rate.getMean();
+    }
+
+    private static double parseDouble(INode node, String property, String value)
+    {
+        try
+        {
+            return Double.parseDouble(value.trim());
+        }
+        catch (RuntimeException e)
+        {
+            throw new IllegalArgumentException("Node " + node.getId() + " : invalid " + property + " '" + value + "'", e);
+        }
+    }
+
+    private static long parseLong(INode node, String property, String value)
+    {
+        try
+        {
+            long result = Long.parseLong(value.trim());
+            if (result < 0)
+            {
+                throw new NumberFormatException();
+            }
+            return result;
+        }
+        catch (RuntimeException e)
+        {
+            throw new IllegalArgumentException("Node " + node.getId() + " : invalid " + property + " '" + value + "'", e);
+        }
+    }
+
+    /**
+     * @return number of blocks in the model
+     */
+    public int getBlockCount()
+    {
+        return this.nodes.length;
+    }
+
+    /**
+     * @param block block index
+     * @return the diagram node this block has been built from
+     */
+    public INode getNode(int block)
+    {
+        return this.nodes[block];
+    }
+
+    private final INode[] nodes;
+    final int[] types;
+    final int[][] successors;
+    final int[][] successorPorts;
+    final double[] rates;
+    final long[] limits;
+    final int[] workers;
+    final int[] queueCapacities;
+    final double[] probabilities;
+    final Sampler[] serviceTimes;
+
+}
@@ -0,0 +1,106 @@
+/*
+ Violet - A program for editing UML diagrams.
+
+ Copyright (C) 2007 Cay S. Horstmann (http://horstmann.com)
+ Alexandre de Pellegrin (http://alexdp.free.fr);
+
+ This program is free software; you can redistribute it and/or modify
+ it under the terms of the GNU General Public License as published by
+ the Free Software Foundation; either version 2 of the License, or
+ (at your option) any later version.
+
+ This program is distributed in the hope that it will be useful,
+ but WITHOUT ANY WARRANTY; without even the implied warranty of
+ MERCHANTABILITY or FITNESS FOR A PARTICULAR PURPOSE.  See the
+ GNU General Public License for more details.
+
+ You should have received a copy of the GNU General Public License
+ along with this program; if not, write to the Free Software
+ Foundation, Inc., 59 Temple Place, Suite 330, Boston, MA  02111-1307  USA
+ */
+
+package com.horstmann.violet.product.diagram.state.simulation;
+
+import java.util.Arrays;
+import java.util.Collections;
+import java.util.List;
+
+import com.horstmann.violet.product.diagram.abstracts.node.INode;
+
+/**
+ * Outcome of one simulation run
+ */
+public class SimulationResult
+{
+    SimulationResult(BlockStatistics[] blocks, Tally timeInSystem, double endTime, long events, long entities)
+    {
+        this.blocks = blocks;
+        this.timeInSystem = timeInSystem;
+        this.endTime = endTime;
+        this.events = events;
+        this.entities = entities;
+    }
+
+    /**
+     * @return statistics of every block, in model order
+     */
+    public List<BlockStatistics> getBlockStatistics()
+    {
+        return Collections.unmodifiableList(Arrays.asList(this.blocks));
+    }
+
+    /**
+     * @param node a diagram node
+     * @return statistics of the block built from this node, or null if this node is not part of the model
+     */
+    public BlockStatistics getBlockStatistics(INode node)
+    {
+        for (BlockStatistics aBlock : this.blocks)
+        {
+            if (aBlock.getNode() == node)
+            {
+                return aBlock;
+            }
+        }
+        return null;
+    }
+
+    /**
+     * @return time between source and final nodes, in seconds
+     */
+    public Tally getTimeInSystem()
+    {
+        return this.timeInSystem;
+    }
+
+    /**
+     * @return model time at which the run stopped
+     */
+    public double getEndTime()
+    {
+        return this.endTime;
+    }
+
+    /**
+     * @return number of processed events
+     */
+    public long getEventCount()
+    {
+        return this.events;
+    }
+
+    /**
+     * @return number of entities created by sources and splits
+     */
+    public long getEntityCount()
+    {
+        return this.entities;
+    }
+
+    private final BlockStatistics[] blocks;
+    private final Tally timeInSystem;
+    private final double endTime;
+    private final long events;
+    private final long entities;
+
+}
@@ -0,0 +1,82 @@
+/*
+ Violet - A program for editing UML diagrams.
+
+ Copyright (C) 2007 Cay S. Horstmann (http://horstmann.com)
+ Alexandre de Pellegrin (http://alexdp.free.fr);
+
+ This program is free software; you can redistribute it and/or modify
+ it under the terms of the GNU General Public License as published by
+ the Free Software Foundation; either version 2 of the License, or
+ (at your option) any later version.
+
+ This program is distributed in the hope that it will be useful,
+ but WITHOUT ANY WARRANTY; without even the implied warranty of
+ MERCHANTABILITY or FITNESS FOR A PARTICULAR PURPOSE.  See the
+ GNU General Public License for more details.
+
+ You should have received a copy of the GNU General Public License
+ along with this program; if not, write to the Free Software
+ Foundation, Inc., 59 Temple Place, Suite 330, Boston, MA  02111-1307  USA
+ */
+
+package com.horstmann.violet.product.diagram.state.simulation;
+
+/**
+ * Run control of a simulation. Defaults match the run configuration written in exported AnyLogic models (model time from 0 to
+ * 100 seconds, fixed seed 1).
+ */
+public class SimulationSettings
+{
+    /**
+     * @return model time (in seconds) at which the run stops
+     */
+    public double getStopTime()
+    {
+        return this.stopTime;
+    }
+
+    /**
+     * @param stopTime model time (in seconds) at which the run stops
+     */
+    public void setStopTime(double stopTime)
+    {
+        this.stopTime = stopTime;
+    }
+
+    /**
+     * @return maximum number of events to process before stopping
+     */
+    public long getMaxEvents()
+    {
+        return this.maxEvents;
+    }
+
+    /**
+     * @param maxEvents maximum number of events to process before stopping
+     */
+    public void setMaxEvents(long maxEvents)
+    {
+        this.maxEvents = maxEvents;
+    }
+
+    /**
+     * @return seed of the random stream
+     */
+    public long getSeed()
+    {
+        return this.seed;
+    }
+
+    /**
+     * @param seed seed of the random stream
+     */
+    public void setSeed(long seed)
+    {
+        this.seed = seed;
+    }
+
+    private double stopTime = 100;
+    private long maxEvents = Long.MAX_VALUE;
+    private long seed = 1;
+
+}
@@ -0,0 +1,90 @@
+/*
+ Violet - A program for editing UML diagrams.
+
+ Copyright (C) 2007 Cay S. Horstmann (http://horstmann.com)
+ Alexandre de Pellegrin (http://alexdp.free.fr);
+
+ This program is free software; you can redistribute it and/or modify
+ it under the terms of the GNU General Public License as published by
+ the Free Software Foundation; either version 2 of the License, or
+ (at your option) any later version.
+
+ This program is distributed in the hope that it will be useful,
+ but WITHOUT ANY WARRANTY; without even the implied warranty of
+ MERCHANTABILITY or FITNESS FOR A PARTICULAR PURPOSE.  See the
+ GNU General Public License for more details.
+
+ You should have received a copy of the GNU General Public License
+ along with this program; if not, write to the Free Software
+ Foundation, Inc., 59 Temple Place, Suite 330, Boston, MA  02111-1307  USA
+ */
+
+package com.horstmann.violet.product.diagram.state.simulation;
+
+/**
+ * Running count, mean, deviation, minimum and maximum of a series of observations (Welford's algorithm).
+ */
+public class Tally
+{
+    /**
+     * Records an observation
+     *
+     * @param value v
+     */
+    public void add(double value)
+    {
+        this.count++;
+        double delta = value - this.mean;
+        this.mean += delta / this.count;
+        this.m2 += delta * (value - this.mean);
+        if (value < this.min) this.min = value;
+        if (value > this.max) this.max = value;
+    }
+
+    /**
+     * @return number of observations
+     */
+    public long getCount()
+    {
+        return this.count;
+    }
+
+    /**
+     * @return mean of the observations, or 0 if there is none
+     */
+    public double getMean()
+    {
+        return this.mean;
+    }
+
+    /**
+     * @return sample standard deviation of the observations
+     */
+    public double getDeviation()
+    {
+        return this.count > 1 ? Math.sqrt(this.m2 / (this.count - 1)) : 0;
+    }
+
+    /**
+     * @return smallest observation, or 0 if there is none
+     */
+    public double getMin()
+    {
+        return this.count > 0 ? this.min : 0;
+    }
+
+    /**
+     * @return largest observation, or 0 if there is none
+     */
+    public double getMax()
+    {
+        return this.count > 0 ? this.max : 0;
+    }
+
+    private long count;
+    private double mean;
+    private double m2;
+    private double min = Double.POSITIVE_INFINITY;
+    private double max = Double.NEGATIVE_INFINITY;
+
+}
@@ -23,11 +23,14 @@ package com.horstmann.violet;
 import java.awt.Toolkit;
 import java.io.File;
 import java.io.IOException;
+import java.text.MessageFormat;
 import java.util.ArrayList;
 import java.util.List;
 import java.util.Locale;
 
+import javax.swing.ImageIcon;
 import javax.swing.JFrame;
+import javax.swing.JOptionPane;
 
 import com.horstmann.violet.application.gui.MainFrame;
 import com.horstmann.violet.application.gui.SplashScreen;
@@ -39,11 +42,14 @@ import com.horstmann.violet.framework.file.IGraphFile;
 import com.horstmann.violet.framework.file.LocalFile;
 import com.horstmann.violet.framework.file.chooser.IFileChooserService;
 import com.horstmann.violet.framework.file.chooser.JFileChooserService;
+import com.horstmann.violet.framework.file.persistence.AutoSavedGraph;
 import com.horstmann.violet.framework.file.persistence.IFilePersistenceService;
 import com.horstmann.violet.framework.file.persistence.XHTMLPersistenceService;
 import com.horstmann.violet.framework.injection.bean.ManiocFramework.BeanFactory;
 import com.horstmann.violet.framework.injection.bean.ManiocFramework.BeanInjector;
 import com.horstmann.violet.framework.injection.bean.ManiocFramework.InjectedBean;
+import com.horstmann.violet.framework.injection.resources.ResourceBundleInjector;
+import com.horstmann.violet.framework.injection.resources.annotation.ResourceBundleBean;
 import com.horstmann.violet.framework.plugin.PluginLoader;
 import com.horstmann.violet.framework.theme.BlueAmbianceTheme;
 import com.horstmann.violet.framework.theme.ClassicMetalTheme;
@@ -107,6 +113,7 @@ public class UMLEditorApplication
     {
         initBeanFactory();
         BeanInjector.getInjector().inject(this);
+        ResourceBundleInjector.getInjector().inject(this);
         createDefaultWorkspace(filesToOpen);
     }
     
@@ -149,6 +156,7 @@ public class UMLEditorApplication
      * + jvm checking<br>
      * + command line args<br>
      * + last workspace restore<br>
+     * + recovery of diagrams autosaved before a crash<br>
      */
     private void createDefaultWorkspace(String[] filesToOpen)
     {
@@ -198,6 +206,85 @@ public class UMLEditorApplication
         mainFrame.setVisible(true);
         splashScreen.setVisible(false);
         splashScreen.dispose();
+        recoverAutoSavedFiles(mainFrame);
+    }
+
+    /**
+     * Offers to recover the diagrams which were being edited when the application last stopped without saving them. Recovered
+     * diagrams are opened unsaved. Autosaved diagrams are only deleted once the user confirms they are not wanted, otherwise
+     * they are offered again on next start.
+     */
+    private void recoverAutoSavedFiles(MainFrame mainFrame)
+    {
+        List<AutoSavedGraph> autoSavedGraphs = GraphFile.getAutoSavedGraphs();
+        if (autoSavedGraphs.isEmpty())
+        {
+            return;
+        }
+        String message = MessageFormat.format(this.dialogRecoveryMessage, new Object[]
+        {
+            autoSavedGraphs.size()
+        });
+        JOptionPane optionPane = new JOptionPane(message, JOptionPane.QUESTION_MESSAGE, JOptionPane.YES_NO_OPTION,
+                this.dialogRecoveryIcon);
+        this.dialogFactory.showDialog(optionPane, this.dialogRecoveryTitle, true);
+        // Closing the dialog keeps the autosaved files, they are offered again on next start
+        int result = getAnswer(optionPane);
+        if (result == JOptionPane.NO_OPTION)
+        {
+            JOptionPane confirmPane = new JOptionPane(this.dialogRecoveryDiscardMessage, JOptionPane.WARNING_MESSAGE,
+                    JOptionPane.YES_NO_OPTION, this.dialogRecoveryIcon);
+            this.dialogFactory.showDialog(confirmPane, this.dialogRecoveryTitle, true);
+            if (getAnswer(confirmPane) == JOptionPane.YES_OPTION)
+            {
+                for (AutoSavedGraph anAutoSavedGraph : autoSavedGraphs)
+                {
+                    anAutoSavedGraph.delete();
+                }
+            }
+            return;
+        }
+        if (result != JOptionPane.YES_OPTION)
+        {
+            return;
+        }
+        int failureCount = 0;
+        for (AutoSavedGraph anAutoSavedGraph : autoSavedGraphs)
+        {
+            try
+            {
+                IGraphFile graphFile = new GraphFile(anAutoSavedGraph);
+                IWorkspace workspace = new Workspace(graphFile);
+                mainFrame.addWorkspace(workspace);
+                graphFile.setSaveRequired();
+            }
+            catch (Exception e)
+            {
+                // The autosaved files are kept, so that recovery can be tried again
+                e.printStackTrace();
+                failureCount++;
+            }
+        }
+        if (failureCount > 0)
+        {
+            this.dialogFactory.showErrorDialog(MessageFormat.format(this.dialogRecoveryFailedMessage, new Object[]
+            {
+                failureCount
+            }));
+        }
+    }
+
+    /**
+     * @return the option chosen in a dialog, {@link JOptionPane#CLOSED_OPTION} if it was closed
+     */
+    private static int getAnswer(JOptionPane optionPane)
+    {
+        Object value = optionPane.getValue();
+        if (value instanceof Integer)
+        {
+            return ((Integer) value).intValue();
+        }
+        return JOptionPane.CLOSED_OPTION;
     }
 
     /**
@@ -219,5 +306,23 @@ public class UMLEditorApplication
     @InjectedBean
     private UserPreferencesService userPreferencesService;
 
+    @InjectedBean
+    private DialogFactory dialogFactory;
+
+    @ResourceBundleBean(key = "dialog.recovery.title")
+    private String dialogRecoveryTitle;
+
+    @ResourceBundleBean(key = "dialog.recovery.ok")
+    private String dialogRecoveryMessage;
+
+    @ResourceBundleBean(key = "dialog.recovery.discard")
+    private String dialogRecoveryDiscardMessage;
+
+    @ResourceBundleBean(key = "dialog.recovery.failed")
+    private String dialogRecoveryFailedMessage;
+
+    @ResourceBundleBean(key = "dialog.recovery.icon")
+    private ImageIcon dialogRecoveryIcon;
+
 
 }
\ No newline at end of file
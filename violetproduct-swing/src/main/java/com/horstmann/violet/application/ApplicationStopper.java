@@ -37,6 +37,7 @@ public class ApplicationStopper
         	for (IWorkspace workspace: mainFrame.getWorkspaceList())
         	{
         		// Perform what you want here before exit!!!
+        		workspace.getGraphFile().discardAutoSave();
         	}
             System.exit(0);
         }
@@ -478,18 +478,21 @@ public class FileMenu extends JMenu
                             {
                                 mainFrame.removeWorkspace(workspace);
                                 userPreferencesService.removeOpenedFile(graphFile);
+                                graphFile.discardAutoSave();
                             }
                         }
                         if (result == JOptionPane.NO_OPTION)
                         {
                             mainFrame.removeWorkspace(workspace);
                             userPreferencesService.removeOpenedFile(graphFile);
+                            graphFile.discardAutoSave();
                         }
                     }
                     if (!graphFile.isSaveRequired())
                     {
                         mainFrame.removeWorkspace(workspace);
                         userPreferencesService.removeOpenedFile(graphFile);
+                        graphFile.discardAutoSave();
                     }
                     List<IWorkspace> workspaceList = mainFrame.getWorkspaceList();
                     if (workspaceList.size() == 0)